@@ -0,0 +1,67 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.util.BolusFactorCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht den durchschnittlichen Bolusfaktor über kumulierte Minutenfaktoren (konstante Zeit)
+ * mit der minutenweisen Schleife, für verschiedene Zeitraumlängen.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BolusFactorCalculatorBenchmark {
+
+    private static final int START_TIMES = 1024;
+
+    @Param({"120", "480", "1440", "10080"})
+    private int durationMinutes;
+
+    private final BolusFactorCalculator calculator = new BolusFactorCalculator();
+    private final int[] startHours = new int[START_TIMES];
+    private final int[] startMinutes = new int[START_TIMES];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < START_TIMES; i++) {
+            startHours[i] = random.nextInt(24);
+            startMinutes[i] = random.nextInt(60);
+
+            double prefixSum = calculator.calculateAverageBolusFactor(startHours[i], startMinutes[i], durationMinutes);
+            double iterative = calculator.calculateAverageBolusFactorIterative(startHours[i], startMinutes[i], durationMinutes);
+            if (Math.abs(prefixSum - iterative) > BolusFactorCalculator.AVERAGE_FACTOR_EPSILON) {
+                throw new IllegalStateException("Abweichung zwischen Präfixsummen und Schleife: " + prefixSum + " / " + iterative);
+            }
+        }
+    }
+
+    @Benchmark
+    public double prefixSum() {
+        int i = index++ & (START_TIMES - 1);
+        return calculator.calculateAverageBolusFactor(startHours[i], startMinutes[i], durationMinutes);
+    }
+
+    @Benchmark
+    public double iterative() {
+        int i = index++ & (START_TIMES - 1);
+        return calculator.calculateAverageBolusFactorIterative(startHours[i], startMinutes[i], durationMinutes);
+    }
+}
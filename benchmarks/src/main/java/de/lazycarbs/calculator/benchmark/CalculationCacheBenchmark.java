@@ -0,0 +1,74 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.cache.CalculationCache;
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.MealInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die Berechnungskette mit und ohne {@link CalculationCache}, wenn mehrere Threads immer wieder
+ * dieselben Standard-Mahlzeiten berechnen. Mit {@code distinctMeals} größer als {@code cacheSize} wird der
+ * Verdrängungspfad gemessen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CalculationCacheBenchmark {
+
+    @Param({"64", "4096"})
+    private int distinctMeals;
+
+    @Param({"1024"})
+    private int cacheSize;
+
+    private MealInput[] meals;
+    private CalculationPipeline uncachedPipeline;
+    private CalculationPipeline cachedPipeline;
+
+    @Setup
+    public void setUp() {
+        meals = MealDistribution.MIXED.sample(distinctMeals, 42);
+        uncachedPipeline = new CalculationPipeline();
+        cachedPipeline = new CalculationPipeline(new CalculationCache(cacheSize));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println();
+        System.out.println(cachedPipeline.cache().stats());
+    }
+
+    @Benchmark
+    public CalculationResult uncached() {
+        return uncachedPipeline.calculate(nextMeal());
+    }
+
+    @Benchmark
+    public CalculationResult cached() {
+        return cachedPipeline.calculate(nextMeal());
+    }
+
+    private MealInput nextMeal() {
+        return meals[ThreadLocalRandom.current().nextInt(meals.length)];
+    }
+}
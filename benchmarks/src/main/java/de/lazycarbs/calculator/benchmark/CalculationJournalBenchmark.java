@@ -0,0 +1,97 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.journal.CalculationJournal;
+import de.lazycarbs.calculator.journal.CalculationJournalReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Misst das Anhängen an das lokale Journal (zum Vergleich mit {@link DatabaseManagerBenchmark}) und das
+ * sequenzielle Lesen eines Journals mit {@value #READ_RECORDS} Datensätzen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculationJournalBenchmark {
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int READ_RECORDS = 100_000;
+
+    private Path appendDirectory;
+    private Path readDirectory;
+    private CalculationJournal journal;
+    private CalculationRecord[] records;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        CalculationPipeline pipeline = new CalculationPipeline();
+        MealInput[] meals = MealDistribution.MIXED.sample(SAMPLE_SIZE, 42);
+        records = new CalculationRecord[SAMPLE_SIZE];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            records[i] = CalculationRecord.of(pipeline.calculate(meals[i]), now);
+        }
+
+        appendDirectory = Files.createTempDirectory("lazycarbs-journal-append");
+        journal = new CalculationJournal(appendDirectory);
+
+        readDirectory = Files.createTempDirectory("lazycarbs-journal-read");
+        try (CalculationJournal readJournal = new CalculationJournal(readDirectory)) {
+            for (int i = 0; i < READ_RECORDS; i++) {
+                readJournal.append(records[i & (SAMPLE_SIZE - 1)]);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        journal.close();
+        deleteRecursively(appendDirectory);
+        deleteRecursively(readDirectory);
+    }
+
+    @Benchmark
+    public long append() throws IOException {
+        return journal.append(records[index++ & (SAMPLE_SIZE - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long readAllWithoutExplanations(Blackhole blackhole) throws IOException {
+        return new CalculationJournalReader(readDirectory).forEach(0, false, blackhole::consume);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.database.ConnectionPool;
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.outbox.CalculationOutbox;
+import de.lazycarbs.calculator.outbox.OutboxFsyncPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Misst das Speichern über die {@link CalculationOutbox} für jede fsync-Strategie, während der Hintergrund-Thread
+ * die Datensätze in eine In-Memory-H2-Datenbank überträgt (zum Vergleich mit {@link DatabaseManagerBenchmark} und
+ * {@link CalculationJournalBenchmark}). Am Ende wird die Statistik der Outbox ausgegeben, darunter der Durchsatz
+ * der Übertragung.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculationOutboxBenchmark {
+
+    private static final String H2_URL = "jdbc:h2:mem:lazycarbs_outbox_bench;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final int SAMPLE_SIZE = 1024;
+
+    @Param({"NEVER", "INTERVAL", "ALWAYS"})
+    private OutboxFsyncPolicy fsyncPolicy;
+
+    private Path directory;
+    private CalculationOutbox outbox;
+    private CalculationRecord[] records;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        try (Connection connection = DriverManager.getConnection(H2_URL);
+             Statement statement = connection.createStatement()) {
+            statement.execute(DatabaseManagerBenchmark.CALCULATIONS_TABLE_DDL);
+        }
+        CalculationPipeline pipeline = new CalculationPipeline();
+        MealInput[] meals = MealDistribution.MIXED.sample(SAMPLE_SIZE, 42);
+        records = new CalculationRecord[SAMPLE_SIZE];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            records[i] = CalculationRecord.of(pipeline.calculate(meals[i]), now);
+        }
+        directory = Files.createTempDirectory("lazycarbs-outbox");
+        DatabaseManager database = new DatabaseManager(new ConnectionPool(() -> DriverManager.getConnection(H2_URL)));
+        outbox = CalculationOutbox.open(directory, database, fsyncPolicy, 100, 500, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        outbox.close();
+        System.out.println("\nOutbox: " + outbox.stats());
+        try (Connection connection = DriverManager.getConnection(H2_URL);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE calculations");
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void saveCalculation() throws SQLException {
+        outbox.saveCalculation(records[index++ & (SAMPLE_SIZE - 1)]);
+    }
+}
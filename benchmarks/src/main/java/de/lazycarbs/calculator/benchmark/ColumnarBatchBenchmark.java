@@ -0,0 +1,98 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.batch.ColumnarBatchCalculator;
+import de.lazycarbs.calculator.batch.ColumnarMealBatch;
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.MealInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die objektbasierte Berechnungskette mit dem spaltenorientierten Batch-Kernel (skalar und Vector API)
+ * für einen Block gemischter Mahlzeiten. Vor der Messung wird geprüft, dass beide Kernel bitgleich dieselben
+ * Werte wie der objektbasierte Weg liefern.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ColumnarBatchBenchmark {
+
+    @Param({"4096"})
+    private int batchSize;
+
+    private final CalculationPipeline pipeline = new CalculationPipeline();
+    private final ColumnarBatchCalculator scalarCalculator = new ColumnarBatchCalculator(false);
+    private final ColumnarBatchCalculator vectorCalculator = new ColumnarBatchCalculator(true);
+    private MealInput[] meals;
+    private ColumnarMealBatch batch;
+
+    @Setup
+    public void setUp() {
+        meals = MealDistribution.MIXED.sample(batchSize, 42);
+        // Randfälle: keine Kohlenhydrate (beSum == 0) und Kalorien pro BE genau auf der Kalorienabdeckung
+        meals[0] = new MealInput(0, 300, 105, 200, 12, 0, 1);
+        meals[1] = new MealInput(24, 400, 105, 200, 7, 30, 0.8);
+        meals[2] = new MealInput(120, 2500, 105, 200, 23, 59, 1);
+
+        batch = new ColumnarMealBatch(batchSize);
+        for (MealInput meal : meals) {
+            batch.add(meal.mealCarbs(), meal.mealCalories(), meal.usualBeCalories(), meal.insulinTypeCalorieCovering(),
+                    meal.currentHour(), meal.currentMinute(), meal.movementFactor());
+        }
+
+        if (!vectorCalculator.usesVectorApi()) {
+            System.err.println("WARNUNG: Vector API nicht verfügbar, vectorKernel misst den skalaren Kernel.");
+        }
+        verify(scalarCalculator, "skalar");
+        verify(vectorCalculator, "Vector API");
+    }
+
+    private void verify(ColumnarBatchCalculator calculator, String name) {
+        calculator.calculate(batch);
+        for (int i = 0; i < meals.length; i++) {
+            CalculationResult expected = pipeline.calculate(meals[i]);
+            String methodName = ColumnarMealBatch.methodName(batch.methodCodes[i]);
+            if (!methodName.equals(expected.methodSelection().strategy().getClass().getSimpleName())
+                    || !batch.intermediateBolusFactors(i).equals(expected.intermediateBolusFactors())
+                    || !batch.methodResults(i).equals(expected.methodResults())
+                    || Double.compare(batch.finalCorrectBolus[i], expected.finalCorrectBolus()) != 0) {
+                throw new IllegalStateException("Kernel (" + name + ") weicht in Zeile " + i + " ab: " + meals[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void objectPipeline(Blackhole blackhole) {
+        for (MealInput meal : meals) {
+            blackhole.consume(pipeline.calculate(meal));
+        }
+    }
+
+    @Benchmark
+    public double[] scalarKernel() {
+        scalarCalculator.calculate(batch);
+        return batch.finalCorrectBolus;
+    }
+
+    @Benchmark
+    public double[] vectorKernel() {
+        vectorCalculator.calculate(batch);
+        return batch.finalCorrectBolus;
+    }
+}
@@ -0,0 +1,116 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.export.ColumnRange;
+import de.lazycarbs.calculator.export.ColumnarHistoryReader;
+import de.lazycarbs.calculator.export.ColumnarHistoryWriter;
+import de.lazycarbs.calculator.export.HistoryColumn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Lesen einer spaltenorientierten Exportdatei mit {@value #RECORDS} Datensätzen (eine Mahlzeit alle
+ * 5 Minuten): alle Zahlenspalten, nur zwei Spalten und einen Bereich, für den der Block-Index 90 % der Blöcke
+ * überspringt. Die Dateigröße pro Datensatz wird beim Aufbau ausgegeben.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnarHistoryBenchmark {
+
+    private static final int RECORDS = 1_000_000;
+    private static final int SAMPLE_SIZE = 4096;
+
+    private static final Set<HistoryColumn> NUMERIC_COLUMNS = EnumSet.complementOf(
+            EnumSet.of(HistoryColumn.SELECTED_METHOD_NAME, HistoryColumn.METHOD_EXPLANATION));
+    private static final Set<HistoryColumn> TWO_COLUMNS = EnumSet.of(HistoryColumn.CURRENT_HOUR,
+            HistoryColumn.FINAL_CORRECT_BOLUS);
+
+    private Path file;
+    private ColumnarHistoryReader reader;
+    private List<ColumnRange> lastTenPercent;
+
+    @Setup
+    public void setUp() throws IOException {
+        CalculationPipeline pipeline = new CalculationPipeline();
+        MealInput[] meals = MealDistribution.MIXED.sample(SAMPLE_SIZE, 42);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        file = Files.createTempFile("lazycarbs-columnar", ".lch");
+        try (ColumnarHistoryWriter writer = new ColumnarHistoryWriter(file, ColumnarHistoryWriter.DEFAULT_BLOCK_ROWS)) {
+            for (int i = 0; i < RECORDS; i++) {
+                writer.append(i, CalculationRecord.of(pipeline.calculate(meals[i % SAMPLE_SIZE]), start.plusMinutes(5L * i)));
+            }
+        }
+        System.out.printf("%nExportdatei: %d Byte, %.1f Byte pro Datensatz%n", Files.size(file),
+                (double) Files.size(file) / RECORDS);
+        reader = ColumnarHistoryReader.open(file);
+        lastTenPercent = List.of(new ColumnRange(HistoryColumn.POSITION, RECORDS * 0.9, Double.POSITIVE_INFINITY));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public double scanNumericColumns() throws IOException {
+        double[] sum = {0};
+        reader.scan(NUMERIC_COLUMNS, List.of(), block -> {
+            for (HistoryColumn column : NUMERIC_COLUMNS) {
+                for (int row = 0; row < block.size(); row++) {
+                    sum[0] += block.value(column, row);
+                }
+            }
+        });
+        return sum[0];
+    }
+
+    @Benchmark
+    public double scanTwoColumns() throws IOException {
+        double[] sum = {0};
+        reader.scan(TWO_COLUMNS, List.of(), block -> {
+            int[] hours = block.ints(HistoryColumn.CURRENT_HOUR);
+            double[] finalCorrectBolus = block.doubles(HistoryColumn.FINAL_CORRECT_BOLUS);
+            for (int row = 0; row < block.size(); row++) {
+                sum[0] += hours[row] < 12 ? finalCorrectBolus[row] : 0;
+            }
+        });
+        return sum[0];
+    }
+
+    @Benchmark
+    public double scanWithBlockSkipping() throws IOException {
+        double[] sum = {0};
+        reader.scan(TWO_COLUMNS, lastTenPercent, block -> {
+            double[] finalCorrectBolus = block.doubles(HistoryColumn.FINAL_CORRECT_BOLUS);
+            for (int row = 0; row < block.size(); row++) {
+                sum[0] += finalCorrectBolus[row];
+            }
+        });
+        return sum[0];
+    }
+}
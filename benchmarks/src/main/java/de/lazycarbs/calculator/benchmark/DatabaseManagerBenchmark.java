@@ -0,0 +1,118 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.database.ConnectionPool;
+import de.lazycarbs.calculator.database.DatabaseManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst DatabaseManager.saveCalculation und die Batch-Varianten (mit und ohne Idempotenz-Schlüssel) gegen eine
+ * lokale In-Memory-H2-Datenbank im MySQL-Modus.
+ * Die Zahlen enthalten damit die JDBC- und Binding-Kosten, aber keine Netzwerklatenz.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatabaseManagerBenchmark {
+
+    static final String H2_URL = "jdbc:h2:mem:lazycarbs_bench;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    static final String CALCULATIONS_TABLE_DDL = "CREATE TABLE IF NOT EXISTS calculations ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, timestamp TIMESTAMP, "
+            + "meal_carbs DOUBLE, meal_calories DOUBLE, usual_be_calories DOUBLE, insulin_type_calorie_covering DOUBLE, "
+            + "current_hour INT, current_minute INT, usual_bolus_factor DOUBLE, "
+            + "intermediate_lean_be_factor DOUBLE, intermediate_pure_carb_be_factor DOUBLE, intermediate_be_sum DOUBLE, "
+            + "intermediate_be_calories DOUBLE, intermediate_fat_protein_calories DOUBLE, "
+            + "selected_method_name VARCHAR(64), method_explanation VARCHAR(1024), "
+            + "method_correct_be_factor DOUBLE, method_calorie_surplus DOUBLE, method_delayed_calorie_bolus DOUBLE, "
+            + "method_correct_bolus_sum DOUBLE, method_fat_protein_calories DOUBLE, "
+            + "movement_factor DOUBLE, final_correct_bolus DOUBLE, idempotency_key VARCHAR(40) UNIQUE)";
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int BATCH_SIZE = 100;
+
+    private DatabaseManager databaseManager;
+    private CalculationRecord[] records;
+    private List<CalculationRecord> batch;
+    private long nextKey;
+    private int index;
+
+    @Setup
+    public void setUp() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(H2_URL);
+             Statement statement = connection.createStatement()) {
+            statement.execute(CALCULATIONS_TABLE_DDL);
+        }
+        databaseManager = new DatabaseManager(new ConnectionPool(() -> DriverManager.getConnection(H2_URL)));
+
+        CalculationPipeline pipeline = new CalculationPipeline();
+        MealInput[] meals = MealDistribution.MIXED.sample(SAMPLE_SIZE, 42);
+        records = new CalculationRecord[SAMPLE_SIZE];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            records[i] = CalculationRecord.of(pipeline.calculate(meals[i]), now);
+        }
+        batch = new ArrayList<>(List.of(records).subList(0, BATCH_SIZE));
+    }
+
+    // Tabelle nach jeder Iteration leeren, damit ihre Größe die Messung nicht verfälscht
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(H2_URL);
+             Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE calculations");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        databaseManager.closeConnection();
+    }
+
+    @Benchmark
+    public void saveCalculation() throws SQLException {
+        databaseManager.saveCalculation(records[index++ & (SAMPLE_SIZE - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveCalculationsBatch() throws SQLException {
+        databaseManager.saveCalculations(batch);
+    }
+
+    // wie saveCalculationsBatch, aber mit Idempotenz-Schlüsseln wie bei der Übertragung aus der Outbox
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveCalculationsIdempotentBatch() throws SQLException {
+        List<String> keys = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            keys.add("bench-" + nextKey++);
+        }
+        databaseManager.saveCalculations(batch, keys);
+    }
+}
@@ -0,0 +1,76 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.FixedPointDoseCalculator;
+import de.lazycarbs.calculator.core.FixedPointDoses;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.core.PumpRounding;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Prüft, dass die Festkomma-Rechnung (Zwischenfaktoren, Methode und Endbolus im {@link FixedPointDoseCalculator})
+ * nichts allokiert. Misst die Allokationen des Threads über com.sun.management.ThreadMXBean und beendet sich mit
+ * Exit-Code 1, wenn im Mittel mehr als ein Byte pro Mahlzeit allokiert wird.
+ * <pre>
+ * java -cp target/benchmarks.jar de.lazycarbs.calculator.benchmark.FixedPointAllocationCheck
+ * </pre>
+ */
+public final class FixedPointAllocationCheck {
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int WARMUP_CALLS = 2_000_000;
+    private static final int MEASURED_CALLS = 1_000_000;
+    private static final double MAX_BYTES_PER_CALL = 1;
+
+    private static long checksum;
+
+    private FixedPointAllocationCheck() {
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        MealInput[] meals = MealDistribution.MIXED.sample(SAMPLE_SIZE, 42);
+        double[] usualBolusFactors = new double[SAMPLE_SIZE];
+        CalculationStrategy[] strategies = new CalculationStrategy[SAMPLE_SIZE];
+        CalculationPipeline pipeline = new CalculationPipeline();
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            CalculationResult result = pipeline.calculate(meals[i]);
+            usualBolusFactors[i] = result.usualBolusFactor();
+            strategies[i] = result.methodSelection().strategy();
+        }
+        FixedPointDoseCalculator calculator = new FixedPointDoseCalculator(MethodRuleTable.defaults(), 50, PumpRounding.NEAREST);
+        FixedPointDoses doses = new FixedPointDoses();
+
+        calculate(calculator, doses, meals, usualBolusFactors, strategies, WARMUP_CALLS);
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        calculate(calculator, doses, meals, usualBolusFactors, strategies, MEASURED_CALLS);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        double bytesPerCall = allocated / (double) MEASURED_CALLS;
+        System.out.printf("Festkomma-Rechnung: %.3f Byte pro Mahlzeit (Grenze: %.0f), Prüfsumme %d%n",
+                bytesPerCall, MAX_BYTES_PER_CALL, checksum);
+        if (bytesPerCall > MAX_BYTES_PER_CALL) {
+            System.exit(1);
+        }
+    }
+
+    private static void calculate(FixedPointDoseCalculator calculator, FixedPointDoses doses, MealInput[] meals,
+                                  double[] usualBolusFactors, CalculationStrategy[] strategies, int calls) {
+        for (int call = 0; call < calls; call++) {
+            int i = call & (SAMPLE_SIZE - 1);
+            MealInput meal = meals[i];
+            calculator.calculateIntermediateFactors(meal.mealCarbs(), meal.mealCalories(), usualBolusFactors[i],
+                    meal.usualBeCalories(), doses);
+            calculator.calculateMethod(strategies[i], meal.insulinTypeCalorieCovering(), doses);
+            calculator.calculateFinalBolus(meal.movementFactor(), doses);
+            checksum += doses.finalCorrectBolus + doses.delayedCalorieBolus;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.FinalBolusCalculator;
+import de.lazycarbs.calculator.core.FixedPointDoseCalculator;
+import de.lazycarbs.calculator.core.FixedPointDoses;
+import de.lazycarbs.calculator.core.IntermediateFactorCalculator;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.core.PumpRounding;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.profile.ProfileRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die Rechnung in double mit der Festkomma-Rechnung des {@link FixedPointDoseCalculator}
+ * (Pumpen-Schritt 0,05 IE, Rundung floor):
+ * <ul>
+ *     <li>"doublePath" / "fixedPoint": Zwischenfaktoren, Methode und Endbolus bei bereits gewählter Methode</li>
+ *     <li>"pipelineDouble" / "pipelineFixedPoint": die ganze {@link CalculationPipeline} inklusive Methodenauswahl
+ *     und Umwandlung in die Ergebnis-Records</li>
+ * </ul>
+ * Ergebnis in Nanosekunden pro Mahlzeit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedPointDoseBenchmark {
+
+    private static final int SAMPLE_SIZE = 1024;
+
+    @Param({"SUPERSIZE", "NOCARB", "HIGHCARB", "CALORIE_SURPLUS", "MIXED"})
+    private MealDistribution distribution;
+
+    private final IntermediateFactorCalculator intermediateFactorCalculator = new IntermediateFactorCalculator();
+    private final FinalBolusCalculator finalBolusCalculator = new FinalBolusCalculator();
+    private final FixedPointDoseCalculator fixedPointCalculator =
+            new FixedPointDoseCalculator(MethodRuleTable.defaults(), 50, PumpRounding.FLOOR);
+    private final FixedPointDoses doses = new FixedPointDoses();
+    private final CalculationPipeline doublePipeline = new CalculationPipeline();
+    private final CalculationPipeline fixedPointPipeline =
+            new CalculationPipeline(null, new ProfileRegistry(), MethodRuleTable.defaults(), fixedPointCalculator);
+
+    private MealInput[] meals;
+    private double[] usualBolusFactors;
+    private CalculationStrategy[] strategies;
+
+    @Setup
+    public void setUp() {
+        meals = distribution.sample(SAMPLE_SIZE, 42);
+        usualBolusFactors = new double[SAMPLE_SIZE];
+        strategies = new CalculationStrategy[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            var result = doublePipeline.calculate(meals[i]);
+            usualBolusFactors[i] = result.usualBolusFactor();
+            strategies[i] = result.methodSelection().strategy();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void doublePath(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            MealInput meal = meals[i];
+            IntermediateBolusFactors factors = intermediateFactorCalculator.calculateIntermediateBolusFactors(
+                    meal.mealCarbs(), meal.mealCalories(), usualBolusFactors[i], meal.usualBeCalories());
+            MethodResults methodResults = strategies[i].calculate(meal.mealCarbs(), meal.mealCalories(), usualBolusFactors[i],
+                    meal.usualBeCalories(), meal.insulinTypeCalorieCovering(), factors);
+            blackhole.consume(finalBolusCalculator.correctBolusSumAdjustment(methodResults, meal.movementFactor()));
+            consume(blackhole, factors, methodResults);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void fixedPoint(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            MealInput meal = meals[i];
+            fixedPointCalculator.calculateIntermediateFactors(meal.mealCarbs(), meal.mealCalories(), usualBolusFactors[i],
+                    meal.usualBeCalories(), doses);
+            fixedPointCalculator.calculateMethod(strategies[i], meal.insulinTypeCalorieCovering(), doses);
+            fixedPointCalculator.calculateFinalBolus(meal.movementFactor(), doses);
+            consume(blackhole, doses);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void pipelineDouble(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            blackhole.consume(doublePipeline.calculate(meals[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void pipelineFixedPoint(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            blackhole.consume(fixedPointPipeline.calculate(meals[i]));
+        }
+    }
+
+    // alle Werte verbrauchen, die auch die Pipeline ausgibt, damit keine Variante Teile der Rechnung einspart
+    private static void consume(Blackhole blackhole, IntermediateBolusFactors factors, MethodResults methodResults) {
+        blackhole.consume(factors.leanBeFactor());
+        blackhole.consume(factors.pureCarbBeFactor());
+        blackhole.consume(factors.beSum());
+        blackhole.consume(factors.beCalories());
+        blackhole.consume(factors.fatProteinCalories());
+        blackhole.consume(methodResults.correctBeFactor());
+        blackhole.consume(methodResults.calorieSurplus());
+        blackhole.consume(methodResults.delayedCalorieBolus());
+        blackhole.consume(methodResults.correctBolusSum());
+    }
+
+    private static void consume(Blackhole blackhole, FixedPointDoses doses) {
+        blackhole.consume(doses.leanBeFactor);
+        blackhole.consume(doses.pureCarbBeFactor);
+        blackhole.consume(doses.beSum);
+        blackhole.consume(doses.beCalories);
+        blackhole.consume(doses.fatProteinCalories);
+        blackhole.consume(doses.correctBeFactor);
+        blackhole.consume(doses.calorieSurplus);
+        blackhole.consume(doses.delayedCalorieBolus);
+        blackhole.consume(doses.correctBolusSum);
+        blackhole.consume(doses.finalCorrectBolus);
+    }
+}
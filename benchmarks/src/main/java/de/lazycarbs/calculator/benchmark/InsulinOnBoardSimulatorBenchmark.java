@@ -0,0 +1,60 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.simulation.DeliverySchedule;
+import de.lazycarbs.calculator.simulation.InsulinActionCurve;
+import de.lazycarbs.calculator.simulation.InsulinOnBoardSimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Hinzufügen einer Mahlzeit zum {@link InsulinOnBoardSimulator} nach einer unterschiedlich langen
+ * Historie. Da nur die Minuten im Wirkungszeitraum der Mahlzeit aktualisiert werden, sollte die Zeit pro Mahlzeit
+ * nicht von {@code historyDays} abhängen.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InsulinOnBoardSimulatorBenchmark {
+
+    private static final int MEALS_PER_DAY = 4;
+    private static final int MINUTES_BETWEEN_MEALS = 24 * 60 / MEALS_PER_DAY;
+
+    @Param({"1", "90", "365"})
+    private int historyDays;
+
+    private InsulinOnBoardSimulator simulator;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private long nextMealMinute;
+
+    @Setup
+    public void setUp() {
+        simulator = new InsulinOnBoardSimulator(InsulinActionCurve.forInsulinType(150),
+                DeliverySchedule.DEFAULT_EXTENDED_MINUTES, 0, (minute, iob, pending, delivered, active) -> { });
+        for (int i = 0; i < historyDays * MEALS_PER_DAY; i++) {
+            addMeal();
+        }
+    }
+
+    @Benchmark
+    public double addMeal() {
+        simulator.addMeal(new DeliverySchedule(nextMealMinute, 2 + random.nextDouble(8), random.nextDouble(3),
+                DeliverySchedule.DEFAULT_EXTENDED_MINUTES));
+        nextMealMinute += MINUTES_BETWEEN_MEALS;
+        return simulator.insulinOnBoard(nextMealMinute - 1);
+    }
+}
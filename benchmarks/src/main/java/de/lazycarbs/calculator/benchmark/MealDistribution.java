@@ -0,0 +1,77 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.data.MealInput;
+
+import java.util.SplittableRandom;
+
+/**
+ * Erzeugt reproduzierbare Mahlzeiten, die gezielt einen der Zweige von MethodCalculationSelector treffen.
+ */
+public enum MealDistribution {
+
+    // Supersize: mehr als 7,5 BE und mehr als 750 kcal aus Fett/Eiweiß
+    SUPERSIZE {
+        @Override
+        MealInput next(SplittableRandom random) {
+            double carbs = random.nextDouble(100, 200);
+            double calories = carbs / 12 * 50 + random.nextDouble(800, 2000);
+            return meal(random, carbs, calories);
+        }
+    },
+    // NoCarb: weniger als 3 g Kohlenhydrate
+    NOCARB {
+        @Override
+        MealInput next(SplittableRandom random) {
+            return meal(random, random.nextDouble(0, 2.9), random.nextDouble(100, 800));
+        }
+    },
+    // HighCarb: weniger Kalorien pro BE als üblich
+    HIGHCARB {
+        @Override
+        MealInput next(SplittableRandom random) {
+            double carbs = random.nextDouble(30, 90);
+            return meal(random, carbs, carbs / 12 * random.nextDouble(60, 100));
+        }
+    },
+    // CalorieSurplus: höchstens 7,5 BE, mehr Kalorien pro BE als üblich (beide Zweige der Kalorienabdeckung)
+    CALORIE_SURPLUS {
+        @Override
+        MealInput next(SplittableRandom random) {
+            double carbs = random.nextDouble(10, 89);
+            return meal(random, carbs, carbs / 12 * random.nextDouble(110, 400));
+        }
+    },
+    // Gleichverteilte Mischung aller vier Methoden
+    MIXED {
+        @Override
+        MealInput next(SplittableRandom random) {
+            return SINGLE_METHODS[random.nextInt(SINGLE_METHODS.length)].next(random);
+        }
+    };
+
+    static final double USUAL_BE_CALORIES = 105;
+
+    private static final MealDistribution[] SINGLE_METHODS = {SUPERSIZE, NOCARB, HIGHCARB, CALORIE_SURPLUS};
+
+    abstract MealInput next(SplittableRandom random);
+
+    /**
+     * Erzeugt eine Stichprobe von Mahlzeiten.
+     * @param size Anzahl der Mahlzeiten.
+     * @param seed Startwert des Zufallsgenerators.
+     */
+    public MealInput[] sample(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        MealInput[] meals = new MealInput[size];
+        for (int i = 0; i < size; i++) {
+            meals[i] = next(random);
+        }
+        return meals;
+    }
+
+    private static MealInput meal(SplittableRandom random, double carbs, double calories) {
+        double insulinTypeCalorieCovering = random.nextBoolean() ? 150 : 200;
+        return new MealInput(carbs, calories, USUAL_BE_CALORIES, insulinTypeCalorieCovering,
+                random.nextInt(24), random.nextInt(60), random.nextDouble(0.5, 1.2));
+    }
+}
@@ -0,0 +1,102 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.batch.MealRecordFormat;
+import de.lazycarbs.calculator.batch.MealRecordParser;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.input.MealRecordReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht das Einlesen von {@value #LINES} Mahlzeit-Zeilen über den byteweisen {@link MealRecordReader} mit dem
+ * zeilenweisen Weg über BufferedReader und {@link MealRecordParser} (String.split, Double.parseDouble).
+ * Ergebnis in Nanosekunden pro Zeile; mit "-prof gc" werden die Allokationen pro Zeile sichtbar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MealRecordReaderBenchmark {
+
+    private static final int LINES = 10_000;
+
+    // COMMA: "75.6,1266.85,..."; SEMICOLON: "75,6;1266,85;..." (deutsche Dezimaltrenner)
+    @Param({"COMMA", "SEMICOLON"})
+    private String separator;
+
+    private byte[] input;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder text = new StringBuilder(LINES * 48);
+        for (int i = 0; i < LINES; i++) {
+            String line = String.format(Locale.ROOT, "%.1f,%.2f,%d,%d,%d,%d,%.2f", random.nextDouble(0, 200),
+                    random.nextDouble(0, 2500), 100 + random.nextInt(40), random.nextBoolean() ? 150 : 200,
+                    random.nextInt(24), random.nextInt(60), random.nextDouble(0.5, 1.5));
+            if ("SEMICOLON".equals(separator)) {
+                line = line.replace(',', ';').replace('.', ',');
+            }
+            text.append(line).append('\n');
+        }
+        input = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public double byteReader() throws IOException {
+        double sum = 0;
+        MealRecordReader records = new MealRecordReader(new ByteArrayInputStream(input));
+        while (records.next() != MealRecordReader.Status.END) {
+            sum += records.value(0) + records.value(6);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public double byteReaderToMealInput() throws IOException {
+        double sum = 0;
+        MealRecordReader records = new MealRecordReader(new ByteArrayInputStream(input));
+        while (records.next() != MealRecordReader.Status.END) {
+            MealInput meal = records.toMealInput();
+            sum += meal.mealCarbs() + meal.movementFactor();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public double stringParser() throws IOException {
+        double sum = 0;
+        MealRecordParser parser = new MealRecordParser();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            MealInput meal = parser.parse(line, MealRecordFormat.CSV);
+            sum += meal.mealCarbs() + meal.movementFactor();
+        }
+        return sum;
+    }
+}
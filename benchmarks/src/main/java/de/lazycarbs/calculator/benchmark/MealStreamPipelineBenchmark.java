@@ -0,0 +1,84 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.profile.ProfileRegistry;
+import de.lazycarbs.calculator.stream.MealEvent;
+import de.lazycarbs.calculator.stream.MealStreamPipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Misst den Durchsatz der {@link MealStreamPipeline} (Zwischenfaktoren, Methode, Endbolus und Speichern je auf
+ * einem eigenen Thread) mit einem Speicher, der nichts schreibt, für verschiedene Puffergrößen.
+ * Ergebnis in Nanosekunden pro Mahlzeit, vom ersten Einreihen bis alle {@value #EVENTS} Mahlzeiten gespeichert sind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MealStreamPipelineBenchmark {
+
+    private static final int EVENTS = 20_000;
+    private static final int SAMPLE_SIZE = 1024;
+
+    @Param({"16", "256", "4096"})
+    private int bufferSize;
+
+    private MealInput[] meals;
+    private final AtomicLong storedRecords = new AtomicLong();
+    private final CalculationStore discardingStore = new CalculationStore() {
+        @Override
+        public void saveCalculation(CalculationRecord calculationRecord) {
+            storedRecords.incrementAndGet();
+        }
+
+        @Override
+        public void saveCalculations(List<CalculationRecord> calculationRecords) {
+            storedRecords.addAndGet(calculationRecords.size());
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        meals = MealDistribution.MIXED.sample(SAMPLE_SIZE, 42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long stream() throws InterruptedException {
+        try (MealStreamPipeline pipeline = new MealStreamPipeline(new ProfileRegistry(), MethodRuleTable.defaults(),
+                discardingStore, bufferSize, 500, System.err)) {
+            for (int i = 0; i < EVENTS; i++) {
+                pipeline.submit(new MealEvent("benchmark", i + 1, meals[i & (SAMPLE_SIZE - 1)]));
+            }
+            pipeline.complete();
+            if (!pipeline.awaitCompletion(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Pipeline ist nicht leergelaufen.");
+            }
+        }
+        return storedRecords.get();
+    }
+}
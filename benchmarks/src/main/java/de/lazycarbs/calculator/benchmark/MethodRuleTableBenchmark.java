@@ -0,0 +1,138 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodACalorieSurplus;
+import de.lazycarbs.calculator.methodstrategy.MethodBSupersize;
+import de.lazycarbs.calculator.methodstrategy.MethodCHighcarb;
+import de.lazycarbs.calculator.methodstrategy.MethodConstants;
+import de.lazycarbs.calculator.methodstrategy.MethodDNocarb;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die Methodenauswahl über die kompilierte {@link MethodRuleTable} mit den bisher fest verdrahteten
+ * if/else-Zweigen (hier als Referenz nachgebaut). "standardTable" ist die Standardtabelle, "configuredTable" eine
+ * Tabelle mit eigenen Regeln wie aus einer Regeldatei (fünf Regeln, sechs Bedingungen).
+ * Ergebnis in Nanosekunden pro Auswahl.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodRuleTableBenchmark {
+
+    private static final int SAMPLE_SIZE = 1024;
+
+    private static final CalculationStrategy SUPERSIZE = new MethodBSupersize();
+    private static final CalculationStrategy NOCARB = new MethodDNocarb();
+    private static final CalculationStrategy HIGHCARB = new MethodCHighcarb();
+    private static final CalculationStrategy CALORIE_SURPLUS = new MethodACalorieSurplus();
+
+    @Param({"SUPERSIZE", "NOCARB", "HIGHCARB", "CALORIE_SURPLUS", "MIXED"})
+    private MealDistribution distribution;
+
+    private final MethodRuleTable standardTable = MethodRuleTable.defaults();
+    private MethodRuleTable configuredTable;
+
+    private double[] mealCarbs;
+    private double[] usualBeCalories;
+    private IntermediateBolusFactors[] intermediateBolusFactors;
+
+    @Setup
+    public void setUp() {
+        MethodConstants constants = MethodConstants.DEFAULT;
+        configuredTable = new MethodRuleTable(List.of(
+                new MethodRuleTable.Rule("MethodBSupersize", List.of(
+                        condition(MethodRuleTable.Feature.BE_SUM, MethodRuleTable.Comparison.GREATER, 8),
+                        condition(MethodRuleTable.Feature.FAT_PROTEIN_CALORIES, MethodRuleTable.Comparison.GREATER, 800))),
+                new MethodRuleTable.Rule("MethodDNocarb", List.of(
+                        condition(MethodRuleTable.Feature.MEAL_CARBS, MethodRuleTable.Comparison.LESS, 3))),
+                new MethodRuleTable.Rule("MethodCHighcarb", List.of(
+                        condition(MethodRuleTable.Feature.BE_CALORIES, MethodRuleTable.Comparison.LESS_OR_EQUAL, 60))),
+                new MethodRuleTable.Rule("MethodCHighcarb", List.of(
+                        new MethodRuleTable.Condition(MethodRuleTable.Feature.BE_CALORIES, MethodRuleTable.Comparison.LESS, 0.9,
+                                MethodRuleTable.Feature.USUAL_BE_CALORIES),
+                        condition(MethodRuleTable.Feature.MEAL_CARBS, MethodRuleTable.Comparison.GREATER_OR_EQUAL, 3))),
+                new MethodRuleTable.Rule("MethodACalorieSurplus", List.of())),
+                MethodRuleTable.builtInStrategies(constants), constants);
+
+        MealInput[] meals = distribution.sample(SAMPLE_SIZE, 42);
+        CalculationPipeline pipeline = new CalculationPipeline();
+        mealCarbs = new double[SAMPLE_SIZE];
+        usualBeCalories = new double[SAMPLE_SIZE];
+        intermediateBolusFactors = new IntermediateBolusFactors[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            CalculationResult result = pipeline.calculate(meals[i]);
+            mealCarbs[i] = meals[i].mealCarbs();
+            usualBeCalories[i] = meals[i].usualBeCalories();
+            intermediateBolusFactors[i] = result.intermediateBolusFactors();
+            // Referenz und Standardtabelle müssen für jede Mahlzeit dieselbe Methode liefern
+            if (hardCodedBranches(mealCarbs[i], usualBeCalories[i], intermediateBolusFactors[i]).getClass()
+                    != standardTable.select(mealCarbs[i], usualBeCalories[i], intermediateBolusFactors[i]).getClass()) {
+                throw new IllegalStateException("Standardtabelle weicht von den bisherigen Zweigen ab: " + meals[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void hardCodedBranches(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            blackhole.consume(hardCodedBranches(mealCarbs[i], usualBeCalories[i], intermediateBolusFactors[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void standardTable(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            blackhole.consume(standardTable.select(mealCarbs[i], usualBeCalories[i], intermediateBolusFactors[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public void configuredTable(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            blackhole.consume(configuredTable.select(mealCarbs[i], usualBeCalories[i], intermediateBolusFactors[i]));
+        }
+    }
+
+    // Die Auswahl, wie sie vor der Regeltabelle im MethodCalculationSelector stand
+    private static CalculationStrategy hardCodedBranches(double mealCarbs, double usualBeCalories, IntermediateBolusFactors factors) {
+        if (factors.beSum() > 7.5 && factors.fatProteinCalories() > 750) {
+            return SUPERSIZE;
+        } else if (mealCarbs < 3) {
+            return NOCARB;
+        } else if (factors.beCalories() < usualBeCalories) {
+            return HIGHCARB;
+        }
+        return CALORIE_SURPLUS;
+    }
+
+    private static MethodRuleTable.Condition condition(MethodRuleTable.Feature feature, MethodRuleTable.Comparison comparison,
+                                                       double threshold) {
+        return new MethodRuleTable.Condition(feature, comparison, threshold, null);
+    }
+}
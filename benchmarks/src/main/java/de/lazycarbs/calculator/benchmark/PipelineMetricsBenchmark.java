@@ -0,0 +1,63 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst den Aufwand der Latenz-Messung ({@link PipelineMetrics}) für die gesamte Berechnungskette.
+ * Da die Messung beim Laden der Klasse ein- oder ausgeschaltet wird, läuft jede Variante in einer eigenen JVM;
+ * "disabled" sollte sich nicht von der Kette ohne Instrumentierung unterscheiden.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PipelineMetricsBenchmark {
+
+    private static final int MEALS = 1024;
+
+    private final CalculationPipeline pipeline = new CalculationPipeline();
+    private MealInput[] meals;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        meals = MealDistribution.MIXED.sample(MEALS, 42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (PipelineMetrics.ENABLED) {
+            System.out.println();
+            PipelineMetrics.dump(System.out);
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + PipelineMetrics.ENABLED_PROPERTY + "=false")
+    public CalculationResult disabled() {
+        return pipeline.calculate(meals[index++ & (MEALS - 1)]);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + PipelineMetrics.ENABLED_PROPERTY + "=true")
+    public CalculationResult enabled() {
+        return pipeline.calculate(meals[index++ & (MEALS - 1)]);
+    }
+}
@@ -0,0 +1,146 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.FinalBolusCalculator;
+import de.lazycarbs.calculator.core.IntermediateFactorCalculator;
+import de.lazycarbs.calculator.core.MethodCalculationSelector;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.data.MethodSelectionResult;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodACalorieSurplus;
+import de.lazycarbs.calculator.methodstrategy.MethodBSupersize;
+import de.lazycarbs.calculator.methodstrategy.MethodCHighcarb;
+import de.lazycarbs.calculator.methodstrategy.MethodDNocarb;
+import de.lazycarbs.calculator.util.BolusFactorCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks für jede Stufe der Berechnungskette, jeweils mit Mahlzeiten, die eine bestimmte Methode
+ * (oder eine Mischung aller vier) auslösen.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineStageBenchmark {
+
+    private static final int SAMPLE_SIZE = 1024;
+
+    @Param({"SUPERSIZE", "NOCARB", "HIGHCARB", "CALORIE_SURPLUS", "MIXED"})
+    private MealDistribution distribution;
+
+    private final BolusFactorCalculator bolusFactorCalculator = new BolusFactorCalculator();
+    private final IntermediateFactorCalculator intermediateFactorCalculator = new IntermediateFactorCalculator();
+    private final MethodCalculationSelector methodCalculationSelector = new MethodCalculationSelector();
+    private final FinalBolusCalculator finalBolusCalculator = new FinalBolusCalculator();
+    private final CalculationPipeline pipeline = new CalculationPipeline();
+
+    private MealInput[] meals;
+    private double[] usualBolusFactors;
+    private IntermediateBolusFactors[] intermediateBolusFactors;
+    private CalculationStrategy[] strategies;
+    private MethodResults[] methodResults;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        meals = distribution.sample(SAMPLE_SIZE, 42);
+        usualBolusFactors = new double[SAMPLE_SIZE];
+        intermediateBolusFactors = new IntermediateBolusFactors[SAMPLE_SIZE];
+        strategies = new CalculationStrategy[SAMPLE_SIZE];
+        methodResults = new MethodResults[SAMPLE_SIZE];
+
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            CalculationResult result = pipeline.calculate(meals[i]);
+            usualBolusFactors[i] = result.usualBolusFactor();
+            intermediateBolusFactors[i] = result.intermediateBolusFactors();
+            strategies[i] = result.methodSelection().strategy();
+            methodResults[i] = result.methodResults();
+            checkDistribution(strategies[i]);
+        }
+    }
+
+    // Stellt sicher, dass die Stichprobe tatsächlich die gewünschte Methode trifft
+    private void checkDistribution(CalculationStrategy strategy) {
+        Class<?> expected = switch (distribution) {
+            case SUPERSIZE -> MethodBSupersize.class;
+            case NOCARB -> MethodDNocarb.class;
+            case HIGHCARB -> MethodCHighcarb.class;
+            case CALORIE_SURPLUS -> MethodACalorieSurplus.class;
+            case MIXED -> null;
+        };
+        if (expected != null && strategy.getClass() != expected) {
+            throw new IllegalStateException("Stichprobe " + distribution + " trifft " + strategy.getClass().getSimpleName());
+        }
+    }
+
+    private int next() {
+        return index++ & (SAMPLE_SIZE - 1);
+    }
+
+    @Benchmark
+    public double averageBolusFactor() {
+        MealInput meal = meals[next()];
+        return bolusFactorCalculator.calculateAverageBolusFactor(meal.currentHour(), meal.currentMinute(),
+                CalculationPipeline.BOLUS_FACTOR_DURATION_MINUTES);
+    }
+
+    @Benchmark
+    public IntermediateBolusFactors intermediateFactors() {
+        int i = next();
+        MealInput meal = meals[i];
+        return intermediateFactorCalculator.calculateIntermediateBolusFactors(meal.mealCarbs(), meal.mealCalories(),
+                usualBolusFactors[i], meal.usualBeCalories());
+    }
+
+    @Benchmark
+    public MethodSelectionResult selectStrategy() {
+        int i = next();
+        MealInput meal = meals[i];
+        return methodCalculationSelector.selectStrategy(meal.mealCarbs(), meal.usualBeCalories(), intermediateBolusFactors[i]);
+    }
+
+    @Benchmark
+    public String selectStrategyWithExplanation() {
+        int i = next();
+        MealInput meal = meals[i];
+        return methodCalculationSelector.selectStrategy(meal.mealCarbs(), meal.usualBeCalories(), intermediateBolusFactors[i])
+                .explanation();
+    }
+
+    @Benchmark
+    public MethodResults strategyCalculation() {
+        int i = next();
+        MealInput meal = meals[i];
+        return strategies[i].calculate(meal.mealCarbs(), meal.mealCalories(), usualBolusFactors[i], meal.usualBeCalories(),
+                meal.insulinTypeCalorieCovering(), intermediateBolusFactors[i]);
+    }
+
+    @Benchmark
+    public double finalBolus() {
+        int i = next();
+        return finalBolusCalculator.correctBolusSumAdjustment(methodResults[i], meals[i].movementFactor());
+    }
+
+    @Benchmark
+    public CalculationResult fullPipeline() {
+        return pipeline.calculate(meals[next()]);
+    }
+}
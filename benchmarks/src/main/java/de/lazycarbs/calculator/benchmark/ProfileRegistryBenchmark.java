@@ -0,0 +1,96 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.profile.ProfileRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst den Bolusfaktor über die {@link ProfileRegistry} (Profil-Lookup + vorberechneter Fenster-Durchschnitt),
+ * einmal nur lesend und einmal, während ein weiterer Thread ständig Profile austauscht (Hot-Reload).
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileRegistryBenchmark {
+
+    private static final int START_TIMES = 1024;
+
+    @Param({"100"})
+    private int users;
+
+    private final ProfileRegistry registry = new ProfileRegistry();
+    private final int[] startHours = new int[START_TIMES];
+    private final int[] startMinutes = new int[START_TIMES];
+    private String[] userIds;
+    private double[][] alternativeFactors;
+    private int index;
+    private int swapIndex;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        userIds = new String[users];
+        alternativeFactors = new double[2][24];
+        Map<String, double[]> profiles = new HashMap<>();
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "user-" + u;
+            profiles.put(userIds[u], randomFactors(random));
+        }
+        registry.replaceAll(profiles);
+        alternativeFactors[0] = randomFactors(random);
+        alternativeFactors[1] = randomFactors(random);
+        for (int i = 0; i < START_TIMES; i++) {
+            startHours[i] = random.nextInt(24);
+            startMinutes[i] = random.nextInt(60);
+        }
+    }
+
+    private static double[] randomFactors(SplittableRandom random) {
+        double[] factors = new double[24];
+        for (int hour = 0; hour < 24; hour++) {
+            factors[hour] = random.nextDouble(0.5, 2.0);
+        }
+        return factors;
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    public double lookup() {
+        int i = index++ & (START_TIMES - 1);
+        return registry.calculatorFor(userIds[i % users]).calculateAverageBolusFactor(startHours[i], startMinutes[i], 120);
+    }
+
+    @Benchmark
+    @Group("withHotReload")
+    @GroupThreads(3)
+    public double lookupDuringReload() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Group("withHotReload")
+    @GroupThreads(1)
+    public void reload() {
+        int i = swapIndex++;
+        registry.put(userIds[i % users], alternativeFactors[i & 1]);
+    }
+}
@@ -0,0 +1,90 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.output.NumberFormatter;
+import de.lazycarbs.calculator.output.ResultFormat;
+import de.lazycarbs.calculator.output.ResultSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Schreiben von {@value #RESULTS} Ergebnissen über die {@link ResultSink}s der einzelnen Formate in einen
+ * verwerfenden Strom, sowie das Formatieren einer Zahl mit {@link NumberFormatter} im Vergleich zu String.format.
+ * Ergebnis in Nanosekunden pro Ergebnis bzw. Zahl.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultSinkBenchmark {
+
+    private static final int RESULTS = 1_000;
+
+    private CalculationResult[] results;
+    private final StringBuilder text = new StringBuilder(32);
+
+    @Setup
+    public void setUp() {
+        CalculationPipeline pipeline = new CalculationPipeline();
+        results = Arrays.stream(MealDistribution.MIXED.sample(RESULTS, 42))
+                .map(pipeline::calculate)
+                .toArray(CalculationResult[]::new);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public void sink(Output output) throws IOException {
+        try (ResultSink sink = output.format.open(OutputStream.nullOutputStream())) {
+            sink.writeHeader();
+            for (int i = 0; i < RESULTS; i++) {
+                sink.write(i + 1, results[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public int numberFormatter() {
+        int length = 0;
+        for (int i = 0; i < RESULTS; i++) {
+            text.setLength(0);
+            length += NumberFormatter.appendFixed(text, results[i].finalCorrectBolus(), 4).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public int stringFormat() {
+        int length = 0;
+        for (int i = 0; i < RESULTS; i++) {
+            length += String.format(Locale.ROOT, "%.4f", results[i].finalCorrectBolus()).length();
+        }
+        return length;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Output {
+        @Param({"TEXT", "CSV", "JSON_LINES", "BINARY"})
+        private ResultFormat format;
+    }
+}
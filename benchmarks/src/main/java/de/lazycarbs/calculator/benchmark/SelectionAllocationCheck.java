@@ -0,0 +1,85 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.MethodCalculationSelector;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodSelectionResult;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Prüft, dass MethodCalculationSelector.selectStrategy pro Aufruf nur sein Ergebnis allokiert
+ * (keine neue Methode, keinen Begründungstext). Misst die Allokationen des Threads über
+ * com.sun.management.ThreadMXBean und beendet sich mit Exit-Code 1, wenn mehr als ein
+ * MethodSelectionResult pro Aufruf allokiert wird. Dessen Größe wird aus dem Objekt-Layout der laufenden JVM
+ * berechnet, die Prüfung gilt daher mit und ohne Compressed Oops.
+ * <pre>
+ * java -cp target/benchmarks.jar de.lazycarbs.calculator.benchmark.SelectionAllocationCheck
+ * </pre>
+ */
+public final class SelectionAllocationCheck {
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int WARMUP_CALLS = 2_000_000;
+    private static final int MEASURED_CALLS = 1_000_000;
+    // Felder von MethodSelectionResult: strategy und rules, 5 double-Werte, rule
+    private static final int REFERENCE_FIELDS = 2;
+    private static final int DOUBLE_FIELDS = 5;
+    private static final int INT_FIELDS = 1;
+
+    private static final MethodSelectionResult[] sink = new MethodSelectionResult[SAMPLE_SIZE];
+
+    private SelectionAllocationCheck() {
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        MealInput[] meals = MealDistribution.MIXED.sample(SAMPLE_SIZE, 42);
+        IntermediateBolusFactors[] factors = new IntermediateBolusFactors[SAMPLE_SIZE];
+        CalculationPipeline pipeline = new CalculationPipeline();
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            factors[i] = pipeline.calculate(meals[i]).intermediateBolusFactors();
+        }
+        MethodCalculationSelector selector = new MethodCalculationSelector();
+
+        select(selector, meals, factors, WARMUP_CALLS);
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        select(selector, meals, factors, MEASURED_CALLS);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        long maxBytesPerCall = resultBytes();
+        double bytesPerCall = allocated / (double) MEASURED_CALLS;
+        System.out.printf("selectStrategy: %.1f Byte pro Aufruf (Grenze: %d)%n", bytesPerCall, maxBytesPerCall);
+        if (bytesPerCall > maxBytesPerCall) {
+            System.exit(1);
+        }
+    }
+
+    // Objekt-Header (Mark-Word + Klassenzeiger) + Felder, auf die Objektausrichtung aufgerundet
+    private static long resultBytes() {
+        HotSpotDiagnosticMXBean vm = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        long headerBytes = 8 + (isEnabled(vm, "UseCompressedClassPointers") ? 4 : 8);
+        long referenceBytes = isEnabled(vm, "UseCompressedOops") ? 4 : 8;
+        long alignment = Long.parseLong(vm.getVMOption("ObjectAlignmentInBytes").getValue());
+        long bytes = headerBytes + REFERENCE_FIELDS * referenceBytes + DOUBLE_FIELDS * Double.BYTES + INT_FIELDS * Integer.BYTES;
+        return (bytes + alignment - 1) / alignment * alignment;
+    }
+
+    private static boolean isEnabled(HotSpotDiagnosticMXBean vm, String option) {
+        return Boolean.parseBoolean(vm.getVMOption(option).getValue());
+    }
+
+    private static void select(MethodCalculationSelector selector, MealInput[] meals, IntermediateBolusFactors[] factors, int calls) {
+        for (int call = 0; call < calls; call++) {
+            int i = call & (SAMPLE_SIZE - 1);
+            // Ergebnis im Feld ablegen, damit die Escape-Analyse die Allokation nicht entfernt
+            sink[i] = selector.selectStrategy(meals[i].mealCarbs(), meals[i].usualBeCalories(), factors[i]);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package de.lazycarbs.calculator.benchmark;
+
+import de.lazycarbs.calculator.sweep.SweepAxis;
+import de.lazycarbs.calculator.sweep.SweepEngine;
+import de.lazycarbs.calculator.sweep.SweepFormat;
+import de.lazycarbs.calculator.sweep.SweepGrid;
+import de.lazycarbs.calculator.sweep.SweepSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die Rasterberechnung über 201 x 301 x 4 Punkte (Kohlenhydrate x Kalorien x Uhrzeiten) in beiden
+ * Ausgabeformaten, mit einem Thread und mit allen Prozessoren. Die Ausgabe wird verworfen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SweepEngineBenchmark {
+
+    @Param({"CSV", "BINARY"})
+    private SweepFormat format;
+
+    // 0 = alle verfügbaren Prozessoren
+    @Param({"1", "0"})
+    private int threads;
+
+    private SweepEngine engine;
+
+    @Setup
+    public void setUp() {
+        SweepGrid grid = new SweepGrid(new SweepAxis("carbs", 0, 200, 1), new SweepAxis("calories", 0, 3000, 10),
+                new SweepAxis("minutes", 0, 1080, 360), new double[] {150}, 120, 1.0);
+        engine = new SweepEngine(grid, threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public SweepSummary sweep() throws IOException {
+        return engine.run(OutputStream.nullOutputStream(), format, null);
+    }
+}
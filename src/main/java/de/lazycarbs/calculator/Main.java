@@ -1,26 +1,205 @@
 package de.lazycarbs.calculator;
 
+import de.lazycarbs.calculator.analytics.AnalyticsCommand;
+import de.lazycarbs.calculator.batch.BatchCommand;
 import de.lazycarbs.calculator.core.FinalBolusCalculator;
+import de.lazycarbs.calculator.core.FixedPointDoseCalculator;
+import de.lazycarbs.calculator.core.FixedPointDoses;
 import de.lazycarbs.calculator.core.IntermediateFactorCalculator;
 import de.lazycarbs.calculator.core.MethodCalculationSelector;
+import de.lazycarbs.calculator.core.MethodRuleFileLoader;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.data.CalculationRecord;
 import de.lazycarbs.calculator.data.IntermediateBolusFactors;
 import de.lazycarbs.calculator.data.MethodResults;
 import de.lazycarbs.calculator.data.MethodSelectionResult;
+import de.lazycarbs.calculator.database.CalculationStore;
 import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.database.WriteBehindCalculationWriter;
+import de.lazycarbs.calculator.export.ColumnarExportCommand;
 import de.lazycarbs.calculator.input.InputHandler;
+import de.lazycarbs.calculator.journal.CalculationJournal;
+import de.lazycarbs.calculator.loadtest.LoadTestCommand;
 import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+import de.lazycarbs.calculator.metrics.StartupTiming;
+import de.lazycarbs.calculator.outbox.CalculationOutbox;
+import de.lazycarbs.calculator.outbox.OutboxOptions;
+import de.lazycarbs.calculator.outbox.OutboxStats;
 import de.lazycarbs.calculator.output.OutputHandler;
+import de.lazycarbs.calculator.profile.FactorLearningOptions;
+import de.lazycarbs.calculator.profile.FactorLearningStore;
+import de.lazycarbs.calculator.profile.ProfileOptions;
+import de.lazycarbs.calculator.profile.ProfileSuggestionCommand;
+import de.lazycarbs.calculator.server.ServerCommand;
+import de.lazycarbs.calculator.simulation.SimulationCommand;
+import de.lazycarbs.calculator.stream.StreamCommand;
+import de.lazycarbs.calculator.sweep.SweepCommand;
 import de.lazycarbs.calculator.util.BolusFactorCalculator;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 public class Main {
     public static void main(String[] args) {
+        // Latenz-Messung der Berechnungsstufen; muss gesetzt sein, bevor PipelineMetrics geladen wird
+        if (CommandLineOptions.hasFlag(args, "--metrics")) {
+            System.setProperty(PipelineMetrics.ENABLED_PROPERTY, "true");
+        }
+
+        // Nicht-interaktiver Batch-Modus: verarbeitet eine ganze Datei mit Mahlzeiten und beendet sich danach
+        if (CommandLineOptions.hasFlag(args, "--batch")) {
+            try {
+                System.exit(BatchCommand.run(args));
+            } catch (IOException | SQLException | IllegalArgumentException e) {
+                System.err.println("FEHLER im Batch-Modus: " + e.getMessage());
+                System.exit(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.exit(2);
+            }
+        }
+
+        // Server-Modus: bietet die Berechnung als HTTP-Dienst an, bis der Prozess beendet wird
+        if (CommandLineOptions.hasFlag(args, "--server")) {
+            try {
+                ServerCommand.run(args);
+            } catch (IOException | SQLException | IllegalArgumentException e) {
+                System.err.println("FEHLER im Server-Modus: " + e.getMessage());
+                System.exit(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        // Stream-Modus: berechnet und speichert fortlaufend Mahlzeiten aus einem Socket, einer Named Pipe oder stdin
+        if (CommandLineOptions.hasFlag(args, "--stream")) {
+            try {
+                System.exit(StreamCommand.run(args));
+            } catch (IOException | SQLException | IllegalArgumentException e) {
+                System.err.println("FEHLER im Stream-Modus: " + e.getMessage());
+                System.exit(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.exit(2);
+            }
+        }
+
+        // Aus den gespeicherten Berechnungen gelernte Faktoren prüfen und übernehmen
+        if (CommandLineOptions.hasFlag(args, "--suggest-profile")) {
+            try {
+                ProfileSuggestionCommand.run(args);
+            } catch (IOException | SQLException | RuntimeException e) {
+                System.err.println("FEHLER beim Profil-Vorschlag: " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
+
+        // Spaltenorientierter, komprimierter Export der gespeicherten Berechnungen und Auswertung der Exportdatei
+        if (CommandLineOptions.hasFlag(args, "--export-columnar")) {
+            try {
+                ColumnarExportCommand.export(args);
+            } catch (IOException | SQLException | RuntimeException e) {
+                System.err.println("FEHLER beim Export: " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
+        if (CommandLineOptions.hasFlag(args, "--scan-columnar")) {
+            try {
+                ColumnarExportCommand.scan(args);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("FEHLER beim Lesen der Exportdatei: " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
+
+        // Auswertung der gespeicherten Berechnungen (Datenbank, Journal oder Exportdatei)
+        if (CommandLineOptions.hasFlag(args, "--analytics")) {
+            try {
+                AnalyticsCommand.run(args);
+            } catch (IOException | SQLException | RuntimeException e) {
+                System.err.println("FEHLER bei der Auswertung: " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
+
+        // Simulation der Insulinabgabe (Sofort-Bolus, verzögerter Bolus, wirksames Insulin) über alle gespeicherten Berechnungen
+        if (CommandLineOptions.hasFlag(args, "--simulate")) {
+            try {
+                SimulationCommand.run(args);
+            } catch (IOException | SQLException | RuntimeException e) {
+                System.err.println("FEHLER bei der Simulation: " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
+
+        // Was-wäre-wenn-Berechnung über ein Raster aus Kohlenhydraten, Kalorien, Uhrzeit und Insulinart
+        if (CommandLineOptions.hasFlag(args, "--sweep")) {
+            try {
+                SweepCommand.run(args);
+            } catch (IOException | SQLException | RuntimeException e) {
+                System.err.println("FEHLER bei der Rasterberechnung: " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
+
+        // Lasttest der Berechnung mit fester Rate oder maximalem Durchsatz, optional mit Vergleich gegen einen früheren Lauf
+        if (CommandLineOptions.hasFlag(args, "--load-test")) {
+            try {
+                System.exit(LoadTestCommand.run(args));
+            } catch (IOException | SQLException | RuntimeException e) {
+                System.err.println("FEHLER im Lasttest: " + e.getMessage());
+                System.exit(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.exit(2);
+            }
+        }
+
         InputHandler inputHandler = new InputHandler();
         OutputHandler outputHandler = new OutputHandler();
         IntermediateFactorCalculator intermediateFactorCalculator = new IntermediateFactorCalculator();
-        MethodCalculationSelector methodCalculationSelector = new MethodCalculationSelector();
         FinalBolusCalculator finalBolusCalculator = new FinalBolusCalculator();
-        BolusFactorCalculator bolusFactorCalculator = new BolusFactorCalculator();
+        BolusFactorCalculator bolusFactorCalculator;
+        try {
+            // Standard-Profil oder das Profil des per --user angegebenen Benutzers (--profiles DIR / --profiles-db)
+            bolusFactorCalculator = ProfileOptions.loadRegistry(args).calculatorFor(null);
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            outputHandler.displayMessage("FEHLER: Bolusfaktor-Profil konnte nicht geladen werden: " + e.getMessage());
+            return;
+        }
+        MethodCalculationSelector methodCalculationSelector;
+        MethodRuleTable rules;
+        try {
+            // Standardregeln oder die Regeltabelle aus --rules DATEI
+            rules = MethodRuleFileLoader.fromOptions(args);
+            methodCalculationSelector = new MethodCalculationSelector(rules);
+        } catch (IOException | IllegalArgumentException e) {
+            outputHandler.displayMessage("FEHLER: Regeltabelle konnte nicht geladen werden: " + e.getMessage());
+            return;
+        }
+        FixedPointDoseCalculator fixedPoint;
+        try {
+            // mit --pump-step IE: Festkomma-Rechnung, Dosen auf die Schrittweite der Pumpe gerundet
+            fixedPoint = FixedPointDoseCalculator.fromOptions(args, rules);
+        } catch (IllegalArgumentException e) {
+            outputHandler.displayMessage("FEHLER: " + e.getMessage());
+            return;
+        }
 
         // --- Start: Logik für optionales Datenbank-Speichern ---
         boolean enableDatabaseStorage = true; // Standardmäßig ist die Speicherung aktiviert
@@ -31,36 +210,46 @@ public class Main {
             }
         }
 
-        DatabaseManager databaseManager = null; // Initialisiere als null
-        boolean databaseManagerInitialized = false; // Flag, um zu verfolgen, ob DatabaseManager erfolgreich erstellt wurde
+        Callable<CalculationStore> storeOpener = null; // bleibt null, wenn nicht gespeichert wird
+        String storeName = "in der Datenbank"; // für die Erfolgs-/Fehlermeldung
 
         if (enableDatabaseStorage) {
+            String journalDirectory = CommandLineOptions.valueOf(args, "--journal", null);
             // Das Passwort wird aus einer Umgebungsvariable gelesen (Run/Debug Configurations)
             String dbPassword = System.getenv("DB_PASSWORD");
-            if (dbPassword == null || dbPassword.isEmpty()) {
+            if (journalDirectory == null && (dbPassword == null || dbPassword.isEmpty())) {
                 outputHandler.displayMessage("FEHLER: Das Datenbankpasswort ist nicht als Umgebungsvariable 'DB_PASSWORD' gesetzt.");
                 outputHandler.displayMessage("Bitte setze die Umgebungsvariable, z.B. 'export DB_PASSWORD=\"dein_passwort\"' im Terminal.");
-                outputHandler.displayMessage("Das Programm wird ohne Datenbank-Speicherung fortgesetzt.");
+                outputHandler.displayMessage("Die Berechnung wird stattdessen im lokalen Journal '" + CalculationJournal.DEFAULT_DIRECTORY + "' gespeichert.");
+                journalDirectory = CalculationJournal.DEFAULT_DIRECTORY;
+            }
+            if (journalDirectory != null) {
+                storeName = "im Journal";
+                String directory = journalDirectory;
+                storeOpener = () -> FactorLearningOptions.wrap(args, new CalculationJournal(Path.of(directory)));
             } else {
-                try {
-                    databaseManager = new DatabaseManager(
-                            "jdbc:mysql://localhost:3306/lazycarbs_db",
-                            "lazyuser",
-                            dbPassword
-                    );
-                    databaseManagerInitialized = true; // Flag setzen, wenn Initialisierung erfolgreich war
-                } catch (Exception e) { // Fange jede Exception während der DatabaseManager-Erstellung ab
-                    outputHandler.displayMessage("FEHLER: Konnte DatabaseManager nicht initialisieren: " + e.getMessage());
-                    System.err.println("Detaillierter Fehler bei DatabaseManager-Initialisierung: " + e.getMessage());
-                    outputHandler.displayMessage("Das Programm wird ohne Datenbank-Speicherung fortgesetzt.");
+                // Standardmäßig über die lokale Outbox: die Berechnung geht auch ohne erreichbare Datenbank nicht verloren
+                if (!CommandLineOptions.hasFlag(args, "--no-outbox")) {
+                    storeName = "in der Outbox";
                 }
+                storeOpener = () -> FactorLearningOptions.wrap(args, OutboxOptions.wrap(args, new DatabaseManager(
+                        DatabaseManager.DEFAULT_DB_URL,
+                        DatabaseManager.DEFAULT_DB_USER,
+                        dbPassword
+                )));
             }
         } else {
                 outputHandler.displayMessage("\nDas Programm wird ohne Datenbank-Speicherung ausgeführt (--no-db Option).");
             }
         // --- Ende: Logik für optionales Datenbank-Speichern und Passwort-Prüfung ---
 
+        // Speicher im Hintergrund öffnen (Journal-Segment anlegen bzw. JDBC-Treiber laden, Verbindungsaufbau, Anmeldung),
+        // während der Benutzer noch tippt; erst beim Speichern wird darauf gewartet
+        FutureTask<CalculationStore> pendingStore = storeOpener == null ? null : openInBackground(storeOpener);
+        StartupTiming timing = new StartupTiming();
+
         outputHandler.displayLazyCarbs();
+        timing.firstPrompt();
 
         // User Eingabe der Werte für:
         // double mealCarbs, double mealCalories, double usualBolusFactor, double usualBeCalories
@@ -76,60 +265,164 @@ public class Main {
 
         // NEU: usualBolusFactor basierend auf Uhrzeit berechnen
         // Berechnung des durchschnittlichen Faktors für einen 120-Minuten-Zeitraum
+        long stageStart = PipelineMetrics.start();
         double usualBolusFactor = bolusFactorCalculator.calculateAverageBolusFactor(currentHour, currentMinute, 120);
+        PipelineMetrics.record(PipelineStage.BOLUS_FACTOR, stageStart);
 
-        IntermediateBolusFactors intermediateBolusFactors = intermediateFactorCalculator.calculateIntermediateBolusFactors(mealCarbs, mealCalories, usualBolusFactor, usualBeCalories);
+        stageStart = PipelineMetrics.start();
+        FixedPointDoses doses = fixedPoint == null ? null : new FixedPointDoses();
+        IntermediateBolusFactors intermediateBolusFactors;
+        if (doses != null) {
+            fixedPoint.calculateIntermediateFactors(mealCarbs, mealCalories, usualBolusFactor, usualBeCalories, doses);
+            intermediateBolusFactors = doses.toIntermediateBolusFactors();
+        } else {
+            intermediateBolusFactors = intermediateFactorCalculator.calculateIntermediateBolusFactors(mealCarbs, mealCalories, usualBolusFactor, usualBeCalories);
+        }
+        PipelineMetrics.record(PipelineStage.INTERMEDIATE_FACTORS, stageStart);
 
         outputHandler.displayUserEntry("\n*** Deine Eingabe: ***", mealCarbs, mealCalories, usualBeCalories, insulinTypeCalorieCovering,
                 currentHour, currentMinute, usualBolusFactor, intermediateBolusFactors);
 
-        MethodSelectionResult methodSelection = methodCalculationSelector.selectStrategy(mealCarbs,usualBeCalories, intermediateBolusFactors);
+        // im Festkomma-Modus auf den ungerundeten Faktoren auswählen, damit die Methode dieselbe ist wie in double
+        MethodSelectionResult methodSelection = methodCalculationSelector.selectStrategy(mealCarbs,usualBeCalories, doses == null
+                ? intermediateBolusFactors
+                : intermediateFactorCalculator.calculateIntermediateBolusFactors(mealCarbs, mealCalories, usualBolusFactor, usualBeCalories));
         CalculationStrategy selectedStrategy = methodSelection.strategy();
 
-        outputHandler.displayMessage(methodSelection.explanation());
+        outputHandler.displayMethodSelection(methodSelection);
 
-        MethodResults methodResults = selectedStrategy.calculate(mealCarbs, mealCalories,usualBolusFactor, usualBeCalories, insulinTypeCalorieCovering, intermediateBolusFactors);
+        MethodResults methodResults;
+        if (doses != null) {
+            fixedPoint.calculateMethod(selectedStrategy, insulinTypeCalorieCovering, doses);
+            methodResults = doses.toMethodResults();
+        } else {
+            methodResults = selectedStrategy.calculate(mealCarbs, mealCalories,usualBolusFactor, usualBeCalories, insulinTypeCalorieCovering, intermediateBolusFactors);
+        }
 
+        stageStart = PipelineMetrics.start();
         outputHandler.displayCalculationResults("*** Relevante Größen für deine Mahlzeit: ***", intermediateBolusFactors,methodResults, selectedStrategy, mealCalories, usualBeCalories, usualBolusFactor, mealCarbs);
+        PipelineMetrics.record(PipelineStage.OUTPUT, stageStart);
 
         double movementFactor = inputHandler.readDouble("\nGib den Bewegungs-Faktor für diese Mahlzeit ein: ");
+        timing.lastInput();
 
-        double finalCorrectBolus = finalBolusCalculator.correctBolusSumAdjustment(methodResults, movementFactor);
+        double finalCorrectBolus = fixedPoint != null
+                ? fixedPoint.correctBolusSumAdjustment(methodResults, movementFactor)
+                : finalBolusCalculator.correctBolusSumAdjustment(methodResults, movementFactor);
 
         outputHandler.displayResult("Korrekter Sofort-Bolus (angepasst an Bewegungs-Faktor): ", finalCorrectBolus);
 
 
 
-        // Daten in der Datenbank speichern - NUR wenn databaseManager erfolgreich initialisiert wurde
-        if (databaseManagerInitialized) { // Verwende das Flag, um zu prüfen, ob die DB zur Verwendung bereit ist
+        // Daten in der Datenbank bzw. im Journal speichern - NUR wenn ein Speicher erfolgreich initialisiert wurde
+        CalculationStore calculationStore = pendingStore == null ? null : awaitStore(pendingStore, storeName, outputHandler);
+        if (calculationStore != null) {
+        CalculationRecord calculationRecord = new CalculationRecord(LocalDateTime.now(),
+                mealCarbs, mealCalories, usualBeCalories, insulinTypeCalorieCovering,
+                currentHour, currentMinute, usualBolusFactor,
+                intermediateBolusFactors,
+                selectedStrategy.getClass().getSimpleName(), methodSelection.explanation(),
+                methodResults,
+                movementFactor, finalCorrectBolus);
+        if (CommandLineOptions.hasFlag(args, "--write-behind")) {
+            // Write-Behind: Speichern läuft im Hintergrund, close() wartet, bis alle Datensätze geschrieben sind
+            WriteBehindCalculationWriter writeBehindWriter = new WriteBehindCalculationWriter(calculationStore, 1024, 100, 200);
+            try {
+                writeBehindWriter.submit(calculationRecord);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    writeBehindWriter.close();
+                } catch (SQLException e) {
+                    outputHandler.displayMessage("Fehler beim Schließen der Datenbankverbindung: " + e.getMessage());
+                }
+            }
+            if (writeBehindWriter.lastFailure() == null) {
+                outputHandler.displayMessage("\nBerechnungsdaten erfolgreich " + storeName + " gespeichert.");
+            } else {
+                outputHandler.displayMessage("\nFehler beim Speichern der Daten " + storeName + ": " + writeBehindWriter.lastFailure().getMessage());
+            }
+        } else {
         try {
-            databaseManager.saveCalculation(
-                    mealCarbs, mealCalories, usualBeCalories, insulinTypeCalorieCovering,
-                    currentHour, currentMinute, usualBolusFactor,
-                    intermediateBolusFactors,
-                    selectedStrategy.getClass().getSimpleName(), methodSelection.explanation(),
-                    methodResults,
-                    movementFactor, finalCorrectBolus
-            );
-            outputHandler.displayMessage("\nBerechnungsdaten erfolgreich in der Datenbank gespeichert.");
+            calculationStore.saveCalculation(calculationRecord);
+            outputHandler.displayMessage("\nBerechnungsdaten erfolgreich " + storeName + " gespeichert.");
         } catch (SQLException e) {
-            outputHandler.displayMessage("\nFehler beim Speichern der Daten in der Datenbank: " + e.getMessage());
+            outputHandler.displayMessage("\nFehler beim Speichern der Daten " + storeName + ": " + e.getMessage());
             System.err.println("SQL-Fehler: " + e.getMessage()); // Für detaillierte Fehlermeldung in der Konsole
 
         } finally {
-            // Sicherstellen, dass die Datenbankverbindung geschlossen wird
+            // Sicherstellen, dass die Datenbankverbindung bzw. das Journal geschlossen wird
             try {
-                if (databaseManager != null) { // Prüfen, ob databaseManager initialisiert wurde
-                    databaseManager.closeConnection();
-                }
+                calculationStore.close();
             } catch (SQLException e) {
                 outputHandler.displayMessage("Fehler beim Schließen der Datenbankverbindung: " + e.getMessage());
                 System.err.println("Detaillierter Fehler beim Schließen der Verbindung: " + e.getMessage());
             }
         }
         }
+        if (FactorLearningStore.unwrap(calculationStore) instanceof CalculationOutbox outbox) {
+            reportOutbox(outbox, outputHandler);
+        }
+        }
 
+        timing.result();
         outputHandler.displayMessage("\nBerechnung abgeschlossen. Vielen Dank!");
 
+        if (PipelineMetrics.ENABLED) {
+            PipelineMetrics.dump(System.out);
+            System.out.print(timing);
+        }
+
+    }
+
+    /**
+     * Meldet nach dem Schließen der Outbox, ob alle Datensätze in der Datenbank angekommen sind.
+     */
+    private static void reportOutbox(CalculationOutbox outbox, OutputHandler outputHandler) {
+        OutboxStats stats = outbox.stats();
+        if (stats.pendingRecords() == 0) {
+            outputHandler.displayMessage("Alle Datensätze der Outbox wurden in die Datenbank übertragen.");
+        } else {
+            outputHandler.displayMessage(stats.pendingRecords() + " Datensätze warten in der Outbox '" + outbox.directory()
+                    + "' auf die Datenbank und werden beim nächsten Start übertragen"
+                    + (stats.lastError() == null ? "." : " (letzter Fehler: " + stats.lastError() + ")."));
+        }
+        if (PipelineMetrics.ENABLED) {
+            System.out.println("Outbox: " + stats);
+        }
+    }
+
+    /**
+     * Öffnet den Speicher in einem Hintergrund-Thread und baut dort auch gleich die erste Verbindung auf.
+     */
+    private static FutureTask<CalculationStore> openInBackground(Callable<CalculationStore> storeOpener) {
+        FutureTask<CalculationStore> pendingStore = new FutureTask<>(() -> {
+            CalculationStore store = storeOpener.call();
+            try {
+                store.warmUp();
+            } catch (SQLException e) {
+                // der Fehler tritt beim Speichern erneut auf und wird dort gemeldet
+            }
+            return store;
+        });
+        Thread.ofPlatform().daemon().name("lazycarbs-store-open").start(pendingStore);
+        return pendingStore;
+    }
+
+    /**
+     * Wartet, bis der Speicher im Hintergrund geöffnet ist.
+     * @return Der Speicher oder null, wenn er nicht geöffnet werden konnte (die Berechnung wird dann nicht gespeichert).
+     */
+    private static CalculationStore awaitStore(FutureTask<CalculationStore> pendingStore, String storeName, OutputHandler outputHandler) {
+        try {
+            return pendingStore.get();
+        } catch (ExecutionException e) {
+            outputHandler.displayMessage("\nFEHLER: Speichern " + storeName + " nicht möglich: " + e.getCause().getMessage());
+            outputHandler.displayMessage("Die Berechnung wird nicht gespeichert.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
     }
 }
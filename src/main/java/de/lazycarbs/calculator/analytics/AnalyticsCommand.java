@@ -0,0 +1,64 @@
+package de.lazycarbs.calculator.analytics;
+
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Kommandozeilen-Einstieg für die Auswertung gespeicherter Berechnungen:
+ * <pre>
+ * java -jar lazycarbs.jar --analytics [--journal DIR | --columnar DATEI] [--state FILE] [--window-minutes 1440] [--fetch-size 1000]
+ * </pre>
+ * Ohne "--journal" bzw. "--columnar" (Exportdatei, siehe {@code ColumnarExportCommand}) wird die MySQL-Datenbank
+ * gelesen (Passwort aus der Umgebungsvariable DB_PASSWORD).
+ * Mit "--state FILE" arbeitet die Auswertung inkrementell: der Stand wird in FILE gespeichert und beim
+ * nächsten Aufruf nur um neue Datensätze ergänzt.
+ */
+public final class AnalyticsCommand {
+
+    private AnalyticsCommand() {
+    }
+
+    public static void run(String[] args) throws IOException, SQLException {
+        String stateFileName = CommandLineOptions.valueOf(args, "--state", null);
+        int windowMinutes = CommandLineOptions.intValueOf(args, "--window-minutes", 24 * 60);
+
+        CalculationHistorySource source = openSource(args);
+        Path stateFile = stateFileName != null ? Path.of(stateFileName) : null;
+        HistoryAnalytics analytics = HistoryAnalytics.loadOrCreate(stateFile, source.id(), windowMinutes);
+        analytics.update(source);
+        analytics.printReport(System.out);
+        if (stateFile != null) {
+            analytics.saveState(stateFile);
+        }
+    }
+
+    /**
+     * Öffnet die Quelle der gespeicherten Berechnungen: mit "--journal DIR" das lokale Journal, mit "--columnar DATEI"
+     * eine spaltenorientierte Exportdatei, sonst die MySQL-Datenbank (Passwort aus DB_PASSWORD, "--fetch-size N" Zeilen pro Abruf).
+     * @throws IllegalArgumentException wenn für die Datenbank kein Passwort gesetzt ist.
+     */
+    public static CalculationHistorySource openSource(String[] args) {
+        String journalDirectory = CommandLineOptions.valueOf(args, "--journal", null);
+        if (journalDirectory != null) {
+            return new JournalHistorySource(Path.of(journalDirectory));
+        }
+        String columnarFile = CommandLineOptions.valueOf(args, "--columnar", null);
+        if (columnarFile != null) {
+            return new ColumnarHistorySource(Path.of(columnarFile));
+        }
+        int fetchSize = CommandLineOptions.intValueOf(args, "--fetch-size", JdbcHistorySource.DEFAULT_FETCH_SIZE);
+        String dbPassword = System.getenv("DB_PASSWORD");
+        if (dbPassword == null || dbPassword.isEmpty()) {
+            throw new IllegalArgumentException("Die Auswertung der Datenbank benötigt die Umgebungsvariable 'DB_PASSWORD' "
+                    + "(oder --journal DIR für das lokale Journal bzw. --columnar DATEI für eine Exportdatei).");
+        }
+        String url = JdbcHistorySource.withCursorFetch(DatabaseManager.DEFAULT_DB_URL);
+        return new JdbcHistorySource(() -> DriverManager.getConnection(url, DatabaseManager.DEFAULT_DB_USER, dbPassword),
+                DatabaseManager.DEFAULT_DB_URL, fetchSize);
+    }
+}
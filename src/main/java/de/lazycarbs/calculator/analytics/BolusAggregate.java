@@ -0,0 +1,42 @@
+package de.lazycarbs.calculator.analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Kennzahlen einer Gruppe von Berechnungen (z.B. einer Stunde oder einer Methode): Verteilung des korrekten
+ * Sofort-Bolus und Summe des verzögerten Bolus.
+ */
+public class BolusAggregate {
+
+    private final BolusHistogram finalCorrectBolus = new BolusHistogram();
+    private double delayedCalorieBolusTotal;
+
+    void add(HistoryRow row) {
+        finalCorrectBolus.add(row.finalCorrectBolus());
+        delayedCalorieBolusTotal += row.delayedCalorieBolus();
+    }
+
+    public long count() {
+        return finalCorrectBolus.count();
+    }
+
+    public BolusHistogram finalCorrectBolus() {
+        return finalCorrectBolus;
+    }
+
+    public double delayedCalorieBolusTotal() {
+        return delayedCalorieBolusTotal;
+    }
+
+    void writeTo(DataOutput output) throws IOException {
+        finalCorrectBolus.writeTo(output);
+        output.writeDouble(delayedCalorieBolusTotal);
+    }
+
+    void readFrom(DataInput input) throws IOException {
+        finalCorrectBolus.readFrom(input);
+        delayedCalorieBolusTotal = input.readDouble();
+    }
+}
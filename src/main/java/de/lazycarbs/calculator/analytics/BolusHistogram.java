@@ -0,0 +1,100 @@
+package de.lazycarbs.calculator.analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Histogramm mit festen Eimern für Bolus-Werte: 0,05 IE breit von 0 bis 50 IE, größere Werte landen im letzten
+ * Eimer. Der Speicherbedarf ist unabhängig von der Anzahl der Werte; Perzentile sind auf 0,05 IE genau
+ * (nie größer als das tatsächliche Maximum), der Mittelwert ist exakt.
+ */
+public class BolusHistogram {
+
+    static final double BUCKET_WIDTH = 0.05;
+    static final int BUCKET_COUNT = 1000;
+
+    private final long[] counts = new long[BUCKET_COUNT + 1];
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        int bucket = value <= 0 ? 0 : (int) Math.min(BUCKET_COUNT, Math.ceil(value / BUCKET_WIDTH) - 1);
+        counts[Math.max(0, bucket)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public double min() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double max() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * @param quantile Zwischen 0 und 1, z.B. 0.9 für das 90. Perzentil.
+     * @return Obergrenze des Eimers, in dem das Perzentil liegt (begrenzt auf Minimum und Maximum).
+     */
+    public double percentile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, (bucket + 1) * BUCKET_WIDTH));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Schreibt den Zustand; nur belegte Eimer werden gespeichert.
+     */
+    void writeTo(DataOutput output) throws IOException {
+        output.writeLong(count);
+        output.writeDouble(sum);
+        output.writeDouble(min);
+        output.writeDouble(max);
+        int used = 0;
+        for (long bucketCount : counts) {
+            if (bucketCount != 0) {
+                used++;
+            }
+        }
+        output.writeInt(used);
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] != 0) {
+                output.writeShort(bucket);
+                output.writeLong(counts[bucket]);
+            }
+        }
+    }
+
+    void readFrom(DataInput input) throws IOException {
+        count = input.readLong();
+        sum = input.readDouble();
+        min = input.readDouble();
+        max = input.readDouble();
+        int used = input.readInt();
+        for (int i = 0; i < used; i++) {
+            counts[input.readShort()] = input.readLong();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package de.lazycarbs.calculator.analytics;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Quelle gespeicherter Berechnungen, die zeilenweise gelesen wird, ohne die gesamte Historie im Speicher zu halten.
+ */
+public interface CalculationHistorySource {
+
+    /**
+     * Liest alle Datensätze ab einer Position in Speicherreihenfolge.
+     * @param fromPosition Erste zu lesende Position (0 = von Anfang an).
+     * @param consumer Erhält jeden Datensatz.
+     * @return Die Position, ab der beim nächsten inkrementellen Lauf weitergelesen werden muss.
+     */
+    long stream(long fromPosition, Consumer<HistoryRow> consumer) throws IOException, SQLException;
+
+    /**
+     * @return Kennung der Quelle; ein gespeicherter Auswertungsstand passt nur zu derselben Quelle.
+     */
+    String id();
+}
@@ -0,0 +1,58 @@
+package de.lazycarbs.calculator.analytics;
+
+import de.lazycarbs.calculator.export.ColumnRange;
+import de.lazycarbs.calculator.export.ColumnarHistoryReader;
+import de.lazycarbs.calculator.export.HistoryColumn;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Liest die Historie aus einer spaltenorientierten Exportdatei (siehe {@code ColumnarHistoryWriter}); Positionen sind
+ * die beim Export gespeicherten (Datenbank-ID bzw. Sequenznummer im Journal). Es werden nur die sechs benötigten
+ * Spalten dekodiert, Blöcke vor der Startposition werden über den Block-Index übersprungen.
+ */
+public class ColumnarHistorySource implements CalculationHistorySource {
+
+    private static final Set<HistoryColumn> COLUMNS = EnumSet.of(HistoryColumn.POSITION, HistoryColumn.TIMESTAMP,
+            HistoryColumn.CURRENT_HOUR, HistoryColumn.SELECTED_METHOD_NAME, HistoryColumn.FINAL_CORRECT_BOLUS,
+            HistoryColumn.DELAYED_CALORIE_BOLUS);
+
+    private final Path file;
+
+    public ColumnarHistorySource(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public long stream(long fromPosition, Consumer<HistoryRow> consumer) throws IOException {
+        long[] nextPosition = {fromPosition};
+        ColumnRange fromRange = new ColumnRange(HistoryColumn.POSITION, fromPosition, Double.POSITIVE_INFINITY);
+        try (ColumnarHistoryReader reader = ColumnarHistoryReader.open(file)) {
+            reader.scan(COLUMNS, List.of(fromRange), block -> {
+                long[] positions = block.longs(HistoryColumn.POSITION);
+                int[] hours = block.ints(HistoryColumn.CURRENT_HOUR);
+                double[] finalCorrectBolus = block.doubles(HistoryColumn.FINAL_CORRECT_BOLUS);
+                double[] delayedCalorieBolus = block.doubles(HistoryColumn.DELAYED_CALORIE_BOLUS);
+                for (int row = 0; row < block.size(); row++) {
+                    if (positions[row] < fromPosition) {
+                        continue;
+                    }
+                    consumer.accept(new HistoryRow(positions[row], block.timestamp(row), hours[row],
+                            block.methodName(row), finalCorrectBolus[row], delayedCalorieBolus[row]));
+                    nextPosition[0] = positions[row] + 1;
+                }
+            });
+        }
+        return nextPosition[0];
+    }
+
+    @Override
+    public String id() {
+        return "columnar:" + file.toAbsolutePath().normalize();
+    }
+}
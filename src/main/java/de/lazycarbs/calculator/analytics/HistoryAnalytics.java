@@ -0,0 +1,242 @@
+package de.lazycarbs.calculator.analytics;
+
+import de.lazycarbs.calculator.batch.ColumnarMealBatch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Auswertung der gespeicherten Berechnungen: Kennzahlen pro Stunde und pro Methode sowie der Methodenmix
+ * pro Zeitfenster.
+ * <p>
+ * Die Historie wird nur durchgereicht, nie vollständig geladen: der Speicherbedarf hängt von der Anzahl der
+ * Zeitfenster ab, nicht von der Anzahl der Datensätze. Im inkrementellen Modus wird der Zustand (inklusive der
+ * Position des nächsten ungelesenen Datensatzes) in einer Datei gespeichert und beim nächsten Lauf nur um die
+ * neu hinzugekommenen Datensätze ergänzt.
+ */
+public class HistoryAnalytics {
+
+    private static final int STATE_MAGIC = 0x4C434153; // "LCAS"
+    private static final int STATE_VERSION = 1;
+    private static final int METHOD_COUNT = 4;
+    private static final double[] REPORTED_QUANTILES = {0.5, 0.9, 0.99};
+
+    private final String sourceId;
+    private final int windowMinutes;
+    private final BolusAggregate[] hours = new BolusAggregate[24];
+    private final BolusAggregate[] methods = new BolusAggregate[METHOD_COUNT];
+    // Beginn des Zeitfensters (Minuten seit 1970) -> Anzahl pro Methodencode
+    private final TreeMap<Long, long[]> methodMixPerWindow = new TreeMap<>();
+    private long nextPosition;
+    private long totalRows;
+    private long skippedRows;
+    private long rowsOfLastRun;
+
+    /**
+     * @param sourceId Kennung der Quelle (siehe {@link CalculationHistorySource#id()}).
+     * @param windowMinutes Länge der Zeitfenster für den Methodenmix in Minuten.
+     */
+    public HistoryAnalytics(String sourceId, int windowMinutes) {
+        if (windowMinutes < 1) {
+            throw new IllegalArgumentException("Das Zeitfenster muss mindestens eine Minute lang sein.");
+        }
+        this.sourceId = sourceId;
+        this.windowMinutes = windowMinutes;
+        for (int i = 0; i < hours.length; i++) {
+            hours[i] = new BolusAggregate();
+        }
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = new BolusAggregate();
+        }
+    }
+
+    /**
+     * Lädt einen gespeicherten Zustand oder beginnt neu, wenn die Datei noch nicht existiert.
+     * @throws IllegalStateException wenn der Zustand zu einer anderen Quelle oder Fensterlänge gehört.
+     */
+    public static HistoryAnalytics loadOrCreate(Path stateFile, String sourceId, int windowMinutes) throws IOException {
+        HistoryAnalytics analytics = new HistoryAnalytics(sourceId, windowMinutes);
+        if (stateFile != null && Files.exists(stateFile)) {
+            analytics.readState(stateFile);
+        }
+        return analytics;
+    }
+
+    /**
+     * Liest alle Datensätze der Quelle ab der zuletzt erreichten Position.
+     * @return Anzahl der in diesem Lauf neu verarbeiteten Datensätze.
+     */
+    public long update(CalculationHistorySource source) throws IOException, SQLException {
+        if (!source.id().equals(sourceId)) {
+            throw new IllegalArgumentException("Die Auswertung gehört zu einer anderen Quelle: " + sourceId);
+        }
+        long before = totalRows + skippedRows;
+        nextPosition = source.stream(nextPosition, this::accept);
+        rowsOfLastRun = totalRows + skippedRows - before;
+        return rowsOfLastRun;
+    }
+
+    void accept(HistoryRow row) {
+        int hour = row.currentHour();
+        byte methodCode;
+        try {
+            methodCode = ColumnarMealBatch.methodCode(row.selectedMethodName());
+        } catch (IllegalArgumentException e) {
+            methodCode = -1;
+        }
+        if (hour < 0 || hour > 23 || methodCode < 0) {
+            skippedRows++; // z.B. von Hand eingetragene Zeilen mit unbekannter Methode
+            return;
+        }
+        hours[hour].add(row);
+        methods[methodCode].add(row);
+        long epochMinutes = row.timestamp().toEpochSecond(ZoneOffset.UTC) / 60;
+        long windowStart = Math.floorDiv(epochMinutes, windowMinutes) * windowMinutes;
+        methodMixPerWindow.computeIfAbsent(windowStart, start -> new long[METHOD_COUNT])[methodCode]++;
+        totalRows++;
+    }
+
+    public BolusAggregate hour(int hour) {
+        return hours[hour];
+    }
+
+    public BolusAggregate method(byte methodCode) {
+        return methods[methodCode];
+    }
+
+    /**
+     * @return Anzahl pro Methodencode je Zeitfenster, sortiert nach Beginn des Fensters.
+     */
+    public Map<LocalDateTime, long[]> methodMixPerWindow() {
+        Map<LocalDateTime, long[]> result = new TreeMap<>();
+        methodMixPerWindow.forEach((start, counts) ->
+                result.put(LocalDateTime.ofEpochSecond(start * 60, 0, ZoneOffset.UTC), counts.clone()));
+        return result;
+    }
+
+    public long totalRows() {
+        return totalRows;
+    }
+
+    public long nextPosition() {
+        return nextPosition;
+    }
+
+    /**
+     * Gibt die Auswertung als Tabellen aus.
+     */
+    public void printReport(PrintStream out) {
+        out.printf("Auswertung von %d Berechnungen (%d neu in diesem Lauf, %d übersprungen)%n",
+                totalRows, rowsOfLastRun, skippedRows);
+
+        out.println("\n*** Pro Stunde ***");
+        printHeader(out, "Stunde");
+        for (int hour = 0; hour < hours.length; hour++) {
+            if (hours[hour].count() > 0) {
+                printRow(out, String.format("%02d:00", hour), hours[hour]);
+            }
+        }
+
+        out.println("\n*** Pro Methode ***");
+        printHeader(out, "Methode");
+        for (byte code = 0; code < METHOD_COUNT; code++) {
+            if (methods[code].count() > 0) {
+                printRow(out, ColumnarMealBatch.methodName(code), methods[code]);
+            }
+        }
+
+        out.printf("%n*** Methodenmix pro Zeitfenster (%d min) ***%n", windowMinutes);
+        out.printf("%-17s %8s %8s %8s %8s%n", "Beginn", "A", "B", "C", "D");
+        methodMixPerWindow().forEach((start, counts) -> out.printf("%-17s %8d %8d %8d %8d%n",
+                start.toString().replace('T', ' '), counts[0], counts[1], counts[2], counts[3]));
+    }
+
+    private static void printHeader(PrintStream out, String groupName) {
+        out.printf("%-22s %8s %9s %9s %9s %9s %14s%n", groupName, "Anzahl", "Ø Bolus", "P50", "P90", "P99",
+                "Σ verzögert");
+    }
+
+    private static void printRow(PrintStream out, String group, BolusAggregate aggregate) {
+        BolusHistogram histogram = aggregate.finalCorrectBolus();
+        out.printf("%-22s %8d %9.2f", group, aggregate.count(), histogram.mean());
+        for (double quantile : REPORTED_QUANTILES) {
+            out.printf(" %9.2f", histogram.percentile(quantile));
+        }
+        out.printf(" %14.2f%n", aggregate.delayedCalorieBolusTotal());
+    }
+
+    /**
+     * Speichert den Zustand für den nächsten inkrementellen Lauf. Die Datei wird erst vollständig geschrieben
+     * und dann umbenannt, damit ein Abbruch nie einen halben Zustand hinterlässt.
+     */
+    public void saveState(Path stateFile) throws IOException {
+        Path temporaryFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(STATE_MAGIC);
+            output.writeInt(STATE_VERSION);
+            output.writeUTF(sourceId);
+            output.writeInt(windowMinutes);
+            output.writeLong(nextPosition);
+            output.writeLong(totalRows);
+            output.writeLong(skippedRows);
+            for (BolusAggregate aggregate : hours) {
+                aggregate.writeTo(output);
+            }
+            for (BolusAggregate aggregate : methods) {
+                aggregate.writeTo(output);
+            }
+            output.writeInt(methodMixPerWindow.size());
+            for (Map.Entry<Long, long[]> window : methodMixPerWindow.entrySet()) {
+                output.writeLong(window.getKey());
+                for (long count : window.getValue()) {
+                    output.writeLong(count);
+                }
+            }
+        }
+        Files.move(temporaryFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readState(Path stateFile) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (input.readInt() != STATE_MAGIC || input.readInt() != STATE_VERSION) {
+                throw new IllegalStateException("Keine gültige Auswertungs-Datei: " + stateFile);
+            }
+            String storedSourceId = input.readUTF();
+            int storedWindowMinutes = input.readInt();
+            if (!storedSourceId.equals(sourceId) || storedWindowMinutes != windowMinutes) {
+                throw new IllegalStateException("Die Auswertungs-Datei " + stateFile + " gehört zu einer anderen Quelle ("
+                        + storedSourceId + ") oder Fensterlänge (" + storedWindowMinutes + " min).");
+            }
+            nextPosition = input.readLong();
+            totalRows = input.readLong();
+            skippedRows = input.readLong();
+            for (BolusAggregate aggregate : hours) {
+                aggregate.readFrom(input);
+            }
+            for (BolusAggregate aggregate : methods) {
+                aggregate.readFrom(input);
+            }
+            int windows = input.readInt();
+            for (int i = 0; i < windows; i++) {
+                long start = input.readLong();
+                long[] counts = new long[METHOD_COUNT];
+                for (int code = 0; code < METHOD_COUNT; code++) {
+                    counts[code] = input.readLong();
+                }
+                methodMixPerWindow.put(start, counts);
+            }
+        }
+    }
+}
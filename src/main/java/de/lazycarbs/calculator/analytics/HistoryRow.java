@@ -0,0 +1,11 @@
+package de.lazycarbs.calculator.analytics;
+
+import java.time.LocalDateTime;
+
+/**
+ * Die für Auswertungen benötigten Spalten eines gespeicherten Berechnungsdatensatzes.
+ * @param position Position des Datensatzes in seiner Quelle (Datenbank-ID bzw. Sequenznummer im Journal).
+ */
+public record HistoryRow(long position, LocalDateTime timestamp, int currentHour, String selectedMethodName,
+                         double finalCorrectBolus, double delayedCalorieBolus) {
+}
@@ -0,0 +1,82 @@
+package de.lazycarbs.calculator.analytics;
+
+import de.lazycarbs.calculator.database.ConnectionFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Liest die Historie aus der Tabelle "calculations"; Positionen sind die Werte der Spalte "id".
+ * <p>
+ * Es werden nur die benötigten Spalten abgefragt und mit begrenzter Fetch-Size gelesen. Damit der MySQL-Treiber
+ * die Zeilen tatsächlich blockweise über einen Server-Cursor holt, muss die URL "useCursorFetch=true" enthalten
+ * (siehe {@link #withCursorFetch(String)}); sonst lädt er das ganze Ergebnis auf einmal.
+ */
+public class JdbcHistorySource implements CalculationHistorySource {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private static final String SELECT_SQL = "SELECT id, timestamp, current_hour, selected_method_name, "
+            + "final_correct_bolus, method_delayed_calorie_bolus FROM calculations WHERE id >= ? ORDER BY id";
+
+    private final ConnectionFactory connectionFactory;
+    private final String id;
+    private final int fetchSize;
+
+    /**
+     * @param connectionFactory Erzeugt die Verbindung für einen Lesedurchlauf.
+     * @param id Kennung der Datenbank (z.B. die JDBC-URL ohne Zugangsdaten).
+     * @param fetchSize Anzahl der Zeilen, die pro Block vom Server geholt werden.
+     */
+    public JdbcHistorySource(ConnectionFactory connectionFactory, String id, int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Die Fetch-Size muss positiv sein.");
+        }
+        this.connectionFactory = connectionFactory;
+        this.id = id;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Aktiviert bei MySQL-URLs "useCursorFetch", damit {@code setFetchSize} einen Server-Cursor verwendet.
+     */
+    public static String withCursorFetch(String dbUrl) {
+        if (!dbUrl.startsWith("jdbc:mysql:") || dbUrl.contains("useCursorFetch")) {
+            return dbUrl;
+        }
+        return dbUrl + (dbUrl.contains("?") ? "&" : "?") + "useCursorFetch=true";
+    }
+
+    @Override
+    public long stream(long fromPosition, Consumer<HistoryRow> consumer) throws SQLException {
+        long nextPosition = fromPosition;
+        try (Connection connection = connectionFactory.createConnection()) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false); // manche Treiber (z.B. PostgreSQL) nutzen Cursor nur in einer Transaktion
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, fromPosition);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        long position = resultSet.getLong(1);
+                        consumer.accept(new HistoryRow(position, resultSet.getTimestamp(2).toLocalDateTime(),
+                                resultSet.getInt(3), resultSet.getString(4), resultSet.getDouble(5), resultSet.getDouble(6)));
+                        nextPosition = position + 1;
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+        return nextPosition;
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+}
@@ -0,0 +1,34 @@
+package de.lazycarbs.calculator.analytics;
+
+import de.lazycarbs.calculator.journal.CalculationJournalReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Liest die Historie aus dem lokalen Journal; Positionen sind die Sequenznummern der Datensätze.
+ */
+public class JournalHistorySource implements CalculationHistorySource {
+
+    private final Path directory;
+
+    public JournalHistorySource(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public long stream(long fromPosition, Consumer<HistoryRow> consumer) throws IOException {
+        long[] position = {fromPosition};
+        new CalculationJournalReader(directory).forEach(fromPosition, false, calculationRecord -> consumer.accept(
+                new HistoryRow(position[0]++, calculationRecord.timestamp(), calculationRecord.currentHour(),
+                        calculationRecord.selectedMethodName(), calculationRecord.finalCorrectBolus(),
+                        calculationRecord.methodResults().delayedCalorieBolus())));
+        return position[0];
+    }
+
+    @Override
+    public String id() {
+        return "journal:" + directory.toAbsolutePath().normalize();
+    }
+}
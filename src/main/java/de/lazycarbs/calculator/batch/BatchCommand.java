@@ -0,0 +1,168 @@
+package de.lazycarbs.calculator.batch;
+
+import de.lazycarbs.calculator.cache.CalculationCache;
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.FixedPointDoseCalculator;
+import de.lazycarbs.calculator.core.MethodRuleFileLoader;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.database.WriteBehindCalculationWriter;
+import de.lazycarbs.calculator.input.MealRecordReader;
+import de.lazycarbs.calculator.journal.CalculationJournal;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.outbox.CalculationOutbox;
+import de.lazycarbs.calculator.outbox.OutboxOptions;
+import de.lazycarbs.calculator.output.ResultFormat;
+import de.lazycarbs.calculator.output.ResultSink;
+import de.lazycarbs.calculator.profile.FactorLearningOptions;
+import de.lazycarbs.calculator.profile.FactorLearningStore;
+import de.lazycarbs.calculator.profile.ProfileOptions;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Kommandozeilen-Einstieg für den Batch-Modus:
+ * <pre>
+ * java -jar lazycarbs.jar --batch meals.csv [--output results.csv] [--format csv|jsonl] [--output-format text|csv|jsonl|binary]
+ *                         [--threads N] [--max-in-flight N]
+ *                         [--save-to-db | --journal DIR] [--learn-factors DATEI] [--cache-size N] [--profiles DIR | --profiles-db] [--user ID]
+ *                         [--rules DATEI] [--pump-step IE [--pump-rounding floor|nearest|ceil]] [--metrics]
+ * </pre>
+ * "-" als Eingabe bzw. Ausgabe steht für stdin bzw. stdout. "--output-format" wählt das Ausgabeformat (siehe
+ * {@link ResultFormat}), ohne Angabe wird im Format der Eingabe geschrieben. Mit "--save-to-db" wird jedes Ergebnis zusätzlich
+ * über den Write-Behind-Writer in der Datenbank gespeichert (Passwort aus der Umgebungsvariable DB_PASSWORD),
+ * mit "--journal DIR" stattdessen im lokalen Journal im Verzeichnis DIR. Die Datenbank wird dabei über die lokale
+ * {@link CalculationOutbox} beschrieben (Optionen siehe {@link OutboxOptions}, "--no-outbox" schreibt direkt).
+ * "--learn-factors DATEI" lernt aus jedem gespeicherten Ergebnis Vorschläge für die stündlichen Faktoren
+ * (siehe {@link FactorLearningOptions}).
+ * "--cache-size N" speichert bis zu N Berechnungen zwischen, damit wiederholte Standard-Mahlzeiten nicht neu gerechnet werden.
+ * Mit "--user ID" wird der ganze Batch mit dem Bolusfaktor-Profil dieses Benutzers berechnet.
+ * "--rules DATEI" lädt die Regeltabelle der Methodenauswahl (siehe {@link MethodRuleFileLoader}).
+ * "--pump-step IE" rechnet in Festkomma und rundet die Dosen auf die Schrittweite der Pumpe, "--pump-rounding" wählt
+ * die Rundung (Standard floor, siehe {@link FixedPointDoseCalculator}).
+ * Mit "--metrics" werden am Ende die Latenzen der einzelnen Berechnungsstufen ausgegeben.
+ */
+public final class BatchCommand {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int WRITE_BEHIND_QUEUE_CAPACITY = 10_000;
+    private static final int WRITE_BEHIND_BATCH_SIZE = 500;
+    private static final long WRITE_BEHIND_BATCH_DELAY_MILLIS = 200;
+
+    private BatchCommand() {
+    }
+
+    /**
+     * Führt den Batch-Modus aus.
+     * @param args Die Kommandozeilen-Argumente.
+     * @return Exit-Code (0 = alle Datensätze verarbeitet, 1 = mindestens ein fehlerhafter Datensatz).
+     */
+    public static int run(String[] args) throws IOException, SQLException, InterruptedException {
+        String input = CommandLineOptions.valueOf(args, "--batch", "-");
+        String output = CommandLineOptions.valueOf(args, "--output", "-");
+        String formatName = CommandLineOptions.valueOf(args, "--format", null);
+        MealRecordFormat format = formatName != null ? MealRecordFormat.fromName(formatName) : MealRecordFormat.fromFileName(input);
+        String outputFormatName = CommandLineOptions.valueOf(args, "--output-format", null);
+        ResultFormat outputFormat = outputFormatName != null ? ResultFormat.fromName(outputFormatName)
+                : format == MealRecordFormat.CSV ? ResultFormat.CSV : ResultFormat.JSON_LINES;
+        int threads = CommandLineOptions.intValueOf(args, "--threads", Runtime.getRuntime().availableProcessors());
+        int maxInFlight = CommandLineOptions.intValueOf(args, "--max-in-flight", threads * 64);
+        int cacheSize = CommandLineOptions.intValueOf(args, "--cache-size", 0);
+        CalculationCache cache = cacheSize > 0 ? new CalculationCache(cacheSize) : null;
+
+        WriteBehindCalculationWriter databaseWriter = null;
+        CalculationStore store = FactorLearningOptions.wrap(args, openStore(args));
+        if (store != null) {
+            databaseWriter = new WriteBehindCalculationWriter(store,
+                    WRITE_BEHIND_QUEUE_CAPACITY, WRITE_BEHIND_BATCH_SIZE, WRITE_BEHIND_BATCH_DELAY_MILLIS);
+        }
+
+        MethodRuleTable rules = MethodRuleFileLoader.fromOptions(args);
+        FixedPointDoseCalculator fixedPoint = FixedPointDoseCalculator.fromOptions(args, rules);
+        BatchProcessor processor = new BatchProcessor(new CalculationPipeline(cache, ProfileOptions.loadRegistry(args),
+                rules, fixedPoint), threads, maxInFlight, System.err, databaseWriter);
+
+        try (ResultSink sink = outputFormat.open(openOutputStream(output))) {
+            BatchSummary summary = process(processor, input, format, sink);
+            System.err.printf("Batch abgeschlossen: %d Datensätze verarbeitet, %d fehlerhaft, %.0f Datensätze/s%n",
+                    summary.processedRecords(), summary.failedRecords(), summary.recordsPerSecond());
+            if (cache != null) {
+                System.err.println(cache.stats());
+            }
+            return summary.failedRecords() == 0 ? 0 : 1;
+        } finally {
+            if (databaseWriter != null) {
+                closeDatabaseWriter(databaseWriter, store);
+            }
+            // erst nach dem Schließen, damit auch die letzten Write-Behind-Batches enthalten sind
+            if (PipelineMetrics.ENABLED) {
+                PipelineMetrics.dump(System.err);
+            }
+        }
+    }
+
+    // CSV wird byteweise über den MealRecordReader gelesen, JSON-Lines zeilenweise über den MealRecordParser
+    private static BatchSummary process(BatchProcessor processor, String input, MealRecordFormat format,
+                                        ResultSink resultWriter) throws IOException, InterruptedException {
+        if (format == MealRecordFormat.CSV) {
+            try (MealRecordReader records = new MealRecordReader(openInputStream(input), BUFFER_SIZE)) {
+                return processor.process(records, resultWriter);
+            }
+        }
+        try (BufferedReader reader = openReader(input)) {
+            return processor.process(reader, format, resultWriter);
+        }
+    }
+
+    private static CalculationStore openStore(String[] args) throws IOException {
+        String journalDirectory = CommandLineOptions.valueOf(args, "--journal", null);
+        if (journalDirectory != null) {
+            return new CalculationJournal(Path.of(journalDirectory));
+        }
+        if (!CommandLineOptions.hasFlag(args, "--save-to-db")) {
+            return null;
+        }
+        String dbPassword = System.getenv("DB_PASSWORD");
+        if (dbPassword == null || dbPassword.isEmpty()) {
+            throw new IllegalArgumentException("--save-to-db benötigt die Umgebungsvariable 'DB_PASSWORD'.");
+        }
+        return OutboxOptions.wrap(args, new DatabaseManager(DatabaseManager.DEFAULT_DB_URL, DatabaseManager.DEFAULT_DB_USER, dbPassword));
+    }
+
+    private static void closeDatabaseWriter(WriteBehindCalculationWriter databaseWriter, CalculationStore store) {
+        try {
+            databaseWriter.close();
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Schließen der Datenbankverbindung: " + e.getMessage());
+        }
+        System.err.println("Speicherung (Write-Behind): " + databaseWriter.stats());
+        if (FactorLearningStore.unwrap(store) instanceof CalculationOutbox outbox) {
+            System.err.println("Outbox " + outbox.directory() + ": " + outbox.stats());
+        }
+    }
+
+    private static BufferedReader openReader(String input) throws IOException {
+        if ("-".equals(input)) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+        return Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8);
+    }
+
+    private static InputStream openInputStream(String input) throws IOException {
+        return "-".equals(input) ? System.in : Files.newInputStream(Path.of(input));
+    }
+
+    private static OutputStream openOutputStream(String output) throws IOException {
+        return "-".equals(output) ? System.out : Files.newOutputStream(Path.of(output));
+    }
+}
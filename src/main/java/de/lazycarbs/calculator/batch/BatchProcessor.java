@@ -0,0 +1,220 @@
+package de.lazycarbs.calculator.batch;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.database.WriteBehindCalculationWriter;
+import de.lazycarbs.calculator.input.MealRecordReader;
+import de.lazycarbs.calculator.output.ResultSink;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verarbeitet eine beliebig große Datei mit Mahlzeit-Datensätzen nicht-interaktiv.
+ * <p>
+ * Die Datei wird zeilenweise gelesen; Parsen und Berechnen laufen auf einem Worker-Pool.
+ * Es sind höchstens {@code maxInFlight} Datensätze gleichzeitig unterwegs, daher bleibt der Speicherbedarf
+ * unabhängig von der Dateigröße. Die Ergebnisse werden in der Reihenfolge der Eingabe geschrieben.
+ */
+public class BatchProcessor {
+
+    private final CalculationPipeline pipeline;
+    private final MealRecordParser parser = new MealRecordParser();
+    private final int workerThreads;
+    private final int maxInFlight;
+    private final PrintStream errorOutput;
+    private final WriteBehindCalculationWriter databaseWriter;
+
+    /**
+     * @param pipeline Die Berechnungskette.
+     * @param workerThreads Anzahl der Worker-Threads (mindestens 1).
+     * @param maxInFlight Maximale Anzahl gleichzeitig verarbeiteter Datensätze (mindestens workerThreads).
+     * @param errorOutput Ziel für Fehlermeldungen zu einzelnen Zeilen.
+     */
+    public BatchProcessor(CalculationPipeline pipeline, int workerThreads, int maxInFlight, PrintStream errorOutput) {
+        this(pipeline, workerThreads, maxInFlight, errorOutput, null);
+    }
+
+    /**
+     * @param databaseWriter Optionaler Write-Behind-Writer, über den jedes Ergebnis zusätzlich gespeichert wird (oder null).
+     *                       Ist seine Warteschlange voll, wird das Einlesen gebremst.
+     */
+    public BatchProcessor(CalculationPipeline pipeline, int workerThreads, int maxInFlight, PrintStream errorOutput,
+                          WriteBehindCalculationWriter databaseWriter) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("Anzahl der Worker-Threads muss positiv sein.");
+        }
+        if (maxInFlight < workerThreads) {
+            throw new IllegalArgumentException("maxInFlight muss mindestens so groß wie die Anzahl der Worker-Threads sein.");
+        }
+        this.pipeline = pipeline;
+        this.workerThreads = workerThreads;
+        this.maxInFlight = maxInFlight;
+        this.errorOutput = errorOutput;
+        this.databaseWriter = databaseWriter;
+    }
+
+    /**
+     * Liest alle Datensätze, berechnet sie parallel und schreibt die Ergebnisse in Eingabereihenfolge.
+     * Fehlerhafte Zeilen werden mit Zeilennummer gemeldet und übersprungen.
+     * @param reader Quelle der Datensätze.
+     * @param format Format der Datensätze.
+     * @param resultWriter Ziel der Ergebnisse.
+     * @return Zusammenfassung des Laufs.
+     */
+    public BatchSummary process(BufferedReader reader, MealRecordFormat format, ResultSink resultWriter)
+            throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long processedRecords = 0;
+        long failedRecords = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerThreads);
+        ArrayDeque<Future<LineResult>> inFlight = new ArrayDeque<>(maxInFlight);
+        try {
+            resultWriter.writeHeader();
+
+            long lineNumber = 0;
+            boolean firstRecordLine = true;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (parser.isSkippable(line)) {
+                    continue;
+                }
+                if (firstRecordLine) {
+                    firstRecordLine = false;
+                    if (parser.isHeader(line, format)) {
+                        continue;
+                    }
+                }
+                // Fenster voll: ältesten Datensatz abwarten und schreiben, bevor neu eingelesen wird
+                if (inFlight.size() >= maxInFlight) {
+                    if (writeResult(inFlight.removeFirst(), resultWriter)) {
+                        processedRecords++;
+                    } else {
+                        failedRecords++;
+                    }
+                }
+                String recordLine = line;
+                long recordLineNumber = lineNumber;
+                inFlight.addLast(executor.submit(() -> calculateLine(recordLine, recordLineNumber, format)));
+            }
+
+            while (!inFlight.isEmpty()) {
+                if (writeResult(inFlight.removeFirst(), resultWriter)) {
+                    processedRecords++;
+                } else {
+                    failedRecords++;
+                }
+            }
+            resultWriter.flush();
+        } finally {
+            for (Future<LineResult> future : inFlight) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+        return new BatchSummary(processedRecords, failedRecords, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Wie {@link #process(BufferedReader, MealRecordFormat, ResultSink)}, liest die Datensätze aber über den
+     * byteweisen {@link MealRecordReader}: das Einlesen legt pro Zeile nur den {@link MealInput} an, fehlerhafte Zeilen
+     * werden ohne Exceptions erkannt. Die Worker berechnen nur noch.
+     * @param records Quelle der Datensätze.
+     * @param resultWriter Ziel der Ergebnisse.
+     * @return Zusammenfassung des Laufs.
+     */
+    public BatchSummary process(MealRecordReader records, ResultSink resultWriter) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long processedRecords = 0;
+        long failedRecords = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerThreads);
+        ArrayDeque<Future<LineResult>> inFlight = new ArrayDeque<>(maxInFlight);
+        try {
+            resultWriter.writeHeader();
+
+            MealRecordReader.Status status;
+            while ((status = records.next()) != MealRecordReader.Status.END) {
+                if (inFlight.size() >= maxInFlight) {
+                    if (writeResult(inFlight.removeFirst(), resultWriter)) {
+                        processedRecords++;
+                    } else {
+                        failedRecords++;
+                    }
+                }
+                long recordLineNumber = records.lineNumber();
+                if (status == MealRecordReader.Status.ERROR) {
+                    // bereits fertig, wird aber erst in Eingabereihenfolge gemeldet
+                    inFlight.addLast(CompletableFuture.completedFuture(new LineResult(recordLineNumber, null, records.errorMessage())));
+                } else {
+                    MealInput input = records.toMealInput();
+                    inFlight.addLast(executor.submit(() -> calculateInput(input, recordLineNumber)));
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                if (writeResult(inFlight.removeFirst(), resultWriter)) {
+                    processedRecords++;
+                } else {
+                    failedRecords++;
+                }
+            }
+            resultWriter.flush();
+        } finally {
+            for (Future<LineResult> future : inFlight) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+        return new BatchSummary(processedRecords, failedRecords, System.nanoTime() - startNanos);
+    }
+
+    private LineResult calculateLine(String line, long lineNumber, MealRecordFormat format) {
+        try {
+            return new LineResult(lineNumber, pipeline.calculate(parser.parse(line, format)), null);
+        } catch (IllegalArgumentException e) {
+            return new LineResult(lineNumber, null, e.getMessage());
+        }
+    }
+
+    private LineResult calculateInput(MealInput input, long lineNumber) {
+        try {
+            return new LineResult(lineNumber, pipeline.calculate(input), null);
+        } catch (IllegalArgumentException e) {
+            return new LineResult(lineNumber, null, e.getMessage());
+        }
+    }
+
+    private boolean writeResult(Future<LineResult> future, ResultSink resultWriter) throws IOException, InterruptedException {
+        LineResult lineResult;
+        try {
+            lineResult = future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unerwarteter Fehler im Batch-Worker: " + e.getCause(), e.getCause());
+        }
+        if (lineResult.error() != null) {
+            errorOutput.println("Zeile " + lineResult.lineNumber() + ": " + lineResult.error());
+            return false;
+        }
+        resultWriter.write(lineResult.lineNumber(), lineResult.result());
+        if (databaseWriter != null) {
+            databaseWriter.submit(CalculationRecord.of(lineResult.result(), LocalDateTime.now()));
+        }
+        return true;
+    }
+
+    private record LineResult(long lineNumber, CalculationResult result, String error) {
+    }
+}
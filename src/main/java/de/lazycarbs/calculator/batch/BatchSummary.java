@@ -0,0 +1,11 @@
+package de.lazycarbs.calculator.batch;
+
+/**
+ * Zusammenfassung eines Batch-Laufs.
+ */
+public record BatchSummary(long processedRecords, long failedRecords, long elapsedNanos) {
+
+    public double recordsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : processedRecords / (elapsedNanos / 1_000_000_000.0);
+    }
+}
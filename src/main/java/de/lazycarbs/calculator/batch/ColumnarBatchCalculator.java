@@ -0,0 +1,100 @@
+package de.lazycarbs.calculator.batch;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.methodstrategy.MethodConstants;
+import de.lazycarbs.calculator.util.BolusFactorCalculator;
+
+/**
+ * Berechnet spaltenorientierte Blöcke von Mahlzeiten ({@link ColumnarMealBatch}) ohne Objekte pro Mahlzeit.
+ * <p>
+ * Ist die Vector API verfügbar (JVM-Option {@code --add-modules jdk.incubator.vector}), rechnet ein
+ * SIMD-Kernel mit maskierter Arithmetik; sonst ein skalarer Kernel ohne Verzweigungen. Beide liefern bitgleich
+ * dieselben Werte wie der objektbasierte Weg über {@link CalculationPipeline} (für endliche Eingaben).
+ * Alle Mahlzeiten eines Rechners verwenden dasselbe Bolusfaktor-Profil (z.B. aus
+ * {@link de.lazycarbs.calculator.profile.ProfileRegistry#calculatorFor(String)}). Eine Instanz ist zustandslos und
+ * kann von mehreren Threads für verschiedene Blöcke genutzt werden.
+ */
+public class ColumnarBatchCalculator {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL_CLASS = "de.lazycarbs.calculator.batch.VectorBatchKernel";
+
+    private final BolusFactorCalculator bolusFactorCalculator;
+    private final ColumnarBatchKernel kernel;
+
+    /**
+     * Verwendet die Vector API, wenn sie zur Laufzeit verfügbar ist, und das Standard-Profil.
+     */
+    public ColumnarBatchCalculator() {
+        this(true);
+    }
+
+    /**
+     * @param preferVectorApi false erzwingt den skalaren Kernel (z.B. zum Vergleich).
+     */
+    public ColumnarBatchCalculator(boolean preferVectorApi) {
+        this(preferVectorApi, MethodRuleTable.defaults());
+    }
+
+    /**
+     * @param rules Regeltabelle der Methodenauswahl; die Kernels bilden nur Standardtabellen ab
+     *              ({@link MethodRuleTable#isStandard()}).
+     * @throws IllegalArgumentException wenn die Tabelle eigene Regeln enthält.
+     */
+    public ColumnarBatchCalculator(boolean preferVectorApi, MethodRuleTable rules) {
+        this(preferVectorApi, rules, new BolusFactorCalculator());
+    }
+
+    /**
+     * @param rules Regeltabelle der Methodenauswahl (nur Standardtabellen).
+     * @param bolusFactorCalculator Bolusfaktor-Profil, mit dem alle Mahlzeiten gerechnet werden.
+     * @throws IllegalArgumentException wenn die Tabelle eigene Regeln enthält.
+     */
+    public ColumnarBatchCalculator(boolean preferVectorApi, MethodRuleTable rules, BolusFactorCalculator bolusFactorCalculator) {
+        if (!rules.isStandard()) {
+            throw new IllegalArgumentException("Die spaltenorientierte Berechnung unterstützt nur die Standardregeln mit den "
+                    + "eingebauten Methoden und den Schwellenwerten aus supersize.be, supersize.fatProteinCalories, "
+                    + "nocarb.maxCarbs und highcarb.beCaloriesRatio, keine eigenen Regeln (rule=...).");
+        }
+        this.bolusFactorCalculator = bolusFactorCalculator;
+        MethodConstants constants = rules.constants();
+        this.kernel = preferVectorApi && isVectorApiAvailable() ? createVectorKernel(constants) : new ScalarBatchKernel(constants);
+    }
+
+    /**
+     * @return true, wenn der SIMD-Kernel der Vector API verwendet wird.
+     */
+    public boolean usesVectorApi() {
+        return !(kernel instanceof ScalarBatchKernel);
+    }
+
+    /**
+     * Berechnet alle Einträge des Blocks: Bolusfaktor über die Uhrzeit, Zwischenfaktoren, Methodenauswahl,
+     * Methodenergebnisse und den an den Bewegungs-Faktor angepassten Bolus.
+     * @param batch Der Block; Eingabespalten müssen für die ersten batch.size() Einträge befüllt sein.
+     * @throws IllegalArgumentException wenn eine Uhrzeit ungültig ist.
+     */
+    public void calculate(ColumnarMealBatch batch) {
+        int size = batch.size();
+        for (int i = 0; i < size; i++) {
+            batch.usualBolusFactor[i] = bolusFactorCalculator.calculateAverageBolusFactor(batch.currentHour[i],
+                    batch.currentMinute[i], CalculationPipeline.BOLUS_FACTOR_DURATION_MINUTES);
+        }
+        kernel.calculate(batch, 0, size);
+    }
+
+    private static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    // Über den Klassennamen geladen, damit die Klasse ohne das Inkubator-Modul nie aufgelöst wird
+    private static ColumnarBatchKernel createVectorKernel(MethodConstants constants) {
+        try {
+            return (ColumnarBatchKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor(MethodConstants.class)
+                    .newInstance(constants);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarBatchKernel(constants);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package de.lazycarbs.calculator.batch;
+
+/**
+ * Berechnet Zwischenfaktoren, Methodenauswahl und Methodenergebnisse für einen spaltenorientierten Block.
+ * Die Spalte usualBolusFactor ist beim Aufruf bereits befüllt.
+ * Die Ergebnisse entsprechen bitgenau dem objektbasierten Weg über IntermediateFactorCalculator,
+ * MethodCalculationSelector, die CalculationStrategy-Implementierungen und FinalBolusCalculator
+ * (für endliche Eingaben).
+ */
+interface ColumnarBatchKernel {
+
+    void calculate(ColumnarMealBatch batch, int from, int to);
+}
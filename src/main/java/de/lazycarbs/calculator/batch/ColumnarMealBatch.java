@@ -0,0 +1,156 @@
+package de.lazycarbs.calculator.batch;
+
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MethodResults;
+
+/**
+ * Spaltenorientierter Block von Mahlzeiten (structure of arrays) für große Neuberechnungen.
+ * <p>
+ * Statt pro Mahlzeit mehrere Objekte (IntermediateBolusFactors, MethodSelectionResult, MethodResults) anzulegen,
+ * stehen alle Eingaben und Ergebnisse in primitiven Arrays derselben Länge. Eingabespalten werden vom Aufrufer
+ * befüllt, Ergebnisspalten vom {@link ColumnarBatchCalculator}. Ein Block kann für viele Durchläufe
+ * wiederverwendet werden; es werden immer nur die ersten {@link #size()} Einträge berechnet.
+ */
+public class ColumnarMealBatch {
+
+    // Codes der gewählten Methode in methodCodes
+    public static final byte METHOD_A_CALORIE_SURPLUS = 0;
+    public static final byte METHOD_B_SUPERSIZE = 1;
+    public static final byte METHOD_C_HIGHCARB = 2;
+    public static final byte METHOD_D_NOCARB = 3;
+
+    private static final String[] METHOD_NAMES = {"MethodACalorieSurplus", "MethodBSupersize", "MethodCHighcarb", "MethodDNocarb"};
+
+    // Eingaben
+    public final double[] mealCarbs;
+    public final double[] mealCalories;
+    public final double[] usualBeCalories;
+    public final double[] insulinTypeCalorieCovering;
+    public final int[] currentHour;
+    public final int[] currentMinute;
+    public final double[] movementFactor;
+
+    // Bolusfaktor über die Uhrzeit
+    public final double[] usualBolusFactor;
+
+    // Zwischenfaktoren
+    public final double[] leanBeFactor;
+    public final double[] pureCarbBeFactor;
+    public final double[] beSum;
+    public final double[] beCalories;
+    public final double[] fatProteinCalories;
+
+    // Methodenauswahl und Ergebnisse
+    public final byte[] methodCodes;
+    public final double[] correctBeFactor;
+    public final double[] calorieSurplus;
+    public final double[] delayedCalorieBolus;
+    public final double[] correctBolusSum;
+    public final double[] finalCorrectBolus;
+
+    private final int capacity;
+    private int size;
+
+    /**
+     * @param capacity Maximale Anzahl Mahlzeiten im Block.
+     */
+    public ColumnarMealBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Kapazität muss positiv sein.");
+        }
+        this.capacity = capacity;
+        mealCarbs = new double[capacity];
+        mealCalories = new double[capacity];
+        usualBeCalories = new double[capacity];
+        insulinTypeCalorieCovering = new double[capacity];
+        currentHour = new int[capacity];
+        currentMinute = new int[capacity];
+        movementFactor = new double[capacity];
+        usualBolusFactor = new double[capacity];
+        leanBeFactor = new double[capacity];
+        pureCarbBeFactor = new double[capacity];
+        beSum = new double[capacity];
+        beCalories = new double[capacity];
+        fatProteinCalories = new double[capacity];
+        methodCodes = new byte[capacity];
+        correctBeFactor = new double[capacity];
+        calorieSurplus = new double[capacity];
+        delayedCalorieBolus = new double[capacity];
+        correctBolusSum = new double[capacity];
+        finalCorrectBolus = new double[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Legt fest, wie viele Einträge (ab Index 0) gültig sind.
+     * @throws IllegalArgumentException wenn size negativ oder größer als die Kapazität ist.
+     */
+    public void setSize(int size) {
+        if (size < 0 || size > capacity) {
+            throw new IllegalArgumentException("Ungültige Blockgröße: " + size);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Fügt eine Mahlzeit am Ende des Blocks an.
+     * @throws IllegalStateException wenn der Block voll ist.
+     */
+    public void add(double mealCarbs, double mealCalories, double usualBeCalories, double insulinTypeCalorieCovering,
+                    int currentHour, int currentMinute, double movementFactor) {
+        if (size == capacity) {
+            throw new IllegalStateException("Der Block ist voll.");
+        }
+        this.mealCarbs[size] = mealCarbs;
+        this.mealCalories[size] = mealCalories;
+        this.usualBeCalories[size] = usualBeCalories;
+        this.insulinTypeCalorieCovering[size] = insulinTypeCalorieCovering;
+        this.currentHour[size] = currentHour;
+        this.currentMinute[size] = currentMinute;
+        this.movementFactor[size] = movementFactor;
+        size++;
+    }
+
+    /**
+     * @return Der Klassenname der Methode zum Code (wie in der Spalte selected_method_name).
+     */
+    public static String methodName(byte methodCode) {
+        return METHOD_NAMES[methodCode];
+    }
+
+    /**
+     * @return Der Code zum Klassennamen einer Methode (Umkehrung von {@link #methodName(byte)}).
+     * @throws IllegalArgumentException bei einem unbekannten Methodennamen.
+     */
+    public static byte methodCode(String methodName) {
+        for (byte code = 0; code < METHOD_NAMES.length; code++) {
+            if (METHOD_NAMES[code].equals(methodName)) {
+                return code;
+            }
+        }
+        throw new IllegalArgumentException("Unbekannte Berechnungsmethode: " + methodName);
+    }
+
+    /**
+     * Erzeugt die Zwischenfaktoren eines Eintrags als Objekt (z.B. zum Speichern oder Vergleichen).
+     */
+    public IntermediateBolusFactors intermediateBolusFactors(int index) {
+        return new IntermediateBolusFactors(leanBeFactor[index], pureCarbBeFactor[index], beSum[index],
+                beCalories[index], fatProteinCalories[index]);
+    }
+
+    /**
+     * Erzeugt die Ergebnisse der Methode eines Eintrags als Objekt (z.B. zum Speichern oder Vergleichen).
+     */
+    public MethodResults methodResults(int index) {
+        return new MethodResults(correctBeFactor[index], calorieSurplus[index], delayedCalorieBolus[index],
+                correctBolusSum[index], fatProteinCalories[index]);
+    }
+}
@@ -0,0 +1,36 @@
+package de.lazycarbs.calculator.batch;
+
+/**
+ * Unterstützte Formate für Mahlzeit-Datensätze im Batch-Modus.
+ */
+public enum MealRecordFormat {
+    CSV,
+    JSON_LINES;
+
+    /**
+     * Leitet das Format aus der Dateiendung ab (.jsonl / .json -> JSON-Lines, sonst CSV).
+     * @param fileName Name oder Pfad der Eingabedatei.
+     * @return Das erkannte Format.
+     */
+    public static MealRecordFormat fromFileName(String fileName) {
+        String lowerCaseName = fileName.toLowerCase();
+        if (lowerCaseName.endsWith(".jsonl") || lowerCaseName.endsWith(".json") || lowerCaseName.endsWith(".ndjson")) {
+            return JSON_LINES;
+        }
+        return CSV;
+    }
+
+    /**
+     * Liest den Formatnamen einer Kommandozeilen-Option (csv / jsonl).
+     * @param name Name des Formats.
+     * @return Das passende Format.
+     * @throws IllegalArgumentException wenn der Name unbekannt ist.
+     */
+    public static MealRecordFormat fromName(String name) {
+        return switch (name.toLowerCase()) {
+            case "csv" -> CSV;
+            case "jsonl", "json", "ndjson" -> JSON_LINES;
+            default -> throw new IllegalArgumentException("Unbekanntes Format: " + name + " (erlaubt: csv, jsonl)");
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package de.lazycarbs.calculator.batch;
+
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+
+/**
+ * Wandelt einzelne Zeilen einer CSV- oder JSON-Lines-Datei in {@link MealInput}-Datensätze um.
+ * <p>
+ * CSV-Spaltenreihenfolge: Kohlenhydrate, Kalorien, übliche Kalorien pro BE, Insulin-Typ Kalorienabdeckung,
+ * Stunde, Minute, Bewegungs-Faktor. Trennzeichen ist ',' oder ';' - bei ';' darf ',' als Dezimaltrenner
+ * verwendet werden (z.B. "75,6;1266,85;105;200;15;25;0,75").
+ * <p>
+ * JSON-Lines: ein flaches Objekt pro Zeile mit den Feldnamen von {@link MealInput}, z.B.
+ * {"mealCarbs":75.6,"mealCalories":1266.85,"usualBeCalories":105,"insulinTypeCalorieCovering":200,
+ * "currentHour":15,"currentMinute":25,"movementFactor":0.75}
+ * <p>
+ * Die Klasse ist zustandslos und kann von mehreren Threads gleichzeitig genutzt werden.
+ */
+public class MealRecordParser {
+
+    private static final String[] FIELD_NAMES = {
+            "mealCarbs", "mealCalories", "usualBeCalories", "insulinTypeCalorieCovering",
+            "currentHour", "currentMinute", "movementFactor"
+    };
+
+    /**
+     * Prüft, ob eine Zeile keinen Datensatz enthält (Leerzeile oder Kommentar).
+     * @param line Die Zeile.
+     * @return true, wenn die Zeile übersprungen werden soll.
+     */
+    public boolean isSkippable(String line) {
+        String trimmed = line.strip();
+        return trimmed.isEmpty() || trimmed.startsWith("#");
+    }
+
+    /**
+     * Prüft, ob eine Zeile eine CSV-Kopfzeile ist (beginnt mit einem Buchstaben statt einer Zahl).
+     * Sollte nur für die erste nicht leere Zeile einer Datei aufgerufen werden.
+     * @param line Die Zeile.
+     * @param format Das Format der Datei.
+     * @return true, wenn die Zeile eine Kopfzeile ist.
+     */
+    public boolean isHeader(String line, MealRecordFormat format) {
+        String trimmed = line.strip();
+        return format == MealRecordFormat.CSV && !trimmed.isEmpty() && Character.isLetter(trimmed.charAt(0));
+    }
+
+    /**
+     * Liest einen Datensatz aus einer Zeile.
+     * @param line Die Zeile.
+     * @param format Das Format der Zeile.
+     * @return Der gelesene Datensatz.
+     * @throws IllegalArgumentException wenn die Zeile nicht gelesen werden kann oder Werte ungültig sind.
+     */
+    public MealInput parse(String line, MealRecordFormat format) {
+        long start = PipelineMetrics.start();
+        double[] values = format == MealRecordFormat.CSV ? parseCsv(line) : parseJson(line);
+        MealInput input = toMealInput(values);
+        PipelineMetrics.record(PipelineStage.INPUT, start);
+        return input;
+    }
+
+    private double[] parseCsv(String line) {
+        boolean semicolonSeparated = line.indexOf(';') >= 0;
+        String[] fields = line.split(semicolonSeparated ? ";" : ",", -1);
+        if (fields.length != FIELD_NAMES.length) {
+            throw new IllegalArgumentException("Erwartet " + FIELD_NAMES.length + " Werte, gefunden: " + fields.length);
+        }
+        double[] values = new double[FIELD_NAMES.length];
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i].strip();
+            if (semicolonSeparated) {
+                field = field.replace(',', '.');
+            }
+            values[i] = parseNumber(field, FIELD_NAMES[i]);
+        }
+        return values;
+    }
+
+    private double[] parseJson(String line) {
+        double[] values = new double[FIELD_NAMES.length];
+        boolean[] present = new boolean[FIELD_NAMES.length];
+
+        int position = skipWhitespace(line, 0);
+        if (position >= line.length() || line.charAt(position) != '{') {
+            throw new IllegalArgumentException("JSON-Objekt muss mit '{' beginnen.");
+        }
+        position = skipWhitespace(line, position + 1);
+        if (position < line.length() && line.charAt(position) == '}') {
+            position = line.length();
+        }
+
+        while (position < line.length()) {
+            if (line.charAt(position) != '"') {
+                throw new IllegalArgumentException("Feldname erwartet an Position " + position + ".");
+            }
+            int keyEnd = line.indexOf('"', position + 1);
+            if (keyEnd < 0) {
+                throw new IllegalArgumentException("Nicht abgeschlossener Feldname.");
+            }
+            String key = line.substring(position + 1, keyEnd);
+
+            position = skipWhitespace(line, keyEnd + 1);
+            if (position >= line.length() || line.charAt(position) != ':') {
+                throw new IllegalArgumentException("':' erwartet nach Feld \"" + key + "\".");
+            }
+            position = skipWhitespace(line, position + 1);
+
+            int valueEnd;
+            String value;
+            if (position < line.length() && line.charAt(position) == '"') {
+                valueEnd = line.indexOf('"', position + 1);
+                if (valueEnd < 0) {
+                    throw new IllegalArgumentException("Nicht abgeschlossener Wert für Feld \"" + key + "\".");
+                }
+                value = line.substring(position + 1, valueEnd);
+                valueEnd++;
+            } else {
+                valueEnd = position;
+                while (valueEnd < line.length() && line.charAt(valueEnd) != ',' && line.charAt(valueEnd) != '}') {
+                    valueEnd++;
+                }
+                value = line.substring(position, valueEnd).strip();
+            }
+
+            int fieldIndex = fieldIndex(key);
+            if (fieldIndex >= 0) {
+                values[fieldIndex] = parseNumber(value, key);
+                present[fieldIndex] = true;
+            }
+
+            position = skipWhitespace(line, valueEnd);
+            if (position >= line.length()) {
+                throw new IllegalArgumentException("JSON-Objekt muss mit '}' enden.");
+            }
+            char separator = line.charAt(position);
+            if (separator == '}') {
+                break;
+            }
+            if (separator != ',') {
+                throw new IllegalArgumentException("',' oder '}' erwartet an Position " + position + ".");
+            }
+            position = skipWhitespace(line, position + 1);
+        }
+
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            if (!present[i]) {
+                throw new IllegalArgumentException("Feld fehlt: " + FIELD_NAMES[i]);
+            }
+        }
+        return values;
+    }
+
+    private MealInput toMealInput(double[] values) {
+        int currentHour = toInt(values[4], FIELD_NAMES[4]);
+        int currentMinute = toInt(values[5], FIELD_NAMES[5]);
+        if (currentHour < 0 || currentHour > 23 || currentMinute < 0 || currentMinute > 59) {
+            throw new IllegalArgumentException("Ungültige Uhrzeit. Stunde (0-23), Minute (0-59).");
+        }
+        return new MealInput(values[0], values[1], values[2], values[3], currentHour, currentMinute, values[6]);
+    }
+
+    private static int fieldIndex(String key) {
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            if (FIELD_NAMES[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static double parseNumber(String value, String fieldName) {
+        try {
+            double number = Double.parseDouble(value);
+            if (!Double.isFinite(number)) {
+                throw new IllegalArgumentException("Ungültiger Wert für " + fieldName + ": " + value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültige Zahl für " + fieldName + ": \"" + value + "\"");
+        }
+    }
+
+    private static int toInt(double value, String fieldName) {
+        if (value != Math.rint(value)) {
+            throw new IllegalArgumentException("Ganze Zahl erwartet für " + fieldName + ": " + value);
+        }
+        return (int) value;
+    }
+
+    private static int skipWhitespace(String line, int position) {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+}
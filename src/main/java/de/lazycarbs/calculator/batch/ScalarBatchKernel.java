@@ -0,0 +1,92 @@
+package de.lazycarbs.calculator.batch;
+
+import de.lazycarbs.calculator.methodstrategy.MethodConstants;
+
+/**
+ * Skalare Variante des Batch-Kernels ohne Verzweigungen im Rechenteil: alle Kandidatenwerte werden berechnet und
+ * über Bedingungen ausgewählt, damit der JIT-Compiler bedingte Moves bzw. Auto-Vektorisierung nutzen kann.
+ * Wird verwendet, wenn die Vector API (jdk.incubator.vector) nicht verfügbar ist.
+ */
+class ScalarBatchKernel implements ColumnarBatchKernel {
+
+    private final double supersizeBe;
+    private final double supersizeFatProteinCalories;
+    private final double noCarbMaxCarbs;
+    private final double highCarbBeCaloriesRatio;
+    private final double overhangingBeCalories;
+    private final double delayedBolusCaloriesPerUnit;
+
+    /**
+     * @param constants Schwellenwerte der Standardregeln und Größen der Methoden (siehe MethodRuleTable).
+     */
+    ScalarBatchKernel(MethodConstants constants) {
+        this.supersizeBe = constants.supersizeBe();
+        this.supersizeFatProteinCalories = constants.supersizeFatProteinCalories();
+        this.noCarbMaxCarbs = constants.noCarbMaxCarbs();
+        this.highCarbBeCaloriesRatio = constants.highCarbBeCaloriesRatio();
+        this.overhangingBeCalories = constants.overhangingBeCalories();
+        this.delayedBolusCaloriesPerUnit = constants.delayedBolusCaloriesPerUnit();
+    }
+
+    @Override
+    public void calculate(ColumnarMealBatch batch, int from, int to) {
+        double[] mealCarbs = batch.mealCarbs;
+        double[] mealCalories = batch.mealCalories;
+        double[] usualBeCalories = batch.usualBeCalories;
+        double[] insulinTypeCalorieCovering = batch.insulinTypeCalorieCovering;
+        double[] usualBolusFactor = batch.usualBolusFactor;
+        double[] movementFactor = batch.movementFactor;
+
+        for (int i = from; i < to; i++) {
+            double carbs = mealCarbs[i];
+            double calories = mealCalories[i];
+            double usualBeCaloriesPlus100 = usualBeCalories[i] + 100;
+            double bolusFactor = usualBolusFactor[i];
+            double covering = insulinTypeCalorieCovering[i];
+
+            // Zwischenfaktoren (IntermediateFactorCalculator)
+            double leanBeFactor = (200.0 / usualBeCaloriesPlus100) * bolusFactor;
+            double pureCarbBeFactor = (150.0 / usualBeCaloriesPlus100) * bolusFactor;
+            double beSum = carbs / 12;
+            double beCalories = beSum == 0 ? 0.0 : calories / beSum;
+            double fatProteinCalories = calories - (beSum * 50);
+
+            // Methodenauswahl (MethodCalculationSelector): B vor D vor C vor A
+            boolean isB = beSum > supersizeBe & fatProteinCalories > supersizeFatProteinCalories;
+            boolean isD = !isB & carbs < noCarbMaxCarbs;
+            boolean isC = !isB & !isD & beCalories < highCarbBeCaloriesRatio * usualBeCalories[i];
+            boolean isA = !isB & !isD & !isC;
+            boolean overCovering = beCalories > covering;
+
+            // Kalorien pro BE, höchstens die Kalorienabdeckung des Insulins (A und B); C nutzt die vollen Kalorien pro BE
+            double coveredBeCalories = (isC | !overCovering) ? beCalories : covering;
+            double correctBeFactor = isD ? 0.0 : ((coveredBeCalories + 100) / usualBeCaloriesPlus100) * bolusFactor;
+
+            double overhangingBe = beSum - supersizeBe;
+            double surplusA = calories - (covering * beSum);
+            double surplusB = (calories - (coveredBeCalories * supersizeBe)) - (overhangingBe * overhangingBeCalories);
+            double calorieSurplus = isB ? surplusB : ((isA & overCovering) ? surplusA : 0.0);
+
+            double delayedBase = isD ? calories : calorieSurplus;
+            double delayed = (delayedBase / delayedBolusCaloriesPerUnit) * leanBeFactor;
+            double delayedCalorieBolus = (isB | isD | (isA & overCovering)) ? delayed : 0.0;
+
+            double correctBolusSum = isB ? (correctBeFactor * supersizeBe) + (overhangingBe * pureCarbBeFactor)
+                    : (isD ? 0.0 : correctBeFactor * beSum);
+
+            batch.leanBeFactor[i] = leanBeFactor;
+            batch.pureCarbBeFactor[i] = pureCarbBeFactor;
+            batch.beSum[i] = beSum;
+            batch.beCalories[i] = beCalories;
+            batch.fatProteinCalories[i] = fatProteinCalories;
+            batch.methodCodes[i] = (byte) ((isB ? ColumnarMealBatch.METHOD_B_SUPERSIZE : 0)
+                    | (isC ? ColumnarMealBatch.METHOD_C_HIGHCARB : 0)
+                    | (isD ? ColumnarMealBatch.METHOD_D_NOCARB : 0));
+            batch.correctBeFactor[i] = correctBeFactor;
+            batch.calorieSurplus[i] = calorieSurplus;
+            batch.delayedCalorieBolus[i] = delayedCalorieBolus;
+            batch.correctBolusSum[i] = correctBolusSum;
+            batch.finalCorrectBolus[i] = correctBolusSum * movementFactor[i];
+        }
+    }
+}
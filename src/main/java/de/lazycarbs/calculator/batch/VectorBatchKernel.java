@@ -0,0 +1,104 @@
+package de.lazycarbs.calculator.batch;
+
+import de.lazycarbs.calculator.methodstrategy.MethodConstants;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Variante des Batch-Kernels über die JDK Vector API (jdk.incubator.vector).
+ * Alle Zweige werden für eine ganze Vektorbreite berechnet und über Masken zusammengeführt; dieselben
+ * IEEE-754-Operationen in derselben Reihenfolge wie im skalaren Weg liefern bitgleiche Ergebnisse.
+ * Der Rest eines Blocks, der keine volle Vektorbreite mehr füllt, wird mit dem skalaren Kernel berechnet.
+ * <p>
+ * Diese Klasse wird nur geladen, wenn das Modul zur Laufzeit vorhanden ist (JVM-Option
+ * {@code --add-modules jdk.incubator.vector}), siehe {@link ColumnarBatchCalculator}.
+ */
+class VectorBatchKernel implements ColumnarBatchKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private final MethodConstants constants;
+    private final ScalarBatchKernel tailKernel;
+
+    VectorBatchKernel(MethodConstants constants) {
+        this.constants = constants;
+        this.tailKernel = new ScalarBatchKernel(constants);
+    }
+
+    @Override
+    public void calculate(ColumnarMealBatch batch, int from, int to) {
+        int lanes = SPECIES.length();
+        int vectorEnd = from + (to - from) / lanes * lanes;
+
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        double supersizeBe = constants.supersizeBe();
+        double overhangingBeCalories = constants.overhangingBeCalories();
+        int i = from;
+        for (; i < vectorEnd; i += lanes) {
+            DoubleVector carbs = DoubleVector.fromArray(SPECIES, batch.mealCarbs, i);
+            DoubleVector calories = DoubleVector.fromArray(SPECIES, batch.mealCalories, i);
+            DoubleVector usualBeCalories = DoubleVector.fromArray(SPECIES, batch.usualBeCalories, i);
+            DoubleVector usualBeCaloriesPlus100 = usualBeCalories.add(100);
+            DoubleVector bolusFactor = DoubleVector.fromArray(SPECIES, batch.usualBolusFactor, i);
+            DoubleVector covering = DoubleVector.fromArray(SPECIES, batch.insulinTypeCalorieCovering, i);
+
+            // Zwischenfaktoren (IntermediateFactorCalculator)
+            DoubleVector leanBeFactor = DoubleVector.broadcast(SPECIES, 200.0).div(usualBeCaloriesPlus100).mul(bolusFactor);
+            DoubleVector pureCarbBeFactor = DoubleVector.broadcast(SPECIES, 150.0).div(usualBeCaloriesPlus100).mul(bolusFactor);
+            DoubleVector beSum = carbs.div(12);
+            DoubleVector beCalories = calories.div(beSum).blend(zero, beSum.compare(VectorOperators.EQ, 0));
+            DoubleVector fatProteinCalories = calories.sub(beSum.mul(50));
+
+            // Methodenauswahl (MethodCalculationSelector): B vor D vor C vor A
+            VectorMask<Double> isB = beSum.compare(VectorOperators.GT, supersizeBe)
+                    .and(fatProteinCalories.compare(VectorOperators.GT, constants.supersizeFatProteinCalories()));
+            VectorMask<Double> isD = isB.not().and(carbs.compare(VectorOperators.LT, constants.noCarbMaxCarbs()));
+            VectorMask<Double> isC = isB.or(isD).not().and(beCalories.compare(VectorOperators.LT,
+                    usualBeCalories.mul(constants.highCarbBeCaloriesRatio())));
+            VectorMask<Double> isA = isB.or(isD).or(isC).not();
+            VectorMask<Double> overCovering = beCalories.compare(VectorOperators.GT, covering);
+            VectorMask<Double> surplusA = isA.and(overCovering);
+
+            DoubleVector coveredBeCalories = covering.blend(beCalories, isC.or(overCovering.not()));
+            DoubleVector correctBeFactor = coveredBeCalories.add(100).div(usualBeCaloriesPlus100).mul(bolusFactor)
+                    .blend(zero, isD);
+
+            DoubleVector overhangingBe = beSum.sub(supersizeBe);
+            DoubleVector calorieSurplus = zero
+                    .blend(calories.sub(covering.mul(beSum)), surplusA)
+                    .blend(calories.sub(coveredBeCalories.mul(supersizeBe)).sub(overhangingBe.mul(overhangingBeCalories)), isB);
+
+            DoubleVector delayedCalorieBolus = calorieSurplus.blend(calories, isD).div(constants.delayedBolusCaloriesPerUnit()).mul(leanBeFactor)
+                    .blend(zero, isB.or(isD).or(surplusA).not());
+
+            DoubleVector correctBolusSum = correctBeFactor.mul(beSum)
+                    .blend(correctBeFactor.mul(supersizeBe).add(overhangingBe.mul(pureCarbBeFactor)), isB)
+                    .blend(zero, isD);
+
+            leanBeFactor.intoArray(batch.leanBeFactor, i);
+            pureCarbBeFactor.intoArray(batch.pureCarbBeFactor, i);
+            beSum.intoArray(batch.beSum, i);
+            beCalories.intoArray(batch.beCalories, i);
+            fatProteinCalories.intoArray(batch.fatProteinCalories, i);
+            correctBeFactor.intoArray(batch.correctBeFactor, i);
+            calorieSurplus.intoArray(batch.calorieSurplus, i);
+            delayedCalorieBolus.intoArray(batch.delayedCalorieBolus, i);
+            correctBolusSum.intoArray(batch.correctBolusSum, i);
+            correctBolusSum.mul(DoubleVector.fromArray(SPECIES, batch.movementFactor, i)).intoArray(batch.finalCorrectBolus, i);
+
+            // Methodencodes aus den (sich ausschließenden) Masken: B = 1, C = 2, D = 3, sonst A = 0
+            long bBits = isB.toLong();
+            long cBits = isC.toLong();
+            long dBits = isD.toLong();
+            for (int lane = 0; lane < lanes; lane++) {
+                batch.methodCodes[i + lane] = (byte) ((((bBits >>> lane) & 1) * ColumnarMealBatch.METHOD_B_SUPERSIZE)
+                        | (((cBits >>> lane) & 1) * ColumnarMealBatch.METHOD_C_HIGHCARB)
+                        | (((dBits >>> lane) & 1) * ColumnarMealBatch.METHOD_D_NOCARB));
+            }
+        }
+
+        tailKernel.calculate(batch, i, to);
+    }
+}
@@ -0,0 +1,18 @@
+package de.lazycarbs.calculator.cache;
+
+/**
+ * Momentaufnahme der Zähler des {@link CalculationCache}.
+ */
+public record CacheStats(long size, long maximumSize, long hits, long misses, long evictions) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : hits / (double) requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache: %d/%d Einträge, Treffer: %d, Fehlzugriffe: %d (Trefferquote %.1f %%), verdrängt: %d",
+                size, maximumSize, hits, misses, hitRate() * 100, evictions);
+    }
+}
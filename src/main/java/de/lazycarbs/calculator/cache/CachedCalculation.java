@@ -0,0 +1,12 @@
+package de.lazycarbs.calculator.cache;
+
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.data.MethodSelectionResult;
+
+/**
+ * Im {@link CalculationCache} abgelegte Zwischenergebnisse einer Berechnung (alle unveränderlich).
+ */
+public record CachedCalculation(IntermediateBolusFactors intermediateBolusFactors, MethodSelectionResult methodSelection,
+                                MethodResults methodResults) {
+}
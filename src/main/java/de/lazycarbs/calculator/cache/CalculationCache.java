@@ -0,0 +1,143 @@
+package de.lazycarbs.calculator.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Begrenzter, thread-sicherer Cache für Berechnungsergebnisse mit LRU-ähnlicher Verdrängung (CLOCK).
+ * <p>
+ * Die Einträge sind über den Hash des Schlüssels auf mehrere Segmente verteilt. Lesen ist lock-frei: ein Treffer
+ * setzt nur das Referenz-Bit seines Eintrags. Nur das Einfügen nimmt das Lock des jeweiligen Segments (Lock-Striping)
+ * und verdrängt bei vollem Segment den ersten Eintrag im Ring, der seit dem letzten Umlauf nicht mehr gelesen wurde.
+ * Das entspricht einer LRU-Näherung, ohne dass jeder Lesezugriff eine gemeinsame Liste umsortieren muss.
+ */
+public class CalculationCache {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final long maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize Maximale Anzahl Einträge.
+     */
+    public CalculationCache(int maximumSize) {
+        this(maximumSize, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param maximumSize Maximale Anzahl Einträge; wird gleichmäßig auf die Segmente verteilt.
+     * @param segmentCount Anzahl der Segmente; wird auf eine Zweierpotenz abgerundet und auf die Cache-Größe begrenzt,
+     *                     damit jedes Segment mindestens einen Platz hat.
+     */
+    public CalculationCache(int maximumSize, int segmentCount) {
+        if (maximumSize < 1 || segmentCount < 1) {
+            throw new IllegalArgumentException("Cache-Größe und Segmentanzahl müssen positiv sein.");
+        }
+        int segmentsPowerOfTwo = Integer.highestOneBit(Math.min(segmentCount, maximumSize));
+        this.segments = new Segment[segmentsPowerOfTwo];
+        for (int i = 0; i < segments.length; i++) {
+            // Rest der Division auf die ersten Segmente verteilen, damit die Gesamtgröße exakt stimmt
+            int capacity = maximumSize / segmentsPowerOfTwo + (i < maximumSize % segmentsPowerOfTwo ? 1 : 0);
+            segments[i] = new Segment(capacity);
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentsPowerOfTwo);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return Der gespeicherte Eintrag oder null.
+     */
+    public CachedCalculation get(CalculationCacheKey key) {
+        Entry entry = segmentFor(key).entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (!entry.referenced) { // nur schreiben, wenn nötig, damit Treffer keine Cache-Line verschmutzen
+            entry.referenced = true;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(CalculationCacheKey key, CachedCalculation value) {
+        segmentFor(key).put(key, value);
+    }
+
+    public CacheStats stats() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.entries.size();
+        }
+        return new CacheStats(size, maximumSize, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private Segment segmentFor(CalculationCacheKey key) {
+        if (segmentShift == 32) {
+            return segments[0];
+        }
+        // Fibonacci-Hashing: die oberen Bits des Produkts sind auch bei schlecht verteilten Record-Hashes gut gestreut
+        return segments[(key.hashCode() * 0x9E3779B9) >>> segmentShift];
+    }
+
+    private static final class Entry {
+
+        private final CalculationCacheKey key;
+        private final CachedCalculation value;
+        private volatile boolean referenced;
+
+        private Entry(CalculationCacheKey key, CachedCalculation value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ConcurrentHashMap<CalculationCacheKey, Entry> entries;
+        private final Entry[] ring;
+        private int size;
+        private int hand;
+
+        private Segment(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Ein Cache-Segment braucht mindestens einen Platz: " + capacity);
+            }
+            this.entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+            this.ring = new Entry[capacity];
+        }
+
+        private void put(CalculationCacheKey key, CachedCalculation value) {
+            lock.lock();
+            try {
+                if (entries.containsKey(key)) {
+                    return; // paralleler Fehlzugriff hat dasselbe Ergebnis bereits eingetragen
+                }
+                Entry entry = new Entry(key, value);
+                if (size < ring.length) {
+                    ring[size++] = entry;
+                } else {
+                    // Zeiger weiterdrehen, bis ein Eintrag ohne Referenz-Bit gefunden ist; gesetzte Bits werden gelöscht
+                    while (ring[hand].referenced) {
+                        ring[hand].referenced = false;
+                        hand = (hand + 1) % ring.length;
+                    }
+                    entries.remove(ring[hand].key);
+                    evictions.increment();
+                    ring[hand] = entry;
+                    hand = (hand + 1) % ring.length;
+                }
+                entries.put(key, entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
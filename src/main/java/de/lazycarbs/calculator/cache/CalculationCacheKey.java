@@ -0,0 +1,22 @@
+package de.lazycarbs.calculator.cache;
+
+/**
+ * Normalisierter Schlüssel einer Berechnung für den {@link CalculationCache}.
+ * <p>
+ * Die Uhrzeit geht nicht direkt ein, sondern über den daraus gemittelten Bolusfaktor: alle Minuten, die denselben
+ * Faktor ergeben, teilen sich einen Eintrag. Der Bewegungs-Faktor gehört nicht zum Schlüssel, weil er erst nach
+ * der Methode angewendet wird. -0.0 wird auf 0.0 abgebildet, damit gleiche Eingaben denselben Schlüssel ergeben.
+ */
+public record CalculationCacheKey(double mealCarbs, double mealCalories, double usualBeCalories,
+                                  double insulinTypeCalorieCovering, double usualBolusFactor) {
+
+    public static CalculationCacheKey of(double mealCarbs, double mealCalories, double usualBeCalories,
+                                         double insulinTypeCalorieCovering, double usualBolusFactor) {
+        return new CalculationCacheKey(normalize(mealCarbs), normalize(mealCalories), normalize(usualBeCalories),
+                normalize(insulinTypeCalorieCovering), normalize(usualBolusFactor));
+    }
+
+    private static double normalize(double value) {
+        return value == 0.0 ? 0.0 : value;
+    }
+}
@@ -0,0 +1,170 @@
+package de.lazycarbs.calculator.core;
+
+import de.lazycarbs.calculator.cache.CachedCalculation;
+import de.lazycarbs.calculator.cache.CalculationCache;
+import de.lazycarbs.calculator.cache.CalculationCacheKey;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.data.MethodSelectionResult;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+import de.lazycarbs.calculator.profile.ProfileRegistry;
+import de.lazycarbs.calculator.util.BolusFactorCalculator;
+
+/**
+ * Führt eine Mahlzeit ohne Benutzerinteraktion durch die gesamte Berechnungskette:
+ * Bolusfaktor über die Uhrzeit -> Zwischenfaktoren -> Methodenauswahl -> Methode -> Bewegungs-Faktor.
+ * Alle beteiligten Rechner sind zustandslos, eine Instanz kann daher von mehreren Threads gleichzeitig genutzt werden.
+ * <p>
+ * Optional liegt ein {@link CalculationCache} vor der Kette: wiederholte Standard-Mahlzeiten im selben Zeitfenster
+ * liefern dann die bereits berechneten Zwischenfaktoren, Methodenauswahl und Methodenergebnisse.
+ * Der Bolusfaktor kommt aus dem Profil des Benutzers in der {@link ProfileRegistry}.
+ * <p>
+ * Mit einem {@link FixedPointDoseCalculator} werden Zwischenfaktoren, Methode und Endbolus in Festkomma gerechnet
+ * und die Dosen auf die Schrittweite der Pumpe gerundet. Die Methodenauswahl sieht weiter die ungerundeten
+ * Zwischenfaktoren aus der double-Rechnung, gerundet werden nur die Dosen; das Ergebnis wird erst am Ende in die
+ * bisherigen Records umgewandelt.
+ */
+public class CalculationPipeline {
+
+    // Zeitraum in Minuten, über den der durchschnittliche Bolusfaktor gebildet wird (wie im interaktiven Modus)
+    public static final int BOLUS_FACTOR_DURATION_MINUTES = BolusFactorCalculator.PRECOMPUTED_WINDOW_MINUTES;
+
+    private final IntermediateFactorCalculator intermediateFactorCalculator = new IntermediateFactorCalculator();
+    private final MethodCalculationSelector methodCalculationSelector;
+    private final FinalBolusCalculator finalBolusCalculator = new FinalBolusCalculator();
+    private final CalculationCache cache;
+    private final ProfileRegistry profiles;
+    private final FixedPointDoseCalculator fixedPoint;
+
+    public CalculationPipeline() {
+        this(null);
+    }
+
+    /**
+     * @param cache Cache für wiederholte Eingaben oder null für eine Berechnung ohne Cache.
+     */
+    public CalculationPipeline(CalculationCache cache) {
+        this(cache, new ProfileRegistry());
+    }
+
+    /**
+     * @param cache Cache für wiederholte Eingaben oder null für eine Berechnung ohne Cache.
+     * @param profiles Bolusfaktor-Profile der Benutzer.
+     */
+    public CalculationPipeline(CalculationCache cache, ProfileRegistry profiles) {
+        this(cache, profiles, MethodRuleTable.defaults());
+    }
+
+    /**
+     * @param cache Cache für wiederholte Eingaben oder null für eine Berechnung ohne Cache.
+     * @param profiles Bolusfaktor-Profile der Benutzer.
+     * @param rules Regeltabelle der Methodenauswahl.
+     */
+    public CalculationPipeline(CalculationCache cache, ProfileRegistry profiles, MethodRuleTable rules) {
+        this(cache, profiles, rules, null);
+    }
+
+    /**
+     * @param cache Cache für wiederholte Eingaben oder null für eine Berechnung ohne Cache.
+     * @param profiles Bolusfaktor-Profile der Benutzer.
+     * @param rules Regeltabelle der Methodenauswahl.
+     * @param fixedPoint Festkomma-Rechnung mit Pumpen-Rundung oder null für die Rechnung in double.
+     */
+    public CalculationPipeline(CalculationCache cache, ProfileRegistry profiles, MethodRuleTable rules,
+                               FixedPointDoseCalculator fixedPoint) {
+        this.cache = cache;
+        this.profiles = profiles;
+        this.methodCalculationSelector = new MethodCalculationSelector(rules);
+        this.fixedPoint = fixedPoint;
+    }
+
+    /**
+     * @return Der verwendete Cache oder null.
+     */
+    public CalculationCache cache() {
+        return cache;
+    }
+
+    /**
+     * Berechnet eine Mahlzeit mit dem Standard-Profil.
+     */
+    public CalculationResult calculate(MealInput input) {
+        return calculate(null, input);
+    }
+
+    /**
+     * Berechnet eine Mahlzeit mit dem Profil eines Benutzers.
+     * @param userId Benutzerkennung oder null für das Standard-Profil.
+     * @throws IllegalArgumentException wenn für den Benutzer kein Profil hinterlegt ist.
+     */
+    public CalculationResult calculate(String userId, MealInput input) {
+        long start = PipelineMetrics.start();
+        // Cache-Schlüssel enthält den gemittelten Faktor, Profile verschiedener Benutzer mischen sich daher nicht
+        double usualBolusFactor = profiles.calculatorFor(userId).calculateAverageBolusFactor(
+                input.currentHour(), input.currentMinute(), BOLUS_FACTOR_DURATION_MINUTES);
+        PipelineMetrics.record(PipelineStage.BOLUS_FACTOR, start);
+
+        if (cache == null) {
+            return calculateUncached(input, usualBolusFactor);
+        }
+
+        CalculationCacheKey key = CalculationCacheKey.of(input.mealCarbs(), input.mealCalories(), input.usualBeCalories(),
+                input.insulinTypeCalorieCovering(), usualBolusFactor);
+        CachedCalculation cached = cache.get(key);
+        if (cached != null) {
+            double finalCorrectBolus = fixedPoint != null
+                    ? fixedPoint.correctBolusSumAdjustment(cached.methodResults(), input.movementFactor())
+                    : finalBolusCalculator.correctBolusSumAdjustment(cached.methodResults(), input.movementFactor());
+            return new CalculationResult(input, usualBolusFactor, cached.intermediateBolusFactors(), cached.methodSelection(),
+                    cached.methodResults(), finalCorrectBolus);
+        }
+
+        CalculationResult result = calculateUncached(input, usualBolusFactor);
+        cache.put(key, new CachedCalculation(result.intermediateBolusFactors(), result.methodSelection(), result.methodResults()));
+        return result;
+    }
+
+    private CalculationResult calculateUncached(MealInput input, double usualBolusFactor) {
+        if (fixedPoint != null) {
+            return calculateFixedPoint(input, usualBolusFactor);
+        }
+        long start = PipelineMetrics.start();
+        IntermediateBolusFactors intermediateBolusFactors = intermediateFactorCalculator.calculateIntermediateBolusFactors(
+                input.mealCarbs(), input.mealCalories(), usualBolusFactor, input.usualBeCalories());
+        PipelineMetrics.record(PipelineStage.INTERMEDIATE_FACTORS, start);
+
+        MethodSelectionResult methodSelection = methodCalculationSelector.selectStrategy(
+                input.mealCarbs(), input.usualBeCalories(), intermediateBolusFactors);
+
+        MethodResults methodResults = methodSelection.strategy().calculate(input.mealCarbs(), input.mealCalories(), usualBolusFactor,
+                input.usualBeCalories(), input.insulinTypeCalorieCovering(), intermediateBolusFactors);
+
+        double finalCorrectBolus = finalBolusCalculator.correctBolusSumAdjustment(methodResults, input.movementFactor());
+
+        return new CalculationResult(input, usualBolusFactor, intermediateBolusFactors, methodSelection, methodResults, finalCorrectBolus);
+    }
+
+    private CalculationResult calculateFixedPoint(MealInput input, double usualBolusFactor) {
+        FixedPointDoses doses = new FixedPointDoses();
+        long start = PipelineMetrics.start();
+        fixedPoint.calculateIntermediateFactors(input.mealCarbs(), input.mealCalories(), usualBolusFactor,
+                input.usualBeCalories(), doses);
+        IntermediateBolusFactors intermediateBolusFactors = doses.toIntermediateBolusFactors();
+        PipelineMetrics.record(PipelineStage.INTERMEDIATE_FACTORS, start);
+
+        // Auswahl auf den ungerundeten Faktoren wie in double: an einer Schwelle (z.B. BE-Summe genau 7,5) darf die
+        // Rundung auf µBE bzw. mkcal keine andere Methode ergeben
+        MethodSelectionResult methodSelection = methodCalculationSelector.selectStrategy(
+                input.mealCarbs(), input.usualBeCalories(), intermediateFactorCalculator.calculateIntermediateBolusFactors(
+                        input.mealCarbs(), input.mealCalories(), usualBolusFactor, input.usualBeCalories()));
+
+        fixedPoint.calculateMethod(methodSelection.strategy(), input.insulinTypeCalorieCovering(), doses);
+        fixedPoint.calculateFinalBolus(input.movementFactor(), doses);
+
+        return new CalculationResult(input, usualBolusFactor, intermediateBolusFactors, methodSelection,
+                doses.toMethodResults(), FixedPointDoseCalculator.fromMilli(doses.finalCorrectBolus));
+    }
+}
@@ -0,0 +1,347 @@
+package de.lazycarbs.calculator.core;
+
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodACalorieSurplus;
+import de.lazycarbs.calculator.methodstrategy.MethodBSupersize;
+import de.lazycarbs.calculator.methodstrategy.MethodCHighcarb;
+import de.lazycarbs.calculator.methodstrategy.MethodConstants;
+import de.lazycarbs.calculator.methodstrategy.MethodDNocarb;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+/**
+ * Rechnet Zwischenfaktoren, Methoden A-D und den Endbolus in ganzzahligem Festkomma statt in double
+ * (Einheiten siehe {@link FixedPointDoses}).
+ * <p>
+ * Die Eingaben werden einmal auf drei bzw. sechs Nachkommastellen gerundet, danach wird nur noch mit long gerechnet:
+ * jede Division rundet kaufmännisch auf die Einheit ihres Ergebnisses, die beiden abgegebenen Dosen (Sofort-Bolus nach
+ * Bewegungs-Faktor und verzögerter Bolus) werden direkt aus dem exakten Bruch mit der gewählten {@link PumpRounding}
+ * auf die Schrittweite der Pumpe gerundet. Gleiche Eingaben ergeben daher auf jeder Plattform, in jedem Modus und
+ * in jeder Reihenfolge bit-gleich dieselben Dosen.
+ * <p>
+ * Jede Eingabe wird beim Runden einmal gegen ihren Bereich geprüft (Kohlenhydrate bis 5000 g, Kalorien bis
+ * 100 000 kcal, Bolusfaktor bis 100 IE/BE, Kalorien pro BE bis 10 000 kcal, Bewegungs-Faktor bis 100, nichts davon
+ * negativ). In diesen Grenzen passt jedes Zwischenprodukt nachweislich in einen long (siehe die Abschätzungen bei den
+ * Konstanten), daher rechnen die Methoden ohne weitere Überlaufprüfung; Werte außerhalb führen zu einer
+ * IllegalArgumentException.
+ * <p>
+ * Die drei Divisionen durch die üblichen Kalorien pro BE rechnet der Rechner als Multiplikation mit dem Kehrwert
+ * ({@link ReciprocalDivisor}) und merkt sich den Kehrwert des zuletzt verwendeten Werts. Solange sich dieser nicht
+ * ändert (ein Profil), legt die Rechnung keine Objekte an; die Methoden schreiben in einen {@link FixedPointDoses} des
+ * Aufrufers. Die Auswahl zwischen den Methoden trifft weiterhin die {@link MethodRuleTable}; gerechnet werden nur die
+ * vier eingebauten Methoden mit den Größen der Tabelle. Eine Instanz ist thread-sicher.
+ */
+public final class FixedPointDoseCalculator {
+
+    public static final long MILLI = 1_000;
+    public static final long MICRO = 1_000_000;
+
+    // 50 kcal pro BE aus Kohlenhydraten, 100 kcal Sockel der BE-Faktoren (wie IntermediateFactorCalculator)
+    private static final long CARB_CALORIES_PER_BE = 50 * MILLI;
+    private static final long BE_CALORIES_OFFSET = 100 * MILLI;
+    private static final long LEAN_NUMERATOR = 200 * MILLI;
+    private static final long PURE_CARB_NUMERATOR = 150 * MILLI;
+    private static final long GRAMS_PER_BE = 12;
+    // µIE/BE x µBE = 10^-12 IE -> mIE
+    private static final long FACTOR_TIMES_BE_TO_MILLI_UNITS = MICRO * MILLI;
+    private static final long NEAREST_MILLI_UNITS = FACTOR_TIMES_BE_TO_MILLI_UNITS / 2;
+    private static final long NEAREST_MICRO = MICRO / 2;
+
+    // Bereiche der Eingaben. Mit ihnen gilt (Festkomma-Einheiten, long reicht bis 9,2e18):
+    // beSum <= 4,2e8 µBE, magerer/reiner BE-Faktor <= 2e8 µIE/BE, korrekter BE-Faktor <= 1e8 x 1,01e7 / 1e5 = 1,01e10
+    // (Kalorien pro BE höchstens die Kalorienabdeckung, bei Methode C eigens geprüft),
+    // Bolussumme korrekter BE-Faktor x beSum <= 4,2e18, Kalorien-Überschuss |..| <= 5,2e9 mkcal,
+    // verzögerter Bolus Überschuss x magerer BE-Faktor <= 1,1e18, Endbolus Bolussumme x Bewegung <= 4,2e9 x 1e8
+    private static final double MAX_CARBS = 5_000;
+    private static final double MAX_CALORIES = 100_000;
+    private static final double MAX_BOLUS_FACTOR = 100;
+    private static final double MAX_BE_CALORIES = 10_000;
+    private static final double MAX_MOVEMENT_FACTOR = 100;
+    private static final double MAX_SUPERSIZE_BE = 100;
+    private static final double MAX_PUMP_STEP = 1_000;
+    // Bolussumme aus dem Cache, die mit dem Bewegungs-Faktor (<= 1e8) multipliziert wird
+    private static final double MAX_BOLUS = 10_000_000;
+    private static final long MAX_BE_CALORIES_MILLI = (long) MAX_BE_CALORIES * MILLI;
+
+    private final long pumpStep;
+    private final PumpRounding rounding;
+    private final long supersizeBe;
+    private final long overhangingBeCalories;
+    // Nenner des verzögerten Bolus in Pumpen-Schritten: Kalorien pro Einheit (mkcal) x 1000 (µIE -> mIE) x Schritt
+    private final long delayedBolusStepDivisor;
+    private final long delayedBolusBias;
+    // Nenner des Endbolus in Pumpen-Schritten: 10^6 (Bewegungs-Faktor) x Schritt
+    private final long finalBolusStepDivisor;
+    private final long finalBolusBias;
+    // Kehrwert von üblichen Kalorien pro BE + 100 der letzten Mahlzeit; unveränderlich, ein Wettlauf zwischen Threads
+    // kostet höchstens eine zusätzliche Berechnung
+    private ReciprocalDivisor usualDivisor = new ReciprocalDivisor(BE_CALORIES_OFFSET);
+
+    /**
+     * @param rules Regeltabelle; ihre Größen (supersizeBe, overhangingBeCalories, delayedBolusCaloriesPerUnit) gehen in
+     *              die Methoden ein.
+     * @param pumpStep Schrittweite der Pumpe in mIE (z.B. 50 für 0,05 IE; 1 rundet nur auf mIE).
+     * @param rounding Rundung der abgegebenen Dosen auf die Schrittweite.
+     * @throws IllegalArgumentException wenn die Schrittweite nicht positiv ist, die Tabelle eine Methode verwendet,
+     *         die nicht zu den eingebauten gehört, oder ihre Größen außerhalb des Festkomma-Bereichs liegen.
+     */
+    public FixedPointDoseCalculator(MethodRuleTable rules, long pumpStep, PumpRounding rounding) {
+        if (pumpStep < 1 || pumpStep > MAX_PUMP_STEP * MILLI) {
+            throw new IllegalArgumentException("Die Schrittweite der Pumpe muss zwischen 0,001 und 1000 IE liegen: "
+                    + pumpStep + " mIE");
+        }
+        for (CalculationStrategy strategy : rules.strategies()) {
+            if (methodCode(strategy) < 0) {
+                throw new IllegalArgumentException("Der Festkomma-Modus kennt nur die eingebauten Methoden, nicht "
+                        + strategy.getClass().getSimpleName() + ".");
+            }
+        }
+        MethodConstants constants = rules.constants();
+        this.pumpStep = pumpStep;
+        this.rounding = rounding;
+        this.supersizeBe = scale(constants.supersizeBe(), MICRO, MAX_SUPERSIZE_BE, "supersizeBe");
+        this.overhangingBeCalories = scale(constants.overhangingBeCalories(), MILLI, MAX_BE_CALORIES,
+                "overhangingBeCalories");
+        long caloriesPerUnit = scale(constants.delayedBolusCaloriesPerUnit(), MILLI, MAX_BE_CALORIES,
+                "delayedBolusCaloriesPerUnit");
+        if (caloriesPerUnit < 1) {
+            throw new IllegalArgumentException("delayedBolusCaloriesPerUnit ist für den Festkomma-Modus zu klein: "
+                    + constants.delayedBolusCaloriesPerUnit());
+        }
+        this.delayedBolusStepDivisor = caloriesPerUnit * MILLI * pumpStep;
+        this.delayedBolusBias = rounding.bias(delayedBolusStepDivisor);
+        this.finalBolusStepDivisor = MICRO * pumpStep;
+        this.finalBolusBias = rounding.bias(finalBolusStepDivisor);
+    }
+
+    /**
+     * Liest "--pump-step IE" und "--pump-rounding floor|nearest|ceil" (Standard floor).
+     * @return Der Rechner oder null, wenn "--pump-step" fehlt (Rechnung in double wie bisher).
+     * @throws IllegalArgumentException wenn ein Wert ungültig oder die Schrittweite kein Vielfaches von 0,001 IE ist.
+     */
+    public static FixedPointDoseCalculator fromOptions(String[] args, MethodRuleTable rules) {
+        String step = CommandLineOptions.valueOf(args, "--pump-step", null);
+        if (step == null) {
+            if (CommandLineOptions.valueOf(args, "--pump-rounding", null) != null) {
+                throw new IllegalArgumentException("--pump-rounding wirkt nur zusammen mit --pump-step.");
+            }
+            return null;
+        }
+        double units;
+        try {
+            units = Double.parseDouble(step.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --pump-step erwartet eine Zahl in IE, gefunden: " + step);
+        }
+        long milliUnits = scale(units, MILLI, MAX_PUMP_STEP, "--pump-step");
+        if (Math.abs(units * MILLI - milliUnits) > 1e-6) {
+            throw new IllegalArgumentException("--pump-step muss ein Vielfaches von 0,001 IE sein: " + step);
+        }
+        PumpRounding rounding = PumpRounding.fromName(CommandLineOptions.valueOf(args, "--pump-rounding", "floor"));
+        return new FixedPointDoseCalculator(rules, milliUnits, rounding);
+    }
+
+    /**
+     * Rundet die Eingaben und berechnet die Zwischenfaktoren (entspricht dem {@link IntermediateFactorCalculator}).
+     * @throws IllegalArgumentException wenn eine Eingabe negativ oder außerhalb des Festkomma-Bereichs ist.
+     */
+    public void calculateIntermediateFactors(double mealCarbs, double mealCalories, double usualBolusFactor,
+                                             double usualBeCalories, FixedPointDoses doses) {
+        long carbs = scale(mealCarbs, MILLI, MAX_CARBS, "mealCarbs");
+        long calories = scale(mealCalories, MILLI, MAX_CALORIES, "mealCalories");
+        long bolusFactor = scale(usualBolusFactor, MICRO, MAX_BOLUS_FACTOR, "usualBolusFactor");
+        long usualCalories = scale(usualBeCalories, MILLI, MAX_BE_CALORIES, "usualBeCalories");
+        ReciprocalDivisor usualDivisor = usualDivisor(usualCalories);
+
+        // mg -> µBE: x 1000 / 12
+        long beSum = nearest(carbs * MILLI, GRAMS_PER_BE);
+        doses.mealCalories = calories;
+        doses.usualBolusFactor = bolusFactor;
+        doses.usualBeCalories = usualCalories;
+        doses.leanBeFactor = nearest(bolusFactor * LEAN_NUMERATOR, usualDivisor);
+        doses.pureCarbBeFactor = nearest(bolusFactor * PURE_CARB_NUMERATOR, usualDivisor);
+        doses.beSum = beSum;
+        doses.beCalories = beSum == 0 ? 0 : nearest(calories * MICRO, beSum);
+        doses.fatProteinCalories = calories - (beSum * CARB_CALORIES_PER_BE + NEAREST_MICRO) / MICRO;
+    }
+
+    /**
+     * Berechnet die Ergebnisse der gewählten Methode aus den Zwischenfaktoren in {@code doses} (entspricht
+     * {@link CalculationStrategy#calculate}); der verzögerte Bolus wird auf die Schrittweite der Pumpe gerundet.
+     * @param strategy Die von der Regeltabelle gewählte Methode.
+     * @throws IllegalArgumentException wenn die Methode nicht zu den eingebauten gehört oder die Kalorien-Deckung
+     *         bzw. bei Methode C die Kalorien pro BE außerhalb des Festkomma-Bereichs liegen.
+     */
+    public void calculateMethod(CalculationStrategy strategy, double insulinTypeCalorieCovering, FixedPointDoses doses) {
+        long start = PipelineMetrics.start();
+        long covering = scale(insulinTypeCalorieCovering, MILLI, MAX_BE_CALORIES, "insulinTypeCalorieCovering");
+        long beSum = doses.beSum;
+        long beCalories = doses.beCalories;
+        ReciprocalDivisor usualDivisor = usualDivisor(doses.usualBeCalories);
+        // A, B und C: Kalorien pro BE bis zur Deckung des Insulins, darüber wird der Überschuss verzögert abgegeben
+        long coveredBeCalories = Math.min(beCalories, covering);
+        long correctBeFactor = 0;
+        long calorieSurplus = 0;
+        long delayedCalorieBolus = 0;
+        long correctBolusSum = 0;
+
+        switch (methodCode(strategy)) {
+            case 0 -> { // A
+                correctBeFactor = correctBeFactor(doses.usualBolusFactor, coveredBeCalories, usualDivisor);
+                correctBolusSum = (correctBeFactor * beSum + NEAREST_MILLI_UNITS) / FACTOR_TIMES_BE_TO_MILLI_UNITS;
+                if (beCalories > covering) {
+                    calorieSurplus = doses.mealCalories - (covering * beSum + NEAREST_MICRO) / MICRO;
+                    delayedCalorieBolus = delayedBolus(calorieSurplus, doses.leanBeFactor);
+                }
+            }
+            case 1 -> { // B; bei eigenen Schwellen kann overhangingBe negativ sein
+                long overhangingBe = beSum - supersizeBe;
+                correctBeFactor = correctBeFactor(doses.usualBolusFactor, coveredBeCalories, usualDivisor);
+                calorieSurplus = doses.mealCalories - Math.floorDiv(coveredBeCalories * supersizeBe
+                        + overhangingBe * overhangingBeCalories + NEAREST_MICRO, MICRO);
+                correctBolusSum = Math.floorDiv(correctBeFactor * supersizeBe + overhangingBe * doses.pureCarbBeFactor
+                        + NEAREST_MILLI_UNITS, FACTOR_TIMES_BE_TO_MILLI_UNITS);
+                delayedCalorieBolus = delayedBolus(calorieSurplus, doses.leanBeFactor);
+            }
+            case 2 -> { // C
+                if (beCalories > MAX_BE_CALORIES_MILLI) {
+                    throw outOfRange("beCalories", fromMilli(beCalories));
+                }
+                correctBeFactor = correctBeFactor(doses.usualBolusFactor, beCalories, usualDivisor);
+                correctBolusSum = (correctBeFactor * beSum + NEAREST_MILLI_UNITS) / FACTOR_TIMES_BE_TO_MILLI_UNITS;
+            }
+            case 3 -> // D
+                    delayedCalorieBolus = delayedBolus(doses.mealCalories, doses.leanBeFactor);
+            default -> throw new IllegalArgumentException("Der Festkomma-Modus kennt die Methode "
+                    + strategy.getClass().getSimpleName() + " nicht.");
+        }
+        doses.correctBeFactor = correctBeFactor;
+        doses.calorieSurplus = calorieSurplus;
+        doses.delayedCalorieBolus = delayedCalorieBolus;
+        doses.correctBolusSum = correctBolusSum;
+        PipelineMetrics.record(PipelineStage.METHOD_CALCULATION, strategy, start);
+    }
+
+    /**
+     * Sofort-Bolus angepasst an den Bewegungs-Faktor (entspricht dem {@link FinalBolusCalculator}), auf die
+     * Schrittweite der Pumpe gerundet.
+     * @param correctBolusSum Korrekte Bolussumme in mIE, betragsmäßig höchstens 10^7 IE.
+     * @return Der Endbolus in mIE.
+     * @throws IllegalArgumentException wenn der Bewegungs-Faktor negativ oder größer als 100 ist.
+     */
+    public long finalCorrectBolus(long correctBolusSum, double movementFactor) {
+        long movement = scale(movementFactor, MICRO, MAX_MOVEMENT_FACTOR, "movementFactor");
+        return Math.floorDiv(correctBolusSum * movement + finalBolusBias, finalBolusStepDivisor) * pumpStep;
+    }
+
+    /**
+     * Endbolus für Ergebnisse, die bereits als {@link MethodResults} vorliegen (z.B. aus dem Cache oder im
+     * interaktiven Modus, wo der Bewegungs-Faktor erst nach der Anzeige abgefragt wird).
+     * @return Der Endbolus in IE, ein Vielfaches der Schrittweite.
+     */
+    public double correctBolusSumAdjustment(MethodResults methodResults, double movementFactor) {
+        return fromMilli(finalCorrectBolus(toMilliUnits(methodResults.correctBolusSum()), movementFactor));
+    }
+
+    /**
+     * Berechnet den Endbolus aus {@code doses.correctBolusSum} und legt ihn in {@code doses.finalCorrectBolus} ab.
+     */
+    public void calculateFinalBolus(double movementFactor, FixedPointDoses doses) {
+        doses.finalCorrectBolus = finalCorrectBolus(doses.correctBolusSum, movementFactor);
+    }
+
+    /**
+     * @return Schrittweite der Pumpe in mIE.
+     */
+    public long pumpStep() {
+        return pumpStep;
+    }
+
+    public PumpRounding rounding() {
+        return rounding;
+    }
+
+    /**
+     * @return Die Dosis in mIE, auf ganze mIE gerundet.
+     * @throws IllegalArgumentException wenn die Dosis betragsmäßig größer als 10^7 IE ist.
+     */
+    static long toMilliUnits(double units) {
+        if (!(Math.abs(units) <= MAX_BOLUS)) {
+            throw outOfRange("Dosis", units);
+        }
+        return (long) Math.floor(units * MILLI + 0.5);
+    }
+
+    static double fromMilli(long value) {
+        return value / (double) MILLI;
+    }
+
+    static double fromMicro(long value) {
+        return value / (double) MICRO;
+    }
+
+    @Override
+    public String toString() {
+        return "Festkomma, Pumpen-Schritt " + fromMilli(pumpStep) + " IE, Rundung " + rounding.name().toLowerCase();
+    }
+
+    // ((Kalorien pro BE + 100) / (übliche Kalorien pro BE + 100)) x üblicher Bolusfaktor, in µIE/BE
+    private static long correctBeFactor(long usualBolusFactor, long beCalories, ReciprocalDivisor usualDivisor) {
+        return nearest(usualBolusFactor * (beCalories + BE_CALORIES_OFFSET), usualDivisor);
+    }
+
+    // (Kalorien / Kalorien pro Einheit) x magerer BE-Faktor, in ganzen Pumpen-Schritten gerundet, in mIE;
+    // ein negativer Kalorien-Überschuss (Methode A und B) wird wie bisher abgerundet
+    private long delayedBolus(long calories, long leanBeFactor) {
+        return Math.floorDiv(calories * leanBeFactor + delayedBolusBias, delayedBolusStepDivisor) * pumpStep;
+    }
+
+    // 0 = A, 1 = B, 2 = C, 3 = D (wie ColumnarMealBatch), -1 für eigene Methoden
+    private static int methodCode(CalculationStrategy strategy) {
+        if (strategy instanceof MethodACalorieSurplus) {
+            return 0;
+        } else if (strategy instanceof MethodBSupersize) {
+            return 1;
+        } else if (strategy instanceof MethodCHighcarb) {
+            return 2;
+        } else if (strategy instanceof MethodDNocarb) {
+            return 3;
+        }
+        return -1;
+    }
+
+    // prüft den Bereich 0..max und rundet auf die nächste ganze Zahl; bei nicht negativen Werten schneidet der Cast
+    // wie floor(x + 0,5) ab, ohne Math.round oder Math.floor
+    private static long scale(double value, long scale, double max, String name) {
+        if (!(value >= 0 && value <= max)) {
+            throw outOfRange(name, value);
+        }
+        return (long) (value * scale + 0.5);
+    }
+
+    // kaufmännisch gerundete Division nicht negativer Zwischenwerte; bei konstantem Nenner ersetzt der JIT die Division
+    // durch eine Multiplikation
+    private static long nearest(long numerator, long denominator) {
+        return (numerator + (denominator >> 1)) / denominator;
+    }
+
+    private static long nearest(long numerator, ReciprocalDivisor denominator) {
+        return denominator.divide(numerator + (denominator.divisor() >> 1));
+    }
+
+    // übliche Kalorien pro BE in mkcal (0 bis 10^7) -> Kehrwert von übliche Kalorien pro BE + 100
+    private ReciprocalDivisor usualDivisor(long usualBeCalories) {
+        ReciprocalDivisor divisor = usualDivisor;
+        if (divisor.divisor() != usualBeCalories + BE_CALORIES_OFFSET) {
+            divisor = new ReciprocalDivisor(usualBeCalories + BE_CALORIES_OFFSET);
+            usualDivisor = divisor;
+        }
+        return divisor;
+    }
+
+    private static IllegalArgumentException outOfRange(String name, double value) {
+        return new IllegalArgumentException(name + " liegt außerhalb des Festkomma-Bereichs: " + value);
+    }
+}
@@ -0,0 +1,58 @@
+package de.lazycarbs.calculator.core;
+
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MethodResults;
+
+/**
+ * Veränderbarer Zwischenspeicher einer Mahlzeit im Festkomma-Modus (siehe {@link FixedPointDoseCalculator}).
+ * <p>
+ * Alle Werte sind ganze Zahlen in festen Einheiten:
+ * <ul>
+ *     <li>Insulin-Dosen in Milli-Einheiten (mIE, 1 IE = 1000)</li>
+ *     <li>BE-Faktoren in Mikro-Einheiten pro BE (µIE/BE, 1 IE/BE = 1 000 000)</li>
+ *     <li>BE in Mikro-BE (µBE)</li>
+ *     <li>Kalorien in Millikalorien (mkcal), Kalorien pro BE in mkcal/BE</li>
+ * </ul>
+ * Der {@link FixedPointDoseCalculator} legt keine Objekte an, sondern schreibt in eine Instanz, die der Aufrufer
+ * bereitstellt und wiederverwenden kann. Erst {@link #toIntermediateBolusFactors()} und {@link #toMethodResults()}
+ * wandeln am Rand in die bisherigen Records mit double-Werten um. Eine Instanz ist nicht thread-sicher.
+ */
+public final class FixedPointDoses {
+
+    // Eingaben in Festkomma
+    public long mealCalories;
+    public long usualBolusFactor;
+    public long usualBeCalories;
+
+    // Zwischenfaktoren
+    public long leanBeFactor;
+    public long pureCarbBeFactor;
+    public long beSum;
+    public long beCalories;
+    public long fatProteinCalories;
+
+    // Ergebnisse der Methode; die beiden Dosen sind auf die Schrittweite der Pumpe gerundet
+    public long correctBeFactor;
+    public long calorieSurplus;
+    public long delayedCalorieBolus;
+    public long correctBolusSum;
+    public long finalCorrectBolus;
+
+    /**
+     * @return Die Zwischenfaktoren in IE/BE, BE und kcal.
+     */
+    public IntermediateBolusFactors toIntermediateBolusFactors() {
+        return new IntermediateBolusFactors(FixedPointDoseCalculator.fromMicro(leanBeFactor),
+                FixedPointDoseCalculator.fromMicro(pureCarbBeFactor), FixedPointDoseCalculator.fromMicro(beSum),
+                FixedPointDoseCalculator.fromMilli(beCalories), FixedPointDoseCalculator.fromMilli(fatProteinCalories));
+    }
+
+    /**
+     * @return Die Ergebnisse der Methode in IE/BE, kcal und IE.
+     */
+    public MethodResults toMethodResults() {
+        return new MethodResults(FixedPointDoseCalculator.fromMicro(correctBeFactor),
+                FixedPointDoseCalculator.fromMilli(calorieSurplus), FixedPointDoseCalculator.fromMilli(delayedCalorieBolus),
+                FixedPointDoseCalculator.fromMilli(correctBolusSum), FixedPointDoseCalculator.fromMilli(fatProteinCalories));
+    }
+}
@@ -0,0 +1,227 @@
+package de.lazycarbs.calculator.core;
+
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodConstants;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Lädt eine Regeltabelle für die Methodenauswahl aus einer Datei (Option "--rules DATEI").
+ * <p>
+ * Jede Zeile enthält "Schlüssel=Wert"; "#" leitet einen Kommentar ein, als Dezimaltrenner sind "," und "." erlaubt.
+ * Alle Schlüssel sind optional, fehlende behalten ihren Standardwert:
+ * <pre>
+ * supersize.be = 7,5                    # BE-Grenze für Supersize, Methode B deckt so viele BE mit eF ab
+ * supersize.fatProteinCalories = 750    # Kalorien aus Fett/Eiweiß für Supersize
+ * nocarb.maxCarbs = 3                   # NoCarb unter so vielen Gramm Kohlenhydraten
+ * highcarb.beCaloriesRatio = 1          # HighCarb unter diesem Anteil der üblichen Kalorien pro BE
+ * supersize.overhangingBeCalories = 50  # Kalorien pro überhängender BE (Methode B)
+ * delayedBolus.caloriesPerUnit = 200    # Kalorien pro Einheit des verzögerten Bolus (Methoden A, B, D)
+ * </pre>
+ * Statt der Standardregeln kann die Datei eine eigene Tabelle angeben, eine Regel pro Zeile in Prüfreihenfolge:
+ * <pre>
+ * rule = MethodBSupersize: beSum &gt; 8 &amp; fatProteinCalories &gt; 800
+ * rule = MethodDNocarb: mealCarbs &lt; 3
+ * rule = MethodCHighcarb: beCalories &lt; 0,9 * usualBeCalories
+ * rule = MethodACalorieSurplus
+ * </pre>
+ * Die Schwellenwerte der Standardregeln (supersize.fatProteinCalories, nocarb.maxCarbs, highcarb.beCaloriesRatio)
+ * sind dann wirkungslos und nicht erlaubt. Eine Regel für MethodBSupersize muss "beSum &gt; supersize.be" prüfen,
+ * weil Methode B genau so viele BE mit dem korrekten BE-Faktor abdeckt; fehlt supersize.be, wird der Wert aus dieser
+ * Bedingung übernommen (im Beispiel oben 8). Neben den vier eingebauten Methoden stehen alle
+ * {@link CalculationStrategy}-Implementierungen zur Verfügung, die über {@link ServiceLoader} im Klassenpfad
+ * registriert sind (Datei META-INF/services/de.lazycarbs.calculator.methodstrategy.CalculationStrategy), jeweils
+ * unter ihrem einfachen Klassennamen.
+ * <p>
+ * Alle Fehler werden beim Laden gemeldet, nicht erst bei der ersten Berechnung.
+ */
+public final class MethodRuleFileLoader {
+
+    private static final String RULE_KEY = "rule";
+    private static final List<String> KEYS = List.of("supersize.be", "supersize.fatProteinCalories", "nocarb.maxCarbs",
+            "highcarb.beCaloriesRatio", "supersize.overhangingBeCalories", "delayedBolus.caloriesPerUnit");
+    // Schlüssel, die nur die Standardregeln beeinflussen
+    private static final List<String> STANDARD_RULE_KEYS = List.of("supersize.fatProteinCalories", "nocarb.maxCarbs",
+            "highcarb.beCaloriesRatio");
+
+    private MethodRuleFileLoader() {
+    }
+
+    /**
+     * Lädt die per "--rules" angegebene Datei.
+     * @return Die geladene Tabelle oder ohne Option die Standardtabelle.
+     * @throws IllegalArgumentException wenn die Datei ungültig ist.
+     */
+    public static MethodRuleTable fromOptions(String[] args) throws IOException {
+        String file = CommandLineOptions.valueOf(args, "--rules", null);
+        return file == null ? MethodRuleTable.defaults() : load(Path.of(file));
+    }
+
+    /**
+     * Lädt eine Regeldatei mit den eingebauten und den per ServiceLoader registrierten Methoden.
+     * @throws IllegalArgumentException wenn die Datei ungültig ist.
+     */
+    public static MethodRuleTable load(Path file) throws IOException {
+        return load(file, Map.of());
+    }
+
+    /**
+     * Lädt eine Regeldatei.
+     * @param additionalStrategies Weitere Methoden nach Namen, die Regeln verwenden dürfen.
+     * @throws IllegalArgumentException wenn die Datei ungültig ist oder ein Methodenname doppelt vorkommt.
+     */
+    public static MethodRuleTable load(Path file, Map<String, ? extends CalculationStrategy> additionalStrategies) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Map<String, Double> values = new HashMap<>();
+        List<MethodRuleTable.Rule> rules = new ArrayList<>();
+        for (int lineNumber = 1; lineNumber <= lines.size(); lineNumber++) {
+            String line = lines.get(lineNumber - 1);
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                throw invalid(file, lineNumber, "erwartet 'Schlüssel=Wert'");
+            }
+            String key = line.substring(0, separator).strip();
+            String value = line.substring(separator + 1).strip();
+            try {
+                if (RULE_KEY.equals(key)) {
+                    rules.add(parseRule(value));
+                } else if (!KEYS.contains(key)) {
+                    throw new IllegalArgumentException("unbekannter Schlüssel " + key + " (erlaubt: rule, " + String.join(", ", KEYS) + ")");
+                } else if (values.put(key, parseNumber(value)) != null) {
+                    throw new IllegalArgumentException("Schlüssel " + key + " ist doppelt");
+                }
+            } catch (IllegalArgumentException e) {
+                throw invalid(file, lineNumber, e.getMessage());
+            }
+        }
+
+        if (!rules.isEmpty() && !values.containsKey("supersize.be")) {
+            Double ruleBe = supersizeBeOf(rules);
+            if (ruleBe != null) {
+                values.put("supersize.be", ruleBe);
+            }
+        }
+        MethodConstants defaults = MethodConstants.DEFAULT;
+        MethodConstants constants;
+        try {
+            constants = new MethodConstants(
+                    values.getOrDefault("supersize.be", defaults.supersizeBe()),
+                    values.getOrDefault("supersize.fatProteinCalories", defaults.supersizeFatProteinCalories()),
+                    values.getOrDefault("nocarb.maxCarbs", defaults.noCarbMaxCarbs()),
+                    values.getOrDefault("highcarb.beCaloriesRatio", defaults.highCarbBeCaloriesRatio()),
+                    values.getOrDefault("supersize.overhangingBeCalories", defaults.overhangingBeCalories()),
+                    values.getOrDefault("delayedBolus.caloriesPerUnit", defaults.delayedBolusCaloriesPerUnit()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Regeldatei " + file.getFileName() + ": " + e.getMessage(), e);
+        }
+        if (rules.isEmpty()) {
+            return MethodRuleTable.standard(constants);
+        }
+        for (String key : STANDARD_RULE_KEYS) {
+            if (values.containsKey(key)) {
+                throw new IllegalArgumentException("Regeldatei " + file.getFileName() + ": " + key
+                        + " gilt nur für die Standardregeln und ist zusammen mit eigenen Regeln (rule=...) wirkungslos.");
+            }
+        }
+
+        Map<String, CalculationStrategy> strategies = MethodRuleTable.builtInStrategies(constants);
+        for (CalculationStrategy strategy : ServiceLoader.load(CalculationStrategy.class)) {
+            register(strategies, strategy.getClass().getSimpleName(), strategy);
+        }
+        additionalStrategies.forEach((name, strategy) -> register(strategies, name, strategy));
+        try {
+            return new MethodRuleTable(rules, strategies, constants);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Regeldatei " + file.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // BE-Grenze der ersten Supersize-Regel (beSum > x bzw. beSum >= x) oder null
+    private static Double supersizeBeOf(List<MethodRuleTable.Rule> rules) {
+        for (MethodRuleTable.Rule rule : rules) {
+            if (!"MethodBSupersize".equals(rule.strategy())) {
+                continue;
+            }
+            for (MethodRuleTable.Condition condition : rule.conditions()) {
+                if (condition.feature() == MethodRuleTable.Feature.BE_SUM && condition.reference() == null
+                        && (condition.comparison() == MethodRuleTable.Comparison.GREATER
+                        || condition.comparison() == MethodRuleTable.Comparison.GREATER_OR_EQUAL)) {
+                    return condition.threshold();
+                }
+            }
+            return null;
+        }
+        return null;
+    }
+
+    // "Methode: Bedingung & Bedingung" oder nur "Methode"
+    private static MethodRuleTable.Rule parseRule(String value) {
+        int colon = value.indexOf(':');
+        String strategy = (colon < 0 ? value : value.substring(0, colon)).strip();
+        if (strategy.isEmpty()) {
+            throw new IllegalArgumentException("Regel ohne Methode");
+        }
+        List<MethodRuleTable.Condition> conditions = new ArrayList<>();
+        if (colon >= 0) {
+            for (String condition : value.substring(colon + 1).split("&")) {
+                conditions.add(parseCondition(condition.strip()));
+            }
+        }
+        return new MethodRuleTable.Rule(strategy, conditions);
+    }
+
+    // "Merkmal Vergleich Zahl", "Merkmal Vergleich Merkmal" oder "Merkmal Vergleich Zahl * Merkmal"
+    private static MethodRuleTable.Condition parseCondition(String condition) {
+        String[] parts = condition.split("\\s+", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Bedingung '" + condition + "': erwartet 'Merkmal Vergleich Wert'");
+        }
+        MethodRuleTable.Feature feature = MethodRuleTable.Feature.fromFieldName(parts[0]);
+        MethodRuleTable.Comparison comparison = MethodRuleTable.Comparison.fromSymbol(parts[1]);
+        String operand = parts[2];
+        int times = operand.indexOf('*');
+        if (times >= 0) {
+            return new MethodRuleTable.Condition(feature, comparison, parseNumber(operand.substring(0, times).strip()),
+                    MethodRuleTable.Feature.fromFieldName(operand.substring(times + 1).strip()));
+        }
+        if (!operand.isEmpty() && Character.isLetter(operand.charAt(0))) {
+            return new MethodRuleTable.Condition(feature, comparison, 1, MethodRuleTable.Feature.fromFieldName(operand));
+        }
+        return new MethodRuleTable.Condition(feature, comparison, parseNumber(operand), null);
+    }
+
+    private static double parseNumber(String value) {
+        try {
+            return Double.parseDouble(value.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("keine Zahl: " + value);
+        }
+    }
+
+    private static void register(Map<String, CalculationStrategy> strategies, String name, CalculationStrategy strategy) {
+        if (strategies.putIfAbsent(name, strategy) != null) {
+            throw new IllegalArgumentException("Methode " + name + " ist mehrfach registriert.");
+        }
+    }
+
+    private static IllegalArgumentException invalid(Path file, int lineNumber, String reason) {
+        return new IllegalArgumentException("Regeldatei " + file.getFileName() + ", Zeile " + lineNumber + ": " + reason);
+    }
+}
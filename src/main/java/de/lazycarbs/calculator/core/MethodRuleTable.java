@@ -0,0 +1,441 @@
+package de.lazycarbs.calculator.core;
+
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodACalorieSurplus;
+import de.lazycarbs.calculator.methodstrategy.MethodBSupersize;
+import de.lazycarbs.calculator.methodstrategy.MethodCHighcarb;
+import de.lazycarbs.calculator.methodstrategy.MethodConstants;
+import de.lazycarbs.calculator.methodstrategy.MethodDNocarb;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Die Methodenauswahl als Regeltabelle: Regeln werden in ihrer Reihenfolge geprüft, die erste Regel, deren
+ * Bedingungen alle erfüllt sind, bestimmt die Methode. Die letzte Regel hat keine Bedingung und fängt alle übrigen
+ * Mahlzeiten auf.
+ * <p>
+ * Beim Anlegen wird die Tabelle geprüft und übersetzt: hat sie die Form der Standardtabelle
+ * ({@link #standard(MethodConstants)}, bisherige Auswahl B vor D vor C vor A) - egal mit welchen Schwellenwerten und
+ * Methoden -, wird sie wie die früheren if/else-Zweige mit den Schwellenwerten aus Feldern ausgewertet. Jede andere Tabelle wird in
+ * flache Felder (ein Befehlswort aus Merkmal, Bezugsmerkmal und Vergleich sowie ein Schwellenwert pro Bedingung)
+ * übersetzt und in einer Schleife ausgewertet. Beide Wege legen keine Objekte an und kommen ohne Reflection aus.
+ * Eine Instanz ist unveränderlich und thread-sicher.
+ */
+public final class MethodRuleTable {
+
+    /**
+     * Werte, die eine Bedingung vergleichen kann. Die Namen entsprechen den Feldern der Eingabe bzw. der
+     * Zwischenfaktoren.
+     */
+    public enum Feature {
+        MEAL_CARBS("mealCarbs"),
+        USUAL_BE_CALORIES("usualBeCalories"),
+        BE_SUM("beSum"),
+        BE_CALORIES("beCalories"),
+        FAT_PROTEIN_CALORIES("fatProteinCalories");
+
+        private final String fieldName;
+
+        Feature(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        public String fieldName() {
+            return fieldName;
+        }
+
+        /**
+         * @throws IllegalArgumentException wenn der Name unbekannt ist.
+         */
+        public static Feature fromFieldName(String name) {
+            for (Feature feature : values()) {
+                if (feature.fieldName.equals(name)) {
+                    return feature;
+                }
+            }
+            throw new IllegalArgumentException("Unbekanntes Merkmal: " + name + " (erlaubt: mealCarbs, usualBeCalories, "
+                    + "beSum, beCalories, fatProteinCalories)");
+        }
+    }
+
+    public enum Comparison {
+        LESS("<"),
+        LESS_OR_EQUAL("<="),
+        GREATER(">"),
+        GREATER_OR_EQUAL(">=");
+
+        private final String symbol;
+
+        Comparison(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String symbol() {
+            return symbol;
+        }
+
+        /**
+         * @throws IllegalArgumentException wenn das Zeichen unbekannt ist.
+         */
+        public static Comparison fromSymbol(String symbol) {
+            for (Comparison comparison : values()) {
+                if (comparison.symbol.equals(symbol)) {
+                    return comparison;
+                }
+            }
+            throw new IllegalArgumentException("Unbekannter Vergleich: " + symbol + " (erlaubt: <, <=, >, >=)");
+        }
+    }
+
+    /**
+     * Eine Bedingung "feature comparison threshold" bzw. "feature comparison threshold x reference".
+     * @param reference Merkmal, mit dem der Schwellenwert multipliziert wird, oder null für einen festen Wert.
+     */
+    public record Condition(Feature feature, Comparison comparison, double threshold, Feature reference) {
+
+        public Condition {
+            if (feature == null || comparison == null) {
+                throw new IllegalArgumentException("Merkmal und Vergleich einer Bedingung müssen angegeben sein.");
+            }
+            if (!Double.isFinite(threshold)) {
+                throw new IllegalArgumentException("Schwellenwert muss endlich sein: " + threshold);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return feature.fieldName() + " " + comparison.symbol() + " " + threshold
+                    + (reference == null ? "" : " * " + reference.fieldName());
+        }
+    }
+
+    /**
+     * @param strategy Name der Methode (einfacher Klassenname, z.B. "MethodBSupersize").
+     * @param conditions Bedingungen, die alle erfüllt sein müssen; leer für die abschließende Regel.
+     */
+    public record Rule(String strategy, List<Condition> conditions) {
+
+        public Rule {
+            conditions = List.copyOf(conditions);
+        }
+    }
+
+    // Befehlswort einer Bedingung: Merkmal (Bits 0-2), Bezugsmerkmal (Bits 3-5), Vergleich (Bits 6-7)
+    private static final int FEATURE_BITS = 3;
+    private static final int FEATURE_MASK = (1 << FEATURE_BITS) - 1;
+    // "kein Bezugsmerkmal" liefert 1: der Schwellenwert bleibt bei der Multiplikation exakt erhalten
+    private static final int NO_REFERENCE = Feature.values().length;
+
+    private static final MethodRuleTable DEFAULT = standard(MethodConstants.DEFAULT);
+
+    private final List<Rule> rules;
+    private final MethodConstants constants;
+
+    // allgemeine Form: Regel r prüft die Bedingungen conditionEnds[r - 1] bis conditionEnds[r] - 1
+    private final CalculationStrategy[] strategies;
+    private final int[] conditionEnds;
+    private final int[] operations;
+    private final double[] thresholds;
+
+    // Form der Standardtabelle: Schwellenwerte und Methoden als Felder
+    private final boolean standardShape;
+    private final double supersizeBe;
+    private final double supersizeFatProteinCalories;
+    private final double noCarbMaxCarbs;
+    private final double highCarbBeCaloriesRatio;
+    private final CalculationStrategy supersize;
+    private final CalculationStrategy noCarb;
+    private final CalculationStrategy highCarb;
+    private final CalculationStrategy calorieSurplus;
+
+    /**
+     * Übersetzt eine Regeltabelle.
+     * @param rules Regeln in Prüfreihenfolge.
+     * @param strategies Verfügbare Methoden nach Namen, siehe {@link #builtInStrategies(MethodConstants)}.
+     * @param constants Größen der Methoden (werden für die spaltenorientierten Kernels mitgeführt).
+     * @throws IllegalArgumentException wenn die Tabelle leer ist, eine Methode unbekannt ist, die letzte Regel eine
+     *         Bedingung hat, eine Regel ohne Bedingung vor anderen Regeln steht (diese wären unerreichbar) oder eine
+     *         Regel für {@link MethodBSupersize} nicht genau ab {@link MethodConstants#supersizeBe()} BE greift.
+     */
+    public MethodRuleTable(List<Rule> rules, Map<String, ? extends CalculationStrategy> strategies, MethodConstants constants) {
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("Die Regeltabelle enthält keine Regel.");
+        }
+        this.rules = List.copyOf(rules);
+        this.constants = constants;
+        this.strategies = new CalculationStrategy[rules.size()];
+        this.conditionEnds = new int[rules.size()];
+        int conditionCount = rules.stream().mapToInt(rule -> rule.conditions().size()).sum();
+        this.operations = new int[conditionCount];
+        this.thresholds = new double[conditionCount];
+
+        int condition = 0;
+        for (int r = 0; r < rules.size(); r++) {
+            Rule rule = rules.get(r);
+            CalculationStrategy strategy = strategies.get(rule.strategy());
+            if (strategy == null) {
+                throw new IllegalArgumentException("Regel " + (r + 1) + ": unbekannte Methode " + rule.strategy()
+                        + " (bekannt: " + String.join(", ", strategies.keySet()) + ")");
+            }
+            boolean last = r == rules.size() - 1;
+            if (last != rule.conditions().isEmpty()) {
+                throw new IllegalArgumentException(last
+                        ? "Die letzte Regel (" + rule.strategy() + ") darf keine Bedingung haben, sonst bliebe eine Mahlzeit ohne Methode."
+                        : "Regel " + (r + 1) + " (" + rule.strategy() + ") hat keine Bedingung; die folgenden Regeln wären unerreichbar.");
+            }
+            if (strategy instanceof MethodBSupersize) {
+                requireSupersizeBe(r, rule, constants.supersizeBe());
+            }
+            this.strategies[r] = strategy;
+            for (Condition c : rule.conditions()) {
+                int reference = c.reference() == null ? NO_REFERENCE : c.reference().ordinal();
+                operations[condition] = c.feature().ordinal() | reference << FEATURE_BITS
+                        | c.comparison().ordinal() << (2 * FEATURE_BITS);
+                thresholds[condition] = c.threshold();
+                condition++;
+            }
+            conditionEnds[r] = condition;
+        }
+
+        this.standardShape = hasStandardShape(this.rules);
+        this.supersizeBe = standardShape ? thresholds[0] : Double.NaN;
+        this.supersizeFatProteinCalories = standardShape ? thresholds[1] : Double.NaN;
+        this.noCarbMaxCarbs = standardShape ? thresholds[2] : Double.NaN;
+        this.highCarbBeCaloriesRatio = standardShape ? thresholds[3] : Double.NaN;
+        this.supersize = standardShape ? this.strategies[0] : null;
+        this.noCarb = standardShape ? this.strategies[1] : null;
+        this.highCarb = standardShape ? this.strategies[2] : null;
+        this.calorieSurplus = standardShape ? this.strategies[3] : null;
+    }
+
+    /**
+     * @return Die Standardtabelle mit den Standardgrößen.
+     */
+    public static MethodRuleTable defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * Die bisherige Auswahl mit eigenen Schwellenwerten:
+     * B (beSum &gt; supersizeBe und fatProteinCalories &gt; supersizeFatProteinCalories) vor D (mealCarbs &lt;
+     * noCarbMaxCarbs) vor C (beCalories &lt; highCarbBeCaloriesRatio x usualBeCalories) vor A.
+     */
+    public static MethodRuleTable standard(MethodConstants constants) {
+        List<Rule> rules = List.of(
+                new Rule("MethodBSupersize", List.of(
+                        new Condition(Feature.BE_SUM, Comparison.GREATER, constants.supersizeBe(), null),
+                        new Condition(Feature.FAT_PROTEIN_CALORIES, Comparison.GREATER, constants.supersizeFatProteinCalories(), null))),
+                new Rule("MethodDNocarb", List.of(
+                        new Condition(Feature.MEAL_CARBS, Comparison.LESS, constants.noCarbMaxCarbs(), null))),
+                new Rule("MethodCHighcarb", List.of(
+                        new Condition(Feature.BE_CALORIES, Comparison.LESS, constants.highCarbBeCaloriesRatio(), Feature.USUAL_BE_CALORIES))),
+                new Rule("MethodACalorieSurplus", List.of()));
+        return new MethodRuleTable(rules, builtInStrategies(constants), constants);
+    }
+
+    /**
+     * @return Die vier eingebauten Methoden nach einfachem Klassennamen, in einer veränderbaren Map, damit eigene
+     *         {@link CalculationStrategy}-Implementierungen ergänzt werden können.
+     */
+    public static Map<String, CalculationStrategy> builtInStrategies(MethodConstants constants) {
+        Map<String, CalculationStrategy> strategies = new LinkedHashMap<>();
+        strategies.put("MethodACalorieSurplus", new MethodACalorieSurplus(constants));
+        strategies.put("MethodBSupersize", new MethodBSupersize(constants));
+        strategies.put("MethodCHighcarb", new MethodCHighcarb());
+        strategies.put("MethodDNocarb", new MethodDNocarb(constants));
+        return strategies;
+    }
+
+    // Methode B rechnet mit supersizeBe BE zum korrekten BE-Faktor und dem Rest als überhängende BE; eine Regel mit
+    // einer anderen BE-Grenze würde Mahlzeiten auswählen, für die diese Aufteilung nicht stimmt
+    private static void requireSupersizeBe(int index, Rule rule, double supersizeBe) {
+        for (Condition c : rule.conditions()) {
+            if (c.feature() == Feature.BE_SUM && c.reference() == null && c.threshold() == supersizeBe
+                    && (c.comparison() == Comparison.GREATER || c.comparison() == Comparison.GREATER_OR_EQUAL)) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Regel " + (index + 1) + " (" + rule.strategy() + ") braucht die Bedingung "
+                + "'beSum > " + supersizeBe + "': Methode B deckt genau supersize.be = " + supersizeBe
+                + " BE mit dem korrekten BE-Faktor ab.");
+    }
+
+    /**
+     * Wählt die Methode für eine Mahlzeit.
+     * @return Die Methode der ersten passenden Regel.
+     */
+    public CalculationStrategy select(double mealCarbs, double usualBeCalories, IntermediateBolusFactors factors) {
+        return strategies[selectRule(mealCarbs, usualBeCalories, factors)];
+    }
+
+    /**
+     * Wie {@link #select(double, double, IntermediateBolusFactors)}, liefert aber die Position der Regel.
+     * @return Index der ersten passenden Regel in {@link #rules()}.
+     */
+    public int selectRule(double mealCarbs, double usualBeCalories, IntermediateBolusFactors factors) {
+        if (standardShape) {
+            if (factors.beSum() > supersizeBe && factors.fatProteinCalories() > supersizeFatProteinCalories) {
+                return 0;
+            } else if (mealCarbs < noCarbMaxCarbs) {
+                return 1;
+            } else if (factors.beCalories() < highCarbBeCaloriesRatio * usualBeCalories) {
+                return 2;
+            }
+            return 3;
+        }
+        double beSum = factors.beSum();
+        double beCalories = factors.beCalories();
+        double fatProteinCalories = factors.fatProteinCalories();
+        int lastRule = strategies.length - 1;
+        int condition = 0;
+        for (int rule = 0; rule < lastRule; rule++) {
+            int end = conditionEnds[rule];
+            for (; condition < end; condition++) {
+                int operation = operations[condition];
+                double value = value(operation & FEATURE_MASK, mealCarbs, usualBeCalories, beSum, beCalories, fatProteinCalories);
+                double threshold = thresholds[condition] * value((operation >>> FEATURE_BITS) & FEATURE_MASK,
+                        mealCarbs, usualBeCalories, beSum, beCalories, fatProteinCalories);
+                if (!compare(operation >>> (2 * FEATURE_BITS), value, threshold)) {
+                    break;
+                }
+            }
+            if (condition == end) {
+                return rule;
+            }
+            condition = end;
+        }
+        return lastRule;
+    }
+
+    /**
+     * @return Die Regeln in Prüfreihenfolge.
+     */
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * @return Die Methoden der Regeln in Prüfreihenfolge.
+     */
+    List<CalculationStrategy> strategies() {
+        return List.of(strategies);
+    }
+
+    /**
+     * @return Die Methode der Regel an Position rule.
+     */
+    public CalculationStrategy strategy(int rule) {
+        return strategies[rule];
+    }
+
+    /**
+     * @return Position der ersten Regel mit einer Methode dieser Klasse oder -1.
+     */
+    public int ruleOf(CalculationStrategy strategy) {
+        for (int rule = 0; rule < strategies.length; rule++) {
+            if (strategies[rule].getClass() == strategy.getClass()) {
+                return rule;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true, wenn die Tabelle die Form der Standardtabelle hat (B vor D vor C vor A, Schwellenwerte und
+     *         Methoden beliebig); nur dann sind die folgenden Schwellenwerte definiert.
+     */
+    public boolean hasStandardShape() {
+        return standardShape;
+    }
+
+    /**
+     * @return BE-Grenze der ersten Regel (beSum &gt; x) oder NaN ohne Standardform.
+     */
+    public double supersizeBe() {
+        return supersizeBe;
+    }
+
+    /**
+     * @return Kalorien-Grenze der ersten Regel (fatProteinCalories &gt; x) oder NaN ohne Standardform.
+     */
+    public double supersizeFatProteinCalories() {
+        return supersizeFatProteinCalories;
+    }
+
+    /**
+     * @return Kohlenhydrat-Grenze der zweiten Regel (mealCarbs &lt; x) oder NaN ohne Standardform.
+     */
+    public double noCarbMaxCarbs() {
+        return noCarbMaxCarbs;
+    }
+
+    /**
+     * @return Anteil der dritten Regel (beCalories &lt; x * usualBeCalories) oder NaN ohne Standardform.
+     */
+    public double highCarbBeCaloriesRatio() {
+        return highCarbBeCaloriesRatio;
+    }
+
+    public MethodConstants constants() {
+        return constants;
+    }
+
+    /**
+     * @return true, wenn die Tabelle die Standardregeln mit den eingebauten Methoden und den Schwellenwerten aus
+     *         {@link #constants()} enthält; nur dann können die spaltenorientierten Kernels sie abbilden.
+     */
+    public boolean isStandard() {
+        return standardShape
+                && supersize instanceof MethodBSupersize && noCarb instanceof MethodDNocarb
+                && highCarb instanceof MethodCHighcarb && calorieSurplus instanceof MethodACalorieSurplus
+                && supersizeBe == constants.supersizeBe()
+                && supersizeFatProteinCalories == constants.supersizeFatProteinCalories()
+                && noCarbMaxCarbs == constants.noCarbMaxCarbs()
+                && highCarbBeCaloriesRatio == constants.highCarbBeCaloriesRatio();
+    }
+
+    // B (beSum > x & fatProteinCalories > y), D (mealCarbs < z), C (beCalories < r * usualBeCalories), A
+    private static boolean hasStandardShape(List<Rule> rules) {
+        if (rules.size() != 4) {
+            return false;
+        }
+        List<Condition> supersize = rules.get(0).conditions();
+        List<Condition> noCarb = rules.get(1).conditions();
+        List<Condition> highCarb = rules.get(2).conditions();
+        return supersize.size() == 2 && noCarb.size() == 1 && highCarb.size() == 1
+                && matches(supersize.get(0), Feature.BE_SUM, Comparison.GREATER, null)
+                && matches(supersize.get(1), Feature.FAT_PROTEIN_CALORIES, Comparison.GREATER, null)
+                && matches(noCarb.get(0), Feature.MEAL_CARBS, Comparison.LESS, null)
+                && matches(highCarb.get(0), Feature.BE_CALORIES, Comparison.LESS, Feature.USUAL_BE_CALORIES);
+    }
+
+    private static boolean matches(Condition condition, Feature feature, Comparison comparison, Feature reference) {
+        return condition.feature() == feature && condition.comparison() == comparison && condition.reference() == reference;
+    }
+
+    // Reihenfolge wie in Feature; NO_REFERENCE liefert 1
+    private static double value(int feature, double mealCarbs, double usualBeCalories, double beSum, double beCalories,
+                                double fatProteinCalories) {
+        return switch (feature) {
+            case 0 -> mealCarbs;
+            case 1 -> usualBeCalories;
+            case 2 -> beSum;
+            case 3 -> beCalories;
+            case 4 -> fatProteinCalories;
+            default -> 1.0;
+        };
+    }
+
+    // Reihenfolge wie in Comparison
+    private static boolean compare(int comparison, double value, double threshold) {
+        return switch (comparison) {
+            case 0 -> value < threshold;
+            case 1 -> value <= threshold;
+            case 2 -> value > threshold;
+            default -> value >= threshold;
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package de.lazycarbs.calculator.core;
+
+/**
+ * Rundung einer Dosis auf die Schrittweite der Pumpe im Festkomma-Modus (siehe {@link FixedPointDoseCalculator}).
+ * <ul>
+ *     <li>FLOOR: auf den nächstkleineren Schritt (Standard, gibt nie mehr Insulin ab als berechnet)</li>
+ *     <li>NEAREST: auf den nächsten Schritt, genau in der Mitte aufwärts</li>
+ *     <li>CEIL: auf den nächstgrößeren Schritt</li>
+ * </ul>
+ */
+public enum PumpRounding {
+    FLOOR,
+    NEAREST,
+    CEIL;
+
+    /**
+     * Summand, mit dem {@code Math.floorDiv(numerator + bias(denominator), denominator)} die Division mit dieser
+     * Rundung ergibt (0, halber bzw. ganzer Nenner minus 1). Der {@link FixedPointDoseCalculator} berechnet ihn einmal
+     * pro Nenner statt bei jeder Division den Rest zu prüfen.
+     * @param denominator Nenner, muss positiv sein.
+     */
+    public long bias(long denominator) {
+        return switch (this) {
+            case FLOOR -> 0;
+            case NEAREST -> denominator >> 1;
+            case CEIL -> denominator - 1;
+        };
+    }
+
+    /**
+     * @throws IllegalArgumentException wenn der Name unbekannt ist.
+     */
+    public static PumpRounding fromName(String name) {
+        return switch (name.toLowerCase()) {
+            case "floor", "down" -> FLOOR;
+            case "nearest", "round" -> NEAREST;
+            case "ceil", "up" -> CEIL;
+            default -> throw new IllegalArgumentException("Unbekannte Pumpen-Rundung: " + name + " (erlaubt: floor, nearest, ceil)");
+        };
+    }
+}
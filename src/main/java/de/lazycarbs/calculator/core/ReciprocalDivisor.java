@@ -0,0 +1,48 @@
+package de.lazycarbs.calculator.core;
+
+/**
+ * Ganzzahlige Division durch einen festen Nenner als Multiplikation mit dem vorab berechneten Kehrwert
+ * (Granlund/Montgomery) für den {@link FixedPointDoseCalculator}.
+ * <p>
+ * Mit l = ceil(log2 Nenner) und dem Kehrwert m = ceil(2^(63 + l) / Nenner) gilt m x Nenner - 2^(63 + l) < 2^l,
+ * daher ist floor(Zähler x m / 2^(63 + l)) für jeden Zähler von 0 bis 2^63 - 1 genau floor(Zähler / Nenner).
+ * Eine Instanz ist unveränderlich.
+ */
+final class ReciprocalDivisor {
+
+    private final long divisor;
+    // als vorzeichenlose 64-Bit-Zahl gelesen
+    private final long multiplier;
+    private final int shift;
+
+    /**
+     * @param divisor Nenner von 2 bis 2^31.
+     * @throws IllegalArgumentException wenn der Nenner außerhalb dieses Bereichs liegt.
+     */
+    ReciprocalDivisor(long divisor) {
+        if (divisor < 2 || divisor > 1L << 31) {
+            throw new IllegalArgumentException("Nenner muss zwischen 2 und 2^31 liegen: " + divisor);
+        }
+        int log = 64 - Long.numberOfLeadingZeros(divisor - 1);
+        // 2^(63 + l) = 2^(l - 1) x 2^64 in zwei Schritten zu 32 Bit teilen; 2^(l - 1) < Nenner, daher passt jeder
+        // Teilquotient in 32 Bit
+        long high = (1L << (log - 1)) << 32;
+        long low = (high % divisor) << 32;
+        long quotient = (high / divisor) << 32 | low / divisor;
+        this.divisor = divisor;
+        this.multiplier = low % divisor == 0 ? quotient : quotient + 1;
+        this.shift = log - 1;
+    }
+
+    long divisor() {
+        return divisor;
+    }
+
+    /**
+     * @param numerator Zähler, nicht negativ.
+     * @return numerator / divisor, abgerundet.
+     */
+    long divide(long numerator) {
+        return Math.unsignedMultiplyHigh(numerator, multiplier) >>> shift;
+    }
+}
@@ -0,0 +1,28 @@
+package de.lazycarbs.calculator.data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ein vollständiger Datensatz der Tabelle "calculations", so wie er von {@code DatabaseManager} gespeichert wird.
+ */
+public record CalculationRecord(LocalDateTime timestamp, double mealCarbs, double mealCalories, double usualBeCalories,
+                                double insulinTypeCalorieCovering, int currentHour, int currentMinute, double usualBolusFactor,
+                                IntermediateBolusFactors intermediateBolusFactors, String selectedMethodName,
+                                String methodExplanation, MethodResults methodResults, double movementFactor,
+                                double finalCorrectBolus) {
+
+    /**
+     * Erstellt einen Datensatz aus dem Ergebnis eines Durchlaufs der Berechnungskette.
+     * @param result Das Berechnungsergebnis.
+     * @param timestamp Zeitpunkt der Berechnung.
+     * @return Der zu speichernde Datensatz.
+     */
+    public static CalculationRecord of(CalculationResult result, LocalDateTime timestamp) {
+        MealInput input = result.input();
+        return new CalculationRecord(timestamp, input.mealCarbs(), input.mealCalories(), input.usualBeCalories(),
+                input.insulinTypeCalorieCovering(), input.currentHour(), input.currentMinute(), result.usualBolusFactor(),
+                result.intermediateBolusFactors(), result.methodSelection().strategy().getClass().getSimpleName(),
+                result.methodSelection().explanation(), result.methodResults(), input.movementFactor(),
+                result.finalCorrectBolus());
+    }
+}
@@ -0,0 +1,8 @@
+package de.lazycarbs.calculator.data;
+
+/**
+ * Ergebnis eines vollständigen Durchlaufs einer Mahlzeit durch die Berechnungskette.
+ */
+public record CalculationResult(MealInput input, double usualBolusFactor, IntermediateBolusFactors intermediateBolusFactors,
+                                MethodSelectionResult methodSelection, MethodResults methodResults, double finalCorrectBolus) {
+}
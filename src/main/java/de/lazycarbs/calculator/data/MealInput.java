@@ -0,0 +1,8 @@
+package de.lazycarbs.calculator.data;
+
+/**
+ * Alle Eingabewerte einer Mahlzeit, wie sie sonst interaktiv über den InputHandler abgefragt werden.
+ */
+public record MealInput(double mealCarbs, double mealCalories, double usualBeCalories, double insulinTypeCalorieCovering,
+                        int currentHour, int currentMinute, double movementFactor) {
+}
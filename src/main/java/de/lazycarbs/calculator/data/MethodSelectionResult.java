@@ -1,6 +1,169 @@
 package de.lazycarbs.calculator.data;
 
+import de.lazycarbs.calculator.core.MethodRuleTable;
 import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodACalorieSurplus;
+import de.lazycarbs.calculator.methodstrategy.MethodBSupersize;
+import de.lazycarbs.calculator.methodstrategy.MethodCHighcarb;
+import de.lazycarbs.calculator.methodstrategy.MethodDNocarb;
 
-public record MethodSelectionResult(CalculationStrategy strategy, String explanation) {
+import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ergebnis der Methodenauswahl: die gewählte Methode, die Werte, die zur Auswahl geführt haben, und die Regel der
+ * Regeltabelle, die gegriffen hat. Der Begründungstext wird erst in {@link #explanation()} aus diesen Werten und den
+ * Schwellenwerten der Regel erzeugt, damit Batch-, Server- und Benchmark-Läufe, die ihn nicht anzeigen, auch kein
+ * String.format bezahlen.
+ *
+ * @param rules Die Regeltabelle, mit der ausgewählt wurde.
+ * @param rule Position der passenden Regel in {@code rules.rules()} oder -1, wenn sie unbekannt ist.
+ */
+public record MethodSelectionResult(CalculationStrategy strategy, double mealCarbs, double usualBeCalories,
+                                    double beSum, double beCalories, double fatProteinCalories,
+                                    MethodRuleTable rules, int rule) {
+
+    /**
+     * Für eine Auswahl nach der Standardtabelle, z.B. beim Wiederherstellen des Begründungstextes aus gespeicherten
+     * Werten.
+     */
+    public MethodSelectionResult(CalculationStrategy strategy, double mealCarbs, double usualBeCalories,
+                                 double beSum, double beCalories, double fatProteinCalories) {
+        this(strategy, mealCarbs, usualBeCalories, beSum, beCalories, fatProteinCalories, MethodRuleTable.defaults(),
+                MethodRuleTable.defaults().ruleOf(strategy));
+    }
+
+    /**
+     * Erzeugt die Begründung, warum diese Methode gewählt wurde.
+     * @return Der mehrzeilige Begründungstext.
+     */
+    public String explanation() {
+        char decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+        if (!hasStandardReason()) {
+            StringBuilder reason = new StringBuilder(96);
+            appendRuleReason(reason, decimalSeparator);
+            return String.format("\nDeine Mahlzeit entspricht einer: %n"
+                    + "*** %s *** %n"
+                    + "%s%n", title(), reason);
+        }
+        if (strategy instanceof MethodBSupersize) {
+            return String.format("\nDeine Mahlzeit entspricht einer: %n"
+                            + "*** Supersize-Mahlzeit *** %n"
+                            + "Denn: BEs: %.2f > %s BE und Kalorien aus F/E: %.2f > %s kcal%n",
+                    beSum, formatThreshold(rules.supersizeBe(), decimalSeparator),
+                    fatProteinCalories, formatThreshold(rules.supersizeFatProteinCalories(), decimalSeparator));
+        }
+        if (strategy instanceof MethodDNocarb) {
+            return String.format("\nDeine Mahlzeit entspricht einer: %n"
+                            + "*** reinen Fett/Eiweiß-Mahlzeit *** %n"
+                            + "Denn: KH: %.2fg < %sg%n",
+                    mealCarbs, formatThreshold(rules.noCarbMaxCarbs(), decimalSeparator));
+        }
+        return String.format("\nDeine Mahlzeit entspricht einer: %n"
+                        + "*** %s *** %n"
+                        + "Denn: die Kalorien pro BE: %.2f sind %s als %sdeine üblichen Kcal pro BE: %.2f %n",
+                title(), beCalories, strategy instanceof MethodCHighcarb ? "kleiner" : "größer",
+                ratioPrefix(decimalSeparator), usualBeCalories);
+    }
+
+    /**
+     * @return Die Überschrift der Methode ("Supersize-Mahlzeit" usw.) bzw. bei eigenen Methoden der Klassenname.
+     */
+    public String title() {
+        if (strategy instanceof MethodBSupersize) {
+            return "Supersize-Mahlzeit";
+        }
+        if (strategy instanceof MethodDNocarb) {
+            return "reinen Fett/Eiweiß-Mahlzeit";
+        }
+        if (strategy instanceof MethodCHighcarb) {
+            return "High-Carb-Mahlzeit";
+        }
+        if (strategy instanceof MethodACalorieSurplus) {
+            return "Kalorienüberschuss-Mahlzeit";
+        }
+        return strategy.getClass().getSimpleName();
+    }
+
+    /**
+     * @return true, wenn die Tabelle die Form der Standardtabelle hat und die eingebaute Methode an ihrer üblichen
+     *         Stelle gewählt wurde; dann gilt die gewohnte Begründung mit den Schwellenwerten der Tabelle, sonst
+     *         {@link #appendRuleReason(StringBuilder, char)}.
+     */
+    public boolean hasStandardReason() {
+        if (!rules.hasStandardShape()) {
+            return false;
+        }
+        return switch (rule) {
+            case 0 -> strategy instanceof MethodBSupersize;
+            case 1 -> strategy instanceof MethodDNocarb;
+            case 2 -> strategy instanceof MethodCHighcarb;
+            case 3 -> strategy instanceof MethodACalorieSurplus;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return "" bei einem Anteil von 1, sonst z.B. "0,9 x " für die Grenze zwischen High-Carb und Kalorienüberschuss.
+     */
+    public String ratioPrefix(char decimalSeparator) {
+        double ratio = rules.highCarbBeCaloriesRatio();
+        return ratio == 1 ? "" : formatThreshold(ratio, decimalSeparator) + " x ";
+    }
+
+    /**
+     * Hängt die allgemeine Begründung an, z.B. "Denn: Regel 1: beSum 9,00 > 8 und fatProteinCalories 900,00 > 800".
+     */
+    public StringBuilder appendRuleReason(StringBuilder target, char decimalSeparator) {
+        if (rule < 0) {
+            return target.append("Denn: Regel der Regeltabelle");
+        }
+        List<MethodRuleTable.Condition> conditions = rules.rules().get(rule).conditions();
+        if (conditions.isEmpty()) {
+            return target.append("Denn: keine der Regeln davor trifft zu");
+        }
+        target.append("Denn: Regel ").append(rule + 1).append(": ");
+        for (int i = 0; i < conditions.size(); i++) {
+            MethodRuleTable.Condition condition = conditions.get(i);
+            target.append(i == 0 ? "" : " und ").append(condition.feature().fieldName()).append(' ');
+            appendValue(target, value(condition.feature()), decimalSeparator);
+            target.append(' ').append(condition.comparison().symbol()).append(' ');
+            if (condition.reference() == null) {
+                target.append(formatThreshold(condition.threshold(), decimalSeparator));
+            } else {
+                if (condition.threshold() != 1) {
+                    target.append(formatThreshold(condition.threshold(), decimalSeparator)).append(" x ");
+                }
+                target.append(condition.reference().fieldName()).append(' ');
+                appendValue(target, value(condition.reference()), decimalSeparator);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * @return Der Wert eines Merkmals der Regeltabelle für diese Mahlzeit.
+     */
+    public double value(MethodRuleTable.Feature feature) {
+        return switch (feature) {
+            case MEAL_CARBS -> mealCarbs;
+            case USUAL_BE_CALORIES -> usualBeCalories;
+            case BE_SUM -> beSum;
+            case BE_CALORIES -> beCalories;
+            case FAT_PROTEIN_CALORIES -> fatProteinCalories;
+        };
+    }
+
+    /**
+     * @return Ein Schwellenwert ohne überflüssige Nachkommastellen, z.B. "7,5", "750" oder "0,9".
+     */
+    public static String formatThreshold(double threshold, char decimalSeparator) {
+        return BigDecimal.valueOf(threshold).stripTrailingZeros().toPlainString().replace('.', decimalSeparator);
+    }
+
+    private static void appendValue(StringBuilder target, double value, char decimalSeparator) {
+        target.append(String.format(Locale.ROOT, "%.2f", value).replace('.', decimalSeparator));
+    }
 }
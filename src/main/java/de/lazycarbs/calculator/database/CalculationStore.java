@@ -0,0 +1,45 @@
+package de.lazycarbs.calculator.database;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Speicherort für Berechnungsdatensätze, z.B. die MySQL-Datenbank ({@link DatabaseManager}) oder das lokale
+ * Journal ({@code de.lazycarbs.calculator.journal.CalculationJournal}). Implementierungen müssen von mehreren
+ * Threads gleichzeitig nutzbar sein.
+ */
+public interface CalculationStore extends AutoCloseable {
+
+    /**
+     * Speichert einen vollständigen Berechnungsdatensatz.
+     * @throws SQLException falls der Datensatz nicht gespeichert werden konnte.
+     */
+    void saveCalculation(CalculationRecord calculationRecord) throws SQLException;
+
+    /**
+     * Speichert mehrere Datensätze; Implementierungen können dies zu einem einzigen Schreibvorgang bündeln.
+     * @throws SQLException falls die Datensätze nicht gespeichert werden konnten.
+     */
+    default void saveCalculations(List<CalculationRecord> calculationRecords) throws SQLException {
+        for (CalculationRecord calculationRecord : calculationRecords) {
+            saveCalculation(calculationRecord);
+        }
+    }
+
+    /**
+     * Baut teure Ressourcen (z.B. die erste Datenbankverbindung) vorab auf, damit das erste Speichern nicht darauf
+     * warten muss. Kann aus einem Hintergrund-Thread aufgerufen werden; standardmäßig ist nichts zu tun.
+     * @throws SQLException falls der Speicher nicht erreichbar ist.
+     */
+    default void warmUp() throws SQLException {
+    }
+
+    /**
+     * Gibt alle Ressourcen frei (Verbindungen, Dateien).
+     * @throws SQLException falls das Schließen fehlschlägt.
+     */
+    @Override
+    void close() throws SQLException;
+}
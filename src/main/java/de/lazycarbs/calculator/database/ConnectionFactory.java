@@ -0,0 +1,14 @@
+package de.lazycarbs.calculator.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Erzeugt neue physische Datenbankverbindungen für den {@link ConnectionPool}.
+ * Standardmäßig über den DriverManager; für Tests kann z.B. eine In-Memory-Datenbank eingesetzt werden.
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+
+    Connection createConnection() throws SQLException;
+}
@@ -0,0 +1,244 @@
+package de.lazycarbs.calculator.database;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Kleiner, thread-sicherer Pool für Datenbankverbindungen.
+ * <p>
+ * Verbindungen werden erst bei Bedarf aufgebaut (höchstens {@code maxSize}), nach Gebrauch zurückgegeben und
+ * wiederverwendet. Eine Verbindung, die länger als {@code validationInterval} ungenutzt war, wird vor dem Ausleihen
+ * mit {@link java.sql.Connection#isValid(int)} geprüft. Ein Hintergrund-Thread schließt Verbindungen, die länger
+ * als {@code maxIdleTime} ungenutzt im Pool liegen.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxSize;
+    private final long borrowTimeoutNanos;
+    private final long validationIntervalNanos;
+    private final long maxIdleNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionReturned = lock.newCondition();
+    // LIFO: die zuletzt benutzte (und damit "wärmste") Verbindung wird zuerst wieder ausgeliehen
+    private final ArrayDeque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final ScheduledExecutorService evictionExecutor;
+    private int openConnections;
+    private boolean closed;
+
+    /**
+     * Erstellt einen Pool mit Standardwerten (4 Verbindungen, 10 s Wartezeit, Prüfung nach 30 s, Abbau nach 5 min).
+     */
+    public ConnectionPool(ConnectionFactory connectionFactory) {
+        this(connectionFactory, 4, Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofMinutes(5));
+    }
+
+    /**
+     * @param connectionFactory Erzeugt neue physische Verbindungen.
+     * @param maxSize Maximale Anzahl gleichzeitig offener Verbindungen.
+     * @param borrowTimeout Maximale Wartezeit auf eine freie Verbindung.
+     * @param validationInterval Verbindungen, die länger ungenutzt waren, werden vor dem Ausleihen geprüft.
+     * @param maxIdleTime Verbindungen, die länger ungenutzt im Pool liegen, werden geschlossen.
+     */
+    public ConnectionPool(ConnectionFactory connectionFactory, int maxSize, Duration borrowTimeout,
+                          Duration validationInterval, Duration maxIdleTime) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Der Pool muss mindestens eine Verbindung erlauben.");
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxSize = maxSize;
+        this.borrowTimeoutNanos = borrowTimeout.toNanos();
+        this.validationIntervalNanos = validationInterval.toNanos();
+        this.maxIdleNanos = maxIdleTime.toNanos();
+
+        this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lazycarbs-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictionPeriodMillis = Math.max(1000, maxIdleTime.toMillis() / 2);
+        evictionExecutor.scheduleWithFixedDelay(this::evictIdleConnections, evictionPeriodMillis, evictionPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leiht eine Verbindung aus. Sie muss mit {@link #release(PooledConnection)} zurückgegeben werden.
+     * @return Eine gültige Verbindung.
+     * @throws SQLException wenn keine Verbindung aufgebaut werden kann oder die Wartezeit abläuft.
+     */
+    public PooledConnection borrow() throws SQLException {
+        long deadline = System.nanoTime() + borrowTimeoutNanos;
+        while (true) {
+            PooledConnection candidate = null;
+            boolean createNew = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Der Verbindungspool ist geschlossen.");
+                    }
+                    if (!idleConnections.isEmpty()) {
+                        candidate = idleConnections.pollFirst();
+                        break;
+                    }
+                    if (openConnections < maxSize) {
+                        openConnections++;
+                        createNew = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLTimeoutException("Zeitüberschreitung beim Warten auf eine freie Datenbankverbindung.");
+                    }
+                    connectionReturned.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Unterbrochen beim Warten auf eine Datenbankverbindung.", e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (createNew) {
+                try {
+                    return new PooledConnection(connectionFactory.createConnection());
+                } catch (SQLException | RuntimeException e) {
+                    discardSlot();
+                    throw e;
+                }
+            }
+
+            // Verbindungen, die länger ungenutzt waren, vor der Ausgabe prüfen (z.B. nach einem Server-Timeout)
+            if (System.nanoTime() - candidate.lastUsedNanos() < validationIntervalNanos || isValid(candidate)) {
+                return candidate;
+            }
+            candidate.closeQuietly();
+            discardSlot();
+        }
+    }
+
+    /**
+     * Gibt eine ausgeliehene Verbindung zurück. Als defekt markierte Verbindungen werden geschlossen.
+     */
+    public void release(PooledConnection pooledConnection) {
+        if (pooledConnection.isBroken()) {
+            pooledConnection.closeQuietly();
+            discardSlot();
+            return;
+        }
+        pooledConnection.touch();
+        lock.lock();
+        try {
+            if (!closed) {
+                idleConnections.addFirst(pooledConnection);
+                connectionReturned.signal();
+                return;
+            }
+            openConnections--;
+        } finally {
+            lock.unlock();
+        }
+        pooledConnection.closeQuietly();
+    }
+
+    private static boolean isValid(PooledConnection pooledConnection) {
+        try {
+            return pooledConnection.connection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            openConnections--;
+            connectionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictIdleConnections() {
+        ArrayDeque<PooledConnection> evicted = new ArrayDeque<>();
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Iterator<PooledConnection> iterator = idleConnections.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooledConnection = iterator.next();
+                if (now - pooledConnection.lastUsedNanos() > maxIdleNanos) {
+                    iterator.remove();
+                    openConnections--;
+                    evicted.add(pooledConnection);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Schließen außerhalb des Locks, damit ausleihende Threads nicht auf das Netzwerk warten
+        for (PooledConnection pooledConnection : evicted) {
+            pooledConnection.closeQuietly();
+        }
+    }
+
+    /**
+     * @return Anzahl der aktuell offenen Verbindungen (ausgeliehen und im Pool).
+     */
+    public int openConnections() {
+        lock.lock();
+        try {
+            return openConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Anzahl der ungenutzten Verbindungen im Pool.
+     */
+    public int idleConnections() {
+        lock.lock();
+        try {
+            return idleConnections.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Schließt alle ungenutzten Verbindungen. Noch ausgeliehene Verbindungen werden bei ihrer Rückgabe geschlossen.
+     */
+    @Override
+    public void close() {
+        ArrayDeque<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayDeque<>(idleConnections);
+            openConnections -= idleConnections.size();
+            idleConnections.clear();
+            connectionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        evictionExecutor.shutdownNow();
+        for (PooledConnection pooledConnection : toClose) {
+            pooledConnection.closeQuietly();
+        }
+    }
+}
@@ -1,45 +1,82 @@
 package de.lazycarbs.calculator.database;
 
+import de.lazycarbs.calculator.data.CalculationRecord;
 import de.lazycarbs.calculator.data.IntermediateBolusFactors;
 import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
- * Verwaltet die Datenbankverbindung und das Speichern von Berechnungsdaten in MySQL.
+ * Verwaltet die Datenbankverbindungen und das Speichern von Berechnungsdaten in MySQL.
+ * Eine Instanz kann von mehreren Threads gleichzeitig genutzt werden; jeder Aufruf leiht sich eine Verbindung
+ * aus dem {@link ConnectionPool}, deren vorbereitetes INSERT-Statement wiederverwendet wird.
  */
-public class DatabaseManager {
+public class DatabaseManager implements CalculationStore {
 
-    private final String DB_URL;
-    private final String DB_USER;
-    private final String DB_PASSWORD;
-    private Connection connection;
+    // Standard-Verbindungsdaten der lokalen MySQL-Datenbank (Passwort kommt aus der Umgebungsvariable DB_PASSWORD)
+    public static final String DEFAULT_DB_URL = "jdbc:mysql://localhost:3306/lazycarbs_db";
+    public static final String DEFAULT_DB_USER = "lazyuser";
+
+    private static final String COLUMNS = "timestamp, meal_carbs, meal_calories, usual_be_calories, insulin_type_calorie_covering, " +
+            "current_hour, current_minute, usual_bolus_factor, " +
+            "intermediate_lean_be_factor, intermediate_pure_carb_be_factor, intermediate_be_sum, " +
+            "intermediate_be_calories, intermediate_fat_protein_calories, " +
+            "selected_method_name, method_explanation, " +
+            "method_correct_be_factor, method_calorie_surplus, method_delayed_calorie_bolus, " +
+            "method_correct_bolus_sum, method_fat_protein_calories, " +
+            "movement_factor, final_correct_bolus";
+
+    private static final String INSERT_SQL = "INSERT INTO calculations (" + COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Ein Datensatz, dessen Schlüssel schon in der Tabelle steht, wird übersprungen (eindeutiger Index auf idempotency_key)
+    private static final String IDEMPOTENT_INSERT_SQL = "INSERT INTO calculations (" + COLUMNS + ", idempotency_key) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE idempotency_key = idempotency_key";
+    private static final int IDEMPOTENCY_KEY_PARAMETER = 23;
+    private static final String IDEMPOTENCY_KEY_COLUMN = "idempotency_key";
+
+    private final ConnectionPool connectionPool;
 
     /**
      * Konstruktor für den DatabaseManager.
+     * Verbindungen werden erst beim ersten Speichern aufgebaut und danach über einen Pool wiederverwendet.
      * @param dbUrl Die JDBC-URL der MySQL-Datenbank (z.B. "jdbc:mysql://localhost:3306/lazycarbs_db").
      * @param dbUser Der Benutzername für die Datenbankverbindung.
      * @param dbPassword Das Passwort für die Datenbankverbindung.
      */
     public DatabaseManager(String dbUrl, String dbUser, String dbPassword) {
-        this.DB_URL = dbUrl;
-        this.DB_USER = dbUser;
-        this.DB_PASSWORD = dbPassword;
+        String url = withBatchRewrite(dbUrl);
+        this.connectionPool = new ConnectionPool(() -> DriverManager.getConnection(url, dbUser, dbPassword));
     }
 
     /**
-     * Stellt eine Verbindung zur Datenbank her.
-     * @throws SQLException falls ein Datenbankzugriffsfehler auftritt.
+     * Konstruktor für einen bereits konfigurierten Verbindungspool (z.B. mit einer In-Memory-Datenbank für Tests).
+     * @param connectionPool Der Pool, aus dem Verbindungen ausgeliehen werden.
+     */
+    public DatabaseManager(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Aktiviert bei MySQL-URLs "rewriteBatchedStatements", damit ein JDBC-Batch als ein einziges
+     * mehrzeiliges INSERT gesendet wird statt als viele einzelne Statements.
      */
-    private void connect() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    private static String withBatchRewrite(String dbUrl) {
+        if (!dbUrl.startsWith("jdbc:mysql:") || dbUrl.contains("rewriteBatchedStatements")) {
+            return dbUrl;
         }
+        return dbUrl + (dbUrl.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
     }
 
     /**
@@ -66,54 +103,189 @@ public class DatabaseManager {
             String selectedMethodName, String methodExplanation, MethodResults methodResults,
             double movementFactor, double finalCorrectBolus) throws SQLException {
 
-        connect(); // Verbindung mit Datenbank herstellen
-
-        String sql = "INSERT INTO calculations (" +
-                "timestamp, meal_carbs, meal_calories, usual_be_calories, insulin_type_calorie_covering, " +
-                "current_hour, current_minute, usual_bolus_factor, " +
-                "intermediate_lean_be_factor, intermediate_pure_carb_be_factor, intermediate_be_sum, " +
-                "intermediate_be_calories, intermediate_fat_protein_calories, " +
-                "selected_method_name, method_explanation, " +
-                "method_correct_be_factor, method_calorie_surplus, method_delayed_calorie_bolus, " +
-                "method_correct_bolus_sum, method_fat_protein_calories, " +
-                "movement_factor, final_correct_bolus) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-            statement.setDouble(2, mealCarbs);
-            statement.setDouble(3, mealCalories);
-            statement.setDouble(4, usualBeCalories);
-            statement.setDouble(5, insulinTypeCalorieCovering);
-            statement.setInt(6, currentHour);
-            statement.setInt(7, currentMinute);
-            statement.setDouble(8, usualBolusFactor);
-            statement.setDouble(9, intermediateBolusFactors.leanBeFactor());
-            statement.setDouble(10, intermediateBolusFactors.pureCarbBeFactor());
-            statement.setDouble(11, intermediateBolusFactors.beSum());
-            statement.setDouble(12, intermediateBolusFactors.beCalories());
-            statement.setDouble(13, intermediateBolusFactors.fatProteinCalories());
-            statement.setString(14, selectedMethodName);
-            statement.setString(15, methodExplanation);
-            statement.setDouble(16, methodResults.correctBeFactor());
-            statement.setDouble(17, methodResults.calorieSurplus());
-            statement.setDouble(18, methodResults.delayedCalorieBolus());
-            statement.setDouble(19, methodResults.correctBolusSum());
-            statement.setDouble(20, methodResults.fatProteinCalories());
-            statement.setDouble(21, movementFactor);
-            statement.setDouble(22, finalCorrectBolus);
+        saveCalculation(new CalculationRecord(LocalDateTime.now(), mealCarbs, mealCalories, usualBeCalories,
+                insulinTypeCalorieCovering, currentHour, currentMinute, usualBolusFactor, intermediateBolusFactors,
+                selectedMethodName, methodExplanation, methodResults, movementFactor, finalCorrectBolus));
+    }
 
+    /**
+     * Speichert einen vollständigen Berechnungsdatensatz in der Datenbank.
+     * @param calculationRecord Der zu speichernde Datensatz.
+     * @throws SQLException falls ein Datenbankzugriffsfehler auftritt.
+     */
+    @Override
+    public void saveCalculation(CalculationRecord calculationRecord) throws SQLException {
+        long start = PipelineMetrics.start();
+        PooledConnection pooledConnection = connectionPool.borrow(); // Verbindung aus dem Pool ausleihen
+        try {
+            PreparedStatement statement = pooledConnection.prepareStatement(INSERT_SQL);
+            bindCalculation(statement, calculationRecord);
             statement.executeUpdate(); // Führt den INSERT-Befehl aus
+            PipelineMetrics.record(PipelineStage.DATABASE_SAVE, start);
+        } catch (SQLException e) {
+            pooledConnection.markBroken();
+            throw e;
+        } finally {
+            connectionPool.release(pooledConnection);
+        }
+    }
+
+    /**
+     * Baut die erste Verbindung auf (JDBC-Treiber laden, Verbindungsaufbau, Anmeldung) und bereitet das
+     * INSERT-Statement vor; die Verbindung bleibt danach im Pool.
+     * @throws SQLException falls die Datenbank nicht erreichbar ist.
+     */
+    @Override
+    public void warmUp() throws SQLException {
+        PooledConnection pooledConnection = connectionPool.borrow();
+        try {
+            pooledConnection.prepareStatement(INSERT_SQL);
+        } catch (SQLException e) {
+            pooledConnection.markBroken();
+            throw e;
+        } finally {
+            connectionPool.release(pooledConnection);
         }
     }
 
     /**
-     * Schließt die Datenbankverbindung.
+     * Speichert mehrere Berechnungsdatensätze mit einem einzigen JDBC-Batch (addBatch/executeBatch).
+     * @param calculationRecords Die zu speichernden Datensätze.
      * @throws SQLException falls ein Datenbankzugriffsfehler auftritt.
      */
-    public void closeConnection() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+    @Override
+    public void saveCalculations(List<CalculationRecord> calculationRecords) throws SQLException {
+        if (calculationRecords.isEmpty()) {
+            return;
+        }
+        long start = PipelineMetrics.start();
+        PooledConnection pooledConnection = connectionPool.borrow();
+        try {
+            PreparedStatement statement = pooledConnection.prepareStatement(INSERT_SQL);
+            for (CalculationRecord calculationRecord : calculationRecords) {
+                bindCalculation(statement, calculationRecord);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            PipelineMetrics.record(PipelineStage.DATABASE_BATCH_SAVE, start);
+        } catch (SQLException e) {
+            pooledConnection.markBroken();
+            throw e;
+        } finally {
+            connectionPool.release(pooledConnection);
+        }
+    }
+
+    /**
+     * Speichert mehrere Datensätze mit einem einzigen JDBC-Batch und je einem Idempotenz-Schlüssel. Ein Datensatz,
+     * dessen Schlüssel bereits gespeichert ist, wird übersprungen; ein wiederholter Batch (z.B. nach einem Abbruch
+     * zwischen Commit und Bestätigung) legt so keine doppelten Zeilen an. Die Tabelle braucht dafür die Spalte
+     * "idempotency_key" mit eindeutigem Index.
+     * @param calculationRecords Die zu speichernden Datensätze.
+     * @param idempotencyKeys Ein Schlüssel pro Datensatz (höchstens 40 Zeichen), in derselben Reihenfolge.
+     * @throws SQLException falls ein Datenbankzugriffsfehler auftritt.
+     */
+    public void saveCalculations(List<CalculationRecord> calculationRecords, List<String> idempotencyKeys) throws SQLException {
+        if (calculationRecords.size() != idempotencyKeys.size()) {
+            throw new IllegalArgumentException("Für jeden Datensatz wird genau ein Idempotenz-Schlüssel benötigt.");
+        }
+        if (calculationRecords.isEmpty()) {
+            return;
+        }
+        long start = PipelineMetrics.start();
+        PooledConnection pooledConnection = connectionPool.borrow();
+        try {
+            PreparedStatement statement = pooledConnection.prepareStatement(IDEMPOTENT_INSERT_SQL);
+            for (int i = 0; i < calculationRecords.size(); i++) {
+                bindCalculation(statement, calculationRecords.get(i));
+                statement.setString(IDEMPOTENCY_KEY_PARAMETER, idempotencyKeys.get(i));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            PipelineMetrics.record(PipelineStage.DATABASE_BATCH_SAVE, start);
+        } catch (SQLException e) {
+            pooledConnection.markBroken();
+            throw e;
+        } finally {
+            connectionPool.release(pooledConnection);
+        }
+    }
+
+    /**
+     * Prüft über die Metadaten der Verbindung, ob die Tabelle "calculations" die Spalte "idempotency_key" hat, die
+     * {@link #saveCalculations(List, List)} braucht (ältere Installationen haben sie noch nicht).
+     * @return true, wenn die Spalte vorhanden ist.
+     * @throws SQLException falls die Datenbank nicht erreichbar ist.
+     */
+    public boolean hasIdempotencyKeyColumn() throws SQLException {
+        PooledConnection pooledConnection = connectionPool.borrow();
+        try {
+            Connection connection = pooledConnection.connection();
+            DatabaseMetaData metaData = connection.getMetaData();
+            // je nach Datenbank werden Tabellennamen klein (MySQL) oder groß (H2) abgelegt
+            for (String table : new String[] {"calculations", "CALCULATIONS"}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, null)) {
+                    while (columns.next()) {
+                        if (IDEMPOTENCY_KEY_COLUMN.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            pooledConnection.markBroken();
+            throw e;
+        } finally {
+            connectionPool.release(pooledConnection);
         }
     }
+
+    private static void bindCalculation(PreparedStatement statement, CalculationRecord calculationRecord) throws SQLException {
+        IntermediateBolusFactors intermediateBolusFactors = calculationRecord.intermediateBolusFactors();
+        MethodResults methodResults = calculationRecord.methodResults();
+
+        statement.setTimestamp(1, Timestamp.valueOf(calculationRecord.timestamp()));
+        statement.setDouble(2, calculationRecord.mealCarbs());
+        statement.setDouble(3, calculationRecord.mealCalories());
+        statement.setDouble(4, calculationRecord.usualBeCalories());
+        statement.setDouble(5, calculationRecord.insulinTypeCalorieCovering());
+        statement.setInt(6, calculationRecord.currentHour());
+        statement.setInt(7, calculationRecord.currentMinute());
+        statement.setDouble(8, calculationRecord.usualBolusFactor());
+        statement.setDouble(9, intermediateBolusFactors.leanBeFactor());
+        statement.setDouble(10, intermediateBolusFactors.pureCarbBeFactor());
+        statement.setDouble(11, intermediateBolusFactors.beSum());
+        statement.setDouble(12, intermediateBolusFactors.beCalories());
+        statement.setDouble(13, intermediateBolusFactors.fatProteinCalories());
+        statement.setString(14, calculationRecord.selectedMethodName());
+        statement.setString(15, calculationRecord.methodExplanation());
+        statement.setDouble(16, methodResults.correctBeFactor());
+        statement.setDouble(17, methodResults.calorieSurplus());
+        statement.setDouble(18, methodResults.delayedCalorieBolus());
+        statement.setDouble(19, methodResults.correctBolusSum());
+        statement.setDouble(20, methodResults.fatProteinCalories());
+        statement.setDouble(21, calculationRecord.movementFactor());
+        statement.setDouble(22, calculationRecord.finalCorrectBolus());
+    }
+
+    /**
+     * @return Der Verbindungspool dieses DatabaseManagers.
+     */
+    public ConnectionPool connectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Schließt alle Datenbankverbindungen des Pools.
+     * @throws SQLException falls ein Datenbankzugriffsfehler auftritt.
+     */
+    public void closeConnection() throws SQLException {
+        connectionPool.close();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        closeConnection();
+    }
 }
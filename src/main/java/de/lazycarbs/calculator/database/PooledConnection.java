@@ -0,0 +1,79 @@
+package de.lazycarbs.calculator.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Eine Verbindung aus dem {@link ConnectionPool} mit ihren bereits vorbereiteten Statements.
+ * Eine Instanz wird immer nur von dem Thread benutzt, der sie ausgeliehen hat.
+ */
+public class PooledConnection {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statementCache = new HashMap<>();
+    private long lastUsedNanos;
+    private boolean broken;
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+        this.lastUsedNanos = System.nanoTime();
+    }
+
+    public Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Liefert ein vorbereitetes Statement für die SQL-Anweisung; es wird pro Verbindung nur einmal vorbereitet.
+     * Das Statement darf vom Aufrufer nicht geschlossen werden.
+     * @param sql Die SQL-Anweisung.
+     * @return Das (wiederverwendete) vorbereitete Statement.
+     * @throws SQLException falls das Vorbereiten fehlschlägt.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement statement = statementCache.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statementCache.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Markiert die Verbindung als unbrauchbar (z.B. nach einem SQL-Fehler); sie wird bei der Rückgabe geschlossen.
+     */
+    public void markBroken() {
+        broken = true;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    void touch() {
+        lastUsedNanos = System.nanoTime();
+    }
+
+    void closeQuietly() {
+        for (PreparedStatement statement : statementCache.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // Verbindung wird ohnehin geschlossen
+            }
+        }
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Schließen einer Datenbankverbindung: " + e.getMessage());
+        }
+    }
+}
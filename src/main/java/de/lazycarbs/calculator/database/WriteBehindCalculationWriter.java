@@ -0,0 +1,204 @@
+package de.lazycarbs.calculator.database;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optionaler Write-Behind-Modus für {@link CalculationStore#saveCalculation(CalculationRecord)}.
+ * <p>
+ * Datensätze werden in eine begrenzte Warteschlange gestellt und von einem Hintergrund-Thread als Batch
+ * geschrieben (bei der Datenbank als JDBC-Batch). Ein Batch wird geschrieben, sobald {@code maxBatchSize}
+ * Datensätze vorliegen oder der älteste wartende Datensatz {@code maxBatchDelayMillis} alt ist. Ist die Warteschlange voll, blockiert
+ * {@link #submit(CalculationRecord)} (Backpressure), {@link #offer(CalculationRecord, long, TimeUnit)} gibt
+ * nach Ablauf der Wartezeit false zurück. {@link #close()} nimmt keine neuen Datensätze mehr an und schreibt
+ * alle bereits eingereihten Datensätze, bevor der Speicher geschlossen wird.
+ */
+public class WriteBehindCalculationWriter implements AutoCloseable {
+
+    private final CalculationStore store;
+    private final BlockingQueue<CalculationRecord> queue;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final Thread writerThread;
+    // Einreihen hält die Lesesperre, close() die Schreibsperre: nach dem Schließen landet kein Datensatz mehr
+    // unbemerkt in der Warteschlange
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    private final AtomicLong submittedRecords = new AtomicLong();
+    private final AtomicLong rejectedRecords = new AtomicLong();
+    private final AtomicLong writtenRecords = new AtomicLong();
+    private final AtomicLong failedRecords = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile SQLException lastFailure;
+
+    /**
+     * @param store Der Speicher, in den geschrieben wird (Datenbank oder Journal).
+     * @param queueCapacity Maximale Anzahl wartender Datensätze.
+     * @param maxBatchSize Maximale Anzahl Datensätze pro Batch.
+     * @param maxBatchDelayMillis Maximale Wartezeit eines Datensatzes, bevor ein unvollständiger Batch geschrieben wird.
+     */
+    public WriteBehindCalculationWriter(CalculationStore store, int queueCapacity, int maxBatchSize, long maxBatchDelayMillis) {
+        if (queueCapacity < 1 || maxBatchSize < 1 || maxBatchDelayMillis < 0) {
+            throw new IllegalArgumentException("Ungültige Write-Behind-Konfiguration.");
+        }
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMillis);
+        this.writerThread = new Thread(this::writeLoop, "lazycarbs-write-behind");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Reiht einen Datensatz ein und blockiert, solange die Warteschlange voll ist.
+     * @throws IllegalStateException wenn der Writer bereits geschlossen wurde.
+     */
+    public void submit(CalculationRecord calculationRecord) throws InterruptedException {
+        closeLock.readLock().lockInterruptibly();
+        try {
+            ensureOpen();
+            queue.put(calculationRecord);
+            submittedRecords.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reiht einen Datensatz ein und wartet höchstens die angegebene Zeit auf einen freien Platz.
+     * @return true, wenn der Datensatz eingereiht wurde; false, wenn die Warteschlange voll blieb.
+     * @throws IllegalStateException wenn der Writer bereits geschlossen wurde.
+     */
+    public boolean offer(CalculationRecord calculationRecord, long timeout, TimeUnit unit) throws InterruptedException {
+        closeLock.readLock().lockInterruptibly();
+        try {
+            ensureOpen();
+            if (queue.offer(calculationRecord, timeout, unit)) {
+                submittedRecords.incrementAndGet();
+                return true;
+            }
+            rejectedRecords.incrementAndGet();
+            return false;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Write-Behind-Writer ist bereits geschlossen.");
+        }
+    }
+
+    private void writeLoop() {
+        List<CalculationRecord> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                CalculationRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxBatchDelayNanos;
+
+                // Batch auffüllen, bis er voll ist oder die Wartezeit des ersten Datensatzes abgelaufen ist
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0 || closed) {
+                        break;
+                    }
+                    CalculationRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(List<CalculationRecord> batch) {
+        long start = System.nanoTime();
+        try {
+            store.saveCalculations(batch);
+            writtenRecords.addAndGet(batch.size());
+        } catch (SQLException e) {
+            failedRecords.addAndGet(batch.size());
+            lastFailure = e;
+            System.err.println("Write-Behind: " + batch.size() + " Datensätze konnten nicht gespeichert werden: " + e.getMessage());
+        }
+        long duration = System.nanoTime() - start;
+        flushCount.incrementAndGet();
+        lastFlushNanos.set(duration);
+        totalFlushNanos.addAndGet(duration);
+        maxFlushNanos.accumulateAndGet(duration, Math::max);
+    }
+
+    /**
+     * @return Aktuelle Zähler (Warteschlangentiefe, geschriebene Datensätze, Flush-Latenzen).
+     */
+    public WriteBehindStats stats() {
+        return new WriteBehindStats(queue.size(), queueCapacity, submittedRecords.get(), rejectedRecords.get(),
+                writtenRecords.get(), failedRecords.get(), flushCount.get(),
+                lastFlushNanos.get(), maxFlushNanos.get(), totalFlushNanos.get());
+    }
+
+    /**
+     * @return Der letzte Fehler beim Schreiben eines Batches oder null.
+     */
+    public SQLException lastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Nimmt keine neuen Datensätze mehr an, schreibt alle wartenden Datensätze und schließt danach den Speicher.
+     * Wartet dafür auf Aufrufe von {@link #submit(CalculationRecord)}, die gerade auf einen freien Platz warten; der
+     * Hintergrund-Thread schreibt bis dahin weiter.
+     * @throws SQLException falls das Schließen des Speichers fehlschlägt.
+     */
+    @Override
+    public void close() throws SQLException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Rest, falls der Hintergrund-Thread unterbrochen wurde; ebenfalls in Batches von höchstens maxBatchSize
+        List<CalculationRecord> remaining = new ArrayList<>(maxBatchSize);
+        while (queue.drainTo(remaining, maxBatchSize) > 0) {
+            flush(remaining);
+            remaining.clear();
+        }
+        store.close();
+    }
+}
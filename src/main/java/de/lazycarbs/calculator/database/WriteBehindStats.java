@@ -0,0 +1,21 @@
+package de.lazycarbs.calculator.database;
+
+/**
+ * Momentaufnahme der Zähler des {@link WriteBehindCalculationWriter}.
+ */
+public record WriteBehindStats(int queueDepth, int queueCapacity, long submittedRecords, long rejectedRecords,
+                               long writtenRecords, long failedRecords, long flushCount,
+                               long lastFlushNanos, long maxFlushNanos, long totalFlushNanos) {
+
+    public double averageFlushMillis() {
+        return flushCount == 0 ? 0.0 : totalFlushNanos / (double) flushCount / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Warteschlange: %d/%d, eingereiht: %d, abgelehnt: %d, geschrieben: %d, fehlgeschlagen: %d, "
+                        + "Flushes: %d (Ø %.2f ms, max %.2f ms)",
+                queueDepth, queueCapacity, submittedRecords, rejectedRecords, writtenRecords, failedRecords,
+                flushCount, averageFlushMillis(), maxFlushNanos / 1_000_000.0);
+    }
+}
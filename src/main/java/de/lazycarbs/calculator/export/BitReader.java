@@ -0,0 +1,57 @@
+package de.lazycarbs.calculator.export;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Liest Bitfolgen (höchstwertiges Bit zuerst) direkt aus einem Puffer, z.B. einem per Memory-Mapping eingeblendeten
+ * Block, ohne ihn zu kopieren. Der Puffer muss hinter den gelesenen Bits noch mindestens 9 Byte enthalten
+ * (jeder Block endet mit {@link ColumnarHistoryWriter#BLOCK_PADDING} Null-Bytes).
+ */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+    private long bitPosition;
+
+    /**
+     * @param buffer Puffer in Big-Endian-Reihenfolge.
+     * @param byteOffset Position des ersten Bits.
+     */
+    BitReader(ByteBuffer buffer, int byteOffset) {
+        this.buffer = buffer;
+        this.bitPosition = (long) byteOffset << 3;
+    }
+
+    boolean readBit() {
+        int index = (int) (bitPosition >>> 3);
+        int shift = 7 - (int) (bitPosition & 7);
+        bitPosition++;
+        return ((buffer.get(index) >>> shift) & 1) != 0;
+    }
+
+    /**
+     * @param count 0 bis 64.
+     * @return Die nächsten count Bits als nicht negative Zahl (bei 64 Bits das volle Bitmuster).
+     */
+    long readBits(int count) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) (bitPosition >>> 3);
+        int shift = (int) (bitPosition & 7);
+        bitPosition += count;
+        long word = buffer.getLong(index) << shift;
+        if (shift + count <= 64) {
+            return word >>> (64 - count);
+        }
+        // die letzten Bits liegen im neunten Byte
+        int extra = shift + count - 64;
+        return (word >>> (64 - count)) | ((buffer.get(index + 8) & 0xFF) >>> (8 - extra));
+    }
+
+    /**
+     * @return Die nächsten count Bits als Zahl im Zweierkomplement.
+     */
+    long readSigned(int count) {
+        return readBits(count) << (64 - count) >> (64 - count);
+    }
+}
@@ -0,0 +1,98 @@
+package de.lazycarbs.calculator.export;
+
+import java.util.Arrays;
+
+/**
+ * Schreibt einzelne Bits bzw. Bitfolgen (höchstwertiges Bit zuerst) in einen wachsenden Puffer.
+ * Wird pro Block wiederverwendet ({@link #reset()}).
+ */
+final class BitWriter {
+
+    private byte[] bytes = new byte[1 << 16];
+    private int size;
+    private long pending; // linksbündig gesammelte Bits
+    private int pendingBits;
+
+    void reset() {
+        size = 0;
+        pending = 0;
+        pendingBits = 0;
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Schreibt die niederwertigsten count Bits von value.
+     * @param count 0 bis 64.
+     */
+    void writeBits(long value, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (count < 64) {
+            value &= (1L << count) - 1;
+        }
+        int free = 64 - pendingBits;
+        if (count <= free) {
+            pending |= value << (free - count);
+            pendingBits += count;
+            if (pendingBits == 64) {
+                flushPending();
+            }
+        } else {
+            int low = count - free;
+            pending |= value >>> low;
+            pendingBits = 64;
+            flushPending();
+            pending = value << (64 - low);
+            pendingBits = low;
+        }
+    }
+
+    /**
+     * Füllt das angefangene Byte mit Nullen auf.
+     * @return Anzahl der bisher geschriebenen Bytes (Beginn der nächsten Spalte).
+     */
+    int alignToByte() {
+        int pendingBytes = (pendingBits + 7) >>> 3;
+        ensureCapacity(pendingBytes);
+        for (int i = 0; i < pendingBytes; i++) {
+            bytes[size++] = (byte) (pending >>> (56 - 8 * i));
+        }
+        pending = 0;
+        pendingBits = 0;
+        return size;
+    }
+
+    void writeZeroBytes(int count) {
+        alignToByte();
+        ensureCapacity(count);
+        Arrays.fill(bytes, size, size + count, (byte) 0);
+        size += count;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void flushPending() {
+        ensureCapacity(Long.BYTES);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (pending >>> shift);
+        }
+        pending = 0;
+        pendingBits = 0;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+        }
+    }
+}
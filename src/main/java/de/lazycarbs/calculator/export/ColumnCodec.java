@@ -0,0 +1,193 @@
+package de.lazycarbs.calculator.export;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Kodierung und Dekodierung einer Spalte innerhalb eines Blocks (siehe {@link HistoryColumn.Encoding}).
+ */
+final class ColumnCodec {
+
+    // Bitbreiten der Delta-of-Delta-Stufen nach den Präfixen 10, 110, 1110; 1111 leitet 64 Bit ein
+    private static final int[] DELTA_OF_DELTA_BITS = {7, 16, 32};
+
+    private ColumnCodec() {
+    }
+
+    /**
+     * Erster Wert mit 64 Bit, danach pro Wert die Änderung der Differenz zum Vorgänger:
+     * "0" für keine Änderung, sonst ein Präfix für die Bitbreite (7, 16, 32 oder 64 Bit) und der Wert.
+     */
+    static void encodeDeltaOfDelta(BitWriter writer, long[] values, int count) {
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                writer.writeBits(values[0], 64);
+                previous = values[0];
+                continue;
+            }
+            long delta = values[i] - previous;
+            long deltaOfDelta = delta - previousDelta;
+            previous = values[i];
+            previousDelta = delta;
+            if (deltaOfDelta == 0) {
+                writer.writeBit(false);
+                continue;
+            }
+            int level = 0;
+            while (level < DELTA_OF_DELTA_BITS.length && !fitsSigned(deltaOfDelta, DELTA_OF_DELTA_BITS[level])) {
+                level++;
+            }
+            // Präfix: level + 1 Einsen, bei den ersten drei Stufen gefolgt von einer Null
+            writer.writeBits(level < DELTA_OF_DELTA_BITS.length ? ((1L << (level + 2)) - 2) : 0b1111,
+                    level < DELTA_OF_DELTA_BITS.length ? level + 2 : 4);
+            writer.writeBits(deltaOfDelta, level < DELTA_OF_DELTA_BITS.length ? DELTA_OF_DELTA_BITS[level] : 64);
+        }
+    }
+
+    static void decodeDeltaOfDelta(BitReader reader, long[] values, int count) {
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                previous = reader.readBits(64);
+                values[0] = previous;
+                continue;
+            }
+            long deltaOfDelta = 0;
+            if (reader.readBit()) {
+                int level = 0;
+                while (level < DELTA_OF_DELTA_BITS.length && reader.readBit()) {
+                    level++;
+                }
+                deltaOfDelta = level < DELTA_OF_DELTA_BITS.length
+                        ? reader.readSigned(DELTA_OF_DELTA_BITS[level]) : reader.readBits(64);
+            }
+            previousDelta += deltaOfDelta;
+            previous += previousDelta;
+            values[i] = previous;
+        }
+    }
+
+    private static boolean fitsSigned(long value, int bits) {
+        return value >= -(1L << (bits - 1)) && value < (1L << (bits - 1));
+    }
+
+    /**
+     * Gorilla-Kodierung: erster Wert mit 64 Bit, danach das XOR mit dem Vorgänger. "0" für denselben Wert,
+     * "10" + die signifikanten Bits, wenn sie in das Fenster (führende/folgende Nullen) des Vorgängers passen,
+     * sonst "11" + 5 Bit führende Nullen + 6 Bit Länge - 1 + die signifikanten Bits.
+     */
+    static void encodeXor(BitWriter writer, double[] values, int count) {
+        long previous = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 0; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            if (i == 0) {
+                writer.writeBits(bits, 64);
+                previous = bits;
+                continue;
+            }
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                writer.writeBit(false);
+                continue;
+            }
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                writer.writeBits(0b10, 2);
+                writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int length = 64 - leading - trailing;
+                writer.writeBits(0b11, 2);
+                writer.writeBits(leading, 5);
+                writer.writeBits(length - 1, 6);
+                writer.writeBits(xor >>> trailing, length);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    static void decodeXor(BitReader reader, double[] values, int count) {
+        long previous = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                previous = reader.readBits(64);
+            } else if (reader.readBit()) {
+                if (reader.readBit()) {
+                    leading = (int) reader.readBits(5);
+                    int length = (int) reader.readBits(6) + 1;
+                    trailing = 64 - leading - length;
+                }
+                previous ^= reader.readBits(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+    }
+
+    /**
+     * Frame of Reference: jeder Wert als Abstand zum Minimum des Blocks mit der Bitbreite des Wertebereichs
+     * (0 Bit, wenn alle Werte gleich sind).
+     */
+    static void encodePacked(BitWriter writer, int[] values, int count, long min, long max) {
+        int width = packedWidth(min, max);
+        for (int i = 0; i < count; i++) {
+            writer.writeBits(values[i] - min, width);
+        }
+    }
+
+    static void decodePacked(BitReader reader, int[] values, int count, long min, long max) {
+        int width = packedWidth(min, max);
+        for (int i = 0; i < count; i++) {
+            values[i] = (int) (min + reader.readBits(width));
+        }
+    }
+
+    static int packedWidth(long min, long max) {
+        return 64 - Long.numberOfLeadingZeros(max - min);
+    }
+
+    /**
+     * Nur die abweichenden Texte: Anzahl (32 Bit), danach je Zeile (32 Bit), Länge in Byte (32 Bit) und UTF-8-Bytes.
+     * @param texts null, wenn der Text dem neu erzeugten entspricht.
+     */
+    static void encodeTextExceptions(BitWriter writer, String[] texts, int count) {
+        int exceptions = 0;
+        for (int i = 0; i < count; i++) {
+            if (texts[i] != null) {
+                exceptions++;
+            }
+        }
+        writer.writeBits(exceptions, 32);
+        for (int i = 0; i < count; i++) {
+            if (texts[i] != null) {
+                byte[] utf8 = texts[i].getBytes(StandardCharsets.UTF_8);
+                writer.writeBits(i, 32);
+                writer.writeBits(utf8.length, 32);
+                for (byte b : utf8) {
+                    writer.writeBits(b, 8);
+                }
+            }
+        }
+    }
+
+    static void decodeTextExceptions(BitReader reader, String[] texts, int count) {
+        Arrays.fill(texts, 0, count, null);
+        int exceptions = (int) reader.readBits(32);
+        for (int e = 0; e < exceptions; e++) {
+            int row = (int) reader.readBits(32);
+            byte[] utf8 = new byte[(int) reader.readBits(32)];
+            for (int i = 0; i < utf8.length; i++) {
+                utf8[i] = (byte) reader.readBits(8);
+            }
+            texts[row] = new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+}
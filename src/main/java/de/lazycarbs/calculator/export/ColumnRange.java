@@ -0,0 +1,67 @@
+package de.lazycarbs.calculator.export;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Wertebereich einer Spalte für {@link ColumnarHistoryReader#scan}: min &lt;= Wert &lt;= max.
+ * Zeitstempel werden in Mikrosekunden angegeben (siehe {@link ColumnarHistoryBlock}).
+ */
+public record ColumnRange(HistoryColumn column, double min, double max) {
+
+    public ColumnRange {
+        if (!column.hasRange()) {
+            throw new IllegalArgumentException("Für die Spalte " + column.columnName() + " gibt es keinen Wertebereich.");
+        }
+    }
+
+    /**
+     * Liest einen Bereich der Form "spalte=min..max"; eine leere Grenze ist offen (z.B. "final_correct_bolus=5..").
+     * Für "timestamp" sind auch Zeitpunkte wie "2024-01-01T00:00" erlaubt.
+     * @throws IllegalArgumentException wenn der Bereich nicht gelesen werden kann.
+     */
+    public static ColumnRange parse(String text) {
+        int equals = text.indexOf('=');
+        int dots = text.indexOf("..", equals + 1);
+        if (equals < 0 || dots < 0) {
+            throw new IllegalArgumentException("Ungültiger Bereich: " + text + " (erwartet: spalte=min..max)");
+        }
+        HistoryColumn column = HistoryColumn.fromName(text.substring(0, equals).trim());
+        return new ColumnRange(column, bound(column, text.substring(equals + 1, dots).trim(), Double.NEGATIVE_INFINITY),
+                bound(column, text.substring(dots + 2).trim(), Double.POSITIVE_INFINITY));
+    }
+
+    private static double bound(HistoryColumn column, String value, double open) {
+        if (value.isEmpty()) {
+            return open;
+        }
+        try {
+            if (column == HistoryColumn.TIMESTAMP && value.indexOf('T') > 0) {
+                return ColumnarHistoryBlock.toMicros(LocalDateTime.parse(value));
+            }
+            return Double.parseDouble(value);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Ungültige Grenze für " + column.columnName() + ": " + value);
+        }
+    }
+
+    /**
+     * @return false, wenn der Block laut Index keine Zeile in diesem Bereich enthalten kann.
+     */
+    boolean overlaps(ColumnarBlockIndex index) {
+        return index.max(column) >= min && index.min(column) <= max;
+    }
+
+    /**
+     * @return true, wenn der Wert der Zeile im Bereich liegt (NaN nie).
+     */
+    public boolean matches(ColumnarHistoryBlock block, int row) {
+        double value = block.value(column, row);
+        return value >= min && value <= max;
+    }
+
+    @Override
+    public String toString() {
+        return column.columnName() + "=" + (Double.isInfinite(min) ? "" : min) + ".." + (Double.isInfinite(max) ? "" : max);
+    }
+}
@@ -0,0 +1,25 @@
+package de.lazycarbs.calculator.export;
+
+/**
+ * Eintrag im Block-Index der Exportdatei.
+ * @param offset Position des Blocks in der Datei.
+ * @param length Länge des Blocks in Byte (einschließlich der Null-Bytes am Ende).
+ * @param rows Anzahl der Zeilen im Block.
+ * @param columnOffsets Beginn jeder Spalte relativ zum Block, Index = {@link HistoryColumn#ordinal()}.
+ * @param min Kleinster Wert jeder Spalte (ohne NaN; +Inf, wenn es keinen gibt).
+ * @param max Größter Wert jeder Spalte (ohne NaN; -Inf, wenn es keinen gibt).
+ */
+record ColumnarBlockIndex(long offset, int length, int rows, int[] columnOffsets, double[] min, double[] max) {
+
+    int columnOffset(HistoryColumn column) {
+        return columnOffsets[column.ordinal()];
+    }
+
+    double min(HistoryColumn column) {
+        return min[column.ordinal()];
+    }
+
+    double max(HistoryColumn column) {
+        return max[column.ordinal()];
+    }
+}
@@ -0,0 +1,225 @@
+package de.lazycarbs.calculator.export;
+
+import de.lazycarbs.calculator.analytics.JdbcHistorySource;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.journal.CalculationJournalReader;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Kommandozeilen-Einstieg für den spaltenorientierten Export der Berechnungshistorie:
+ * <pre>
+ * java -jar lazycarbs.jar --export-columnar DATEI [--journal DIR] [--fetch-size 1000] [--block-rows 8192]
+ * java -jar lazycarbs.jar --scan-columnar DATEI [--columns spalte,spalte] [--where spalte=min..max]...
+ * </pre>
+ * "--export-columnar" schreibt alle Datensätze der MySQL-Datenbank (Passwort aus DB_PASSWORD) bzw. mit "--journal"
+ * des lokalen Journals in DATEI (siehe {@link ColumnarHistoryWriter}). "--scan-columnar" liest die Datei und gibt pro
+ * Spalte Anzahl, Minimum, Mittelwert und Maximum sowie die Verteilung der Methoden über alle Zeilen aus, die alle
+ * "--where"-Bereiche erfüllen; ohne "--columns" werden alle Zahlenspalten ausgewertet.
+ */
+public final class ColumnarExportCommand {
+
+    private static final String SELECT_SQL;
+
+    static {
+        StringJoiner columns = new StringJoiner(", ");
+        for (HistoryColumn column : HistoryColumn.ALL) {
+            columns.add(column.columnName());
+        }
+        // Spaltenindex im ResultSet = ordinal() + 1
+        SELECT_SQL = "SELECT " + columns + " FROM calculations ORDER BY id";
+    }
+
+    private ColumnarExportCommand() {
+    }
+
+    public static void export(String[] args) throws IOException, SQLException {
+        Path file = Path.of(CommandLineOptions.valueOf(args, "--export-columnar", null));
+        String journalDirectory = CommandLineOptions.valueOf(args, "--journal", null);
+        int blockRows = CommandLineOptions.intValueOf(args, "--block-rows", ColumnarHistoryWriter.DEFAULT_BLOCK_ROWS);
+
+        long start = System.nanoTime();
+        ColumnarHistoryWriter writer = new ColumnarHistoryWriter(file, blockRows);
+        try (writer) {
+            if (journalDirectory != null) {
+                exportJournal(Path.of(journalDirectory), writer);
+            } else {
+                exportDatabase(args, writer);
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long size = Files.size(file);
+        System.out.printf("Exportiert: %d Datensätze nach %s in %d ms%n", writer.rowCount(), file, elapsedMillis);
+        System.out.printf("Dateigröße: %d Byte (%.1f Byte pro Datensatz)%n", size,
+                writer.rowCount() > 0 ? (double) size / writer.rowCount() : 0.0);
+    }
+
+    private static void exportJournal(Path directory, ColumnarHistoryWriter writer) throws IOException {
+        // Positionen wie in JournalHistorySource: Sequenznummern ab 0
+        long[] position = {0};
+        try {
+            new CalculationJournalReader(directory).forEach(0, true, calculationRecord -> {
+                try {
+                    writer.append(position[0]++, calculationRecord);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void exportDatabase(String[] args, ColumnarHistoryWriter writer) throws IOException, SQLException {
+        int fetchSize = CommandLineOptions.intValueOf(args, "--fetch-size", JdbcHistorySource.DEFAULT_FETCH_SIZE);
+        String dbPassword = System.getenv("DB_PASSWORD");
+        if (dbPassword == null || dbPassword.isEmpty()) {
+            throw new IllegalArgumentException("Der Export der Datenbank benötigt die Umgebungsvariable 'DB_PASSWORD' "
+                    + "(oder --journal DIR für das lokale Journal).");
+        }
+        String url = JdbcHistorySource.withCursorFetch(DatabaseManager.DEFAULT_DB_URL);
+        try (Connection connection = DriverManager.getConnection(url, DatabaseManager.DEFAULT_DB_USER, dbPassword)) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false); // manche Treiber (z.B. PostgreSQL) nutzen Cursor nur in einer Transaktion
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        writer.append(resultSet.getLong(1), readRecord(resultSet));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    // Spalten in der Reihenfolge von HistoryColumn, ab Index 2 (Index 1 ist die ID)
+    private static CalculationRecord readRecord(ResultSet resultSet) throws SQLException {
+        return new CalculationRecord(resultSet.getTimestamp(2).toLocalDateTime(), resultSet.getDouble(3),
+                resultSet.getDouble(4), resultSet.getDouble(5), resultSet.getDouble(6), resultSet.getInt(7),
+                resultSet.getInt(8), resultSet.getDouble(9),
+                new IntermediateBolusFactors(resultSet.getDouble(10), resultSet.getDouble(11), resultSet.getDouble(12),
+                        resultSet.getDouble(13), resultSet.getDouble(14)),
+                resultSet.getString(15), resultSet.getString(16),
+                new MethodResults(resultSet.getDouble(17), resultSet.getDouble(18), resultSet.getDouble(19),
+                        resultSet.getDouble(20), resultSet.getDouble(21)),
+                resultSet.getDouble(22), resultSet.getDouble(23));
+    }
+
+    public static void scan(String[] args) throws IOException {
+        Path file = Path.of(CommandLineOptions.valueOf(args, "--scan-columnar", null));
+        List<ColumnRange> ranges = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--where".equalsIgnoreCase(args[i])) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Option --where benötigt einen Wert.");
+                }
+                ranges.add(ColumnRange.parse(args[++i]));
+            }
+        }
+        Set<HistoryColumn> columns = EnumSet.noneOf(HistoryColumn.class);
+        String columnNames = CommandLineOptions.valueOf(args, "--columns", null);
+        if (columnNames == null) {
+            for (HistoryColumn column : HistoryColumn.ALL) {
+                if (isNumeric(column)) {
+                    columns.add(column);
+                }
+            }
+        } else {
+            for (String name : columnNames.split(",")) {
+                HistoryColumn column = HistoryColumn.fromName(name.strip());
+                if (!isNumeric(column)) {
+                    throw new IllegalArgumentException("Die Spalte " + column.columnName() + " ist keine Zahl.");
+                }
+                columns.add(column);
+            }
+        }
+        HistoryColumn[] selected = columns.toArray(new HistoryColumn[0]);
+        columns.add(HistoryColumn.SELECTED_METHOD_NAME); // Verteilung der Methoden wird immer ausgegeben
+        long[] counts = new long[selected.length];
+        double[] sums = new double[selected.length];
+        double[] min = new double[selected.length];
+        double[] max = new double[selected.length];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        long[] matchingRows = new long[1];
+
+        long start = System.nanoTime();
+        ColumnarScanResult result;
+        List<String> dictionary;
+        long[] methodCounts;
+        try (ColumnarHistoryReader reader = ColumnarHistoryReader.open(file)) {
+            dictionary = reader.dictionary();
+            methodCounts = new long[dictionary.size()];
+            result = reader.scan(columns, ranges, block -> {
+                int[] methodCodes = block.methodCodes();
+                for (int row = 0; row < block.size(); row++) {
+                    if (!matchesAll(ranges, block, row)) {
+                        continue;
+                    }
+                    matchingRows[0]++;
+                    methodCounts[methodCodes[row]]++;
+                    for (int i = 0; i < selected.length; i++) {
+                        double value = block.value(selected[i], row);
+                        if (!Double.isNaN(value)) {
+                            counts[i]++;
+                            sums[i] += value;
+                            min[i] = Math.min(min[i], value);
+                            max[i] = Math.max(max[i], value);
+                        }
+                    }
+                }
+            });
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%-35s %10s %14s %14s %14s%n", "Spalte", "Anzahl", "Minimum", "Mittelwert", "Maximum");
+        for (int i = 0; i < selected.length; i++) {
+            System.out.printf("%-35s %10d %14.4f %14.4f %14.4f%n", selected[i].columnName(), counts[i],
+                    counts[i] > 0 ? min[i] : Double.NaN, counts[i] > 0 ? sums[i] / counts[i] : Double.NaN,
+                    counts[i] > 0 ? max[i] : Double.NaN);
+        }
+        for (int code = 0; code < dictionary.size(); code++) {
+            System.out.printf("%-35s %10d%n", dictionary.get(code), methodCounts[code]);
+        }
+        System.out.printf("%nPassende Zeilen: %d; %s; %d ms%n", matchingRows[0], result, elapsedMillis);
+    }
+
+    // Spalten mit sinnvollen Kennzahlen (ohne Methodencode und Begründungstext)
+    private static boolean isNumeric(HistoryColumn column) {
+        return column.hasRange() && column.encoding() != HistoryColumn.Encoding.DICTIONARY;
+    }
+
+    private static boolean matchesAll(List<ColumnRange> ranges, ColumnarHistoryBlock block, int row) {
+        for (ColumnRange range : ranges) {
+            if (!range.matches(block, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
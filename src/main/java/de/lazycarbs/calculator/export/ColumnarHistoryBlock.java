@@ -0,0 +1,299 @@
+package de.lazycarbs.calculator.export;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.data.MethodSelectionResult;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodACalorieSurplus;
+import de.lazycarbs.calculator.methodstrategy.MethodBSupersize;
+import de.lazycarbs.calculator.methodstrategy.MethodCHighcarb;
+import de.lazycarbs.calculator.methodstrategy.MethodDNocarb;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ein dekodierter Block der Exportdatei in Spaltenform: pro Spalte ein primitives Array, Zeilen 0 bis
+ * {@link #size()} - 1. Beim Lesen werden nur die angeforderten Spalten dekodiert; die Arrays werden für den nächsten
+ * Block wiederverwendet, ein Block darf daher nicht über den Aufruf des Consumers hinaus gehalten werden.
+ * <p>
+ * Zeitstempel werden als Mikrosekunden seit 1970 (UTC-naiv, wie im Journal) gespeichert.
+ */
+public final class ColumnarHistoryBlock {
+
+    // Spalten, aus denen der Begründungstext neu erzeugt wird
+    static final Set<HistoryColumn> EXPLANATION_INPUTS = EnumSet.of(HistoryColumn.SELECTED_METHOD_NAME,
+            HistoryColumn.MEAL_CARBS, HistoryColumn.USUAL_BE_CALORIES, HistoryColumn.BE_SUM, HistoryColumn.BE_CALORIES,
+            HistoryColumn.FAT_PROTEIN_CALORIES);
+
+    // Zustandslose Strategien zum Wiederherstellen des Begründungstextes, Schlüssel = Klassenname
+    private static final Map<String, CalculationStrategy> STRATEGIES = new HashMap<>();
+
+    static {
+        for (CalculationStrategy strategy : new CalculationStrategy[]{new MethodACalorieSurplus(), new MethodBSupersize(),
+                new MethodCHighcarb(), new MethodDNocarb()}) {
+            STRATEGIES.put(strategy.getClass().getSimpleName(), strategy);
+        }
+    }
+
+    private final int capacity;
+    private final long[][] longs = new long[HistoryColumn.ALL.length][];
+    private final double[][] doubles = new double[HistoryColumn.ALL.length][];
+    private final int[][] ints = new int[HistoryColumn.ALL.length][];
+    private String[] explanations;
+    private List<String> dictionary = List.of();
+    private final Set<HistoryColumn> loaded = EnumSet.noneOf(HistoryColumn.class);
+    private int size;
+
+    ColumnarHistoryBlock(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true, wenn die Spalte in diesem Block dekodiert wurde.
+     */
+    public boolean isLoaded(HistoryColumn column) {
+        return loaded.contains(column);
+    }
+
+    /**
+     * @return Die Werte einer Spalte mit Kodierung DELTA_OF_DELTA (Position, Zeitstempel in Mikrosekunden).
+     */
+    public long[] longs(HistoryColumn column) {
+        return checked(column, HistoryColumn.Encoding.DELTA_OF_DELTA, longs[column.ordinal()]);
+    }
+
+    /**
+     * @return Die Werte einer Spalte mit Kodierung XOR_DOUBLE.
+     */
+    public double[] doubles(HistoryColumn column) {
+        return checked(column, HistoryColumn.Encoding.XOR_DOUBLE, doubles[column.ordinal()]);
+    }
+
+    /**
+     * @return Die Werte einer Spalte mit Kodierung PACKED_INT (Stunde, Minute).
+     */
+    public int[] ints(HistoryColumn column) {
+        return checked(column, HistoryColumn.Encoding.PACKED_INT, ints[column.ordinal()]);
+    }
+
+    /**
+     * @return Die Codes der gewählten Methode; den Namen liefert {@link #methodName(int)}.
+     */
+    public int[] methodCodes() {
+        return checked(HistoryColumn.SELECTED_METHOD_NAME, HistoryColumn.Encoding.DICTIONARY,
+                ints[HistoryColumn.SELECTED_METHOD_NAME.ordinal()]);
+    }
+
+    private <T> T checked(HistoryColumn column, HistoryColumn.Encoding encoding, T values) {
+        if (column.encoding() != encoding) {
+            throw new IllegalArgumentException("Die Spalte " + column.columnName() + " hat die Kodierung " + column.encoding());
+        }
+        if (!loaded.contains(column)) {
+            throw new IllegalStateException("Die Spalte " + column.columnName() + " wurde nicht gelesen.");
+        }
+        return values;
+    }
+
+    /**
+     * @return Der Wert einer Zeile als Zahl, wie er für Bereiche und den Block-Index verwendet wird
+     * (bei der gewählten Methode der Code im Wörterbuch).
+     */
+    public double value(HistoryColumn column, int row) {
+        return switch (column.encoding()) {
+            case DELTA_OF_DELTA -> longs(column)[row];
+            case XOR_DOUBLE -> doubles(column)[row];
+            case PACKED_INT -> ints(column)[row];
+            case DICTIONARY -> methodCodes()[row];
+            case TEXT_EXCEPTIONS -> throw new IllegalArgumentException("Die Spalte " + column.columnName() + " ist keine Zahl.");
+        };
+    }
+
+    public LocalDateTime timestamp(int row) {
+        return fromMicros(longs(HistoryColumn.TIMESTAMP)[row]);
+    }
+
+    public String methodName(int row) {
+        return dictionary.get(methodCodes()[row]);
+    }
+
+    /**
+     * @return Der gespeicherte Begründungstext, sonst der aus Methode und Zwischenwerten neu erzeugte.
+     */
+    public String explanation(int row) {
+        checked(HistoryColumn.METHOD_EXPLANATION, HistoryColumn.Encoding.TEXT_EXCEPTIONS, explanations);
+        if (explanations[row] != null) {
+            return explanations[row];
+        }
+        return regenerateExplanation(methodName(row), doubles(HistoryColumn.MEAL_CARBS)[row],
+                doubles(HistoryColumn.USUAL_BE_CALORIES)[row], doubles(HistoryColumn.BE_SUM)[row],
+                doubles(HistoryColumn.BE_CALORIES)[row], doubles(HistoryColumn.FAT_PROTEIN_CALORIES)[row]);
+    }
+
+    /**
+     * Setzt eine Zeile wieder zu einem vollständigen Datensatz zusammen; dafür müssen alle Spalten gelesen worden sein.
+     */
+    public CalculationRecord record(int row) {
+        return new CalculationRecord(timestamp(row), doubles(HistoryColumn.MEAL_CARBS)[row],
+                doubles(HistoryColumn.MEAL_CALORIES)[row], doubles(HistoryColumn.USUAL_BE_CALORIES)[row],
+                doubles(HistoryColumn.INSULIN_TYPE_CALORIE_COVERING)[row], ints(HistoryColumn.CURRENT_HOUR)[row],
+                ints(HistoryColumn.CURRENT_MINUTE)[row], doubles(HistoryColumn.USUAL_BOLUS_FACTOR)[row],
+                new IntermediateBolusFactors(doubles(HistoryColumn.LEAN_BE_FACTOR)[row],
+                        doubles(HistoryColumn.PURE_CARB_BE_FACTOR)[row], doubles(HistoryColumn.BE_SUM)[row],
+                        doubles(HistoryColumn.BE_CALORIES)[row], doubles(HistoryColumn.FAT_PROTEIN_CALORIES)[row]),
+                methodName(row), explanation(row),
+                new MethodResults(doubles(HistoryColumn.CORRECT_BE_FACTOR)[row], doubles(HistoryColumn.CALORIE_SURPLUS)[row],
+                        doubles(HistoryColumn.DELAYED_CALORIE_BOLUS)[row], doubles(HistoryColumn.CORRECT_BOLUS_SUM)[row],
+                        doubles(HistoryColumn.METHOD_FAT_PROTEIN_CALORIES)[row]),
+                doubles(HistoryColumn.MOVEMENT_FACTOR)[row], doubles(HistoryColumn.FINAL_CORRECT_BOLUS)[row]);
+    }
+
+    // Schreiben: eine Zeile anhängen (alle Spalten), die Methode bereits als Code im Wörterbuch der Datei
+    void append(long position, CalculationRecord calculationRecord, int methodCode) {
+        if (size == 0 && loaded.size() < HistoryColumn.ALL.length) {
+            for (HistoryColumn column : HistoryColumn.ALL) {
+                allocate(column);
+            }
+        }
+        IntermediateBolusFactors intermediateBolusFactors = calculationRecord.intermediateBolusFactors();
+        MethodResults methodResults = calculationRecord.methodResults();
+        int row = size++;
+        longs[HistoryColumn.POSITION.ordinal()][row] = position;
+        longs[HistoryColumn.TIMESTAMP.ordinal()][row] = toMicros(calculationRecord.timestamp());
+        doubles[HistoryColumn.MEAL_CARBS.ordinal()][row] = calculationRecord.mealCarbs();
+        doubles[HistoryColumn.MEAL_CALORIES.ordinal()][row] = calculationRecord.mealCalories();
+        doubles[HistoryColumn.USUAL_BE_CALORIES.ordinal()][row] = calculationRecord.usualBeCalories();
+        doubles[HistoryColumn.INSULIN_TYPE_CALORIE_COVERING.ordinal()][row] = calculationRecord.insulinTypeCalorieCovering();
+        ints[HistoryColumn.CURRENT_HOUR.ordinal()][row] = calculationRecord.currentHour();
+        ints[HistoryColumn.CURRENT_MINUTE.ordinal()][row] = calculationRecord.currentMinute();
+        doubles[HistoryColumn.USUAL_BOLUS_FACTOR.ordinal()][row] = calculationRecord.usualBolusFactor();
+        doubles[HistoryColumn.LEAN_BE_FACTOR.ordinal()][row] = intermediateBolusFactors.leanBeFactor();
+        doubles[HistoryColumn.PURE_CARB_BE_FACTOR.ordinal()][row] = intermediateBolusFactors.pureCarbBeFactor();
+        doubles[HistoryColumn.BE_SUM.ordinal()][row] = intermediateBolusFactors.beSum();
+        doubles[HistoryColumn.BE_CALORIES.ordinal()][row] = intermediateBolusFactors.beCalories();
+        doubles[HistoryColumn.FAT_PROTEIN_CALORIES.ordinal()][row] = intermediateBolusFactors.fatProteinCalories();
+        ints[HistoryColumn.SELECTED_METHOD_NAME.ordinal()][row] = methodCode;
+        doubles[HistoryColumn.CORRECT_BE_FACTOR.ordinal()][row] = methodResults.correctBeFactor();
+        doubles[HistoryColumn.CALORIE_SURPLUS.ordinal()][row] = methodResults.calorieSurplus();
+        doubles[HistoryColumn.DELAYED_CALORIE_BOLUS.ordinal()][row] = methodResults.delayedCalorieBolus();
+        doubles[HistoryColumn.CORRECT_BOLUS_SUM.ordinal()][row] = methodResults.correctBolusSum();
+        doubles[HistoryColumn.METHOD_FAT_PROTEIN_CALORIES.ordinal()][row] = methodResults.fatProteinCalories();
+        doubles[HistoryColumn.MOVEMENT_FACTOR.ordinal()][row] = calculationRecord.movementFactor();
+        doubles[HistoryColumn.FINAL_CORRECT_BOLUS.ordinal()][row] = calculationRecord.finalCorrectBolus();
+
+        // nur Texte speichern, die sich nicht neu erzeugen lassen
+        String explanation = calculationRecord.methodExplanation();
+        String regenerated = regenerateExplanation(calculationRecord.selectedMethodName(), calculationRecord.mealCarbs(),
+                calculationRecord.usualBeCalories(), intermediateBolusFactors.beSum(), intermediateBolusFactors.beCalories(),
+                intermediateBolusFactors.fatProteinCalories());
+        explanations[row] = explanation != null && explanation.equals(regenerated) ? null
+                : explanation != null ? explanation : "";
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    // Schreiben: Minimum und Maximum einer Spalte (NaN wird ignoriert; ohne Zahlen +Inf/-Inf)
+    void range(HistoryColumn column, double[] minMax) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < size; row++) {
+            double value = value(column, row);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (Double.isNaN(min) || Double.isNaN(max)) {
+            // Math.min/max liefern NaN, sobald ein Wert NaN ist: ohne NaN neu bestimmen
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            for (int row = 0; row < size; row++) {
+                double value = value(column, row);
+                if (!Double.isNaN(value)) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+        }
+        minMax[0] = min;
+        minMax[1] = max;
+    }
+
+    void encode(HistoryColumn column, BitWriter writer, double min, double max) {
+        int index = column.ordinal();
+        switch (column.encoding()) {
+            case DELTA_OF_DELTA -> ColumnCodec.encodeDeltaOfDelta(writer, longs[index], size);
+            case XOR_DOUBLE -> ColumnCodec.encodeXor(writer, doubles[index], size);
+            case PACKED_INT, DICTIONARY -> ColumnCodec.encodePacked(writer, ints[index], size, (long) min, (long) max);
+            case TEXT_EXCEPTIONS -> ColumnCodec.encodeTextExceptions(writer, explanations, size);
+        }
+    }
+
+    // Lesen: die angeforderten Spalten eines Blocks dekodieren
+    void load(ByteBuffer buffer, ColumnarBlockIndex index, Set<HistoryColumn> columns, List<String> dictionary) {
+        this.dictionary = dictionary;
+        this.size = index.rows();
+        loaded.clear();
+        for (HistoryColumn column : columns) {
+            allocate(column);
+            BitReader reader = new BitReader(buffer, index.columnOffset(column));
+            int ordinal = column.ordinal();
+            switch (column.encoding()) {
+                case DELTA_OF_DELTA -> ColumnCodec.decodeDeltaOfDelta(reader, longs[ordinal], size);
+                case XOR_DOUBLE -> ColumnCodec.decodeXor(reader, doubles[ordinal], size);
+                case PACKED_INT, DICTIONARY -> ColumnCodec.decodePacked(reader, ints[ordinal], size,
+                        (long) index.min(column), (long) index.max(column));
+                case TEXT_EXCEPTIONS -> ColumnCodec.decodeTextExceptions(reader, explanations, size);
+            }
+        }
+        loaded.addAll(columns);
+    }
+
+    private void allocate(HistoryColumn column) {
+        int index = column.ordinal();
+        switch (column.encoding()) {
+            case DELTA_OF_DELTA -> longs[index] = longs[index] != null ? longs[index] : new long[capacity];
+            case XOR_DOUBLE -> doubles[index] = doubles[index] != null ? doubles[index] : new double[capacity];
+            case PACKED_INT, DICTIONARY -> ints[index] = ints[index] != null ? ints[index] : new int[capacity];
+            case TEXT_EXCEPTIONS -> explanations = explanations != null ? explanations : new String[capacity];
+        }
+        loaded.add(column);
+    }
+
+    /**
+     * @return Der Begründungstext, den die Methode für diese Werte erzeugt, oder null bei einer unbekannten Methode.
+     */
+    static String regenerateExplanation(String methodName, double mealCarbs, double usualBeCalories, double beSum,
+                                        double beCalories, double fatProteinCalories) {
+        CalculationStrategy strategy = STRATEGIES.get(methodName);
+        if (strategy == null) {
+            return null;
+        }
+        return new MethodSelectionResult(strategy, mealCarbs, usualBeCalories, beSum, beCalories, fatProteinCalories)
+                .explanation();
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,184 @@
+package de.lazycarbs.calculator.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Liest eine mit {@link ColumnarHistoryWriter} geschriebene Datei. Die Blöcke werden per Memory-Mapping eingeblendet
+ * und direkt aus dem Page Cache dekodiert, ohne sie vorher zu kopieren; dekodiert werden nur die angeforderten
+ * Spalten und nur Blöcke, die laut Index zu den angegebenen Bereichen passen können.
+ */
+public class ColumnarHistoryReader implements AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+    // ganze Datei, solange sie in einen MappedByteBuffer passt; sonst wird jeder Block einzeln eingeblendet
+    private final MappedByteBuffer mapped;
+    private final int blockRows;
+    private final long rowCount;
+    private final List<String> dictionary;
+    private final List<ColumnarBlockIndex> blocks;
+
+    private ColumnarHistoryReader(Path file, FileChannel channel, MappedByteBuffer mapped, int blockRows, long rowCount,
+                                  List<String> dictionary, List<ColumnarBlockIndex> blocks) {
+        this.file = file;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.blockRows = blockRows;
+        this.rowCount = rowCount;
+        this.dictionary = dictionary;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Öffnet die Datei und liest ihren Index.
+     * @throws IllegalStateException wenn die Datei keine Exportdatei dieser Version ist.
+     */
+    public static ColumnarHistoryReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < ColumnarHistoryWriter.HEADER_SIZE + ColumnarHistoryWriter.TRAILER_SIZE) {
+                throw new IllegalStateException("Keine gültige Exportdatei: " + file);
+            }
+            ByteBuffer header = read(channel, 0, ColumnarHistoryWriter.HEADER_SIZE);
+            ByteBuffer trailer = read(channel, size - ColumnarHistoryWriter.TRAILER_SIZE, ColumnarHistoryWriter.TRAILER_SIZE);
+            if (header.getInt(0) != ColumnarHistoryWriter.MAGIC || trailer.getInt(20) != ColumnarHistoryWriter.MAGIC) {
+                throw new IllegalStateException("Keine gültige Exportdatei: " + file);
+            }
+            if (header.getInt(4) != ColumnarHistoryWriter.VERSION || header.getInt(12) != HistoryColumn.ALL.length) {
+                throw new IllegalStateException("Nicht unterstützte Version der Exportdatei " + file);
+            }
+            int blockRows = header.getInt(8);
+            long indexPosition = trailer.getLong(0);
+            long rowCount = trailer.getLong(8);
+
+            ByteBuffer index = read(channel, indexPosition, (int) (size - ColumnarHistoryWriter.TRAILER_SIZE - indexPosition));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()));
+            int dictionarySize = in.readInt();
+            List<String> dictionary = new ArrayList<>(dictionarySize);
+            for (int i = 0; i < dictionarySize; i++) {
+                dictionary.add(in.readUTF());
+            }
+            int blockCount = in.readInt();
+            List<ColumnarBlockIndex> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                long offset = in.readLong();
+                int length = in.readInt();
+                int rows = in.readInt();
+                int[] columnOffsets = new int[HistoryColumn.ALL.length];
+                double[] min = new double[HistoryColumn.ALL.length];
+                double[] max = new double[HistoryColumn.ALL.length];
+                for (int column = 0; column < HistoryColumn.ALL.length; column++) {
+                    columnOffsets[column] = in.readInt();
+                    min[column] = in.readDouble();
+                    max[column] = in.readDouble();
+                }
+                blocks.add(new ColumnarBlockIndex(offset, length, rows, columnOffsets, min, max));
+            }
+            MappedByteBuffer mapped = indexPosition <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, indexPosition) : null;
+            return new ColumnarHistoryReader(file, channel, mapped, blockRows, rowCount, List.copyOf(dictionary),
+                    List.copyOf(blocks));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unerwartetes Dateiende in der Exportdatei.");
+            }
+        }
+        return buffer.flip();
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * @return Die Methodennamen in der Reihenfolge ihrer Codes.
+     */
+    public List<String> dictionary() {
+        return dictionary;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Liest alle Blöcke, die zu allen Bereichen passende Zeilen enthalten können. Innerhalb eines Blocks wird nicht
+     * gefiltert; dafür gibt es {@link ColumnRange#matches(ColumnarHistoryBlock, int)}.
+     * @param columns Zu dekodierende Spalten; die Spalten der Bereiche und (für den Begründungstext) die Spalten,
+     *                aus denen er erzeugt wird, kommen automatisch hinzu.
+     * @param ranges Bereiche, über die Blöcke übersprungen werden.
+     * @param consumer Erhält jeden gelesenen Block; der Block wird danach wiederverwendet.
+     * @return Anzahl der gelesenen Zeilen und Blöcke.
+     */
+    public ColumnarScanResult scan(Set<HistoryColumn> columns, List<ColumnRange> ranges, Consumer<ColumnarHistoryBlock> consumer)
+            throws IOException {
+        Set<HistoryColumn> decoded = columns.isEmpty() ? EnumSet.noneOf(HistoryColumn.class) : EnumSet.copyOf(columns);
+        for (ColumnRange range : ranges) {
+            decoded.add(range.column());
+        }
+        if (decoded.contains(HistoryColumn.METHOD_EXPLANATION)) {
+            decoded.addAll(ColumnarHistoryBlock.EXPLANATION_INPUTS);
+        }
+        ColumnarHistoryBlock block = new ColumnarHistoryBlock(blockRows);
+        long rows = 0;
+        int blocksRead = 0;
+        int blocksSkipped = 0;
+        for (ColumnarBlockIndex index : blocks) {
+            if (!overlapsAll(index, ranges)) {
+                blocksSkipped++;
+                continue;
+            }
+            block.load(blockBuffer(index), index, decoded, dictionary);
+            consumer.accept(block);
+            rows += index.rows();
+            blocksRead++;
+        }
+        return new ColumnarScanResult(rows, blocksRead, blocksSkipped);
+    }
+
+    private static boolean overlapsAll(ColumnarBlockIndex index, List<ColumnRange> ranges) {
+        for (ColumnRange range : ranges) {
+            if (!range.overlaps(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer blockBuffer(ColumnarBlockIndex index) throws IOException {
+        if (mapped != null) {
+            return mapped.slice((int) index.offset(), index.length());
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, index.offset(), index.length());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,189 @@
+package de.lazycarbs.calculator.export;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schreibt die Berechnungshistorie in ein spaltenorientiertes, komprimiertes Dateiformat. Die Datensätze werden in
+ * Blöcken zu je "blockRows" Zeilen gesammelt; innerhalb eines Blocks steht jede Spalte für sich und ist passend zu
+ * ihren Werten kodiert (siehe {@link HistoryColumn.Encoding}).
+ * <pre>
+ * Kopf (16 Byte):    magic "LCH1" (int) | version (int) | blockRows (int) | Anzahl Spalten (int)
+ * Blöcke:            pro Spalte die kodierten Bits, jeweils auf ganze Bytes aufgefüllt | 16 Null-Bytes
+ * Index:             Wörterbuch (Anzahl, Methodennamen) | Anzahl Blöcke |
+ *                    pro Block: offset (long) | length (int) | rows (int) | pro Spalte: offset (int) | min | max
+ * Ende (24 Byte):    Position des Index (long) | Anzahl Zeilen (long) | version (int) | magic (int)
+ * </pre>
+ * Alle Zahlen in Big-Endian. Über Minimum und Maximum im Index kann {@link ColumnarHistoryReader} Blöcke
+ * überspringen, ohne sie zu lesen. Der Begründungstext wird wie im Journal aus der Methode und den Zwischenwerten
+ * neu erzeugt; gespeichert werden nur abweichende Texte.
+ * <p>
+ * Die Datei entsteht unter einem temporären Namen und wird erst beim {@link #close()} an ihren Platz verschoben.
+ */
+public class ColumnarHistoryWriter implements Closeable {
+
+    public static final int DEFAULT_BLOCK_ROWS = 8192;
+    // Null-Bytes hinter jedem Block, damit BitReader am Blockende 9 Byte auf einmal lesen darf
+    static final int BLOCK_PADDING = 16;
+
+    static final int MAGIC = 0x4C434831; // "LCH1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int TRAILER_SIZE = 24;
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final FileChannel channel;
+    private final ColumnarHistoryBlock block;
+    private final BitWriter writer = new BitWriter();
+    private final Map<String, Integer> methodCodes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private final List<ColumnarBlockIndex> blocks = new ArrayList<>();
+    private final double[] minMax = new double[2];
+    private long filePosition;
+    private long rowCount;
+    private boolean closed;
+
+    /**
+     * @param file Zieldatei; eine vorhandene Datei wird beim Schließen ersetzt.
+     * @param blockRows Zeilen pro Block.
+     * @throws IOException falls die temporäre Datei nicht angelegt werden kann.
+     */
+    public ColumnarHistoryWriter(Path file, int blockRows) throws IOException {
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("Die Blockgröße muss positiv sein.");
+        }
+        this.file = file;
+        this.temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.block = new ColumnarHistoryBlock(blockRows);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(blockRows).putInt(HistoryColumn.ALL.length).flip();
+        write(header);
+    }
+
+    /**
+     * Hängt einen Datensatz an.
+     * @param position Position in der Quelle (Datenbank-ID bzw. Sequenznummer im Journal).
+     */
+    public void append(long position, CalculationRecord calculationRecord) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Die Exportdatei ist bereits geschlossen.");
+        }
+        Integer methodCode = methodCodes.get(calculationRecord.selectedMethodName());
+        if (methodCode == null) {
+            methodCode = dictionary.size();
+            methodCodes.put(calculationRecord.selectedMethodName(), methodCode);
+            dictionary.add(calculationRecord.selectedMethodName());
+        }
+        block.append(position, calculationRecord, methodCode);
+        rowCount++;
+        if (block.isFull()) {
+            flushBlock();
+        }
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    private void flushBlock() throws IOException {
+        int columnCount = HistoryColumn.ALL.length;
+        int[] columnOffsets = new int[columnCount];
+        double[] min = new double[columnCount];
+        double[] max = new double[columnCount];
+        writer.reset();
+        for (HistoryColumn column : HistoryColumn.ALL) {
+            int index = column.ordinal();
+            columnOffsets[index] = writer.alignToByte();
+            min[index] = Double.POSITIVE_INFINITY;
+            max[index] = Double.NEGATIVE_INFINITY;
+            if (column.hasRange()) {
+                block.range(column, minMax);
+                min[index] = minMax[0];
+                max[index] = minMax[1];
+            }
+            block.encode(column, writer, min[index], max[index]);
+        }
+        writer.writeZeroBytes(BLOCK_PADDING);
+        blocks.add(new ColumnarBlockIndex(filePosition, writer.size(), block.size(), columnOffsets, min, max));
+        write(ByteBuffer.wrap(writer.bytes(), 0, writer.size()));
+        block.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            filePosition += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Verwirft den Export (z.B. nach einem Lesefehler der Quelle): die temporäre Datei wird gelöscht, eine vorhandene
+     * Zieldatei bleibt unverändert. Ein anschließendes {@link #close()} tut nichts mehr.
+     */
+    public void abort() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        channel.close();
+        Files.deleteIfExists(temporaryFile);
+    }
+
+    /**
+     * Schreibt den letzten Block und den Index und verschiebt die fertige Datei an ihren Platz.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (channel) {
+            if (block.size() > 0) {
+                flushBlock();
+            }
+            long indexPosition = filePosition;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(dictionary.size());
+            for (String methodName : dictionary) {
+                out.writeUTF(methodName);
+            }
+            out.writeInt(blocks.size());
+            for (ColumnarBlockIndex index : blocks) {
+                out.writeLong(index.offset());
+                out.writeInt(index.length());
+                out.writeInt(index.rows());
+                for (int column = 0; column < HistoryColumn.ALL.length; column++) {
+                    out.writeInt(index.columnOffsets()[column]);
+                    out.writeDouble(index.min()[column]);
+                    out.writeDouble(index.max()[column]);
+                }
+            }
+            out.writeLong(indexPosition);
+            out.writeLong(rowCount);
+            out.writeInt(VERSION);
+            out.writeInt(MAGIC);
+            write(ByteBuffer.wrap(bytes.toByteArray()));
+            channel.force(true);
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
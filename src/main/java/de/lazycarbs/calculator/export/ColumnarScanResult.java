@@ -0,0 +1,15 @@
+package de.lazycarbs.calculator.export;
+
+/**
+ * Ergebnis eines Durchlaufs durch eine Exportdatei.
+ * @param rows Anzahl der Zeilen in den gelesenen Blöcken.
+ * @param blocksRead Anzahl der dekodierten Blöcke.
+ * @param blocksSkipped Anzahl der Blöcke, die laut Block-Index keine passende Zeile enthalten können.
+ */
+public record ColumnarScanResult(long rows, int blocksRead, int blocksSkipped) {
+
+    @Override
+    public String toString() {
+        return "Zeilen gelesen: " + rows + ", Blöcke gelesen: " + blocksRead + ", übersprungen: " + blocksSkipped;
+    }
+}
@@ -0,0 +1,91 @@
+package de.lazycarbs.calculator.export;
+
+/**
+ * Spalten des spaltenorientierten Exports: die 22 Felder der Tabelle "calculations" und die Position des Datensatzes
+ * (Datenbank-ID bzw. Sequenznummer im Journal), jeweils mit ihrer Kodierung (siehe {@link ColumnarHistoryWriter}).
+ */
+public enum HistoryColumn {
+    POSITION("id", Encoding.DELTA_OF_DELTA),
+    TIMESTAMP("timestamp", Encoding.DELTA_OF_DELTA),
+    MEAL_CARBS("meal_carbs", Encoding.XOR_DOUBLE),
+    MEAL_CALORIES("meal_calories", Encoding.XOR_DOUBLE),
+    USUAL_BE_CALORIES("usual_be_calories", Encoding.XOR_DOUBLE),
+    INSULIN_TYPE_CALORIE_COVERING("insulin_type_calorie_covering", Encoding.XOR_DOUBLE),
+    CURRENT_HOUR("current_hour", Encoding.PACKED_INT),
+    CURRENT_MINUTE("current_minute", Encoding.PACKED_INT),
+    USUAL_BOLUS_FACTOR("usual_bolus_factor", Encoding.XOR_DOUBLE),
+    LEAN_BE_FACTOR("intermediate_lean_be_factor", Encoding.XOR_DOUBLE),
+    PURE_CARB_BE_FACTOR("intermediate_pure_carb_be_factor", Encoding.XOR_DOUBLE),
+    BE_SUM("intermediate_be_sum", Encoding.XOR_DOUBLE),
+    BE_CALORIES("intermediate_be_calories", Encoding.XOR_DOUBLE),
+    FAT_PROTEIN_CALORIES("intermediate_fat_protein_calories", Encoding.XOR_DOUBLE),
+    SELECTED_METHOD_NAME("selected_method_name", Encoding.DICTIONARY),
+    METHOD_EXPLANATION("method_explanation", Encoding.TEXT_EXCEPTIONS),
+    CORRECT_BE_FACTOR("method_correct_be_factor", Encoding.XOR_DOUBLE),
+    CALORIE_SURPLUS("method_calorie_surplus", Encoding.XOR_DOUBLE),
+    DELAYED_CALORIE_BOLUS("method_delayed_calorie_bolus", Encoding.XOR_DOUBLE),
+    CORRECT_BOLUS_SUM("method_correct_bolus_sum", Encoding.XOR_DOUBLE),
+    METHOD_FAT_PROTEIN_CALORIES("method_fat_protein_calories", Encoding.XOR_DOUBLE),
+    MOVEMENT_FACTOR("movement_factor", Encoding.XOR_DOUBLE),
+    FINAL_CORRECT_BOLUS("final_correct_bolus", Encoding.XOR_DOUBLE);
+
+    /**
+     * Kodierung einer Spalte innerhalb eines Blocks.
+     * <ul>
+     *     <li>DELTA_OF_DELTA: ganze Zahlen (Mikrosekunden bzw. IDs); gespeichert wird die Änderung der Differenz
+     *     zum Vorgänger, bei gleichmäßigen Abständen ein Bit pro Wert</li>
+     *     <li>XOR_DOUBLE: Gorilla-Kodierung; gespeichert werden nur die Bits, in denen sich ein Wert von seinem
+     *     Vorgänger unterscheidet</li>
+     *     <li>PACKED_INT: kleine ganze Zahlen mit der Bitbreite, die der Wertebereich des Blocks braucht</li>
+     *     <li>DICTIONARY: Code in das Wörterbuch der Datei, gepackt wie PACKED_INT</li>
+     *     <li>TEXT_EXCEPTIONS: nur Texte, die vom neu erzeugten Begründungstext abweichen</li>
+     * </ul>
+     */
+    public enum Encoding {
+        DELTA_OF_DELTA,
+        XOR_DOUBLE,
+        PACKED_INT,
+        DICTIONARY,
+        TEXT_EXCEPTIONS
+    }
+
+    static final HistoryColumn[] ALL = values();
+
+    private final String columnName;
+    private final Encoding encoding;
+
+    HistoryColumn(String columnName, Encoding encoding) {
+        this.columnName = columnName;
+        this.encoding = encoding;
+    }
+
+    /**
+     * @return Der Spaltenname in der Tabelle "calculations".
+     */
+    public String columnName() {
+        return columnName;
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * @return true, wenn der Block-Index Minimum und Maximum der Spalte enthält (alle außer dem Begründungstext).
+     */
+    public boolean hasRange() {
+        return encoding != Encoding.TEXT_EXCEPTIONS;
+    }
+
+    /**
+     * @throws IllegalArgumentException wenn der Spaltenname unbekannt ist.
+     */
+    public static HistoryColumn fromName(String name) {
+        for (HistoryColumn column : ALL) {
+            if (column.columnName.equalsIgnoreCase(name) || column.name().equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Unbekannte Spalte: " + name);
+    }
+}
@@ -0,0 +1,118 @@
+package de.lazycarbs.calculator.input;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Liest Dezimalzahlen direkt aus einem Byte-Puffer, ohne dafür Strings oder Exceptions zu erzeugen.
+ * <p>
+ * Erlaubt sind ein Vorzeichen, Ziffern, ein Dezimaltrenner ('.' oder - falls erlaubt - ',') und ein Exponent
+ * ("1.5e3"). Zahlen mit höchstens 15 signifikanten Ziffern und kleinem Exponenten werden exakt über eine einzige
+ * Gleitkomma-Division bzw. -Multiplikation berechnet und ergeben denselben Wert wie {@link Double#parseDouble};
+ * alle anderen gültigen Zahlen werden an {@link Double#parseDouble} weitergereicht.
+ */
+public final class DecimalParser {
+
+    // 10^0 bis 10^22 sind als double exakt darstellbar
+    private static final double[] POWERS_OF_TEN = new double[23];
+    // Höchstens 15 Ziffern: die Mantisse ist dann sicher kleiner als 2^53 und exakt darstellbar
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int MAX_EXPONENT_DIGITS = 4;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private DecimalParser() {
+    }
+
+    /**
+     * Liest eine Zahl aus {@code buffer[from, to)}. Leerzeichen werden nicht übersprungen.
+     * @param allowDecimalComma true, wenn ',' als Dezimaltrenner erlaubt ist.
+     * @return Die Zahl oder {@link Double#NaN}, wenn der Bereich keine gültige Zahl ist.
+     */
+    public static double parse(byte[] buffer, int from, int to, boolean allowDecimalComma) {
+        int position = from;
+        boolean negative = false;
+        if (position < to && (buffer[position] == '-' || buffer[position] == '+')) {
+            negative = buffer[position] == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        int digits = 0;
+        boolean decimalSeparator = false;
+        for (; position < to; position++) {
+            byte b = buffer[position];
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (decimalSeparator) {
+                    fractionDigits++;
+                }
+                if (mantissa != 0 || b != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits <= MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (b - '0');
+                }
+            } else if ((b == '.' || (b == ',' && allowDecimalComma)) && !decimalSeparator) {
+                decimalSeparator = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        int exponent = 0;
+        int exponentDigits = 0;
+        if (position < to && (buffer[position] == 'e' || buffer[position] == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < to && (buffer[position] == '-' || buffer[position] == '+')) {
+                negativeExponent = buffer[position] == '-';
+                position++;
+            }
+            for (; position < to && buffer[position] >= '0' && buffer[position] <= '9'; position++) {
+                if (++exponentDigits <= MAX_EXPONENT_DIGITS) {
+                    exponent = exponent * 10 + (buffer[position] - '0');
+                }
+            }
+            if (exponentDigits == 0) {
+                return Double.NaN;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (position != to) {
+            return Double.NaN;
+        }
+
+        if (significantDigits > MAX_FAST_DIGITS || exponentDigits > MAX_EXPONENT_DIGITS) {
+            return parseSlow(buffer, from, to);
+        }
+        int scale = exponent - fractionDigits;
+        double value;
+        if (scale == 0 || mantissa == 0) {
+            value = mantissa;
+        } else if (scale < 0 && scale >= -22) {
+            value = mantissa / POWERS_OF_TEN[-scale];
+        } else if (scale > 0 && scale <= 22) {
+            value = mantissa * POWERS_OF_TEN[scale];
+        } else {
+            return parseSlow(buffer, from, to);
+        }
+        return negative ? -value : value;
+    }
+
+    // Seltene Fälle (sehr viele Ziffern, große Exponenten); die Syntax ist bereits geprüft
+    private static double parseSlow(byte[] buffer, int from, int to) {
+        return Double.parseDouble(new String(buffer, from, to - from, StandardCharsets.ISO_8859_1).replace(',', '.'));
+    }
+}
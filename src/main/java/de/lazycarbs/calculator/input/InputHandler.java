@@ -1,23 +1,38 @@
 package de.lazycarbs.calculator.input;
 
-import java.util.InputMismatchException;
-import java.util.Scanner;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
 
+/**
+ * Liest die interaktiven Eingaben als durch Leerraum getrennte Zahlen von stdin.
+ * Statt des regex-basierten Scanners wird byteweise gelesen und über den {@link DecimalParser} umgewandelt:
+ * ungültige Eingaben kosten keine Exception, und "7,5" wird wie "7.5" gelesen - unabhängig vom Locale.
+ */
 public class InputHandler {
 
-    private final Scanner scanner = new Scanner(System.in);
+    private final InputStream in;
+    private byte[] token = new byte[64];
+
+    public InputHandler() {
+        this(System.in);
+    }
+
+    public InputHandler(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
 
     public double readDouble(String prompt) {
         while(true) {
             System.out.print(prompt);
-            try {
-                double value = scanner.nextDouble(); // redundant, option auf nur return scanner.nextDouble();
+            int length = nextToken();
+            double value = DecimalParser.parse(token, 0, length, true);
+            if (Double.isFinite(value)) {
                 return value;
             }
-            catch (InputMismatchException e) {
-                System.out.println("Ungültige Eingabe. Bitte gib eine Zahl ein.");
-                scanner.next();
-            }
+            System.out.println("Ungültige Eingabe. Bitte gib eine Zahl ein.");
         }
     }
 
@@ -25,14 +40,42 @@ public class InputHandler {
     public int readInt(String prompt) {
         while(true) {
             System.out.print(prompt);
-            try {
-                int value = scanner.nextInt();
-                return value;
+            int length = nextToken();
+            double value = DecimalParser.parse(token, 0, length, false);
+            if (value == Math.rint(value) && Math.abs(value) <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            System.out.println("Ungültige Eingabe. Bitte gib eine ganze Zahl ein.");
+        }
+    }
+
+    /**
+     * Liest das nächste durch Leerraum begrenzte Wort in den Puffer token.
+     * @return Länge des Wortes.
+     * @throws NoSuchElementException wenn die Eingabe zu Ende ist (wie beim Scanner).
+     */
+    private int nextToken() {
+        try {
+            int b = in.read();
+            while (b >= 0 && Character.isWhitespace(b)) {
+                b = in.read();
+            }
+            if (b < 0) {
+                throw new NoSuchElementException("Keine weitere Eingabe vorhanden.");
             }
-            catch (InputMismatchException e) {
-                System.out.println("Ungültige Eingabe. Bitte gib eine ganze Zahl ein.");
-                scanner.next();
+            int length = 0;
+            while (b >= 0 && !Character.isWhitespace(b)) {
+                if (length == token.length) {
+                    byte[] larger = new byte[token.length * 2];
+                    System.arraycopy(token, 0, larger, 0, length);
+                    token = larger;
+                }
+                token[length++] = (byte) b;
+                b = in.read();
             }
+            return length;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Eingabe konnte nicht gelesen werden.", e);
         }
     }
 }
@@ -0,0 +1,310 @@
+package de.lazycarbs.calculator.input;
+
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Liest Mahlzeit-Datensätze zeilenweise aus einem Byte-Strom (Datei oder stdin), ohne pro Wert Objekte anzulegen.
+ * <p>
+ * Eine Zeile enthält die sieben Werte in der Reihenfolge der interaktiven Eingabe: Kohlenhydrate, Kalorien, übliche
+ * Kalorien pro BE, Insulin-Typ Kalorienabdeckung, Stunde, Minute, Bewegungs-Faktor. Trennzeichen:
+ * <ul>
+ *     <li>';' - ',' ist dann Dezimaltrenner ("75,6;1266,85;105;200;15;25;0,75")</li>
+ *     <li>Leerzeichen oder Tabulator - ',' ist dann Dezimaltrenner ("7,5 600 120 150 12 30 1"); erkannt, wenn die
+ *     Zeile genau sieben durch Leerraum getrennte Werte (bzw. ohne ',' mehrere) enthält und keiner mit ','
+ *     beginnt oder endet</li>
+ *     <li>sonst ',' - Dezimaltrenner ist dann nur '.' ("75.6,1266.85,105,200,15,25,0.75")</li>
+ * </ul>
+ * Leerzeilen, Kommentare ('#') und eine Kopfzeile (erste Zeile beginnt mit einem Buchstaben) werden übersprungen.
+ * Fehlerhafte Zeilen werden nicht über Exceptions gemeldet: {@link #next()} liefert {@link Status#ERROR} und
+ * {@link #errorMessage()} den Grund. Nur in diesem Fall wird eine Meldung als String erzeugt.
+ * <p>
+ * Die Werte eines Datensatzes gelten bis zum nächsten Aufruf von {@link #next()}. Die Klasse ist nicht thread-sicher.
+ */
+public class MealRecordReader implements Closeable {
+
+    public static final int FIELD_COUNT = 7;
+
+    private static final String[] FIELD_NAMES = {
+            "mealCarbs", "mealCalories", "usualBeCalories", "insulinTypeCalorieCovering",
+            "currentHour", "currentMinute", "movementFactor"
+    };
+    private static final int HOUR_FIELD = 4;
+    private static final int MINUTE_FIELD = 5;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Ergebnis von {@link #next()}.
+     */
+    public enum Status {
+        /** Ein gültiger Datensatz wurde gelesen. */
+        RECORD,
+        /** Die Zeile ist fehlerhaft, siehe {@link #errorMessage()}. */
+        ERROR,
+        /** Das Ende der Eingabe ist erreicht. */
+        END
+    }
+
+    private final InputStream in;
+    private final double[] values = new double[FIELD_COUNT];
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+    private boolean firstRecordLine = true;
+    private long lineNumber;
+    private String errorMessage;
+
+    public MealRecordReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize Anfangsgröße des Puffers; längere Zeilen vergrößern ihn.
+     */
+    public MealRecordReader(InputStream in, int bufferSize) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("Puffergröße muss mindestens 16 Byte betragen.");
+        }
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Liest die nächste Zeile mit einem Datensatz.
+     * @return RECORD, ERROR oder END.
+     * @throws IOException wenn das Lesen fehlschlägt.
+     */
+    public Status next() throws IOException {
+        while (true) {
+            int lineEnd = nextLineEnd();
+            if (lineEnd < 0) {
+                return Status.END;
+            }
+            int start = position;
+            int end = lineEnd;
+            position = lineEnd < limit ? lineEnd + 1 : lineEnd;
+            lineNumber++;
+            if (lineNumber == 1 && end - start >= 3 && buffer[start] == (byte) 0xEF && buffer[start + 1] == (byte) 0xBB
+                    && buffer[start + 2] == (byte) 0xBF) {
+                start += 3; // UTF-8-BOM
+            }
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            start = skipWhitespace(start, end);
+            end = trimWhitespace(start, end);
+            if (start == end || buffer[start] == '#') {
+                continue;
+            }
+            if (firstRecordLine) {
+                firstRecordLine = false;
+                if (Character.isLetter(buffer[start])) {
+                    continue; // Kopfzeile
+                }
+            }
+            long stageStart = PipelineMetrics.start();
+            Status status = parseLine(start, end);
+            PipelineMetrics.record(PipelineStage.INPUT, stageStart);
+            return status;
+        }
+    }
+
+    /**
+     * @return Die Zeilennummer der zuletzt gelesenen Zeile (ab 1).
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return Wert eines Feldes des zuletzt gelesenen Datensatzes (Index in der Reihenfolge der Eingabe).
+     */
+    public double value(int field) {
+        return values[field];
+    }
+
+    /**
+     * @return Der zuletzt gelesene Datensatz; nur nach {@link Status#RECORD} gültig.
+     */
+    public MealInput toMealInput() {
+        return new MealInput(values[0], values[1], values[2], values[3], (int) values[HOUR_FIELD], (int) values[MINUTE_FIELD],
+                values[6]);
+    }
+
+    /**
+     * @return Der Grund für den Fehler der zuletzt gelesenen Zeile; nur nach {@link Status#ERROR} gültig.
+     */
+    public String errorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Status parseLine(int start, int end) {
+        byte separator = separatorOf(start, end);
+        boolean decimalComma = separator != ',';
+        int fields = separator == ' ' ? countTokens(start, end) : count(separator, start, end) + 1;
+        if (fields != FIELD_COUNT) {
+            return error("Erwartet " + FIELD_COUNT + " Werte, gefunden: " + fields);
+        }
+        int fieldStart = start;
+        int field = 0;
+        while (true) {
+            int fieldEnd = separator == ' ' ? nextWhitespace(fieldStart, end) : indexOf(separator, fieldStart, end);
+            int valueStart = skipWhitespace(fieldStart, fieldEnd);
+            int valueEnd = trimWhitespace(valueStart, fieldEnd);
+            double value = DecimalParser.parse(buffer, valueStart, valueEnd, decimalComma);
+            if (!Double.isFinite(value)) {
+                return error(Double.isNaN(value)
+                        ? "Ungültige Zahl für " + FIELD_NAMES[field] + ": \"" + text(valueStart, valueEnd) + "\""
+                        : "Ungültiger Wert für " + FIELD_NAMES[field] + ": " + text(valueStart, valueEnd));
+            }
+            values[field++] = value;
+            if (field == FIELD_COUNT) {
+                break;
+            }
+            fieldStart = separator == ' ' ? skipWhitespace(fieldEnd, end) : fieldEnd + 1;
+        }
+        for (int i = HOUR_FIELD; i <= MINUTE_FIELD; i++) {
+            if (values[i] != Math.rint(values[i])) {
+                return error("Ganze Zahl erwartet für " + FIELD_NAMES[i] + ": " + values[i]);
+            }
+        }
+        if (values[HOUR_FIELD] < 0 || values[HOUR_FIELD] > 23 || values[MINUTE_FIELD] < 0 || values[MINUTE_FIELD] > 59) {
+            return error("Ungültige Uhrzeit. Stunde (0-23), Minute (0-59).");
+        }
+        errorMessage = null;
+        return Status.RECORD;
+    }
+
+    private Status error(String message) {
+        errorMessage = message;
+        return Status.ERROR;
+    }
+
+    /**
+     * Bestimmt das Trennzeichen einer Zeile: ';', ' ' (Leerraum) oder ','.
+     */
+    private byte separatorOf(int start, int end) {
+        if (indexOf((byte) ';', start, end) < end) {
+            return ';';
+        }
+        boolean comma = indexOf((byte) ',', start, end) < end;
+        int tokens = 0;
+        int position = start;
+        while (position < end) {
+            int tokenEnd = nextWhitespace(position, end);
+            if (buffer[position] == ',' || buffer[tokenEnd - 1] == ',') {
+                return ',';
+            }
+            tokens++;
+            position = skipWhitespace(tokenEnd, end);
+        }
+        // ohne ',' sind mehrere Wörter immer durch Leerraum getrennt, mit ',' nur bei genau sieben Werten
+        return tokens == FIELD_COUNT || (!comma && tokens > 1) ? (byte) ' ' : (byte) ',';
+    }
+
+    private int countTokens(int start, int end) {
+        int tokens = 0;
+        for (int position = start; position < end; position = skipWhitespace(nextWhitespace(position, end), end)) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    /**
+     * Sucht das Ende der nächsten Zeile und lädt dafür bei Bedarf nach.
+     * @return Index des '\n' bzw. des Endes der letzten Zeile ohne '\n'; -1 am Ende der Eingabe.
+     */
+    private int nextLineEnd() throws IOException {
+        int scanFrom = position;
+        while (true) {
+            int newline = indexOf((byte) '\n', scanFrom, limit);
+            if (newline < limit) {
+                return newline;
+            }
+            if (endOfStream) {
+                return position < limit ? limit : -1;
+            }
+            scanFrom = limit - position;
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            byte[] larger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, larger, 0, limit);
+            buffer = larger;
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private int indexOf(byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == value) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private int count(byte value, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int nextWhitespace(int from, int to) {
+        while (from < to && !isWhitespace(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private int skipWhitespace(int from, int to) {
+        while (from < to && isWhitespace(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimWhitespace(int from, int to) {
+        while (to > from && isWhitespace(buffer[to - 1])) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private String text(int from, int to) {
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,307 @@
+package de.lazycarbs.calculator.journal;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Lokales, nur anhängendes Journal für Berechnungsdatensätze als Alternative zur MySQL-Datenbank.
+ * <p>
+ * Jeder Datensatz hat eine feste Breite ({@link JournalRecordCodec}) und wird direkt in eine per Memory-Mapping
+ * eingeblendete Segment-Datei geschrieben; ein Speichern kostet daher nur ein paar hundert Nanosekunden und
+ * keinen Systemaufruf. Ist ein Segment voll, wird ein neues angelegt ("calculations-&lt;erste Sequenznummer&gt;.journal").
+ * <p>
+ * Absturzsicherheit: jeder Datensatz trägt eine CRC32C-Prüfsumme, die als Letztes geschrieben wird. Beim Öffnen
+ * wird das letzte Segment bis zum ersten ungültigen Platz gelesen und dort weitergeschrieben; ein beim Absturz
+ * halb geschriebener Datensatz wird so verworfen. Nach einem Prozessabsturz liegen alle fertig geschriebenen
+ * Datensätze im Page-Cache des Betriebssystems; gegen einen Stromausfall schützt erst {@link #sync()}.
+ */
+public class CalculationJournal implements CalculationStore {
+
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 18; // ca. 38 MiB pro Segment
+    // Verzeichnis, das ohne Datenbank-Passwort bzw. ohne Angabe von --journal verwendet wird
+    public static final String DEFAULT_DIRECTORY = "lazycarbs-journal";
+
+    static final String SEGMENT_PREFIX = "calculations-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+    private int segmentRecords;
+    private long recoveredTailRecords;
+    private boolean closed;
+
+    public CalculationJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    /**
+     * Öffnet das Journal im angegebenen Verzeichnis (wird bei Bedarf angelegt) und setzt nach dem letzten
+     * gültigen Datensatz fort.
+     * @param recordsPerSegment Anzahl Datensätze pro Segment-Datei.
+     * @throws IOException falls das Verzeichnis oder ein Segment nicht geöffnet werden kann.
+     */
+    public CalculationJournal(Path directory, int recordsPerSegment) throws IOException {
+        if (recordsPerSegment < 1) {
+            throw new IllegalArgumentException("Ein Segment muss mindestens einen Datensatz aufnehmen können.");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.recordsPerSegment = recordsPerSegment;
+
+        List<Path> segments = segmentFiles(directory);
+        if (segments.isEmpty()) {
+            openNewSegment(0);
+        } else {
+            recoverLastSegment(segments.get(segments.size() - 1));
+        }
+    }
+
+    /**
+     * Hängt einen Datensatz an.
+     * @return Die Sequenznummer des Datensatzes (fortlaufend über alle Segmente).
+     * @throws IOException falls ein neues Segment nicht angelegt werden kann.
+     * @throws IllegalStateException wenn das Journal bereits geschlossen wurde.
+     */
+    public long append(CalculationRecord calculationRecord) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Das Journal ist bereits geschlossen.");
+            }
+            if (segmentRecords == recordsPerSegment) {
+                rollSegment();
+            }
+            JournalRecordCodec.encode(segment, slotOffset(segmentRecords), calculationRecord, crc);
+            return segmentFirstSequence + segmentRecords++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void saveCalculation(CalculationRecord calculationRecord) throws SQLException {
+        long start = PipelineMetrics.start();
+        try {
+            append(calculationRecord);
+            PipelineMetrics.record(PipelineStage.DATABASE_SAVE, start);
+        } catch (IOException e) {
+            throw new SQLException("Journal konnte nicht geschrieben werden: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void saveCalculations(List<CalculationRecord> calculationRecords) throws SQLException {
+        long start = PipelineMetrics.start();
+        lock.lock(); // ganzer Batch am Stück, damit er nicht mit anderen Threads verzahnt wird
+        try {
+            for (CalculationRecord calculationRecord : calculationRecords) {
+                append(calculationRecord);
+            }
+            PipelineMetrics.record(PipelineStage.DATABASE_BATCH_SAVE, start);
+        } catch (IOException e) {
+            throw new SQLException("Journal konnte nicht geschrieben werden: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Die Sequenznummer, die der nächste Datensatz erhält (= Anzahl aller bisher geschriebenen Datensätze).
+     */
+    public long nextSequence() {
+        lock.lock();
+        try {
+            return segmentFirstSequence + segmentRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Anzahl der beim Öffnen verworfenen, unvollständig geschriebenen Datensätze (0 oder 1).
+     */
+    public long recoveredTailRecords() {
+        return recoveredTailRecords;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Schreibt alle Datensätze des aktuellen Segments auf den Datenträger (fsync). Frühere Segmente wurden bereits
+     * beim Wechsel geschrieben. Das fsync selbst läuft außerhalb der Sperre, anhängende Threads warten also nicht darauf.
+     */
+    public void sync() {
+        MappedByteBuffer current;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            current = segment;
+        } finally {
+            lock.unlock();
+        }
+        current.force(); // das Mapping bleibt auch nach einem Segmentwechsel oder close() gültig
+    }
+
+    /**
+     * Löscht alle abgeschlossenen Segmente, deren Datensätze vollständig vor der angegebenen Sequenznummer liegen
+     * (z.B. nachdem sie an anderer Stelle gespeichert wurden). Das aktuelle Segment bleibt immer erhalten.
+     * @return Anzahl der gelöschten Segment-Dateien.
+     * @throws IOException falls ein Segment nicht gelöscht werden kann.
+     */
+    public int deleteSegmentsBefore(long sequence) throws IOException {
+        long currentFirstSequence;
+        lock.lock();
+        try {
+            currentFirstSequence = segmentFirstSequence;
+        } finally {
+            lock.unlock();
+        }
+        List<Path> segments = segmentFiles(directory);
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            long nextFirstSequence = firstSequenceOf(segments.get(i + 1));
+            if (nextFirstSequence > sequence || firstSequenceOf(segments.get(i)) >= currentFirstSequence) {
+                break;
+            }
+            Files.delete(segments.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * @return Größe aller Segment-Dateien in Byte (Segmente werden beim Anlegen in voller Größe reserviert).
+     */
+    public long sizeOnDisk() throws IOException {
+        long bytes = 0;
+        for (Path file : segmentFiles(directory)) {
+            bytes += Files.size(file);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segment.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new SQLException("Journal konnte nicht geschlossen werden: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recoverLastSegment(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long capacity = Math.max(channel.size(), segmentSize());
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        segment.order(JournalRecordCodec.BYTE_ORDER);
+        segmentFirstSequence = JournalRecordCodec.readHeader(segment, file.getFileName().toString());
+
+        // Ein Segment kann mit einer anderen Segmentgröße geschrieben worden sein: die Dateigröße ist maßgeblich
+        int slots = (int) ((capacity - JournalRecordCodec.HEADER_SIZE) / JournalRecordCodec.RECORD_SIZE);
+        int valid = 0;
+        while (valid < slots && JournalRecordCodec.isValid(segment, slotOffset(valid), crc)) {
+            valid++;
+        }
+        if (valid < slots && !isEmptySlot(slotOffset(valid))) {
+            // halb geschriebener Datensatz vom letzten Absturz: Platz leeren, damit er nie gültig erscheint
+            segment.put(slotOffset(valid), new byte[JournalRecordCodec.RECORD_SIZE]);
+            recoveredTailRecords = 1;
+        }
+        segmentRecords = valid;
+        if (valid == slots || valid >= recordsPerSegment) {
+            rollSegment();
+        }
+    }
+
+    private boolean isEmptySlot(int offset) {
+        for (int i = 0; i < JournalRecordCodec.RECORD_SIZE; i += Long.BYTES) {
+            if (segment.getLong(offset + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rollSegment() throws IOException {
+        long nextSequence = segmentFirstSequence + segmentRecords;
+        segment.force();
+        channel.close();
+        openNewSegment(nextSequence);
+    }
+
+    private void openNewSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(segmentFileName(firstSequence));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize());
+        segment.order(JournalRecordCodec.BYTE_ORDER);
+        JournalRecordCodec.writeHeader(segment, firstSequence);
+        segmentFirstSequence = firstSequence;
+        segmentRecords = 0;
+    }
+
+    private long segmentSize() {
+        return JournalRecordCodec.HEADER_SIZE + (long) recordsPerSegment * JournalRecordCodec.RECORD_SIZE;
+    }
+
+    private static int slotOffset(int slot) {
+        return JournalRecordCodec.HEADER_SIZE + slot * JournalRecordCodec.RECORD_SIZE;
+    }
+
+    static String segmentFileName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    static long firstSequenceOf(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @return Alle Segment-Dateien des Verzeichnisses in Schreibreihenfolge.
+     */
+    static List<Path> segmentFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().forEach(segments::add); // Sequenznummern mit führenden Nullen: lexikografisch = numerisch
+            return segments;
+        }
+    }
+}
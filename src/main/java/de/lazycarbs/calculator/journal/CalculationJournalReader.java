@@ -0,0 +1,85 @@
+package de.lazycarbs.calculator.journal;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Liest ein {@link CalculationJournal} sequenziell, Segment für Segment per Memory-Mapping.
+ * <p>
+ * Jedes Segment wird bis zum ersten Platz mit ungültiger Prüfsumme gelesen. Das Lesen ist auch möglich, während
+ * ein anderer Prozess oder Thread noch schreibt: ein gerade entstehender Datensatz ist dann einfach noch nicht sichtbar.
+ */
+public class CalculationJournalReader {
+
+    private final Path directory;
+    private final CRC32C crc = new CRC32C();
+
+    public CalculationJournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Liest alle Datensätze mit Begründungstext.
+     * @return Anzahl der gelesenen Datensätze.
+     */
+    public long forEach(Consumer<CalculationRecord> consumer) throws IOException {
+        return forEach(0, true, consumer);
+    }
+
+    /**
+     * Liest alle Datensätze ab einer Sequenznummer.
+     * @param fromSequence Erste zu lesende Sequenznummer (z.B. für inkrementelle Auswertungen).
+     * @param renderExplanations false, wenn der Begründungstext nicht gebraucht wird (leerer String, deutlich schneller).
+     * @return Anzahl der gelesenen Datensätze.
+     */
+    public long forEach(long fromSequence, boolean renderExplanations, Consumer<CalculationRecord> consumer) throws IOException {
+        return forEach(fromSequence, Long.MAX_VALUE, renderExplanations, consumer);
+    }
+
+    /**
+     * Liest höchstens maxRecords Datensätze ab einer Sequenznummer (z.B. für die Übertragung in Batches).
+     * @return Anzahl der gelesenen Datensätze.
+     */
+    public long forEach(long fromSequence, long maxRecords, boolean renderExplanations, Consumer<CalculationRecord> consumer)
+            throws IOException {
+        List<Path> segments = CalculationJournal.segmentFiles(directory);
+        long count = 0;
+        for (int i = 0; i < segments.size() && count < maxRecords; i++) {
+            if (i + 1 < segments.size() && CalculationJournal.firstSequenceOf(segments.get(i + 1)) <= fromSequence) {
+                continue; // Segment liegt vollständig vor fromSequence
+            }
+            count += readSegment(segments.get(i), fromSequence, maxRecords - count, renderExplanations, consumer);
+        }
+        return count;
+    }
+
+    private long readSegment(Path file, long fromSequence, long maxRecords, boolean renderExplanations,
+                             Consumer<CalculationRecord> consumer) throws IOException {
+        MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // bleibt nach close() gültig
+        }
+        segment.order(JournalRecordCodec.BYTE_ORDER);
+        long firstSequence = JournalRecordCodec.readHeader(segment, file.getFileName().toString());
+        int slots = (segment.capacity() - JournalRecordCodec.HEADER_SIZE) / JournalRecordCodec.RECORD_SIZE;
+
+        long count = 0;
+        for (int slot = (int) Math.max(0, fromSequence - firstSequence); slot < slots && count < maxRecords; slot++) {
+            int offset = JournalRecordCodec.HEADER_SIZE + slot * JournalRecordCodec.RECORD_SIZE;
+            if (!JournalRecordCodec.isValid(segment, offset, crc)) {
+                break;
+            }
+            consumer.accept(JournalRecordCodec.decode(segment, offset, renderExplanations));
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,154 @@
+package de.lazycarbs.calculator.journal;
+
+import de.lazycarbs.calculator.batch.ColumnarMealBatch;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.data.MethodSelectionResult;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodACalorieSurplus;
+import de.lazycarbs.calculator.methodstrategy.MethodBSupersize;
+import de.lazycarbs.calculator.methodstrategy.MethodCHighcarb;
+import de.lazycarbs.calculator.methodstrategy.MethodDNocarb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+/**
+ * Binärformat des Journals: Segment-Kopf und Datensätze fester Breite (Little Endian).
+ * <pre>
+ * Segment-Kopf (32 Byte): magic (int) | version (int) | recordSize (int) | reserviert (int) | firstSequence (long) | reserviert (long)
+ * Datensatz (152 Byte):   timestamp in Mikrosekunden (long) | 17 double-Werte wie in der Tabelle "calculations" |
+ *                         currentHour (byte) | currentMinute (byte) | methodCode (byte) | reserviert (byte) | CRC32C (int)
+ * </pre>
+ * Der Begründungstext wird nicht gespeichert: er lässt sich aus Methode, Kohlenhydraten, üblichen Kalorien pro BE
+ * und den Zwischenfaktoren jederzeit neu erzeugen. Die Prüfsumme deckt alle Bytes davor ab; ein unvollständig
+ * geschriebener oder leerer Platz hat daher nie eine gültige Prüfsumme.
+ */
+final class JournalRecordCodec {
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int MAGIC = 0x314A434C; // "LCJ1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 152;
+
+    private static final int HEADER_FIRST_SEQUENCE = 16;
+    private static final int DOUBLES_OFFSET = 8;
+    private static final int HOUR_OFFSET = DOUBLES_OFFSET + 17 * Double.BYTES;
+    private static final int MINUTE_OFFSET = HOUR_OFFSET + 1;
+    private static final int METHOD_OFFSET = HOUR_OFFSET + 2;
+    private static final int CRC_OFFSET = RECORD_SIZE - Integer.BYTES;
+
+    // Zustandslose Strategien zum Wiederherstellen des Begründungstextes, Index = Methodencode
+    private static final CalculationStrategy[] STRATEGIES = {
+            new MethodACalorieSurplus(), new MethodBSupersize(), new MethodCHighcarb(), new MethodDNocarb()};
+
+    private JournalRecordCodec() {
+    }
+
+    static void writeHeader(ByteBuffer buffer, long firstSequence) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putLong(HEADER_FIRST_SEQUENCE, firstSequence);
+    }
+
+    /**
+     * Prüft den Segment-Kopf.
+     * @return Die Sequenznummer des ersten Datensatzes im Segment.
+     * @throws IllegalStateException wenn die Datei kein Journal-Segment dieser Version ist.
+     */
+    static long readHeader(ByteBuffer buffer, String fileName) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Keine gültige Journal-Datei: " + fileName);
+        }
+        if (buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE) {
+            throw new IllegalStateException("Nicht unterstützte Journal-Version in " + fileName);
+        }
+        return buffer.getLong(HEADER_FIRST_SEQUENCE);
+    }
+
+    static void encode(ByteBuffer buffer, int offset, CalculationRecord calculationRecord, CRC32C crc) {
+        IntermediateBolusFactors intermediateBolusFactors = calculationRecord.intermediateBolusFactors();
+        MethodResults methodResults = calculationRecord.methodResults();
+        LocalDateTime timestamp = calculationRecord.timestamp();
+
+        buffer.putLong(offset, timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000);
+        int position = offset + DOUBLES_OFFSET;
+        buffer.putDouble(position, calculationRecord.mealCarbs());
+        buffer.putDouble(position += 8, calculationRecord.mealCalories());
+        buffer.putDouble(position += 8, calculationRecord.usualBeCalories());
+        buffer.putDouble(position += 8, calculationRecord.insulinTypeCalorieCovering());
+        buffer.putDouble(position += 8, calculationRecord.usualBolusFactor());
+        buffer.putDouble(position += 8, intermediateBolusFactors.leanBeFactor());
+        buffer.putDouble(position += 8, intermediateBolusFactors.pureCarbBeFactor());
+        buffer.putDouble(position += 8, intermediateBolusFactors.beSum());
+        buffer.putDouble(position += 8, intermediateBolusFactors.beCalories());
+        buffer.putDouble(position += 8, intermediateBolusFactors.fatProteinCalories());
+        buffer.putDouble(position += 8, methodResults.correctBeFactor());
+        buffer.putDouble(position += 8, methodResults.calorieSurplus());
+        buffer.putDouble(position += 8, methodResults.delayedCalorieBolus());
+        buffer.putDouble(position += 8, methodResults.correctBolusSum());
+        buffer.putDouble(position += 8, methodResults.fatProteinCalories());
+        buffer.putDouble(position += 8, calculationRecord.movementFactor());
+        buffer.putDouble(position + 8, calculationRecord.finalCorrectBolus());
+        buffer.put(offset + HOUR_OFFSET, (byte) calculationRecord.currentHour());
+        buffer.put(offset + MINUTE_OFFSET, (byte) calculationRecord.currentMinute());
+        buffer.put(offset + METHOD_OFFSET, ColumnarMealBatch.methodCode(calculationRecord.selectedMethodName()));
+        buffer.put(offset + METHOD_OFFSET + 1, (byte) 0);
+        // Prüfsumme zuletzt schreiben: erst mit ihr wird der Datensatz gültig
+        buffer.putInt(offset + CRC_OFFSET, checksum(buffer, offset, crc));
+    }
+
+    static boolean isValid(ByteBuffer buffer, int offset, CRC32C crc) {
+        return buffer.getInt(offset + CRC_OFFSET) == checksum(buffer, offset, crc)
+                && (buffer.get(offset + METHOD_OFFSET) & 0xFF) < STRATEGIES.length;
+    }
+
+    /**
+     * Liest einen (zuvor mit {@link #isValid} geprüften) Datensatz.
+     * @param renderExplanation false, um den Begründungstext auszulassen (leerer String), z.B. für Auswertungen.
+     */
+    static CalculationRecord decode(ByteBuffer buffer, int offset, boolean renderExplanation) {
+        long timestampMicros = buffer.getLong(offset);
+        int position = offset + DOUBLES_OFFSET;
+        double mealCarbs = buffer.getDouble(position);
+        double mealCalories = buffer.getDouble(position += 8);
+        double usualBeCalories = buffer.getDouble(position += 8);
+        double insulinTypeCalorieCovering = buffer.getDouble(position += 8);
+        double usualBolusFactor = buffer.getDouble(position += 8);
+        IntermediateBolusFactors intermediateBolusFactors = new IntermediateBolusFactors(
+                buffer.getDouble(position += 8), buffer.getDouble(position += 8), buffer.getDouble(position += 8),
+                buffer.getDouble(position += 8), buffer.getDouble(position += 8));
+        MethodResults methodResults = new MethodResults(
+                buffer.getDouble(position += 8), buffer.getDouble(position += 8), buffer.getDouble(position += 8),
+                buffer.getDouble(position += 8), buffer.getDouble(position += 8));
+        double movementFactor = buffer.getDouble(position += 8);
+        double finalCorrectBolus = buffer.getDouble(position + 8);
+        int currentHour = buffer.get(offset + HOUR_OFFSET);
+        int currentMinute = buffer.get(offset + MINUTE_OFFSET);
+        byte methodCode = buffer.get(offset + METHOD_OFFSET);
+
+        String explanation = "";
+        if (renderExplanation) {
+            explanation = new MethodSelectionResult(STRATEGIES[methodCode], mealCarbs, usualBeCalories,
+                    intermediateBolusFactors.beSum(), intermediateBolusFactors.beCalories(),
+                    intermediateBolusFactors.fatProteinCalories()).explanation();
+        }
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(Math.floorDiv(timestampMicros, 1_000_000L),
+                (int) Math.floorMod(timestampMicros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+        return new CalculationRecord(timestamp, mealCarbs, mealCalories, usualBeCalories, insulinTypeCalorieCovering,
+                currentHour, currentMinute, usualBolusFactor, intermediateBolusFactors,
+                ColumnarMealBatch.methodName(methodCode), explanation, methodResults, movementFactor, finalCorrectBolus);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, CRC32C crc) {
+        crc.reset();
+        crc.update(buffer.slice(offset, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,65 @@
+package de.lazycarbs.calculator.loadtest;
+
+import de.lazycarbs.calculator.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Vergleich zweier Latenz-Histogramme (z.B. eines gespeicherten Laufs mit dem aktuellen) an den Perzentilen des
+ * Berichts und am Maximum.
+ * @param rows Eine Zeile pro Perzentil, zuletzt das Maximum.
+ */
+public record LatencyComparison(List<Row> rows) {
+
+    /**
+     * @param name z.B. "p99" oder "max".
+     * @param baselineNanos Wert des Vergleichslaufs.
+     * @param currentNanos Wert des aktuellen Laufs.
+     */
+    public record Row(String name, long baselineNanos, long currentNanos) {
+
+        /**
+         * @return Veränderung in Prozent (positiv = langsamer).
+         */
+        public double changePercent() {
+            return baselineNanos == 0 ? 0 : (currentNanos - baselineNanos) * 100.0 / baselineNanos;
+        }
+    }
+
+    public LatencyComparison {
+        rows = List.copyOf(rows);
+    }
+
+    public static LatencyComparison of(LatencyHistogram baseline, LatencyHistogram current) {
+        List<Row> rows = new ArrayList<>();
+        for (double quantile : LoadTestResult.REPORTED_QUANTILES) {
+            rows.add(new Row(LoadTestResult.percentileName(quantile), baseline.percentileNanos(quantile),
+                    current.percentileNanos(quantile)));
+        }
+        rows.add(new Row("max", baseline.maxNanos(), current.maxNanos()));
+        return new LatencyComparison(rows);
+    }
+
+    /**
+     * Das Maximum zählt nicht, weil es von einzelnen Ausreißern (GC, Scheduler) abhängt.
+     * @param maxRegressionPercent Erlaubte Verschlechterung je Perzentil in Prozent.
+     * @return Die Perzentile, die sich stärker verschlechtert haben.
+     */
+    public List<Row> regressions(double maxRegressionPercent) {
+        return rows.stream().filter(row -> !"max".equals(row.name()))
+                .filter(row -> row.changePercent() > maxRegressionPercent).toList();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(256);
+        text.append(String.format(Locale.ROOT, "%-8s %12s %12s %10s%n", "", "Basis µs", "Aktuell µs", "Änderung"));
+        for (Row row : rows) {
+            text.append(String.format(Locale.ROOT, "%-8s %12.2f %12.2f %+9.1f %%%n", row.name(), row.baselineNanos() / 1e3,
+                    row.currentNanos() / 1e3, row.changePercent()));
+        }
+        return text.toString();
+    }
+}
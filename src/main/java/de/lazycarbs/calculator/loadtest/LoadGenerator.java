@@ -0,0 +1,223 @@
+package de.lazycarbs.calculator.loadtest;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.metrics.LatencyHistogram;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Treibt die {@link CalculationPipeline} (und optional einen {@link CalculationStore}) im selben Prozess mit N Threads.
+ * <p>
+ * Mit Zielrate (offene Last) hat jeder Thread einen festen Fahrplan: die k-te Berechnung soll zum Zeitpunkt
+ * Start + k x Abstand beginnen, die Threads sind um einen Bruchteil des Abstands versetzt. Gemessen wird die
+ * Antwortzeit ab dem geplanten Start, nicht ab dem tatsächlichen. Hängt eine Berechnung (z.B. an der Datenbank oder
+ * einer GC-Pause), holt der Thread die verpassten Starts sofort nach und deren Wartezeit geht in die Latenz ein;
+ * so verschweigt der Generator keine Stauzeiten ("coordinated omission"). Liegt ein Thread so weit zurück, dass er
+ * die restlichen Starts aufgibt, gehen auch diese mit ihrer Wartezeit bis zum Aufgeben in die Antwortzeiten ein.
+ * Die reine Bearbeitungszeit ab dem tatsächlichen Start wird getrennt erfasst.
+ * <p>
+ * Ohne Zielrate (geschlossene Last) startet jeder Thread die nächste Berechnung sofort nach der vorigen; das misst
+ * den maximalen Durchsatz, die Latenzen sind dann reine Bearbeitungszeiten.
+ * <p>
+ * Berechnungen in der Aufwärmphase laufen mit, werden aber nicht gezählt.
+ */
+public class LoadGenerator {
+
+    // Vorlauf, damit alle Threads vor dem ersten geplanten Start bereitstehen
+    private static final long START_DELAY_NANOS = 20_000_000;
+
+    private final CalculationPipeline pipeline;
+    private final CalculationStore store;
+    private final MealInput[] meals;
+    private final int threads;
+    private final double targetRate;
+    private final long warmupNanos;
+    private final long durationNanos;
+
+    /**
+     * @param store Speicher, in den jedes Ergebnis synchron geschrieben wird, oder null.
+     * @param targetRate Berechnungen pro Sekunde über alle Threads, 0 für maximalen Durchsatz.
+     */
+    public LoadGenerator(CalculationPipeline pipeline, CalculationStore store, MealInput[] meals, int threads,
+                         double targetRate, long warmupNanos, long durationNanos) {
+        if (meals.length == 0) {
+            throw new IllegalArgumentException("Es wird mindestens eine Mahlzeit benötigt.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Es wird mindestens ein Thread benötigt: " + threads);
+        }
+        if (!(targetRate >= 0) || Double.isInfinite(targetRate)) {
+            throw new IllegalArgumentException("Die Zielrate muss 0 (maximal) oder positiv sein: " + targetRate);
+        }
+        if (warmupNanos < 0 || durationNanos <= 0) {
+            throw new IllegalArgumentException("Die Messdauer muss positiv und die Aufwärmzeit darf nicht negativ sein.");
+        }
+        this.pipeline = pipeline;
+        this.store = store;
+        this.meals = meals.clone();
+        this.threads = threads;
+        this.targetRate = targetRate;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Führt den Lasttest aus und wartet, bis alle Threads fertig sind.
+     */
+    public LoadTestResult run() throws InterruptedException {
+        long start = System.nanoTime() + START_DELAY_NANOS;
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+        // liegt ein Thread so weit zurück, gibt er die restlichen geplanten Starts auf
+        long giveUp = end + durationNanos;
+
+        Worker[] workers = new Worker[threads];
+        Thread[] workerThreads = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i, start, measureStart, end, giveUp);
+            workerThreads[i] = Thread.ofPlatform().name("lazycarbs-load-" + i).start(workers[i]);
+        }
+        for (Thread thread : workerThreads) {
+            thread.join();
+        }
+
+        LatencyHistogram responseTimes = new LatencyHistogram();
+        LatencyHistogram serviceTimes = new LatencyHistogram();
+        long calculations = 0;
+        long errors = 0;
+        long missedStarts = 0;
+        long maxStartDelay = 0;
+        String firstError = null;
+        for (Worker worker : workers) {
+            responseTimes.add(worker.responseTimes);
+            serviceTimes.add(worker.serviceTimes);
+            calculations += worker.calculations;
+            errors += worker.errors;
+            missedStarts += worker.missedStarts;
+            maxStartDelay = Math.max(maxStartDelay, worker.maxStartDelay);
+            if (firstError == null) {
+                firstError = worker.firstError;
+            }
+        }
+        return new LoadTestResult(threads, targetRate, durationNanos, calculations, errors, missedStarts, maxStartDelay,
+                firstError, responseTimes, serviceTimes);
+    }
+
+    private final class Worker implements Runnable {
+
+        private final int index;
+        private final long start;
+        private final long measureStart;
+        private final long end;
+        private final long giveUp;
+        private final LatencyHistogram responseTimes = new LatencyHistogram();
+        private final LatencyHistogram serviceTimes = new LatencyHistogram();
+        private long calculations;
+        private long errors;
+        private long missedStarts;
+        private long maxStartDelay;
+        private String firstError;
+        // verhindert, dass der JIT ungenutzte Ergebnisse wegoptimiert
+        private double checksum;
+
+        Worker(int index, long start, long measureStart, long end, long giveUp) {
+            this.index = index;
+            this.start = start;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.giveUp = giveUp;
+        }
+
+        @Override
+        public void run() {
+            SimulatedCalculationStore.waitFor(start - System.nanoTime());
+            if (targetRate > 0) {
+                runOpenLoad();
+            } else {
+                runClosedLoad();
+            }
+        }
+
+        private void runOpenLoad() {
+            double interval = threads * 1e9 / targetRate;
+            double offset = index * interval / threads;
+            int meal = index % meals.length;
+            for (long k = 0; ; k++) {
+                long intendedStart = start + (long) (offset + k * interval);
+                if (intendedStart >= end) {
+                    return;
+                }
+                long actualStart = System.nanoTime();
+                if (actualStart < intendedStart) {
+                    SimulatedCalculationStore.waitFor(intendedStart - actualStart);
+                    actualStart = System.nanoTime();
+                } else if (actualStart >= giveUp) {
+                    abandonRemainingStarts(actualStart, k, offset, interval);
+                    return;
+                }
+                calculate(meals[meal]);
+                long finish = System.nanoTime();
+                if (intendedStart >= measureStart) {
+                    responseTimes.record(finish - intendedStart);
+                    serviceTimes.record(finish - actualStart);
+                    maxStartDelay = Math.max(maxStartDelay, actualStart - intendedStart);
+                    calculations++;
+                }
+                meal = meal + 1 < meals.length ? meal + 1 : 0;
+            }
+        }
+
+        // Aufgegebene Starts gehen mit ihrer Wartezeit bis zum Aufgeben in die Antwortzeiten ein; sonst sähen Perzentile
+        // und Maximum bei einem Stau besser aus als ohne ihn
+        private void abandonRemainingStarts(long now, long first, double offset, double interval) {
+            for (long k = first; ; k++) {
+                long intendedStart = start + (long) (offset + k * interval);
+                if (intendedStart >= end) {
+                    return;
+                }
+                missedStarts++;
+                if (intendedStart >= measureStart) {
+                    responseTimes.record(now - intendedStart);
+                }
+            }
+        }
+
+        private void runClosedLoad() {
+            int meal = index % meals.length;
+            while (true) {
+                long actualStart = System.nanoTime();
+                if (actualStart >= end) {
+                    return;
+                }
+                calculate(meals[meal]);
+                long finish = System.nanoTime();
+                if (actualStart >= measureStart) {
+                    responseTimes.record(finish - actualStart);
+                    serviceTimes.record(finish - actualStart);
+                    calculations++;
+                }
+                meal = meal + 1 < meals.length ? meal + 1 : 0;
+            }
+        }
+
+        private void calculate(MealInput meal) {
+            try {
+                CalculationResult result = pipeline.calculate(meal);
+                checksum += result.finalCorrectBolus();
+                if (store != null) {
+                    store.saveCalculation(CalculationRecord.of(result, LocalDateTime.now()));
+                }
+            } catch (SQLException | RuntimeException e) {
+                errors++;
+                if (firstError == null) {
+                    firstError = e.getMessage();
+                }
+            }
+        }
+    }
+}
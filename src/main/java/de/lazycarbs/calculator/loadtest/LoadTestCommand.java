@@ -0,0 +1,203 @@
+package de.lazycarbs.calculator.loadtest;
+
+import de.lazycarbs.calculator.batch.MealRecordFormat;
+import de.lazycarbs.calculator.cache.CalculationCache;
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.FixedPointDoseCalculator;
+import de.lazycarbs.calculator.core.MethodRuleFileLoader;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.journal.CalculationJournal;
+import de.lazycarbs.calculator.metrics.LatencyHistogram;
+import de.lazycarbs.calculator.metrics.LatencyHistogramFile;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.outbox.CalculationOutbox;
+import de.lazycarbs.calculator.outbox.OutboxOptions;
+import de.lazycarbs.calculator.profile.ProfileOptions;
+import de.lazycarbs.calculator.profile.ProfileRegistry;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Kommandozeilen-Einstieg für den Lasttest der Berechnung im selben Prozess:
+ * <pre>
+ * java -jar lazycarbs.jar --load-test [--meals synthetic|DATEI] [--meal-count N] [--seed N] [--format csv|jsonl]
+ *                         [--rate N] [--threads N] [--duration S] [--warmup S]
+ *                         [--save-to-db | --journal DIR | --simulated-store µs]
+ *                         [--cache-size N] [--profiles DIR | --profiles-db] [--user ID] [--rules DATEI]
+ *                         [--pump-step IE [--pump-rounding floor|nearest|ceil]]
+ *                         [--save-histogram DATEI] [--compare DATEI [--max-regression PROZENT]] [--metrics]
+ * java -jar lazycarbs.jar --load-test --compare BASIS.hgrm --against NEU.hgrm [--max-regression PROZENT]
+ * </pre>
+ * Ohne "--meals" werden synthetische Mahlzeiten erzeugt, die jede Methode der Regeltabelle gleich oft auswählen
+ * (siehe {@link LoadTestMeals}). "--rate N" gibt N Berechnungen pro Sekunde über alle Threads vor, ohne Angabe
+ * wird der maximale Durchsatz gemessen (siehe {@link LoadGenerator}). Jedes Ergebnis wird synchron in die Datenbank
+ * (standardmäßig über die lokale {@link CalculationOutbox}), das Journal oder einen simulierten Speicher mit fester
+ * Latenz geschrieben, ohne diese Optionen gar nicht.
+ * "--save-histogram" speichert die Antwortzeiten als HdrHistogram-Perzentilverteilung, "--compare" vergleicht sie
+ * mit einem gespeicherten Lauf (mit "--against" zwei gespeicherte Läufe ohne neue Messung).
+ */
+public final class LoadTestCommand {
+
+    private static final int DEFAULT_MEAL_COUNT = 4096;
+    private static final long DEFAULT_SEED = 42;
+
+    private LoadTestCommand() {
+    }
+
+    /**
+     * Führt den Lasttest bzw. den Vergleich aus.
+     * @return Exit-Code: 0 = in Ordnung, 1 = Fehler bei Berechnungen, Zielrate verfehlt oder Perzentile stärker
+     *         verschlechtert als "--max-regression" erlaubt.
+     */
+    public static int run(String[] args) throws IOException, SQLException, InterruptedException {
+        String baselineFile = CommandLineOptions.valueOf(args, "--compare", null);
+        double maxRegression = parseDouble(args, "--max-regression", Double.POSITIVE_INFINITY);
+        String againstFile = CommandLineOptions.valueOf(args, "--against", null);
+        if (againstFile != null) {
+            if (baselineFile == null) {
+                throw new IllegalArgumentException("--against wirkt nur zusammen mit --compare.");
+            }
+            return compare(LatencyHistogramFile.read(Path.of(baselineFile)), LatencyHistogramFile.read(Path.of(againstFile)),
+                    maxRegression);
+        }
+
+        int threads = CommandLineOptions.intValueOf(args, "--threads", Runtime.getRuntime().availableProcessors());
+        double rate = parseDouble(args, "--rate", 0);
+        if (!(rate >= 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Option --rate erwartet 0 (maximal) oder eine positive Rate: " + rate);
+        }
+        long warmupNanos = secondsToNanos(parseDouble(args, "--warmup", 5), "--warmup");
+        long durationNanos = secondsToNanos(parseDouble(args, "--duration", 30), "--duration");
+        int cacheSize = CommandLineOptions.intValueOf(args, "--cache-size", 0);
+
+        MethodRuleTable rules = MethodRuleFileLoader.fromOptions(args);
+        FixedPointDoseCalculator fixedPoint = FixedPointDoseCalculator.fromOptions(args, rules);
+        ProfileRegistry profiles = ProfileOptions.loadRegistry(args);
+        // eigene Pipeline ohne Cache zum Einsortieren, damit der Cache nicht schon vor der Messung gefüllt ist
+        LoadTestMeals meals = loadMeals(args, new CalculationPipeline(null, profiles, rules, fixedPoint), rules);
+        CalculationPipeline pipeline = new CalculationPipeline(cacheSize > 0 ? new CalculationCache(cacheSize) : null,
+                profiles, rules, fixedPoint);
+
+        System.out.println("Mahlzeiten: " + meals);
+        for (String method : meals.unreachedMethods(rules)) {
+            System.out.println("WARNUNG: Keine Mahlzeit wählt " + method + "; dieser Zweig wird nicht belastet.");
+        }
+
+        LoadTestResult result;
+        CalculationOutbox outbox;
+        try (CalculationStore store = openStore(args)) {
+            if (store != null) {
+                store.warmUp();
+            }
+            System.out.printf(Locale.ROOT, "Lasttest: %d Threads, %s, %.1f s Aufwärmen + %.1f s Messung, Speicher: %s%n",
+                    threads, rate > 0 ? String.format(Locale.ROOT, "Zielrate %.0f/s", rate) : "maximaler Durchsatz",
+                    warmupNanos / 1e9, durationNanos / 1e9, describe(store));
+            result = new LoadGenerator(pipeline, store, meals.meals(), threads, rate, warmupNanos, durationNanos).run();
+            outbox = store instanceof CalculationOutbox calculationOutbox ? calculationOutbox : null;
+        }
+        System.out.print(result);
+        if (outbox != null) {
+            System.out.println("Outbox " + outbox.directory() + ": " + outbox.stats());
+        }
+        if (pipeline.cache() != null) {
+            System.out.println(pipeline.cache().stats());
+        }
+        if (PipelineMetrics.ENABLED) {
+            PipelineMetrics.dump(System.out);
+        }
+
+        String histogramFile = CommandLineOptions.valueOf(args, "--save-histogram", null);
+        if (histogramFile != null) {
+            LatencyHistogramFile.write(result.responseTimes(), Path.of(histogramFile));
+            System.out.println("Histogramm gespeichert: " + histogramFile);
+        }
+        int exitCode = result.errors() == 0 && result.targetRateReached() ? 0 : 1;
+        if (baselineFile != null) {
+            exitCode = Math.max(exitCode, compare(LatencyHistogramFile.read(Path.of(baselineFile)), result.responseTimes(),
+                    maxRegression));
+        }
+        return exitCode;
+    }
+
+    private static int compare(LatencyHistogram baseline, LatencyHistogram current, double maxRegression) {
+        LatencyComparison comparison = LatencyComparison.of(baseline, current);
+        System.out.print(comparison);
+        List<LatencyComparison.Row> regressions = comparison.regressions(maxRegression);
+        for (LatencyComparison.Row row : regressions) {
+            System.out.printf(Locale.ROOT, "REGRESSION: %s um %.1f %% langsamer (erlaubt: %.1f %%)%n", row.name(),
+                    row.changePercent(), maxRegression);
+        }
+        return regressions.isEmpty() ? 0 : 1;
+    }
+
+    private static LoadTestMeals loadMeals(String[] args, CalculationPipeline pipeline, MethodRuleTable rules)
+            throws IOException {
+        String source = CommandLineOptions.valueOf(args, "--meals", "synthetic");
+        if ("synthetic".equals(source)) {
+            long seed = CommandLineOptions.intValueOf(args, "--seed", (int) DEFAULT_SEED);
+            return LoadTestMeals.synthetic(CommandLineOptions.intValueOf(args, "--meal-count", DEFAULT_MEAL_COUNT), seed,
+                    pipeline, rules);
+        }
+        String formatName = CommandLineOptions.valueOf(args, "--format", null);
+        MealRecordFormat format = formatName != null ? MealRecordFormat.fromName(formatName) : MealRecordFormat.fromFileName(source);
+        return LoadTestMeals.recorded(Path.of(source), format, pipeline);
+    }
+
+    private static CalculationStore openStore(String[] args) throws IOException {
+        String simulatedLatency = CommandLineOptions.valueOf(args, "--simulated-store", null);
+        if (simulatedLatency != null) {
+            return new SimulatedCalculationStore(Math.round(parseDouble(args, "--simulated-store", 0) * 1_000));
+        }
+        String journalDirectory = CommandLineOptions.valueOf(args, "--journal", null);
+        if (journalDirectory != null) {
+            return new CalculationJournal(Path.of(journalDirectory));
+        }
+        if (!CommandLineOptions.hasFlag(args, "--save-to-db")) {
+            return null;
+        }
+        String dbPassword = System.getenv("DB_PASSWORD");
+        if (dbPassword == null || dbPassword.isEmpty()) {
+            throw new IllegalArgumentException("--save-to-db benötigt die Umgebungsvariable 'DB_PASSWORD'.");
+        }
+        return OutboxOptions.wrap(args, new DatabaseManager(DatabaseManager.DEFAULT_DB_URL, DatabaseManager.DEFAULT_DB_USER, dbPassword));
+    }
+
+    private static String describe(CalculationStore store) {
+        if (store == null) {
+            return "keiner";
+        } else if (store instanceof DatabaseManager) {
+            return "Datenbank (synchron)";
+        } else if (store instanceof CalculationOutbox) {
+            return "Outbox (Übertragung in die Datenbank im Hintergrund)";
+        } else if (store instanceof CalculationJournal) {
+            return "Journal (synchron)";
+        }
+        return store.toString();
+    }
+
+    private static long secondsToNanos(double seconds, String name) {
+        if (!(seconds >= 0) || seconds > 86_400) {
+            throw new IllegalArgumentException("Option " + name + " erwartet Sekunden zwischen 0 und 86400: " + seconds);
+        }
+        return Math.round(seconds * 1e9);
+    }
+
+    private static double parseDouble(String[] args, String name, double defaultValue) {
+        String value = CommandLineOptions.valueOf(args, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " erwartet eine Zahl, gefunden: " + value);
+        }
+    }
+}
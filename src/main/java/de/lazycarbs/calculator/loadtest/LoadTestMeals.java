@@ -0,0 +1,202 @@
+package de.lazycarbs.calculator.loadtest;
+
+import de.lazycarbs.calculator.batch.MealRecordFormat;
+import de.lazycarbs.calculator.batch.MealRecordParser;
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.input.MealRecordReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Mahlzeiten für den Lasttest: synthetisch erzeugt oder aus einer aufgezeichneten Datei.
+ * <p>
+ * Die synthetische Verteilung enthält jede Methode der Regeltabelle gleich oft, damit jeder Zweig der
+ * Methodenauswahl unter Last läuft. Dazu werden Mahlzeiten aus mehreren typischen Formen (Supersize, NoCarb, HighCarb,
+ * Kalorienüberschuss, breit gestreut) erzeugt und mit der echten Auswahl der Pipeline einsortiert, bis jede Methode
+ * ihren Anteil hat. So bleiben auch eigene Schwellenwerte und Regeln abgedeckt.
+ */
+public final class LoadTestMeals {
+
+    // Versuche pro Mahlzeit, bevor eine Methode als unerreichbar gilt
+    private static final int ATTEMPTS_PER_MEAL = 200;
+
+    private final MealInput[] meals;
+    private final Map<String, Integer> methodCounts;
+    private final String description;
+
+    private LoadTestMeals(MealInput[] meals, Map<String, Integer> methodCounts, String description) {
+        this.meals = meals;
+        this.methodCounts = methodCounts;
+        this.description = description;
+    }
+
+    /**
+     * Erzeugt {@code count} Mahlzeiten, gleichmäßig verteilt auf die Methoden der Regeltabelle und abwechselnd
+     * angeordnet.
+     * @param pipeline Pipeline, deren Methodenauswahl die Mahlzeiten einsortiert.
+     * @param rules Regeltabelle der Pipeline.
+     * @param seed Startwert des Zufallsgenerators; gleicher Startwert ergibt dieselben Mahlzeiten.
+     */
+    public static LoadTestMeals synthetic(int count, long seed, CalculationPipeline pipeline, MethodRuleTable rules) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Es wird mindestens eine Mahlzeit benötigt: " + count);
+        }
+        Map<String, List<MealInput>> byMethod = new LinkedHashMap<>();
+        for (MethodRuleTable.Rule rule : rules.rules()) {
+            byMethod.putIfAbsent(rule.strategy(), new ArrayList<>());
+        }
+        int quota = (count + byMethod.size() - 1) / byMethod.size();
+        SplittableRandom random = new SplittableRandom(seed);
+        int missing = quota * byMethod.size();
+        for (long attempt = 0; missing > 0 && attempt < (long) count * ATTEMPTS_PER_MEAL; attempt++) {
+            MealInput meal = nextMeal(random);
+            String method = methodOf(pipeline, meal);
+            List<MealInput> bucket = byMethod.get(method);
+            if (bucket != null && bucket.size() < quota) {
+                bucket.add(meal);
+                missing--;
+            }
+        }
+
+        List<List<MealInput>> reachable = byMethod.values().stream().filter(bucket -> !bucket.isEmpty()).toList();
+        if (reachable.isEmpty()) {
+            throw new IllegalStateException("Keine synthetische Mahlzeit erreicht eine Methode der Regeltabelle.");
+        }
+        // reihum aus jeder Methode, damit jeder Thread von Anfang an alle Zweige sieht
+        MealInput[] meals = new MealInput[count];
+        int filled = 0;
+        for (int round = 0; filled < count; round++) {
+            for (List<MealInput> bucket : reachable) {
+                if (filled < count) {
+                    meals[filled++] = bucket.get(round % bucket.size());
+                }
+            }
+        }
+        return new LoadTestMeals(meals, countMethods(pipeline, meals), count + " synthetische Mahlzeiten (Startwert " + seed + ")");
+    }
+
+    /**
+     * Liest aufgezeichnete Mahlzeiten (CSV oder JSON-Lines wie im Batch-Modus); fehlerhafte Zeilen werden übersprungen
+     * und gezählt.
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn die Datei keine gültige Mahlzeit enthält.
+     */
+    public static LoadTestMeals recorded(Path file, MealRecordFormat format, CalculationPipeline pipeline) throws IOException {
+        List<MealInput> meals = new ArrayList<>();
+        long failed = 0;
+        if (format == MealRecordFormat.CSV) {
+            try (MealRecordReader records = new MealRecordReader(Files.newInputStream(file))) {
+                MealRecordReader.Status status;
+                while ((status = records.next()) != MealRecordReader.Status.END) {
+                    if (status == MealRecordReader.Status.RECORD) {
+                        meals.add(records.toMealInput());
+                    } else {
+                        failed++;
+                    }
+                }
+            }
+        } else {
+            MealRecordParser parser = new MealRecordParser();
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (parser.isSkippable(line)) {
+                        continue;
+                    }
+                    try {
+                        meals.add(parser.parse(line, format));
+                    } catch (IllegalArgumentException e) {
+                        failed++;
+                    }
+                }
+            }
+        }
+        if (meals.isEmpty()) {
+            throw new IllegalArgumentException("Keine gültige Mahlzeit in " + file);
+        }
+        MealInput[] array = meals.toArray(new MealInput[0]);
+        String description = array.length + " aufgezeichnete Mahlzeiten aus " + file
+                + (failed > 0 ? " (" + failed + " fehlerhafte Zeilen übersprungen)" : "");
+        return new LoadTestMeals(array, countMethods(pipeline, array), description);
+    }
+
+    public MealInput[] meals() {
+        return meals.clone();
+    }
+
+    /**
+     * @return Anzahl Mahlzeiten je gewählter Methode (einfacher Klassenname), in der Reihenfolge der Regeltabelle.
+     */
+    public Map<String, Integer> methodCounts() {
+        return methodCounts;
+    }
+
+    /**
+     * @return Die Methoden der Regeltabelle, die keine der Mahlzeiten auswählt.
+     */
+    public List<String> unreachedMethods(MethodRuleTable rules) {
+        return rules.rules().stream().map(MethodRuleTable.Rule::strategy).distinct()
+                .filter(method -> !methodCounts.containsKey(method)).toList();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(description).append(", Methoden:");
+        methodCounts.forEach((method, count) -> text.append(' ').append(method).append('=').append(count));
+        return text.toString();
+    }
+
+    private static Map<String, Integer> countMethods(CalculationPipeline pipeline, MealInput[] meals) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (MealInput meal : meals) {
+            counts.merge(methodOf(pipeline, meal), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static String methodOf(CalculationPipeline pipeline, MealInput meal) {
+        return pipeline.calculate(meal).methodSelection().strategy().getClass().getSimpleName();
+    }
+
+    // Formen wie in den Benchmarks (übliche Kalorien pro BE um 105), dazu breit gestreute Mahlzeiten für eigene Regeln
+    private static MealInput nextMeal(SplittableRandom random) {
+        double carbs;
+        double calories;
+        switch (random.nextInt(5)) {
+            case 0 -> { // Supersize: viele BE und viele Kalorien aus Fett/Eiweiß
+                carbs = random.nextDouble(100, 200);
+                calories = carbs / 12 * 50 + random.nextDouble(800, 2000);
+            }
+            case 1 -> { // NoCarb
+                carbs = random.nextDouble(0, 2.9);
+                calories = random.nextDouble(100, 800);
+            }
+            case 2 -> { // HighCarb: weniger Kalorien pro BE als üblich
+                carbs = random.nextDouble(30, 90);
+                calories = carbs / 12 * random.nextDouble(60, 100);
+            }
+            case 3 -> { // Kalorienüberschuss, mit und ohne Deckung durch das Insulin
+                carbs = random.nextDouble(10, 89);
+                calories = carbs / 12 * random.nextDouble(110, 400);
+            }
+            default -> {
+                carbs = random.nextDouble(0, 250);
+                calories = carbs / 12 * random.nextDouble(40, 500) + random.nextDouble(0, 1500);
+            }
+        }
+        double insulinTypeCalorieCovering = random.nextBoolean() ? 150 : 200;
+        return new MealInput(carbs, calories, random.nextDouble(95, 115), insulinTypeCalorieCovering,
+                random.nextInt(24), random.nextInt(60), random.nextDouble(0.5, 1.2));
+    }
+}
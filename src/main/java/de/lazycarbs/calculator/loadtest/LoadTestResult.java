@@ -0,0 +1,77 @@
+package de.lazycarbs.calculator.loadtest;
+
+import de.lazycarbs.calculator.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * Ergebnis eines Lasttests; gezählt wird nur die Messphase nach dem Aufwärmen.
+ * @param threads Anzahl der Last-Threads.
+ * @param targetRate Zielrate in Berechnungen pro Sekunde, 0 für maximalen Durchsatz.
+ * @param durationNanos Dauer der Messphase.
+ * @param calculations Anzahl gemessener Berechnungen.
+ * @param errors Anzahl fehlgeschlagener Berechnungen oder Speichervorgänge (auch beim Aufwärmen).
+ * @param missedStarts Geplante Starts, die wegen zu großen Rückstands nicht mehr ausgeführt wurden.
+ * @param maxStartDelayNanos Größte Verspätung eines Starts gegenüber dem Fahrplan.
+ * @param firstError Meldung des ersten Fehlers oder null.
+ * @param responseTimes Antwortzeiten ab dem geplanten Start (korrigiert um coordinated omission); ausgelassene Starts
+ *                      zählen mit ihrer Wartezeit bis zum Aufgeben.
+ * @param serviceTimes Bearbeitungszeiten ab dem tatsächlichen Start.
+ */
+public record LoadTestResult(int threads, double targetRate, long durationNanos, long calculations, long errors,
+                             long missedStarts, long maxStartDelayNanos, String firstError,
+                             LatencyHistogram responseTimes, LatencyHistogram serviceTimes) {
+
+    // Perzentile im Bericht und beim Vergleich zweier Läufe
+    static final double[] REPORTED_QUANTILES = {0.5, 0.99, 0.999};
+
+    public double throughput() {
+        return calculations * 1e9 / durationNanos;
+    }
+
+    /**
+     * @return true, wenn mit Zielrate mindestens 99 % der geplanten Berechnungen pünktlich genug ausgeführt wurden.
+     */
+    public boolean targetRateReached() {
+        return targetRate == 0 || missedStarts == 0 && throughput() >= targetRate * 0.99;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(512);
+        text.append(String.format(Locale.ROOT, "Durchsatz: %.0f Berechnungen/s (%d in %.1f s, %d Threads, %s)%n",
+                throughput(), calculations, durationNanos / 1e9, threads,
+                targetRate == 0 ? "maximal" : String.format(Locale.ROOT, "Ziel %.0f/s", targetRate)));
+        if (targetRate == 0) {
+            text.append(latencyLine("Latenz", serviceTimes));
+        } else {
+            text.append(latencyLine("Antwortzeit", responseTimes));
+            text.append(latencyLine("Bearbeitungszeit", serviceTimes));
+            text.append(String.format(Locale.ROOT, "Größte Verspätung eines Starts: %.1f µs%n", maxStartDelayNanos / 1e3));
+            if (!targetRateReached()) {
+                text.append(String.format(Locale.ROOT, "WARNUNG: Zielrate nicht erreicht (%d geplante Starts ausgelassen)%n",
+                        missedStarts));
+            }
+        }
+        if (errors > 0) {
+            text.append("Fehler: ").append(errors).append(", zuerst: ").append(firstError).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    // Zeiten in Mikrosekunden wie in MetricsSnapshot
+    static String latencyLine(String label, LatencyHistogram histogram) {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-17s Ø %.2f", label + " (µs):",
+                histogram.meanNanos() / 1e3));
+        for (double quantile : REPORTED_QUANTILES) {
+            line.append(String.format(Locale.ROOT, "  %s %.2f", percentileName(quantile),
+                    histogram.percentileNanos(quantile) / 1e3));
+        }
+        return line.append(String.format(Locale.ROOT, "  max %.2f%n", histogram.maxNanos() / 1e3)).toString();
+    }
+
+    static String percentileName(double quantile) {
+        String percent = String.format(Locale.ROOT, "%.3f", quantile * 100).replaceAll("\\.?0+$", "");
+        return "p" + percent;
+    }
+}
@@ -0,0 +1,65 @@
+package de.lazycarbs.calculator.loadtest;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.database.CalculationStore;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lokaler Ersatz für die Datenbank im Lasttest: verwirft die Datensätze, wartet aber pro Speichervorgang eine feste
+ * Zeit, damit die Wirkung einer langsamen Speicherung auf Durchsatz und Latenz ohne MySQL-Server sichtbar wird.
+ * Kurze Wartezeiten werden aktiv abgewartet, weil parkNanos darunter zu ungenau ist.
+ */
+public class SimulatedCalculationStore implements CalculationStore {
+
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+
+    private final long saveLatencyNanos;
+    private final LongAdder savedRecords = new LongAdder();
+
+    /**
+     * @param saveLatencyNanos Dauer eines Speichervorgangs (einzeln oder als Batch), 0 für sofort.
+     */
+    public SimulatedCalculationStore(long saveLatencyNanos) {
+        if (saveLatencyNanos < 0) {
+            throw new IllegalArgumentException("Die Speicher-Latenz darf nicht negativ sein: " + saveLatencyNanos);
+        }
+        this.saveLatencyNanos = saveLatencyNanos;
+    }
+
+    @Override
+    public void saveCalculation(CalculationRecord calculationRecord) {
+        waitFor(saveLatencyNanos);
+        savedRecords.increment();
+    }
+
+    /**
+     * @return Anzahl der "gespeicherten" Datensätze.
+     */
+    public long savedRecords() {
+        return savedRecords.sum();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return "simuliert (" + saveLatencyNanos / 1_000 + " µs pro Speichervorgang)";
+    }
+
+    static void waitFor(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
@@ -2,12 +2,28 @@ package de.lazycarbs.calculator.methodstrategy;
 
 import de.lazycarbs.calculator.data.IntermediateBolusFactors;
 import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
 
 public class MethodACalorieSurplus implements CalculationStrategy{
 
+    private final MethodConstants constants;
+
+    public MethodACalorieSurplus() {
+        this(MethodConstants.DEFAULT);
+    }
+
+    /**
+     * @param constants Kalorien pro Einheit des verzögerten Bolus.
+     */
+    public MethodACalorieSurplus(MethodConstants constants) {
+        this.constants = constants;
+    }
+
     @Override
     public MethodResults calculate(double mealCarbs, double mealCalories, double usualBolusFactor,
                                    double usualBeCalories, double insulinTypeCalorieCovering, IntermediateBolusFactors intermediateBolusFactors) {
+        long start = PipelineMetrics.start();
         // we calculate the values of:
         // double correctBeFactor, double calorieSurplus, double delayedCalorieBolus, double correctBolusSum
         double correctBeFactor = 0.0;
@@ -25,10 +41,12 @@ public class MethodACalorieSurplus implements CalculationStrategy{
         else if(intermediateBolusFactors.beCalories() > insulinTypeCalorieCovering) {
             correctBeFactor = ((insulinTypeCalorieCovering + 100) / (usualBeCalories + 100)) * usualBolusFactor;
             calorieSurplus = mealCalories - (insulinTypeCalorieCovering * intermediateBolusFactors.beSum());
-            delayedCalorieBolus =  (calorieSurplus / 200) * intermediateBolusFactors.leanBeFactor();
+            delayedCalorieBolus =  (calorieSurplus / constants.delayedBolusCaloriesPerUnit()) * intermediateBolusFactors.leanBeFactor();
             correctBolusSum = correctBeFactor * intermediateBolusFactors.beSum();
         }
-        return new MethodResults(correctBeFactor, calorieSurplus, delayedCalorieBolus, correctBolusSum, fatProteinCalories);
+        MethodResults methodResults = new MethodResults(correctBeFactor, calorieSurplus, delayedCalorieBolus, correctBolusSum, fatProteinCalories);
+        PipelineMetrics.record(PipelineStage.METHOD_CALCULATION, this, start);
+        return methodResults;
     }
 
 }
@@ -2,12 +2,29 @@ package de.lazycarbs.calculator.methodstrategy;
 
 import de.lazycarbs.calculator.data.IntermediateBolusFactors;
 import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
 
 public class MethodBSupersize implements CalculationStrategy{
 
+    private final MethodConstants constants;
+
+    public MethodBSupersize() {
+        this(MethodConstants.DEFAULT);
+    }
+
+    /**
+     * @param constants BE-Grenze, Kalorien pro überhängender BE und Kalorien pro Einheit des verzögerten Bolus.
+     */
+    public MethodBSupersize(MethodConstants constants) {
+        this.constants = constants;
+    }
+
     @Override
     public MethodResults calculate(double mealCarbs, double mealCalories, double usualBolusFactor,
                                    double usualBeCalories, double insulinTypeCalorieCovering, IntermediateBolusFactors intermediateBolusFactors) {
+        long start = PipelineMetrics.start();
+        double supersizeBe = constants.supersizeBe();
         // we calculate the values of:
         // double correctBeFactor, double calorieSurplus, double delayedCalorieBolus, double correctBolusSum
         double correctBeFactor = 0.0;
@@ -18,19 +35,21 @@ public class MethodBSupersize implements CalculationStrategy{
 
         if(intermediateBolusFactors.beCalories() <= insulinTypeCalorieCovering) { // double insulinTypeCalorieCovering = 150 || 200
             correctBeFactor = ((intermediateBolusFactors.beCalories() + 100) / (usualBeCalories + 100)) * usualBolusFactor;
-            double overhangingBe = intermediateBolusFactors.beSum() - 7.5;
-            calorieSurplus = (mealCalories - (intermediateBolusFactors.beCalories() * 7.5)) - (overhangingBe * 50);
-            correctBolusSum = (correctBeFactor * 7.5) + (overhangingBe * intermediateBolusFactors.pureCarbBeFactor());
-            delayedCalorieBolus = (calorieSurplus / 200) * intermediateBolusFactors.leanBeFactor();
+            double overhangingBe = intermediateBolusFactors.beSum() - supersizeBe;
+            calorieSurplus = (mealCalories - (intermediateBolusFactors.beCalories() * supersizeBe)) - (overhangingBe * constants.overhangingBeCalories());
+            correctBolusSum = (correctBeFactor * supersizeBe) + (overhangingBe * intermediateBolusFactors.pureCarbBeFactor());
+            delayedCalorieBolus = (calorieSurplus / constants.delayedBolusCaloriesPerUnit()) * intermediateBolusFactors.leanBeFactor();
 
         }
         else if(intermediateBolusFactors.beCalories() > insulinTypeCalorieCovering) {
             correctBeFactor = ((insulinTypeCalorieCovering + 100) / (usualBeCalories + 100)) * usualBolusFactor;
-            double overhangingBe = intermediateBolusFactors.beSum() - 7.5;
-            calorieSurplus = (mealCalories - (insulinTypeCalorieCovering * 7.5)) - (overhangingBe * 50);
-            correctBolusSum = (correctBeFactor * 7.5) + (overhangingBe * intermediateBolusFactors.pureCarbBeFactor());
-            delayedCalorieBolus = (calorieSurplus / 200) * intermediateBolusFactors.leanBeFactor();
+            double overhangingBe = intermediateBolusFactors.beSum() - supersizeBe;
+            calorieSurplus = (mealCalories - (insulinTypeCalorieCovering * supersizeBe)) - (overhangingBe * constants.overhangingBeCalories());
+            correctBolusSum = (correctBeFactor * supersizeBe) + (overhangingBe * intermediateBolusFactors.pureCarbBeFactor());
+            delayedCalorieBolus = (calorieSurplus / constants.delayedBolusCaloriesPerUnit()) * intermediateBolusFactors.leanBeFactor();
         }
-        return new MethodResults(correctBeFactor, calorieSurplus, delayedCalorieBolus, correctBolusSum, fatProteinCalories);
+        MethodResults methodResults = new MethodResults(correctBeFactor, calorieSurplus, delayedCalorieBolus, correctBolusSum, fatProteinCalories);
+        PipelineMetrics.record(PipelineStage.METHOD_CALCULATION, this, start);
+        return methodResults;
     }
 }
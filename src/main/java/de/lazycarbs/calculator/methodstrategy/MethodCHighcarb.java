@@ -2,12 +2,15 @@ package de.lazycarbs.calculator.methodstrategy;
 
 import de.lazycarbs.calculator.data.IntermediateBolusFactors;
 import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
 
 public class MethodCHighcarb implements CalculationStrategy{
 
     @Override
     public MethodResults calculate(double mealCarbs, double mealCalories, double usualBolusFactor,
                                    double usualBeCalories, double insulinTypeCalorieCovering, IntermediateBolusFactors intermediateBolusFactors) {
+        long start = PipelineMetrics.start();
         // we calculate the values of:
         // double correctBeFactor, double calorieSurplus, double delayedCalorieBolus, double correctBolusSum
         double correctBeFactor = 0.0;
@@ -23,6 +26,8 @@ public class MethodCHighcarb implements CalculationStrategy{
 
 
 
-        return new MethodResults(correctBeFactor, calorieSurplus, delayedCalorieBolus, correctBolusSum, fatProteinCalories);
+        MethodResults methodResults = new MethodResults(correctBeFactor, calorieSurplus, delayedCalorieBolus, correctBolusSum, fatProteinCalories);
+        PipelineMetrics.record(PipelineStage.METHOD_CALCULATION, this, start);
+        return methodResults;
     }
 }
@@ -0,0 +1,45 @@
+package de.lazycarbs.calculator.methodstrategy;
+
+/**
+ * Die festen Größen der Methodenauswahl und der Methoden, z.B. aus einer Regeldatei (siehe MethodRuleFileLoader).
+ *
+ * @param supersizeBe Ab mehr als so vielen BE kann eine Mahlzeit Supersize sein; Methode B deckt genau so viele BE
+ *                    mit dem korrekten BE-Faktor ab, die überhängenden BE mit dem puren BE-Faktor (Standard 7,5).
+ * @param supersizeFatProteinCalories Supersize erst ab mehr als so vielen Kalorien aus Fett/Eiweiß (Standard 750).
+ * @param noCarbMaxCarbs Unter so vielen Gramm Kohlenhydraten gilt eine Mahlzeit als NoCarb (Standard 3).
+ * @param highCarbBeCaloriesRatio HighCarb, wenn die Kalorien pro BE unter diesem Anteil der üblichen Kalorien pro BE
+ *                                liegen (Standard 1).
+ * @param overhangingBeCalories Kalorien, die Methode B pro überhängender BE abzieht (Standard 50).
+ * @param delayedBolusCaloriesPerUnit Kalorien pro Einheit des verzögerten Bolus (Methoden A, B und D, Standard 200).
+ */
+public record MethodConstants(double supersizeBe, double supersizeFatProteinCalories, double noCarbMaxCarbs,
+                              double highCarbBeCaloriesRatio, double overhangingBeCalories,
+                              double delayedBolusCaloriesPerUnit) {
+
+    public static final MethodConstants DEFAULT = new MethodConstants(7.5, 750, 3, 1, 50, 200);
+
+    /**
+     * @throws IllegalArgumentException wenn ein Wert nicht endlich, negativ oder (bei Verhältnis und Kalorien pro
+     *         Einheit) nicht positiv ist.
+     */
+    public MethodConstants {
+        requireNonNegative("supersizeBe", supersizeBe);
+        requireNonNegative("supersizeFatProteinCalories", supersizeFatProteinCalories);
+        requireNonNegative("noCarbMaxCarbs", noCarbMaxCarbs);
+        requirePositive("highCarbBeCaloriesRatio", highCarbBeCaloriesRatio);
+        requireNonNegative("overhangingBeCalories", overhangingBeCalories);
+        requirePositive("delayedBolusCaloriesPerUnit", delayedBolusCaloriesPerUnit);
+    }
+
+    private static void requireNonNegative(String name, double value) {
+        if (!Double.isFinite(value) || value < 0) {
+            throw new IllegalArgumentException(name + " muss eine endliche Zahl >= 0 sein: " + value);
+        }
+    }
+
+    private static void requirePositive(String name, double value) {
+        if (!Double.isFinite(value) || value <= 0) {
+            throw new IllegalArgumentException(name + " muss eine endliche Zahl > 0 sein: " + value);
+        }
+    }
+}
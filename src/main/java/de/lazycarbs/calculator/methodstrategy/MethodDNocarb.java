@@ -2,20 +2,39 @@ package de.lazycarbs.calculator.methodstrategy;
 
 import de.lazycarbs.calculator.data.IntermediateBolusFactors;
 import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
 
 public class MethodDNocarb implements CalculationStrategy{
+
+    private final MethodConstants constants;
+
+    public MethodDNocarb() {
+        this(MethodConstants.DEFAULT);
+    }
+
+    /**
+     * @param constants Kalorien pro Einheit des verzögerten Bolus.
+     */
+    public MethodDNocarb(MethodConstants constants) {
+        this.constants = constants;
+    }
+
     @Override
     public MethodResults calculate(double mealCarbs, double mealCalories, double usualBolusFactor,
                                    double usualBeCalories, double insulinTypeCalorieCovering, IntermediateBolusFactors intermediateBolusFactors) {
+        long start = PipelineMetrics.start();
         // we calculate the values of:
         // double correctBeFactor, double calorieSurplus, double delayedCalorieBolus, double correctBolusSum
         double correctBeFactor = 0.0;
         double calorieSurplus = 0.0;
-        double delayedCalorieBolus = (mealCalories / 200) * intermediateBolusFactors.leanBeFactor(); // delayed over 8 hours
+        double delayedCalorieBolus = (mealCalories / constants.delayedBolusCaloriesPerUnit()) * intermediateBolusFactors.leanBeFactor(); // delayed over 8 hours
         double correctBolusSum = 0.0;
         double fatProteinCalories = intermediateBolusFactors.fatProteinCalories();
 
 
-        return new MethodResults(correctBeFactor, calorieSurplus, delayedCalorieBolus, correctBolusSum, fatProteinCalories);
+        MethodResults methodResults = new MethodResults(correctBeFactor, calorieSurplus, delayedCalorieBolus, correctBolusSum, fatProteinCalories);
+        PipelineMetrics.record(PipelineStage.METHOD_CALCULATION, this, start);
+        return methodResults;
     }
 }
@@ -0,0 +1,134 @@
+package de.lazycarbs.calculator.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-sicheres Latenz-Histogramm mit logarithmisch-linearen Eimern (wie HdrHistogram): jede Zweierpotenz ist
+ * in 16 gleich breite Eimer geteilt, der relative Fehler eines Perzentils liegt daher unter 6,25 %.
+ * Aufzeichnen ist lock-frei und allokiert nichts; der Speicherbedarf ist fest (ca. 8 KiB). Die Anzahl wird erst beim
+ * Auslesen aus den Eimern summiert, damit pro Messwert möglichst wenige atomare Operationen anfallen.
+ * Werte, die während des Auslesens hinzukommen, können in Anzahl und Perzentilen leicht versetzt erscheinen.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+        if (value > maxNanos.get()) { // ein neues Maximum ist selten, meist genügt das Lesen
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Zeichnet denselben Messwert {@code count}-mal auf, z.B. beim Einlesen eines gespeicherten Histogramms
+     * (siehe {@link LatencyHistogramFile}).
+     */
+    public void record(long nanos, long count) {
+        if (count <= 0) {
+            return;
+        }
+        long value = Math.max(0, nanos);
+        counts.addAndGet(bucketOf(value), count);
+        totalNanos.add(value * count);
+        if (value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Addiert alle Messwerte eines anderen Histogramms, z.B. um die Histogramme mehrerer Threads zusammenzuführen.
+     */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long count = other.counts.get(bucket);
+            if (count != 0) {
+                counts.addAndGet(bucket, count);
+            }
+        }
+        totalNanos.add(other.totalNanos.sum());
+        maxNanos.accumulateAndGet(other.maxNanos.get(), Math::max);
+    }
+
+    /**
+     * @return Anzahl der Messwerte (Summe über alle Eimer).
+     */
+    public long count() {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    public double meanNanos() {
+        long n = count();
+        return n == 0 ? 0 : totalNanos.sum() / (double) n;
+    }
+
+    /**
+     * @param quantile Zwischen 0 und 1, z.B. 0.99.
+     * @return Obergrenze des Eimers, in dem das Perzentil liegt (höchstens das Maximum), oder 0 ohne Messwerte.
+     */
+    public long percentileNanos(double quantile) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    long countAt(int bucket) {
+        return counts.get(bucket);
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowerBound = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,121 @@
+package de.lazycarbs.calculator.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Speichert und lädt ein {@link LatencyHistogram} als Perzentil-Verteilung im Textformat von HdrHistogram
+ * (".hgrm", Werte in Mikrosekunden), damit Läufe verglichen und mit den üblichen HdrHistogram-Plottern dargestellt
+ * werden können:
+ * <pre>
+ *        Value     Percentile TotalCount 1/(1-Percentile)
+ *
+ *        1.087 0.500000000000      50213           2.00
+ *        ...
+ * #[Mean    =        1.234, StdDeviation   =        0.456]
+ * #[Max     =       87.551, Total count    =     100000]
+ * #[Buckets =           61, SubBuckets     =         16]
+ * </pre>
+ * Pro belegtem Eimer wird eine Zeile mit seiner Obergrenze (beim letzten Eimer dem Maximum) geschrieben; beim Laden
+ * landet jede Zeile daher wieder im selben Eimer und die Perzentile bleiben exakt erhalten. Der Mittelwert eines
+ * geladenen Histogramms wird aus den Eimergrenzen geschätzt.
+ */
+public final class LatencyHistogramFile {
+
+    private static final String HEADER = String.format(Locale.ROOT, "%12s %14s %10s %14s", "Value", "Percentile",
+            "TotalCount", "1/(1-Percentile)");
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private LatencyHistogramFile() {
+    }
+
+    /**
+     * Schreibt die Perzentil-Verteilung in eine Datei (vorhandene Dateien werden überschrieben).
+     * @throws IOException wenn die Datei nicht geschrieben werden kann.
+     */
+    public static void write(LatencyHistogram histogram, Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8)))) {
+            write(histogram, out);
+            if (out.checkError()) {
+                throw new IOException("Histogramm konnte nicht geschrieben werden: " + file);
+            }
+        }
+    }
+
+    static void write(LatencyHistogram histogram, PrintWriter out) {
+        long total = histogram.count();
+        long max = histogram.maxNanos();
+        out.println(HEADER);
+        out.println();
+        long seen = 0;
+        double sumOfSquares = 0;
+        double mean = histogram.meanNanos();
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            long count = histogram.countAt(bucket);
+            if (count == 0) {
+                continue;
+            }
+            seen += count;
+            long value = Math.min(LatencyHistogram.upperBoundOf(bucket), max);
+            double deviation = value - mean;
+            sumOfSquares += deviation * deviation * count;
+            double percentile = seen / (double) total;
+            if (seen < total) {
+                out.printf(Locale.ROOT, "%12.3f %14.12f %10d %14.2f%n", value / NANOS_PER_MICRO, percentile, seen,
+                        1 / (1 - percentile));
+            } else {
+                out.printf(Locale.ROOT, "%12.3f %14.12f %10d%n", value / NANOS_PER_MICRO, percentile, seen);
+            }
+        }
+        double standardDeviation = total == 0 ? 0 : Math.sqrt(sumOfSquares / total);
+        out.printf(Locale.ROOT, "#[Mean    = %12.3f, StdDeviation   = %12.3f]%n", mean / NANOS_PER_MICRO,
+                standardDeviation / NANOS_PER_MICRO);
+        out.printf(Locale.ROOT, "#[Max     = %12.3f, Total count    = %12d]%n", max / NANOS_PER_MICRO, total);
+        out.printf(Locale.ROOT, "#[Buckets = %12d, SubBuckets     = %12d]%n", LatencyHistogram.BUCKETS / LatencyHistogram.SUB_BUCKETS,
+                LatencyHistogram.SUB_BUCKETS);
+    }
+
+    /**
+     * Liest eine mit {@link #write(LatencyHistogram, Path)} (oder von HdrHistogram) geschriebene Perzentil-Verteilung.
+     * @throws IOException wenn die Datei nicht gelesen werden kann.
+     * @throws IllegalArgumentException wenn eine Zeile nicht dem Format entspricht.
+     */
+    public static LatencyHistogram read(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8), file.toString());
+    }
+
+    static LatencyHistogram parse(List<String> lines, String source) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long previousTotal = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("Value")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length < 3) {
+                throw new IllegalArgumentException(source + ", Zeile " + (i + 1) + ": erwartet Value, Percentile, TotalCount");
+            }
+            long nanos;
+            long total;
+            try {
+                nanos = Math.round(Double.parseDouble(fields[0]) * NANOS_PER_MICRO);
+                total = Long.parseLong(fields[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(source + ", Zeile " + (i + 1) + ": keine Zahl: " + line);
+            }
+            if (total < previousTotal) {
+                throw new IllegalArgumentException(source + ", Zeile " + (i + 1) + ": TotalCount darf nicht fallen");
+            }
+            histogram.record(nanos, total - previousTotal);
+            previousTotal = total;
+        }
+        return histogram;
+    }
+}
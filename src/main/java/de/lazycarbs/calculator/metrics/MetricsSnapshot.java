@@ -0,0 +1,32 @@
+package de.lazycarbs.calculator.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Momentaufnahme der {@link PipelineMetrics}: Latenzen pro Stufe und Anzahl pro gewählter Methode.
+ */
+public record MetricsSnapshot(boolean enabled, List<StageStats> stages, Map<String, Long> strategyCounts) {
+
+    /**
+     * @return Die Kennzahlen als Tabelle (Zeiten in Mikrosekunden).
+     */
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return "Metriken sind deaktiviert (aktivieren mit --metrics bzw. -D" + PipelineMetrics.ENABLED_PROPERTY + "=true).";
+        }
+        StringBuilder text = new StringBuilder(1024);
+        text.append(String.format("%-28s %10s %10s %10s %10s %10s%n", "Stufe", "Anzahl", "Ø µs", "p50 µs", "p99 µs", "max µs"));
+        for (StageStats stats : stages) {
+            if (stats.count() > 0) {
+                text.append(String.format("%-28s %10d %10.2f %10.2f %10.2f %10.2f%n", stats.stage().displayName(),
+                        stats.count(), stats.meanNanos() / 1_000.0, stats.p50Nanos() / 1_000.0,
+                        stats.p99Nanos() / 1_000.0, stats.maxNanos() / 1_000.0));
+            }
+        }
+        text.append("Gewählte Methoden:");
+        strategyCounts.forEach((strategy, count) -> text.append(' ').append(strategy).append('=').append(count));
+        return text.append(System.lineSeparator()).toString();
+    }
+}
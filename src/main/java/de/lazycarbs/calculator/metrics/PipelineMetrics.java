@@ -0,0 +1,120 @@
+package de.lazycarbs.calculator.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prozessweite Latenz-Messung der Berechnungsstufen: ein {@link LatencyHistogram} pro {@link PipelineStage},
+ * Zähler pro gewählter Methode und zusätzlich ein JFR-Ereignis ({@link PipelineStageEvent}) pro Messung.
+ * <p>
+ * Aktiviert wird die Messung über die System-Property {@value #ENABLED_PROPERTY} (bzw. die Option "--metrics"),
+ * die beim Laden der Klasse gelesen wird. Da {@link #ENABLED} eine Konstante ist, entfernt der JIT-Compiler
+ * bei deaktivierter Messung die Aufrufe in {@link #start()} und {@link #record} vollständig:
+ * <pre>
+ * long start = PipelineMetrics.start();
+ * ... Stufe ...
+ * PipelineMetrics.record(PipelineStage.BOLUS_FACTOR, start);
+ * </pre>
+ */
+public final class PipelineMetrics {
+
+    public static final String ENABLED_PROPERTY = "lazycarbs.metrics";
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final PipelineStage[] STAGES = PipelineStage.values();
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[STAGES.length];
+    // pro Methoden-Klasse; ClassValue ist schneller als eine Map und hält die Klasse nicht fest
+    private static final ClassValue<LongAdder> STRATEGY_COUNTS = new ClassValue<>() {
+        @Override
+        protected LongAdder computeValue(Class<?> strategy) {
+            STRATEGIES.add(strategy);
+            return new LongAdder();
+        }
+    };
+    private static final Set<Class<?>> STRATEGIES = ConcurrentHashMap.newKeySet();
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * @return Startzeitpunkt für {@link #record}, bzw. 0 ohne Messung.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Zeichnet die Dauer einer Stufe seit {@code startNanos} auf.
+     */
+    public static void record(PipelineStage stage, long startNanos) {
+        if (ENABLED) {
+            recordEnabled(stage, null, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Zeichnet die Dauer einer Stufe auf, die zu einer bestimmten Methode gehört (Auswahl oder Methodenrechnung).
+     * Bei {@link PipelineStage#METHOD_SELECTION} wird zusätzlich die gewählte Methode gezählt.
+     */
+    public static void record(PipelineStage stage, Object strategy, long startNanos) {
+        if (ENABLED) {
+            recordEnabled(stage, strategy.getClass(), System.nanoTime() - startNanos);
+        }
+    }
+
+    private static void recordEnabled(PipelineStage stage, Class<?> strategy, long durationNanos) {
+        HISTOGRAMS[stage.ordinal()].record(durationNanos);
+        if (stage == PipelineStage.METHOD_SELECTION && strategy != null) {
+            STRATEGY_COUNTS.get(strategy).increment();
+        }
+        PipelineStageEvent event = new PipelineStageEvent();
+        if (event.shouldCommit()) { // nur, wenn eine JFR-Aufzeichnung das Ereignis verlangt
+            event.stage = stage.name();
+            event.strategy = strategy == null ? null : strategy.getSimpleName();
+            event.durationNanos = durationNanos;
+            event.commit();
+        }
+    }
+
+    public static MetricsSnapshot snapshot() {
+        List<StageStats> stages = new ArrayList<>(STAGES.length);
+        for (PipelineStage stage : STAGES) {
+            LatencyHistogram histogram = HISTOGRAMS[stage.ordinal()];
+            stages.add(new StageStats(stage, histogram.count(), histogram.meanNanos(), histogram.percentileNanos(0.5),
+                    histogram.percentileNanos(0.99), histogram.maxNanos()));
+        }
+        Map<String, Long> strategyCounts = new TreeMap<>();
+        for (Class<?> strategy : STRATEGIES) {
+            strategyCounts.put(strategy.getSimpleName(), STRATEGY_COUNTS.get(strategy).sum());
+        }
+        return new MetricsSnapshot(ENABLED, List.copyOf(stages), strategyCounts);
+    }
+
+    /**
+     * Gibt die aktuellen Kennzahlen als Tabelle aus.
+     */
+    public static void dump(PrintStream out) {
+        out.print(snapshot());
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        for (Class<?> strategy : STRATEGIES) {
+            STRATEGY_COUNTS.get(strategy).reset();
+        }
+    }
+}
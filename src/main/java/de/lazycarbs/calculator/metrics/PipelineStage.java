@@ -0,0 +1,26 @@
+package de.lazycarbs.calculator.metrics;
+
+/**
+ * Messbare Stufen einer Berechnung, von der Eingabe bis zum Speichern.
+ */
+public enum PipelineStage {
+
+    INPUT("Eingabe"),
+    BOLUS_FACTOR("Bolusfaktor (Zeitfenster)"),
+    INTERMEDIATE_FACTORS("Zwischenfaktoren"),
+    METHOD_SELECTION("Methodenauswahl"),
+    METHOD_CALCULATION("Methode"),
+    OUTPUT("Ausgabe"),
+    DATABASE_SAVE("Speichern"),
+    DATABASE_BATCH_SAVE("Speichern (Batch)");
+
+    private final String displayName;
+
+    PipelineStage(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String displayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,31 @@
+package de.lazycarbs.calculator.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK-Flight-Recorder-Ereignis für eine gemessene Stufe der Berechnung
+ * (z.B. {@code jcmd <pid> JFR.start} und danach in JDK Mission Control unter "LazyCarbs").
+ */
+@Name("de.lazycarbs.PipelineStage")
+@Label("Berechnungsstufe")
+@Category("LazyCarbs")
+@Description("Dauer einer Stufe der Bolusberechnung")
+@StackTrace(false)
+class PipelineStageEvent extends Event {
+
+    @Label("Stufe")
+    String stage;
+
+    @Label("Methode")
+    String strategy;
+
+    @Label("Dauer")
+    @Timespan(Timespan.NANOSECONDS)
+    long durationNanos;
+}
@@ -0,0 +1,7 @@
+package de.lazycarbs.calculator.metrics;
+
+/**
+ * Kennzahlen einer Stufe in einer {@link MetricsSnapshot}; alle Zeiten in Nanosekunden.
+ */
+public record StageStats(PipelineStage stage, long count, double meanNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+}
@@ -0,0 +1,48 @@
+package de.lazycarbs.calculator.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Zeitmessung für den interaktiven Modus: Zeit vom JVM-Start (inklusive Laden der Klassen) bis zur ersten
+ * Eingabeaufforderung und Zeit von der letzten Eingabe bis zum gespeicherten Ergebnis.
+ * Während des Programms werden nur Zeitstempel genommen; der JVM-Start wird erst bei der Ausgabe ermittelt
+ * (java.management wird so nicht schon beim Start geladen).
+ */
+public final class StartupTiming {
+
+    private long firstPromptMillis;
+    private long lastInputNanos;
+    private long resultNanos;
+
+    /**
+     * Merkt sich den Zeitpunkt der ersten Eingabeaufforderung.
+     */
+    public void firstPrompt() {
+        firstPromptMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Merkt sich den Zeitpunkt, zu dem die letzte Eingabe vorlag.
+     */
+    public void lastInput() {
+        lastInputNanos = System.nanoTime();
+    }
+
+    /**
+     * Merkt sich den Zeitpunkt, zu dem das Ergebnis angezeigt und gespeichert ist.
+     */
+    public void result() {
+        resultNanos = System.nanoTime();
+    }
+
+    /**
+     * @return Die gemessenen Zeiten als Text.
+     */
+    @Override
+    public String toString() {
+        long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        return String.format("Zeit bis zur ersten Eingabe: %d ms seit JVM-Start%n"
+                        + "Zeit bis zum Ergebnis: %.1f ms nach der letzten Eingabe (Berechnung und Speichern)%n",
+                firstPromptMillis - jvmStartMillis, (resultNanos - lastInputNanos) / 1_000_000.0);
+    }
+}
@@ -0,0 +1,308 @@
+package de.lazycarbs.calculator.outbox;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.journal.CalculationJournal;
+import de.lazycarbs.calculator.journal.CalculationJournalReader;
+import jdk.jfr.FlightRecorder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lokale Outbox vor der MySQL-Datenbank: {@link #saveCalculation(CalculationRecord)} hängt den Datensatz nur an
+ * ein {@link CalculationJournal} im Outbox-Verzeichnis an und wartet nie auf das Netzwerk. Ein Hintergrund-Thread
+ * überträgt die Datensätze in Batches in die Datenbank, sobald sie erreichbar ist.
+ * <p>
+ * Jeder Datensatz wird mit einem Idempotenz-Schlüssel (Kennung der Outbox + Sequenznummer) eingefügt, den die
+ * Datenbank nur einmal annimmt. Erst nach dem Commit wird die Position in "outbox.state" fortgeschrieben; bricht
+ * die Übertragung dazwischen ab, wird der Batch wiederholt, ohne Zeilen doppelt anzulegen. Schlägt ein Batch fehl,
+ * wartet der Thread mit wachsendem Abstand (bis {@value #MAX_BACKOFF_MILLIS} ms) und versucht es erneut.
+ * Vollständig übertragene Segmente werden gelöscht.
+ * <p>
+ * Fehlt der Tabelle die Spalte "idempotency_key" (ältere Installationen), meldet der Übertragungs-Thread das beim
+ * ersten Verbindungsaufbau einmal auf System.err und überträgt ohne Schlüssel wie {@link DatabaseManager}; ein
+ * wiederholter Batch kann dann doppelte Zeilen anlegen.
+ * <p>
+ * Wann die Outbox auf den Datenträger schreibt, legt die {@link OutboxFsyncPolicy} fest. {@link #close()} versucht
+ * noch höchstens "drainTimeoutMillis" lang, ausstehende Datensätze zu übertragen, und hört beim ersten Fehlversuch
+ * auf; der Rest wird beim nächsten Öffnen derselben Outbox übertragen.
+ */
+public class CalculationOutbox implements CalculationStore {
+
+    // Verzeichnis, das ohne Angabe von --outbox verwendet wird
+    public static final String DEFAULT_DIRECTORY = "lazycarbs-outbox";
+    // kleine Segmente (ca. 600 KiB), damit übertragene Datensätze bald wieder Platz freigeben
+    static final int RECORDS_PER_SEGMENT = 4096;
+
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final CalculationJournal journal;
+    private final CalculationJournalReader reader;
+    private final OutboxState state;
+    private final DatabaseManager database;
+    private final OutboxFsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final int replayBatchSize;
+    private final long drainTimeoutNanos;
+    private final long firstSequence;
+    private final Runnable eventHook = this::emitEvent;
+    private final Thread replayThread;
+
+    private volatile boolean closing;
+    private volatile long drainDeadline;
+    // werden nur vom Übertragungs-Thread geschrieben
+    private volatile boolean lastAttemptFailed;
+    private volatile long replayedRecords;
+    private volatile long replayBatches;
+    private volatile long replayNanos;
+    private volatile long failedAttempts;
+    private volatile String lastError;
+    // null, bis der Übertragungs-Thread das Schema der Tabelle geprüft hat
+    private Boolean idempotentInsert;
+
+    /**
+     * Öffnet die Outbox (das Verzeichnis wird bei Bedarf angelegt) und startet die Übertragung aller noch
+     * ausstehenden Datensätze, auch aus früheren Läufen.
+     * @param directory Verzeichnis der Outbox.
+     * @param database Ziel der Übertragung; wird beim Schließen der Outbox ebenfalls geschlossen.
+     * @param fsyncPolicy Wann die Outbox auf den Datenträger schreibt.
+     * @param fsyncIntervalMillis Abstand der fsyncs bei {@link OutboxFsyncPolicy#INTERVAL}.
+     * @param replayBatchSize Maximale Anzahl Datensätze pro Batch.
+     * @param drainTimeoutMillis Wie lange {@link #close()} höchstens auf die Übertragung wartet.
+     * @throws IOException falls die Outbox nicht geöffnet werden kann.
+     * @throws IllegalStateException wenn Zustandsdatei und Segmente nicht zusammenpassen.
+     */
+    public static CalculationOutbox open(Path directory, DatabaseManager database, OutboxFsyncPolicy fsyncPolicy,
+                                         long fsyncIntervalMillis, int replayBatchSize, long drainTimeoutMillis) throws IOException {
+        CalculationOutbox outbox = new CalculationOutbox(directory, database, fsyncPolicy, fsyncIntervalMillis,
+                replayBatchSize, drainTimeoutMillis);
+        // erst nach dem Konstruktor, damit der Thread kein halb initialisiertes Objekt sieht
+        FlightRecorder.addPeriodicEvent(OutboxEvent.class, outbox.eventHook);
+        outbox.replayThread.start();
+        return outbox;
+    }
+
+    private CalculationOutbox(Path directory, DatabaseManager database, OutboxFsyncPolicy fsyncPolicy,
+                              long fsyncIntervalMillis, int replayBatchSize, long drainTimeoutMillis) throws IOException {
+        if (fsyncIntervalMillis < 1 || replayBatchSize < 1 || drainTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Ungültige Outbox-Konfiguration.");
+        }
+        this.journal = new CalculationJournal(directory, RECORDS_PER_SEGMENT);
+        this.reader = new CalculationJournalReader(directory);
+        this.state = OutboxState.open(directory);
+        this.firstSequence = journal.nextSequence();
+        if (state.replayedSequence() > firstSequence) {
+            closeQuietly(journal);
+            throw new IllegalStateException("Outbox " + directory + " ist beschädigt: bis Sequenz " + state.replayedSequence()
+                    + " übertragen, aber nur " + firstSequence + " Datensätze vorhanden.");
+        }
+        this.database = database;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.replayBatchSize = replayBatchSize;
+        this.drainTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+
+        this.replayThread = new Thread(this::replayLoop, "lazycarbs-outbox-replay");
+        this.replayThread.setDaemon(true);
+    }
+
+    private static void closeQuietly(CalculationJournal journal) {
+        try {
+            journal.close();
+        } catch (SQLException ignored) {
+            // die Outbox wird ohnehin nicht geöffnet
+        }
+    }
+
+    @Override
+    public void saveCalculation(CalculationRecord calculationRecord) throws SQLException {
+        ensureOpen();
+        journal.saveCalculation(calculationRecord);
+        if (fsyncPolicy == OutboxFsyncPolicy.ALWAYS) {
+            journal.sync();
+        }
+    }
+
+    @Override
+    public void saveCalculations(List<CalculationRecord> calculationRecords) throws SQLException {
+        ensureOpen();
+        journal.saveCalculations(calculationRecords);
+        if (fsyncPolicy == OutboxFsyncPolicy.ALWAYS) {
+            journal.sync();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closing) {
+            throw new IllegalStateException("Die Outbox ist bereits geschlossen.");
+        }
+    }
+
+    /**
+     * Die Verbindung baut der Übertragungs-Thread selbst auf; hier ist nichts zu tun, damit niemand beim Öffnen auf
+     * die Datenbank wartet.
+     */
+    @Override
+    public void warmUp() {
+    }
+
+    private void replayLoop() {
+        long backoffNanos = 0;
+        long retryAt = System.nanoTime();
+        long nextSync = retryAt + fsyncIntervalNanos;
+        boolean draining = false;
+        while (true) {
+            long now = System.nanoTime();
+            if (closing && !draining) {
+                // beim Schließen sofort einen neuen Versuch, auch wenn gerade eine Wartezeit läuft
+                draining = true;
+                retryAt = now;
+                lastAttemptFailed = false;
+            }
+            if (fsyncPolicy == OutboxFsyncPolicy.INTERVAL && now - nextSync >= 0) {
+                journal.sync();
+                nextSync = now + fsyncIntervalNanos;
+            }
+            long pending = journal.nextSequence() - state.replayedSequence();
+            if (closing && (pending == 0 || lastAttemptFailed || now - drainDeadline >= 0)) {
+                return;
+            }
+            if (pending > 0 && now - retryAt >= 0) {
+                if (replayBatch()) {
+                    backoffNanos = 0;
+                    continue; // sofort weiter, solange es etwas zu übertragen gibt
+                }
+                backoffNanos = backoffNanos == 0 ? TimeUnit.MILLISECONDS.toNanos(MIN_BACKOFF_MILLIS)
+                        : Math.min(backoffNanos * 2, TimeUnit.MILLISECONDS.toNanos(MAX_BACKOFF_MILLIS));
+                retryAt = now + backoffNanos;
+            }
+            long wait = IDLE_WAIT_NANOS;
+            if (pending > 0) {
+                wait = Math.min(wait, Math.max(0, retryAt - now));
+            }
+            if (fsyncPolicy == OutboxFsyncPolicy.INTERVAL) {
+                wait = Math.min(wait, Math.max(0, nextSync - now));
+            }
+            LockSupport.parkNanos(this, wait);
+        }
+    }
+
+    // Überträgt den nächsten Batch; false bei einem Fehler (die Datensätze bleiben dann ausstehend)
+    private boolean replayBatch() {
+        long from = state.replayedSequence();
+        // nur Datensätze, deren append() bereits zurückgekehrt ist
+        long available = journal.nextSequence() - from;
+        List<CalculationRecord> records = new ArrayList<>((int) Math.min(available, replayBatchSize));
+        try {
+            reader.forEach(from, Math.min(available, replayBatchSize), true, records::add);
+            if (records.isEmpty()) {
+                throw new IOException("Datensatz " + from + " der Outbox ist nicht lesbar.");
+            }
+            List<String> keys = new ArrayList<>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                keys.add(state.idempotencyKey(from + i));
+            }
+            if (idempotentInsert == null) {
+                idempotentInsert = checkSchema();
+            }
+            long start = System.nanoTime();
+            if (idempotentInsert) {
+                database.saveCalculations(records, keys);
+            } else {
+                database.saveCalculations(records);
+            }
+            replayNanos += System.nanoTime() - start;
+
+            // Datensätze dauerhaft sichern, bevor die Position weiterrückt: sonst könnte eine Sequenznummer nach
+            // einem Stromausfall neu vergeben und ihr Schlüssel von der Datenbank als Duplikat verworfen werden
+            journal.sync();
+            state.advanceTo(from + records.size());
+            journal.deleteSegmentsBefore(from + records.size());
+            replayedRecords += records.size();
+            replayBatches++;
+            lastAttemptFailed = false;
+            return true;
+        } catch (SQLException | IOException e) {
+            failedAttempts++;
+            lastError = e.getMessage();
+            lastAttemptFailed = true;
+            return false;
+        }
+    }
+
+    private boolean checkSchema() throws SQLException {
+        if (database.hasIdempotencyKeyColumn()) {
+            return true;
+        }
+        System.err.println("Outbox: Die Tabelle calculations hat keine Spalte idempotency_key; es wird ohne "
+                + "Idempotenz-Schlüssel übertragen, ein wiederholter Batch kann doppelte Zeilen anlegen. Abhilfe (danach "
+                + "neu starten): ALTER TABLE calculations ADD COLUMN idempotency_key VARCHAR(40) NULL, "
+                + "ADD UNIQUE KEY uk_calculations_idempotency_key (idempotency_key);");
+        return false;
+    }
+
+    /**
+     * @return Aktuelle Zähler (ausstehende Datensätze, Größe auf dem Datenträger, Durchsatz der Übertragung).
+     */
+    public OutboxStats stats() {
+        long nextSequence = journal.nextSequence();
+        long diskBytes;
+        try {
+            diskBytes = journal.sizeOnDisk();
+        } catch (IOException e) {
+            diskBytes = -1;
+        }
+        return new OutboxStats(nextSequence - state.replayedSequence(), diskBytes, nextSequence - firstSequence,
+                replayedRecords, replayBatches, replayNanos, failedAttempts, lastError);
+    }
+
+    public Path directory() {
+        return journal.directory();
+    }
+
+    private void emitEvent() {
+        OutboxStats stats = stats();
+        OutboxEvent event = new OutboxEvent();
+        event.pendingRecords = stats.pendingRecords();
+        event.diskBytes = stats.diskBytes();
+        event.replayedRecords = stats.replayedRecords();
+        event.replayRecordsPerSecond = stats.replayRecordsPerSecond();
+        event.failedAttempts = stats.failedAttempts();
+        event.commit();
+    }
+
+    /**
+     * Nimmt keine Datensätze mehr an, überträgt ausstehende Datensätze, solange die Datenbank antwortet und die
+     * Wartezeit nicht abgelaufen ist, und schließt danach Outbox und Datenbankverbindungen.
+     * @throws SQLException falls das Schließen fehlschlägt.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closing) {
+            return;
+        }
+        drainDeadline = System.nanoTime() + drainTimeoutNanos;
+        closing = true;
+        LockSupport.unpark(replayThread);
+        try {
+            replayThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        FlightRecorder.removePeriodicEvent(eventHook);
+        try {
+            journal.close();
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package de.lazycarbs.calculator.outbox;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodisches JDK-Flight-Recorder-Ereignis mit dem Stand der {@link CalculationOutbox}
+ * (in JDK Mission Control unter "LazyCarbs").
+ */
+@Name("de.lazycarbs.Outbox")
+@Label("Outbox")
+@Category("LazyCarbs")
+@Description("Größe der Outbox und Durchsatz der Übertragung in die Datenbank")
+@Period("1 s")
+@StackTrace(false)
+class OutboxEvent extends Event {
+
+    @Label("Ausstehende Datensätze")
+    long pendingRecords;
+
+    @Label("Größe auf dem Datenträger")
+    @DataAmount
+    long diskBytes;
+
+    @Label("Übertragene Datensätze")
+    long replayedRecords;
+
+    @Label("Übertragung (Datensätze/s)")
+    double replayRecordsPerSecond;
+
+    @Label("Fehlversuche")
+    long failedAttempts;
+}
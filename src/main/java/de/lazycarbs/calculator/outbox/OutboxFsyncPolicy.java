@@ -0,0 +1,29 @@
+package de.lazycarbs.calculator.outbox;
+
+/**
+ * Wann die {@link CalculationOutbox} ihre Datensätze auf den Datenträger schreibt (fsync).
+ * <ul>
+ *     <li>ALWAYS: nach jedem Speichern, bevor der Aufruf zurückkehrt (übersteht auch einen Stromausfall, kostet pro
+ *     Datensatz ein fsync)</li>
+ *     <li>INTERVAL: im Hintergrund in festen Abständen (Standard; bei einem Stromausfall gehen höchstens die Datensätze
+ *     des letzten Intervalls verloren, bei einem Prozessabsturz keine)</li>
+ *     <li>NEVER: nur beim Segmentwechsel und beim Schließen, sonst entscheidet das Betriebssystem</li>
+ * </ul>
+ */
+public enum OutboxFsyncPolicy {
+    ALWAYS,
+    INTERVAL,
+    NEVER;
+
+    /**
+     * @throws IllegalArgumentException wenn der Name unbekannt ist.
+     */
+    public static OutboxFsyncPolicy fromName(String name) {
+        return switch (name.toLowerCase()) {
+            case "always" -> ALWAYS;
+            case "interval" -> INTERVAL;
+            case "never" -> NEVER;
+            default -> throw new IllegalArgumentException("Unbekannte fsync-Strategie: " + name + " (erlaubt: always, interval, never)");
+        };
+    }
+}
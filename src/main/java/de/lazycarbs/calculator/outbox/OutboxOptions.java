@@ -0,0 +1,42 @@
+package de.lazycarbs.calculator.outbox;
+
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Gemeinsame Kommandozeilen-Optionen für die {@link CalculationOutbox}: "--outbox DIR" (Verzeichnis, Standard
+ * "lazycarbs-outbox"), "--outbox-fsync always|interval|never", "--outbox-fsync-interval MS" (Standard 100),
+ * "--outbox-batch-size N" (Standard 500), "--outbox-drain S" (Wartezeit beim Beenden, Standard 10) und
+ * "--no-outbox" (direkt und synchron in die Datenbank schreiben wie bisher).
+ */
+public final class OutboxOptions {
+
+    private static final int DEFAULT_FSYNC_INTERVAL_MILLIS = 100;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_DRAIN_SECONDS = 10;
+
+    private OutboxOptions() {
+    }
+
+    /**
+     * Legt die Outbox vor die Datenbank, sofern nicht "--no-outbox" angegeben ist.
+     * @return Die Outbox oder ohne Outbox die Datenbank selbst.
+     * @throws IOException falls die Outbox nicht geöffnet werden kann.
+     * @throws IllegalArgumentException bei ungültigen Optionen.
+     */
+    public static CalculationStore wrap(String[] args, DatabaseManager database) throws IOException {
+        if (CommandLineOptions.hasFlag(args, "--no-outbox")) {
+            return database;
+        }
+        Path directory = Path.of(CommandLineOptions.valueOf(args, "--outbox", CalculationOutbox.DEFAULT_DIRECTORY));
+        OutboxFsyncPolicy fsyncPolicy = OutboxFsyncPolicy.fromName(CommandLineOptions.valueOf(args, "--outbox-fsync", "interval"));
+        int fsyncIntervalMillis = CommandLineOptions.intValueOf(args, "--outbox-fsync-interval", DEFAULT_FSYNC_INTERVAL_MILLIS);
+        int batchSize = CommandLineOptions.intValueOf(args, "--outbox-batch-size", DEFAULT_BATCH_SIZE);
+        int drainSeconds = CommandLineOptions.intValueOf(args, "--outbox-drain", DEFAULT_DRAIN_SECONDS);
+        return CalculationOutbox.open(directory, database, fsyncPolicy, fsyncIntervalMillis, batchSize, drainSeconds * 1_000L);
+    }
+}
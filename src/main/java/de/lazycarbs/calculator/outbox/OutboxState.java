@@ -0,0 +1,98 @@
+package de.lazycarbs.calculator.outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Dauerhafter Zustand einer {@link CalculationOutbox} in der Datei "outbox.state" (24 Byte, Little Endian):
+ * <pre>
+ * magic (int) | version (int) | Kennung der Outbox (long) | erste noch nicht übertragene Sequenznummer (long)
+ * </pre>
+ * Die Kennung wird beim ersten Öffnen zufällig gewählt und bildet mit der Sequenznummer den Idempotenz-Schlüssel.
+ * Die Datei wird immer vollständig in eine temporäre Datei geschrieben, per fsync gesichert und dann atomar
+ * umbenannt; nach einem Absturz gilt also entweder die alte oder die neue Position.
+ */
+final class OutboxState {
+
+    static final String FILE_NAME = "outbox.state";
+
+    private static final int MAGIC = 0x314F434C; // "LCO1"
+    private static final int VERSION = 1;
+    private static final int SIZE = 24;
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final String keyPrefix;
+    private final long outboxId;
+    private volatile long replayedSequence;
+
+    private OutboxState(Path directory, long outboxId, long replayedSequence) {
+        this.file = directory.resolve(FILE_NAME);
+        this.temporaryFile = directory.resolve(FILE_NAME + ".tmp");
+        this.outboxId = outboxId;
+        this.keyPrefix = HexFormat.of().toHexDigits(outboxId) + '-';
+        this.replayedSequence = replayedSequence;
+    }
+
+    /**
+     * Liest den Zustand aus dem Verzeichnis oder legt ihn mit einer neuen Kennung an.
+     * @throws IllegalStateException wenn die Datei beschädigt ist.
+     */
+    static OutboxState open(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            OutboxState state = new OutboxState(directory, new SecureRandom().nextLong(), 0);
+            state.write(0);
+            return state;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() != SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Keine gültige Outbox-Zustandsdatei: " + file);
+        }
+        return new OutboxState(directory, buffer.getLong(8), buffer.getLong(16));
+    }
+
+    /**
+     * @return Die erste Sequenznummer, die noch nicht in der Datenbank bestätigt ist.
+     */
+    long replayedSequence() {
+        return replayedSequence;
+    }
+
+    /**
+     * @return Der Idempotenz-Schlüssel eines Datensatzes (höchstens 37 Zeichen), eindeutig über alle Outboxen.
+     */
+    String idempotencyKey(long sequence) {
+        return keyPrefix + sequence;
+    }
+
+    /**
+     * Sichert die neue Position dauerhaft.
+     * @throws IOException falls die Datei nicht geschrieben werden kann; die alte Position bleibt dann gültig.
+     */
+    void advanceTo(long sequence) throws IOException {
+        write(sequence);
+        replayedSequence = sequence;
+    }
+
+    private void write(long sequence) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(outboxId).putLong(sequence).flip();
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,34 @@
+package de.lazycarbs.calculator.outbox;
+
+import java.util.Locale;
+
+/**
+ * Momentaufnahme der Zähler einer {@link CalculationOutbox}.
+ * @param pendingRecords Datensätze, die noch nicht in der Datenbank bestätigt sind.
+ * @param diskBytes Größe der Segment-Dateien der Outbox.
+ * @param appendedRecords Seit dem Öffnen angehängte Datensätze.
+ * @param replayedRecords Seit dem Öffnen in die Datenbank übertragene Datensätze.
+ * @param replayBatches Anzahl der erfolgreich übertragenen Batches.
+ * @param replayNanos Summe der Zeit in der Datenbank für erfolgreiche Batches.
+ * @param failedAttempts Fehlgeschlagene Übertragungsversuche (Datenbank nicht erreichbar o.ä.).
+ * @param lastError Meldung des letzten Fehlversuchs oder null.
+ */
+public record OutboxStats(long pendingRecords, long diskBytes, long appendedRecords, long replayedRecords,
+                          long replayBatches, long replayNanos, long failedAttempts, String lastError) {
+
+    /**
+     * @return Durchsatz der Übertragung in Datensätzen pro Sekunde Datenbankzeit.
+     */
+    public double replayRecordsPerSecond() {
+        return replayNanos == 0 ? 0.0 : replayedRecords * 1e9 / replayNanos;
+    }
+
+    @Override
+    public String toString() {
+        String line = String.format(Locale.ROOT, "ausstehend: %d (%.1f KiB), angehängt: %d, übertragen: %d in %d Batches "
+                        + "(%.0f Datensätze/s), Fehlversuche: %d",
+                pendingRecords, diskBytes / 1024.0, appendedRecords, replayedRecords, replayBatches,
+                replayRecordsPerSecond(), failedAttempts);
+        return lastError == null ? line : line + ", letzter Fehler: " + lastError;
+    }
+}
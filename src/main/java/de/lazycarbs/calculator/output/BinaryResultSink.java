@@ -0,0 +1,98 @@
+package de.lazycarbs.calculator.output;
+
+import de.lazycarbs.calculator.batch.ColumnarMealBatch;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Schreibt Ergebnisse als Datensätze fester Länge (Little Endian), ohne Zahlen in Text umzuwandeln.
+ * <p>
+ * Kopf: "LCRS" (int {@value #MAGIC}), Version (int), Länge eines Datensatzes (int). Danach je Ergebnis
+ * {@value #RECORD_BYTES} Byte: Zeilennummer (long); Kohlenhydrate, Kalorien, übliche Kalorien pro BE,
+ * Insulin-Typ (je double); Stunde, Minute (je byte); Bewegungs-Faktor, Bolusfaktor, magerer BE-Faktor,
+ * purer BE-Faktor, BE-Summe, Kalorien pro BE, Fett-/Eiweiß-Kalorien (je double); Methodencode (byte, wie
+ * {@link ColumnarMealBatch}); eF, kalorischer Überschuss, verzögerter Bolus, Sofort-Bolus, angepasster Sofort-Bolus
+ * (je double).
+ */
+public class BinaryResultSink implements ResultSink {
+
+    public static final int MAGIC = 0x5352434C; // "LCRS" in Little Endian
+    public static final int VERSION = 1;
+    public static final int RECORD_BYTES = 8 + 4 * 8 + 2 + 7 * 8 + 1 + 5 * 8;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @param out Ziel; wird intern gepuffert.
+     */
+    public BinaryResultSink(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void writeHeader() throws IOException {
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES);
+    }
+
+    @Override
+    public void write(long sequence, CalculationResult result) throws IOException {
+        long start = PipelineMetrics.start();
+        if (buffer.remaining() < RECORD_BYTES) {
+            drain();
+        }
+        MealInput input = result.input();
+        IntermediateBolusFactors factors = result.intermediateBolusFactors();
+        MethodResults methodResults = result.methodResults();
+        buffer.putLong(sequence)
+                .putDouble(input.mealCarbs())
+                .putDouble(input.mealCalories())
+                .putDouble(input.usualBeCalories())
+                .putDouble(input.insulinTypeCalorieCovering())
+                .put((byte) input.currentHour())
+                .put((byte) input.currentMinute())
+                .putDouble(input.movementFactor())
+                .putDouble(result.usualBolusFactor())
+                .putDouble(factors.leanBeFactor())
+                .putDouble(factors.pureCarbBeFactor())
+                .putDouble(factors.beSum())
+                .putDouble(factors.beCalories())
+                .putDouble(factors.fatProteinCalories())
+                .put(ColumnarMealBatch.methodCode(result.methodSelection().strategy().getClass().getSimpleName()))
+                .putDouble(methodResults.correctBeFactor())
+                .putDouble(methodResults.calorieSurplus())
+                .putDouble(methodResults.delayedCalorieBolus())
+                .putDouble(methodResults.correctBolusSum())
+                .putDouble(result.finalCorrectBolus());
+        PipelineMetrics.record(PipelineStage.OUTPUT, start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
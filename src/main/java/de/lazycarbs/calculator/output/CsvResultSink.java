@@ -0,0 +1,91 @@
+package de.lazycarbs.calculator.output;
+
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Schreibt Ergebnisse als CSV mit Kopfzeile. Zahlen werden unabhängig vom Locale in der kürzesten eindeutigen
+ * Darstellung mit '.' als Dezimaltrenner geschrieben (wie {@link Double#toString(double)}).
+ */
+public class CsvResultSink implements ResultSink {
+
+    public static final String HEADER = "line,meal_carbs,meal_calories,usual_be_calories,insulin_type_calorie_covering,"
+            + "current_hour,current_minute,usual_bolus_factor,"
+            + "intermediate_lean_be_factor,intermediate_pure_carb_be_factor,intermediate_be_sum,"
+            + "intermediate_be_calories,intermediate_fat_protein_calories,selected_method_name,"
+            + "method_correct_be_factor,method_calorie_surplus,method_delayed_calorie_bolus,"
+            + "method_correct_bolus_sum,movement_factor,final_correct_bolus";
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * @param writer Ziel; sollte gepuffert sein.
+     */
+    public CsvResultSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void writeHeader() throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+    }
+
+    @Override
+    public void write(long sequence, CalculationResult result) throws IOException {
+        long start = PipelineMetrics.start();
+        line.setLength(0);
+        appendRecord(line, sequence, result).append('\n');
+        writer.append(line);
+        PipelineMetrics.record(PipelineStage.OUTPUT, start);
+    }
+
+    /**
+     * Hängt das Ergebnis eines Datensatzes als CSV-Zeile (ohne Zeilenumbruch) an.
+     * @param sequence Zeilennummer bzw. laufende Nummer des Datensatzes.
+     * @return line.
+     */
+    public static StringBuilder appendRecord(StringBuilder line, long sequence, CalculationResult result) {
+        MealInput input = result.input();
+        IntermediateBolusFactors factors = result.intermediateBolusFactors();
+        MethodResults methodResults = result.methodResults();
+        return line.append(sequence).append(',')
+                .append(input.mealCarbs()).append(',')
+                .append(input.mealCalories()).append(',')
+                .append(input.usualBeCalories()).append(',')
+                .append(input.insulinTypeCalorieCovering()).append(',')
+                .append(input.currentHour()).append(',')
+                .append(input.currentMinute()).append(',')
+                .append(result.usualBolusFactor()).append(',')
+                .append(factors.leanBeFactor()).append(',')
+                .append(factors.pureCarbBeFactor()).append(',')
+                .append(factors.beSum()).append(',')
+                .append(factors.beCalories()).append(',')
+                .append(factors.fatProteinCalories()).append(',')
+                .append(result.methodSelection().strategy().getClass().getSimpleName()).append(',')
+                .append(methodResults.correctBeFactor()).append(',')
+                .append(methodResults.calorieSurplus()).append(',')
+                .append(methodResults.delayedCalorieBolus()).append(',')
+                .append(methodResults.correctBolusSum()).append(',')
+                .append(input.movementFactor()).append(',')
+                .append(result.finalCorrectBolus());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,210 @@
+package de.lazycarbs.calculator.output;
+
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodSelectionResult;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.methodstrategy.CalculationStrategy;
+import de.lazycarbs.calculator.methodstrategy.MethodACalorieSurplus;
+import de.lazycarbs.calculator.methodstrategy.MethodBSupersize;
+import de.lazycarbs.calculator.methodstrategy.MethodCHighcarb;
+import de.lazycarbs.calculator.methodstrategy.MethodDNocarb;
+
+/**
+ * Die deutsche, für Menschen gedachte Darstellung einer Berechnung (Eingabe, Methode, Ergebnisse).
+ * Alle Methoden hängen Text an einen StringBuilder an, damit ein Block mit einem einzigen Schreibzugriff ausgegeben
+ * werden kann; Zahlen werden über den {@link NumberFormatter} formatiert.
+ * Die Klasse ist zustandslos und thread-sicher.
+ */
+public class GermanResultView {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final char decimalSeparator;
+
+    /**
+     * @param decimalSeparator Dezimaltrenner der Anzeige ('.' oder ',').
+     */
+    public GermanResultView(char decimalSeparator) {
+        this.decimalSeparator = decimalSeparator;
+    }
+
+    public StringBuilder appendLine(StringBuilder target, String line) {
+        return target.append(line).append(NEWLINE);
+    }
+
+    public StringBuilder appendWelcome(StringBuilder target) {
+        target.append(NEWLINE);
+        appendLine(target, "*************************************************");
+        appendLine(target, "*********** Willkommen bei LAZY-CARBS ***********");
+        appendLine(target, "*************************************************");
+        return target.append(NEWLINE);
+    }
+
+    // ein einzelner beliebiger Wert in IE (z.B. Bolusfaktor oder angepasster Bolus)
+    public StringBuilder appendResult(StringBuilder target, String prefix, double result) {
+        target.append(prefix).append(' ');
+        return number(target, result, 4).append(" IE ").append(NEWLINE);
+    }
+
+    public StringBuilder appendUserEntry(StringBuilder target, String prefix, double mealCarbs, double mealCalories,
+                                         double usualBeCalories, double insulinTypeCalorieCovering, int currentHour,
+                                         int currentMinute, double usualBolusFactor, IntermediateBolusFactors intermediateBolusFactors) {
+        appendLine(target, prefix);
+        number(target.append("Kohlenhydrate der Mahlzeit: "), mealCarbs, 2).append(" g (= ");
+        number(target, intermediateBolusFactors.beSum(), 2).append(" BE)").append(NEWLINE);
+        number(target.append("Kalorien der Mahlzeit: "), mealCalories, 2).append(" kcal (= ");
+        number(target, intermediateBolusFactors.beCalories(), 2).append(" kcal/BE)").append(NEWLINE);
+        number(target.append("Übliche Kalorien pro BE: "), usualBeCalories, 0).append(" kcal/BE").append(NEWLINE);
+        number(target.append("Insulin-Typ Kalorienabdeckung: "), insulinTypeCalorieCovering, 0).append(" kcal").append(NEWLINE);
+        target.append(NEWLINE);
+        target.append("Eingegebene Uhrzeit: ");
+        twoDigits(target, currentHour).append(':');
+        twoDigits(target, currentMinute).append(" Uhr").append(NEWLINE);
+        return appendResult(target, "Berechneter Bolusfaktor für eine Mahlzeit um diese Uhrzeit: ", usualBolusFactor);
+    }
+
+    // die relevanten Werte in Abhängigkeit der gewählten Methode
+    public StringBuilder appendCalculationResults(StringBuilder target, String prefix, IntermediateBolusFactors factors,
+                                                  MethodResults methodResults, CalculationStrategy strategy, double mealCalories,
+                                                  double usualBeCalories, double usualBolusFactor) {
+        appendLine(target, prefix);
+        if (strategy instanceof MethodBSupersize) {
+            number(target.append("purer BE-Faktor: ** "), factors.pureCarbBeFactor(), 4).append(" IE/BE ** (50 + 100 / ");
+            factorSource(target, usualBeCalories, usualBolusFactor).append(") ").append(NEWLINE);
+            appendLeanBeFactor(target, factors, usualBeCalories, usualBolusFactor);
+            appendCorrectBeFactor(target, methodResults, factors, usualBeCalories, usualBolusFactor, " ");
+            appendCalorieSurplus(target, methodResults);
+            appendLine(target, "Sofort-Bolus: eF x 7,5 BEs + Überhängende BEs x purer BE-Faktor");
+            appendDelayedBolus(target, methodResults, factors, " ** (", " ");
+            target.append(NEWLINE);
+            appendLine(target, "****** Der Ruhe-Bolus für diese Mahlzeit entspricht: ******");
+            number(target.append("*** Sofort-Bolus: "), methodResults.correctBolusSum(), 4).append(" IE *** ").append(NEWLINE);
+            number(target.append("*** Verzögerter-Bolus: "), methodResults.delayedCalorieBolus(), 4).append(" IE über 8h *** ").append(NEWLINE);
+        } else if (strategy instanceof MethodDNocarb) {
+            number(target.append("kalorische Pseudo-BEs ("), mealCalories, 2).append(" / 200): ** ");
+            number(target, mealCalories / 200, 2).append(" IE/BE ** ").append(NEWLINE);
+            appendLeanBeFactor(target, factors, usualBeCalories, usualBolusFactor);
+            target.append(NEWLINE);
+            number(target.append("Bolus über 8h: ** "), methodResults.delayedCalorieBolus(), 4).append(" IE ** (");
+            number(target, mealCalories / 200, 2).append(" x ");
+            number(target, factors.leanBeFactor(), 4).append(')').append(NEWLINE);
+            appendLine(target, "****** Der Ruhe-Bolus für diese Mahlzeit entspricht: ******");
+            number(target.append("*** "), methodResults.delayedCalorieBolus(), 4).append(" IE über 8h *** ").append(NEWLINE);
+        } else if (strategy instanceof MethodCHighcarb) {
+            appendCorrectBeFactor(target, methodResults, factors, usualBeCalories, usualBolusFactor, " ");
+            appendImmediateBolusFormula(target, methodResults, factors);
+            target.append(NEWLINE);
+            appendLine(target, "****** Der Ruhe-Bolus für diese Mahlzeit entspricht: ******");
+            number(target.append("*** Sofort-Bolus: "), methodResults.correctBolusSum(), 4).append(" IE *** ").append(NEWLINE);
+        } else if (strategy instanceof MethodACalorieSurplus) {
+            appendLeanBeFactor(target, factors, usualBeCalories, usualBolusFactor);
+            appendCorrectBeFactor(target, methodResults, factors, usualBeCalories, usualBolusFactor, "");
+            appendCalorieSurplus(target, methodResults);
+            appendImmediateBolusFormula(target, methodResults, factors);
+            appendDelayedBolus(target, methodResults, factors, " **  (", "");
+            target.append(NEWLINE);
+            appendLine(target, "****** Der Ruhe-Bolus für diese Mahlzeit entspricht: ******");
+            number(target.append("*** Sofort-Bolus: "), methodResults.correctBolusSum(), 4).append(" IE *** ").append(NEWLINE);
+            number(target.append("*** Verzögerter-Bolus: "), methodResults.delayedCalorieBolus(), 4).append(" IE über 8h *** ").append(NEWLINE);
+        }
+        return target;
+    }
+
+    /**
+     * Die Begründung der Methodenwahl wie {@link MethodSelectionResult#explanation()} samt Zeilenumbruch, aber mit dem
+     * Dezimaltrenner dieser Anzeige und ohne String.format.
+     */
+    public StringBuilder appendMethodSelection(StringBuilder target, MethodSelectionResult selection) {
+        target.append('\n').append("Deine Mahlzeit entspricht einer: ").append(NEWLINE);
+        CalculationStrategy strategy = selection.strategy();
+        MethodRuleTable rules = selection.rules();
+        target.append("*** ").append(selection.title()).append(" *** ").append(NEWLINE);
+        if (!selection.hasStandardReason()) {
+            // eigene Regeltabelle: die Bedingungen der Regel, die gegriffen hat
+            selection.appendRuleReason(target, decimalSeparator).append(NEWLINE);
+        } else if (strategy instanceof MethodBSupersize) {
+            number(target.append("Denn: BEs: "), selection.beSum(), 2).append(" > ")
+                    .append(MethodSelectionResult.formatThreshold(rules.supersizeBe(), decimalSeparator))
+                    .append(" BE und Kalorien aus F/E: ");
+            number(target, selection.fatProteinCalories(), 2).append(" > ")
+                    .append(MethodSelectionResult.formatThreshold(rules.supersizeFatProteinCalories(), decimalSeparator))
+                    .append(" kcal").append(NEWLINE);
+        } else if (strategy instanceof MethodDNocarb) {
+            number(target.append("Denn: KH: "), selection.mealCarbs(), 2).append("g < ")
+                    .append(MethodSelectionResult.formatThreshold(rules.noCarbMaxCarbs(), decimalSeparator))
+                    .append('g').append(NEWLINE);
+        } else {
+            number(target.append("Denn: die Kalorien pro BE: "), selection.beCalories(), 2)
+                    .append(strategy instanceof MethodCHighcarb ? " sind kleiner" : " sind größer").append(" als ")
+                    .append(selection.ratioPrefix(decimalSeparator)).append("deine üblichen Kcal pro BE: ");
+            number(target, selection.usualBeCalories(), 2).append(' ').append(NEWLINE);
+        }
+        return target.append(NEWLINE);
+    }
+
+    /**
+     * Die vollständige Darstellung eines Ergebnisses aus dem Batch- oder Server-Modus: Eingabe, Begründung der
+     * Methodenwahl, Ergebnisse der Methode und der an den Bewegungs-Faktor angepasste Bolus.
+     * @param title Überschrift des Blocks.
+     */
+    public StringBuilder appendCalculation(StringBuilder target, String title, CalculationResult result) {
+        MealInput input = result.input();
+        appendUserEntry(target, title, input.mealCarbs(), input.mealCalories(), input.usualBeCalories(),
+                input.insulinTypeCalorieCovering(), input.currentHour(), input.currentMinute(), result.usualBolusFactor(),
+                result.intermediateBolusFactors());
+        appendMethodSelection(target, result.methodSelection());
+        appendCalculationResults(target, "*** Relevante Größen für deine Mahlzeit: ***", result.intermediateBolusFactors(),
+                result.methodResults(), result.methodSelection().strategy(), input.mealCalories(), input.usualBeCalories(),
+                result.usualBolusFactor());
+        number(target.append("Bewegungs-Faktor: "), input.movementFactor(), 2).append(NEWLINE);
+        return appendResult(target, "Korrekter Sofort-Bolus (angepasst an Bewegungs-Faktor): ", result.finalCorrectBolus());
+    }
+
+    private void appendLeanBeFactor(StringBuilder target, IntermediateBolusFactors factors, double usualBeCalories, double usualBolusFactor) {
+        number(target.append("magerer BE-Faktor: ** "), factors.leanBeFactor(), 4).append(" IE/BE ** (100+100 / ");
+        factorSource(target, usualBeCalories, usualBolusFactor).append(')').append(NEWLINE);
+    }
+
+    private void appendCorrectBeFactor(StringBuilder target, MethodResults methodResults, IntermediateBolusFactors factors,
+                                       double usualBeCalories, double usualBolusFactor, String trailer) {
+        number(target.append("eF: ** "), methodResults.correctBeFactor(), 4).append(" IE/BE ** (");
+        number(target, factors.beCalories(), 0).append(" + 100 / ");
+        factorSource(target, usualBeCalories, usualBolusFactor).append(')').append(trailer).append(NEWLINE);
+    }
+
+    private void appendCalorieSurplus(StringBuilder target, MethodResults methodResults) {
+        number(target.append("Kalorischer Überschuss: "), methodResults.calorieSurplus(), 0).append(" kcal ").append(NEWLINE);
+    }
+
+    private void appendImmediateBolusFormula(StringBuilder target, MethodResults methodResults, IntermediateBolusFactors factors) {
+        number(target.append("Sofort-Bolus: eF: "), methodResults.correctBeFactor(), 2).append(" x BEs: ");
+        number(target, factors.beSum(), 2).append(' ').append(NEWLINE);
+    }
+
+    private void appendDelayedBolus(StringBuilder target, MethodResults methodResults, IntermediateBolusFactors factors,
+                                    String separator, String trailer) {
+        number(target.append("Verzögerter Bolus: ** "), methodResults.delayedCalorieBolus(), 2).append(" IE").append(separator);
+        number(target, methodResults.calorieSurplus(), 0).append(" / 200 x ");
+        number(target, factors.leanBeFactor(), 2).append(')').append(trailer).append(NEWLINE);
+    }
+
+    // "<übliche Kalorien pro BE> + 100 x <Bolusfaktor>" aus den Formeln der Faktoren
+    private StringBuilder factorSource(StringBuilder target, double usualBeCalories, double usualBolusFactor) {
+        number(target, usualBeCalories, 0).append(" + 100 x ");
+        return number(target, usualBolusFactor, 2);
+    }
+
+    private StringBuilder number(StringBuilder target, double value, int decimals) {
+        return NumberFormatter.appendFixed(target, value, decimals, decimalSeparator);
+    }
+
+    private static StringBuilder twoDigits(StringBuilder target, int value) {
+        if (value >= 0 && value < 10) {
+            target.append('0');
+        }
+        return target.append(value);
+    }
+}
@@ -0,0 +1,79 @@
+package de.lazycarbs.calculator.output;
+
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Schreibt Ergebnisse als JSON-Lines (ein flaches Objekt pro Zeile, Feldnamen wie in {@link MealInput} und den
+ * Ergebnis-Records). Zahlen werden unabhängig vom Locale wie {@link Double#toString(double)} geschrieben.
+ */
+public class JsonLinesResultSink implements ResultSink {
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(768);
+
+    /**
+     * @param writer Ziel; sollte gepuffert sein.
+     */
+    public JsonLinesResultSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(long sequence, CalculationResult result) throws IOException {
+        long start = PipelineMetrics.start();
+        line.setLength(0);
+        appendRecord(line, sequence, result).append('\n');
+        writer.append(line);
+        PipelineMetrics.record(PipelineStage.OUTPUT, start);
+    }
+
+    /**
+     * Hängt das Ergebnis eines Datensatzes als JSON-Objekt (ohne Zeilenumbruch) an.
+     * @param sequence Zeilennummer bzw. laufende Nummer des Datensatzes.
+     * @return line.
+     */
+    public static StringBuilder appendRecord(StringBuilder line, long sequence, CalculationResult result) {
+        MealInput input = result.input();
+        IntermediateBolusFactors factors = result.intermediateBolusFactors();
+        MethodResults methodResults = result.methodResults();
+        return line.append("{\"line\":").append(sequence)
+                .append(",\"mealCarbs\":").append(input.mealCarbs())
+                .append(",\"mealCalories\":").append(input.mealCalories())
+                .append(",\"usualBeCalories\":").append(input.usualBeCalories())
+                .append(",\"insulinTypeCalorieCovering\":").append(input.insulinTypeCalorieCovering())
+                .append(",\"currentHour\":").append(input.currentHour())
+                .append(",\"currentMinute\":").append(input.currentMinute())
+                .append(",\"usualBolusFactor\":").append(result.usualBolusFactor())
+                .append(",\"leanBeFactor\":").append(factors.leanBeFactor())
+                .append(",\"pureCarbBeFactor\":").append(factors.pureCarbBeFactor())
+                .append(",\"beSum\":").append(factors.beSum())
+                .append(",\"beCalories\":").append(factors.beCalories())
+                .append(",\"fatProteinCalories\":").append(factors.fatProteinCalories())
+                .append(",\"selectedMethodName\":\"").append(result.methodSelection().strategy().getClass().getSimpleName()).append('"')
+                .append(",\"correctBeFactor\":").append(methodResults.correctBeFactor())
+                .append(",\"calorieSurplus\":").append(methodResults.calorieSurplus())
+                .append(",\"delayedCalorieBolus\":").append(methodResults.delayedCalorieBolus())
+                .append(",\"correctBolusSum\":").append(methodResults.correctBolusSum())
+                .append(",\"movementFactor\":").append(input.movementFactor())
+                .append(",\"finalCorrectBolus\":").append(result.finalCorrectBolus())
+                .append('}');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
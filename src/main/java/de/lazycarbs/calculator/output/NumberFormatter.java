@@ -0,0 +1,88 @@
+package de.lazycarbs.calculator.output;
+
+import java.util.Locale;
+
+/**
+ * Schnelle, vom Locale unabhängige Ausgabe von Zahlen mit fester Anzahl Nachkommastellen.
+ * <p>
+ * Das Ergebnis entspricht {@code String.format(Locale.ROOT, "%.nf", value)} (kaufmännisch gerundet, kein
+ * Tausendertrenner, "-0.00" für kleine negative Werte), nur mit frei wählbarem Dezimaltrenner. Im Normalfall wird
+ * ohne Formatter und ohne Zwischen-Strings über ganze Zahlen gerechnet. Liegt ein Wert so nahe an der Rundungsgrenze,
+ * dass die Gleitkomma-Multiplikation das Ergebnis ändern könnte, oder ist er sehr groß, wird auf String.format
+ * zurückgegriffen.
+ */
+public final class NumberFormatter {
+
+    public static final int MAX_DECIMALS = 9;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_DECIMALS + 1];
+    // Bis hier ist der Abstand benachbarter double-Werte deutlich kleiner als HALF_TOLERANCE
+    private static final double FAST_LIMIT = 1e9;
+    private static final double HALF_TOLERANCE = 1e-6;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private NumberFormatter() {
+    }
+
+    /**
+     * Hängt einen Wert mit '.' als Dezimaltrenner an.
+     * @see #appendFixed(StringBuilder, double, int, char)
+     */
+    public static StringBuilder appendFixed(StringBuilder target, double value, int decimals) {
+        return appendFixed(target, value, decimals, '.');
+    }
+
+    /**
+     * Hängt einen Wert mit genau {@code decimals} Nachkommastellen an.
+     * @param decimalSeparator Dezimaltrenner, z.B. '.' für Dateien oder ',' für eine deutsche Anzeige.
+     * @return target.
+     * @throws IllegalArgumentException wenn decimals nicht zwischen 0 und {@value #MAX_DECIMALS} liegt.
+     */
+    public static StringBuilder appendFixed(StringBuilder target, double value, int decimals, char decimalSeparator) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("Nachkommastellen müssen zwischen 0 und " + MAX_DECIMALS + " liegen: " + decimals);
+        }
+        if (!Double.isFinite(value)) {
+            return target.append(value);
+        }
+        boolean negative = Double.doubleToRawLongBits(value) < 0;
+        double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+        if (!(scaled < FAST_LIMIT)) {
+            return appendSlow(target, value, decimals, decimalSeparator);
+        }
+        long units = (long) scaled;
+        double fraction = scaled - units;
+        if (Math.abs(fraction - 0.5) < HALF_TOLERANCE) {
+            return appendSlow(target, value, decimals, decimalSeparator);
+        }
+        if (fraction > 0.5) {
+            units++;
+        }
+
+        if (negative) {
+            target.append('-');
+        }
+        long unit = POWERS_OF_TEN[decimals];
+        target.append(units / unit);
+        if (decimals > 0) {
+            long fractionDigits = units % unit;
+            target.append(decimalSeparator);
+            for (long place = unit / 10; place > 1 && fractionDigits < place; place /= 10) {
+                target.append('0');
+            }
+            target.append(fractionDigits);
+        }
+        return target;
+    }
+
+    private static StringBuilder appendSlow(StringBuilder target, double value, int decimals, char decimalSeparator) {
+        String text = String.format(Locale.ROOT, "%." + decimals + "f", value);
+        return target.append(decimalSeparator == '.' ? text : text.replace('.', decimalSeparator));
+    }
+}
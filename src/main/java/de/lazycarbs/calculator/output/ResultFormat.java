@@ -0,0 +1,53 @@
+package de.lazycarbs.calculator.output;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ausgabeformate für Berechnungsergebnisse.
+ * <ul>
+ *     <li>TEXT: die deutsche Darstellung wie im interaktiven Modus, ein Block pro Ergebnis</li>
+ *     <li>CSV: eine Zeile pro Ergebnis mit Kopfzeile</li>
+ *     <li>JSON_LINES: ein JSON-Objekt pro Zeile</li>
+ *     <li>BINARY: Datensätze fester Länge, siehe {@link BinaryResultSink}</li>
+ * </ul>
+ */
+public enum ResultFormat {
+    TEXT,
+    CSV,
+    JSON_LINES,
+    BINARY;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Öffnet einen gepufferten {@link ResultSink} in diesem Format.
+     * @param out Ziel; wird mit dem Sink geschlossen.
+     */
+    public ResultSink open(OutputStream out) {
+        if (this == BINARY) {
+            return new BinaryResultSink(out);
+        }
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        return switch (this) {
+            case TEXT -> new TextResultSink(writer, ',');
+            case CSV -> new CsvResultSink(writer);
+            default -> new JsonLinesResultSink(writer);
+        };
+    }
+
+    /**
+     * @throws IllegalArgumentException wenn der Name unbekannt ist.
+     */
+    public static ResultFormat fromName(String name) {
+        return switch (name.toLowerCase()) {
+            case "text", "txt" -> TEXT;
+            case "csv" -> CSV;
+            case "jsonl", "json", "ndjson" -> JSON_LINES;
+            case "binary", "bin" -> BINARY;
+            default -> throw new IllegalArgumentException("Unbekanntes Ausgabeformat: " + name + " (erlaubt: text, csv, jsonl, binary)");
+        };
+    }
+}
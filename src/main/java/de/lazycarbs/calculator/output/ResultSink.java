@@ -0,0 +1,29 @@
+package de.lazycarbs.calculator.output;
+
+import de.lazycarbs.calculator.data.CalculationResult;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Ziel für Berechnungsergebnisse (Konsole, CSV, JSON-Lines oder Binärformat, siehe {@link ResultFormat}).
+ * <p>
+ * Implementierungen puffern: {@link #write(long, CalculationResult)} schreibt nie einzeln bis zum Betriebssystem
+ * durch, erst {@link #flush()} bzw. {@link #close()} oder ein voller Puffer. Sie sind nicht thread-sicher.
+ */
+public interface ResultSink extends Flushable, Closeable {
+
+    /**
+     * Schreibt den Kopf der Ausgabe (z.B. die CSV-Kopfzeile); einmal vor dem ersten Ergebnis aufrufen.
+     */
+    default void writeHeader() throws IOException {
+    }
+
+    /**
+     * Schreibt ein Ergebnis.
+     * @param sequence Zeilennummer des Datensatzes in der Eingabe bzw. laufende Nummer.
+     * @param result Das Berechnungsergebnis.
+     */
+    void write(long sequence, CalculationResult result) throws IOException;
+}
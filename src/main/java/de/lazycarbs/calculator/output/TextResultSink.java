@@ -0,0 +1,48 @@
+package de.lazycarbs.calculator.output;
+
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Schreibt Ergebnisse in der deutschen Darstellung des interaktiven Modus ({@link GermanResultView}),
+ * ein Block pro Ergebnis mit der Zeilennummer als Überschrift.
+ */
+public class TextResultSink implements ResultSink {
+
+    private final Writer writer;
+    private final GermanResultView view;
+    private final StringBuilder block = new StringBuilder(2048);
+
+    /**
+     * @param writer Ziel; sollte gepuffert sein.
+     * @param decimalSeparator Dezimaltrenner der Anzeige.
+     */
+    public TextResultSink(Writer writer, char decimalSeparator) {
+        this.writer = writer;
+        this.view = new GermanResultView(decimalSeparator);
+    }
+
+    @Override
+    public void write(long sequence, CalculationResult result) throws IOException {
+        long start = PipelineMetrics.start();
+        block.setLength(0);
+        view.appendCalculation(block, "*** Zeile " + sequence + " ***", result);
+        view.appendLine(block, "");
+        writer.append(block);
+        PipelineMetrics.record(PipelineStage.OUTPUT, start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,51 @@
+package de.lazycarbs.calculator.profile;
+
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Gemeinsame Kommandozeilen-Optionen für das Lernen der stündlichen Faktoren: "--learn-factors DATEI" (Lern-Datei,
+ * wird bei jedem Lauf fortgeschrieben) und "--learn-half-life TAGE" (Halbwertszeit der Gewichtung, Standard 14).
+ */
+public final class FactorLearningOptions {
+
+    private FactorLearningOptions() {
+    }
+
+    /**
+     * Legt das Lernen vor den Speicher, sofern "--learn-factors" angegeben ist.
+     * @param store Der Speicher oder null, wenn nicht gespeichert wird.
+     * @return Der Speicher mit Lernen oder ohne Option store selbst.
+     * @throws IllegalArgumentException wenn gelernt werden soll, aber nichts gespeichert wird, oder die Lern-Datei
+     *         eine andere Halbwertszeit hat.
+     * @throws IllegalStateException wenn die Lern-Datei ungültig ist.
+     */
+    public static CalculationStore wrap(String[] args, CalculationStore store) throws IOException {
+        String stateFile = CommandLineOptions.valueOf(args, "--learn-factors", null);
+        if (stateFile == null) {
+            return store;
+        }
+        if (store == null) {
+            throw new IllegalArgumentException("--learn-factors lernt aus gespeicherten Berechnungen und benötigt "
+                    + "einen Speicher (--journal oder --save-to-db).");
+        }
+        double halfLifeDays = halfLifeDays(args);
+        HourlyFactorEstimator estimator = HourlyFactorEstimator.loadOrCreate(Path.of(stateFile), halfLifeDays);
+        return new FactorLearningStore(store, estimator, Path.of(stateFile));
+    }
+
+    private static double halfLifeDays(String[] args) {
+        String value = CommandLineOptions.valueOf(args, "--learn-half-life", null);
+        if (value == null) {
+            return HourlyFactorEstimator.DEFAULT_HALF_LIFE_DAYS;
+        }
+        try {
+            return Double.parseDouble(value.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --learn-half-life erwartet eine Zahl, gefunden: " + value);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package de.lazycarbs.calculator.profile;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.database.CalculationStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Speicher, der jeden erfolgreich gespeicherten Datensatz zusätzlich an einen {@link HourlyFactorEstimator}
+ * weitergibt. Der Lernstand wird beim Schließen in die Lern-Datei geschrieben.
+ */
+public class FactorLearningStore implements CalculationStore {
+
+    private final CalculationStore delegate;
+    private final HourlyFactorEstimator estimator;
+    private final Path stateFile;
+
+    public FactorLearningStore(CalculationStore delegate, HourlyFactorEstimator estimator, Path stateFile) {
+        this.delegate = delegate;
+        this.estimator = estimator;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * @return Der eigentliche Speicher, wenn store ein {@link FactorLearningStore} ist, sonst store selbst.
+     */
+    public static CalculationStore unwrap(CalculationStore store) {
+        return store instanceof FactorLearningStore learningStore ? learningStore.delegate : store;
+    }
+
+    @Override
+    public void saveCalculation(CalculationRecord calculationRecord) throws SQLException {
+        delegate.saveCalculation(calculationRecord);
+        estimator.absorb(calculationRecord);
+    }
+
+    @Override
+    public void saveCalculations(List<CalculationRecord> calculationRecords) throws SQLException {
+        delegate.saveCalculations(calculationRecords);
+        for (CalculationRecord calculationRecord : calculationRecords) {
+            estimator.absorb(calculationRecord);
+        }
+    }
+
+    @Override
+    public void warmUp() throws SQLException {
+        delegate.warmUp();
+    }
+
+    public HourlyFactorEstimator estimator() {
+        return estimator;
+    }
+
+    /**
+     * Schließt den eigentlichen Speicher und sichert danach den Lernstand.
+     * @throws SQLException falls das Schließen fehlschlägt oder der Lernstand nicht gesichert werden kann.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            delegate.close();
+        } finally {
+            try {
+                estimator.saveState(stateFile);
+            } catch (IOException e) {
+                throw new SQLException("Lern-Datei " + stateFile + " konnte nicht gespeichert werden: " + e.getMessage(), e);
+            }
+        }
+    }
+}
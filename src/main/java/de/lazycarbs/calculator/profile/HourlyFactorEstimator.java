@@ -0,0 +1,272 @@
+package de.lazycarbs.calculator.profile;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lernt aus gespeicherten Berechnungen, wie die stündlichen Bolusfaktoren des Profils angepasst werden sollten.
+ * <p>
+ * Beobachtet wird der Bewegungs-Faktor, den der Benutzer nach der Anzeige des berechneten Bolus eingibt. Ein
+ * gemessenes Ergebnis (Blutzucker nach der Mahlzeit) enthalten die Datensätze nicht, und der abgegebene Bolus ist
+ * immer der berechnete mal diesem Faktor; der Bewegungs-Faktor ist daher das einzige Signal. Er ist aber eine
+ * Anpassung pro Mahlzeit (z.B. an regelmäßigen Sport) und kein Nachweis, dass das Profil falsch ist: ein Vorschlag
+ * zeigt nur, dass in einer Stunde regelmäßig abweichend angepasst wird. Pro Stunde werden gewichteter Mittelwert und
+ * Varianz dieser Korrektur laufend fortgeschrieben; ältere Beobachtungen verlieren exponentiell an Gewicht
+ * (Halbwertszeit in Tagen, gemessen an den Zeitstempeln der Datensätze). Jeder Datensatz kostet O(1) Zeit und
+ * keinen zusätzlichen Speicher, alle Werte liegen in Arrays mit 24 Einträgen.
+ * <p>
+ * Mahlzeiten ohne Sofort-Bolus sagen nichts über den Faktor aus und werden übersprungen. Nach dem Übernehmen eines
+ * Vorschlags beginnen die Beobachtungen neu ({@link #afterApplying(ProfileSuggestion)}), die übernommene Korrektur
+ * bleibt aber pro Stunde vermerkt und wird herausgerechnet: gibt der Benutzer zu seinem Sport weiter 0,75 ein, senkt
+ * dasselbe Muster den Faktor nach dem Zurücksetzen nicht erneut. Gibt er danach 1,0 ein, wird die Rücknahme der
+ * Korrektur vorgeschlagen. Alle Methoden sind synchronisiert.
+ */
+public class HourlyFactorEstimator {
+
+    public static final double DEFAULT_HALF_LIFE_DAYS = 14;
+    // Mindestanzahl effektiver Beobachtungen (nach Gewichtung), bevor für eine Stunde etwas vorgeschlagen wird
+    public static final double MIN_EFFECTIVE_SAMPLES = 5;
+    // Kleinere mittlere Korrekturen gelten als Rauschen, auch wenn sie bei vielen Daten signifikant sind
+    public static final double MIN_RELATIVE_CHANGE = 0.02;
+    // Ein Vorschlag ändert einen Faktor höchstens um diesen Anteil
+    public static final double MAX_RELATIVE_CHANGE = 0.2;
+
+    private static final int HOURS = 24;
+    private static final double Z_95 = 1.959964;
+    private static final double MICROS_PER_DAY = 86_400e6;
+    private static final int STATE_MAGIC = 0x314C464C; // "LFL1"
+    private static final int STATE_VERSION = 2;
+
+    private final double halfLifeDays;
+    private final double halfLifeMicros;
+
+    // pro Stunde: Summe der Gewichte, Summe der quadrierten Gewichte, gewichteter Mittelwert, gewichtete Summe der
+    // quadrierten Abweichungen (West 1979), Zeitstempel der neuesten Beobachtung und Anzahl der Datensätze
+    private final double[] weightSum = new double[HOURS];
+    private final double[] weightSquareSum = new double[HOURS];
+    private final double[] mean = new double[HOURS];
+    private final double[] squaredDeviationSum = new double[HOURS];
+    private final long[] latestMicros = new long[HOURS];
+    private final long[] records = new long[HOURS];
+    // pro Stunde: Produkt der bereits ins Profil übernommenen Korrekturen
+    private final double[] appliedCorrection = new double[HOURS];
+    private long absorbedRecords;
+    private long skippedRecords;
+
+    /**
+     * @param halfLifeDays Nach dieser Zeit zählt eine Beobachtung nur noch halb.
+     * @throws IllegalArgumentException wenn die Halbwertszeit nicht positiv ist.
+     */
+    public HourlyFactorEstimator(double halfLifeDays) {
+        if (!(halfLifeDays > 0) || Double.isInfinite(halfLifeDays)) {
+            throw new IllegalArgumentException("Die Halbwertszeit muss positiv sein: " + halfLifeDays);
+        }
+        this.halfLifeDays = halfLifeDays;
+        this.halfLifeMicros = halfLifeDays * MICROS_PER_DAY;
+        Arrays.fill(appliedCorrection, 1);
+    }
+
+    /**
+     * Liest den gespeicherten Zustand oder beginnt neu, wenn die Datei nicht existiert.
+     * @throws IllegalStateException wenn die Datei ungültig ist.
+     * @throws IllegalArgumentException wenn die Datei mit einer anderen Halbwertszeit erstellt wurde.
+     */
+    public static HourlyFactorEstimator loadOrCreate(Path stateFile, double halfLifeDays) throws IOException {
+        HourlyFactorEstimator estimator = new HourlyFactorEstimator(halfLifeDays);
+        if (Files.exists(stateFile)) {
+            estimator.readState(stateFile);
+        }
+        return estimator;
+    }
+
+    /**
+     * Liest einen gespeicherten Zustand mit der darin festgehaltenen Halbwertszeit.
+     * @throws IllegalStateException wenn die Datei ungültig ist.
+     */
+    public static HourlyFactorEstimator load(Path stateFile) throws IOException {
+        double halfLifeDays;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            readVersion(input, stateFile);
+            halfLifeDays = input.readDouble();
+        }
+        return loadOrCreate(stateFile, halfLifeDays);
+    }
+
+    /**
+     * Nimmt einen gespeicherten Datensatz auf.
+     * @return false, wenn der Datensatz nichts über den Faktor aussagt (kein Sofort-Bolus, ungültige Werte).
+     */
+    public boolean absorb(CalculationRecord calculationRecord) {
+        LocalDateTime timestamp = calculationRecord.timestamp();
+        long micros = timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+        return absorb(calculationRecord.currentHour(), calculationRecord.movementFactor(),
+                calculationRecord.finalCorrectBolus(), micros);
+    }
+
+    /**
+     * @param hour Stunde der Mahlzeit (0-23).
+     * @param movementFactor Bewegungs-Faktor der Mahlzeit.
+     * @param finalCorrectBolus Abgegebener Sofort-Bolus.
+     * @param timestampMicros Zeitpunkt der Mahlzeit in Mikrosekunden.
+     * @return false, wenn die Beobachtung übersprungen wurde.
+     */
+    public synchronized boolean absorb(int hour, double movementFactor, double finalCorrectBolus, long timestampMicros) {
+        if (hour < 0 || hour >= HOURS || !(movementFactor > 0) || Double.isInfinite(movementFactor)
+                || !(finalCorrectBolus > 0)) {
+            skippedRecords++;
+            return false;
+        }
+        double decay = 1;
+        double weight = 1;
+        if (records[hour] > 0) {
+            long age = timestampMicros - latestMicros[hour];
+            if (age >= 0) {
+                decay = Math.pow(0.5, age / halfLifeMicros); // bisherige Beobachtungen altern
+            } else {
+                weight = Math.pow(0.5, -age / halfLifeMicros); // verspätet gespeicherte Beobachtung zählt weniger
+            }
+        }
+        if (records[hour] == 0 || timestampMicros > latestMicros[hour]) {
+            latestMicros[hour] = timestampMicros;
+        }
+        weightSum[hour] = weightSum[hour] * decay + weight;
+        weightSquareSum[hour] = weightSquareSum[hour] * decay * decay + weight * weight;
+        squaredDeviationSum[hour] *= decay;
+        double delta = movementFactor - mean[hour];
+        mean[hour] += weight / weightSum[hour] * delta;
+        squaredDeviationSum[hour] += weight * delta * (movementFactor - mean[hour]);
+        records[hour]++;
+        absorbedRecords++;
+        return true;
+    }
+
+    /**
+     * Berechnet den Vorschlag für ein Profil. Die mittlere Korrektur einer Stunde wird durch die dort bereits
+     * übernommene Korrektur geteilt. Ein Faktor wird nur geändert, wenn für die Stunde mindestens
+     * {@value #MIN_EFFECTIVE_SAMPLES} effektive Beobachtungen vorliegen und das 95-%-Konfidenzintervall dieser
+     * Korrektur die 1,0 nicht enthält. Mittlere Korrekturen unter {@value #MIN_RELATIVE_CHANGE} werden
+     * ignoriert, die Änderung ist auf ±{@value #MAX_RELATIVE_CHANGE} begrenzt.
+     * @param currentFactors Die 24 Faktoren des Profils, mit dem die Datensätze berechnet wurden.
+     */
+    public synchronized ProfileSuggestion suggest(double[] currentFactors) {
+        if (currentFactors.length != HOURS) {
+            throw new IllegalArgumentException("Ein Profil braucht genau 24 stündliche Faktoren, gefunden: " + currentFactors.length);
+        }
+        List<HourlyFactorSuggestion> hours = new ArrayList<>(HOURS);
+        for (int hour = 0; hour < HOURS; hour++) {
+            double current = currentFactors[hour];
+            if (records[hour] == 0) {
+                hours.add(new HourlyFactorSuggestion(hour, 0, 0, current, current, Double.NaN, Double.NaN, Double.NaN));
+                continue;
+            }
+            double effectiveSamples = weightSum[hour] * weightSum[hour] / weightSquareSum[hour];
+            // erwartungstreue Varianz für Gewichte, die die Zuverlässigkeit einer Beobachtung ausdrücken
+            double denominator = weightSum[hour] - weightSquareSum[hour] / weightSum[hour];
+            double variance = denominator > 0 ? squaredDeviationSum[hour] / denominator : Double.NaN;
+            double halfWidth = Z_95 * Math.sqrt(variance / effectiveSamples);
+            double correction = mean[hour] / appliedCorrection[hour];
+            double lower = (mean[hour] - halfWidth) / appliedCorrection[hour];
+            double upper = (mean[hour] + halfWidth) / appliedCorrection[hour];
+
+            double suggested = current;
+            if (effectiveSamples >= MIN_EFFECTIVE_SAMPLES && (lower > 1 || upper < 1)
+                    && Math.abs(correction - 1) >= MIN_RELATIVE_CHANGE) {
+                suggested = current * Math.clamp(correction, 1 - MAX_RELATIVE_CHANGE, 1 + MAX_RELATIVE_CHANGE);
+            }
+            hours.add(new HourlyFactorSuggestion(hour, records[hour], effectiveSamples, current, suggested,
+                    correction, lower, upper));
+        }
+        return new ProfileSuggestion(List.copyOf(hours), absorbedRecords, skippedRecords, halfLifeDays);
+    }
+
+    /**
+     * Neuer Lernstand nach dem Übernehmen eines Vorschlags: die Beobachtungen beginnen neu, weil sie sich auf das
+     * alte Profil beziehen; die übernommenen Korrekturen werden pro Stunde vermerkt.
+     * @param applied Der übernommene Vorschlag.
+     */
+    public synchronized HourlyFactorEstimator afterApplying(ProfileSuggestion applied) {
+        HourlyFactorEstimator next = new HourlyFactorEstimator(halfLifeDays);
+        for (HourlyFactorSuggestion hour : applied.hours()) {
+            double correction = hour.changed() ? hour.suggestedFactor() / hour.currentFactor() : 1;
+            next.appliedCorrection[hour.hour()] = appliedCorrection[hour.hour()] * correction;
+        }
+        return next;
+    }
+
+    public synchronized long absorbedRecords() {
+        return absorbedRecords;
+    }
+
+    public double halfLifeDays() {
+        return halfLifeDays;
+    }
+
+    /**
+     * Speichert den Zustand; die Datei wird erst vollständig geschrieben und dann umbenannt.
+     */
+    public synchronized void saveState(Path stateFile) throws IOException {
+        Path temporaryFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(STATE_MAGIC);
+            output.writeInt(STATE_VERSION);
+            output.writeDouble(halfLifeDays);
+            output.writeLong(absorbedRecords);
+            output.writeLong(skippedRecords);
+            for (int hour = 0; hour < HOURS; hour++) {
+                output.writeDouble(weightSum[hour]);
+                output.writeDouble(weightSquareSum[hour]);
+                output.writeDouble(mean[hour]);
+                output.writeDouble(squaredDeviationSum[hour]);
+                output.writeLong(latestMicros[hour]);
+                output.writeLong(records[hour]);
+                output.writeDouble(appliedCorrection[hour]);
+            }
+        }
+        Files.move(temporaryFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readState(Path stateFile) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            int version = readVersion(input, stateFile);
+            double storedHalfLifeDays = input.readDouble();
+            if (storedHalfLifeDays != halfLifeDays) {
+                throw new IllegalArgumentException("Die Lern-Datei " + stateFile + " wurde mit einer Halbwertszeit von "
+                        + storedHalfLifeDays + " Tagen erstellt.");
+            }
+            absorbedRecords = input.readLong();
+            skippedRecords = input.readLong();
+            for (int hour = 0; hour < HOURS; hour++) {
+                weightSum[hour] = input.readDouble();
+                weightSquareSum[hour] = input.readDouble();
+                mean[hour] = input.readDouble();
+                squaredDeviationSum[hour] = input.readDouble();
+                latestMicros[hour] = input.readLong();
+                records[hour] = input.readLong();
+                // Version 1 kannte noch keine übernommenen Korrekturen
+                appliedCorrection[hour] = version >= 2 ? input.readDouble() : 1;
+            }
+        }
+    }
+
+    private static int readVersion(DataInputStream input, Path stateFile) throws IOException {
+        int magic = input.readInt();
+        int version = input.readInt();
+        if (magic != STATE_MAGIC || version < 1 || version > STATE_VERSION) {
+            throw new IllegalStateException("Keine gültige Lern-Datei: " + stateFile);
+        }
+        return version;
+    }
+}
@@ -0,0 +1,35 @@
+package de.lazycarbs.calculator.profile;
+
+/**
+ * Vorschlag für den Faktor einer Stunde (siehe {@link HourlyFactorEstimator#suggest(double[])}).
+ * @param records Anzahl der aufgenommenen Datensätze.
+ * @param effectiveSamples Anzahl der Beobachtungen nach Gewichtung (ältere zählen weniger).
+ * @param currentFactor Faktor des Profils, mit dem gerechnet wurde.
+ * @param suggestedFactor Vorgeschlagener Faktor (gleich dem aktuellen, wenn die Daten nicht ausreichen).
+ * @param meanCorrection Gewichteter Mittelwert der Korrektur durch den Benutzer, geteilt durch die in dieser Stunde
+ *                       bereits übernommene Korrektur (NaN ohne Daten).
+ * @param lowerCorrection Untere Grenze des 95-%-Konfidenzintervalls der Korrektur (NaN bei zu wenig Daten).
+ * @param upperCorrection Obere Grenze des 95-%-Konfidenzintervalls der Korrektur.
+ */
+public record HourlyFactorSuggestion(int hour, long records, double effectiveSamples, double currentFactor,
+                                     double suggestedFactor, double meanCorrection, double lowerCorrection,
+                                     double upperCorrection) {
+
+    public boolean changed() {
+        return suggestedFactor != currentFactor;
+    }
+
+    /**
+     * @return Untere Grenze des Konfidenzintervalls als Faktor.
+     */
+    public double lowerFactor() {
+        return currentFactor * lowerCorrection;
+    }
+
+    /**
+     * @return Obere Grenze des Konfidenzintervalls als Faktor.
+     */
+    public double upperFactor() {
+        return currentFactor * upperCorrection;
+    }
+}
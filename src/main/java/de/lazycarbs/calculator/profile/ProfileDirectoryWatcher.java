@@ -0,0 +1,95 @@
+package de.lazycarbs.calculator.profile;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+
+/**
+ * Lädt Profildateien eines Verzeichnisses und hält die {@link ProfileRegistry} per {@link WatchService} aktuell:
+ * geänderte oder neue Dateien werden neu geladen, gelöschte entfernt. Eine fehlerhafte Datei (z.B. während ein
+ * Editor noch speichert) ersetzt das bisherige Profil nicht; es wird erst mit der nächsten gültigen Fassung getauscht.
+ */
+public class ProfileDirectoryWatcher implements AutoCloseable {
+
+    private final Path directory;
+    private final ProfileRegistry registry;
+    private final WatchService watchService;
+    private final Thread watchThread;
+
+    /**
+     * Lädt alle Profile des Verzeichnisses in die Registry und beginnt danach mit der Überwachung.
+     * @throws IllegalArgumentException wenn eine Profildatei beim Start ungültig ist.
+     */
+    public ProfileDirectoryWatcher(Path directory, ProfileRegistry registry) throws IOException {
+        this.directory = directory;
+        this.registry = registry;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        // erst nach dem Registrieren laden, damit keine Änderung zwischen Laden und Überwachen verloren geht
+        registry.replaceAll(ProfileFileLoader.loadAll(directory));
+        this.watchThread = new Thread(this::watchLoop, "lazycarbs-profile-watcher");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        reloadAll(); // Ereignisse gingen verloren: alles neu einlesen
+                    } else {
+                        reload(directory.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    System.err.println("Profil-Verzeichnis " + directory + " ist nicht mehr verfügbar; Profile werden nicht mehr aktualisiert.");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close() wurde aufgerufen
+        }
+    }
+
+    private void reload(Path file) {
+        if (!file.getFileName().toString().endsWith(ProfileFileLoader.PROFILE_SUFFIX)) {
+            return;
+        }
+        String userId = ProfileFileLoader.userIdOf(file);
+        if (!Files.exists(file)) {
+            registry.remove(userId);
+            System.err.println("Profil '" + userId + "' entfernt.");
+            return;
+        }
+        try {
+            registry.put(userId, ProfileFileLoader.load(file));
+            System.err.println("Profil '" + userId + "' neu geladen.");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Profil '" + userId + "' nicht übernommen, bisheriges Profil bleibt aktiv: " + e.getMessage());
+        }
+    }
+
+    private void reloadAll() {
+        try {
+            Map<String, double[]> profiles = ProfileFileLoader.loadAll(directory);
+            registry.replaceAll(profiles);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Profile konnten nicht neu geladen werden, bisherige Profile bleiben aktiv: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        watchThread.interrupt();
+    }
+}
@@ -0,0 +1,116 @@
+package de.lazycarbs.calculator.profile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Lädt Profile aus einem Verzeichnis mit einer Datei pro Benutzer: "&lt;Benutzerkennung&gt;.profile".
+ * <p>
+ * Jede Zeile enthält "Stunde=Faktor" (z.B. "7=1,14"); "#" leitet einen Kommentar ein. Alle 24 Stunden müssen
+ * genau einmal angegeben sein, als Dezimaltrenner sind "," und "." erlaubt.
+ */
+public final class ProfileFileLoader {
+
+    public static final String PROFILE_SUFFIX = ".profile";
+
+    private ProfileFileLoader() {
+    }
+
+    /**
+     * Lädt alle Profile des Verzeichnisses.
+     * @throws IllegalArgumentException wenn eine Datei ungültig ist.
+     */
+    public static Map<String, double[]> loadAll(Path directory) throws IOException {
+        Map<String, double[]> profiles = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(ProfileFileLoader::isProfileFile).toList()) {
+                profiles.put(userIdOf(file), load(file));
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * Lädt eine einzelne Profildatei.
+     * @return Die 24 stündlichen Faktoren.
+     * @throws IllegalArgumentException wenn die Datei unvollständig oder fehlerhaft ist.
+     */
+    public static double[] load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        double[] hourlyFactors = new double[24];
+        boolean[] seen = new boolean[24];
+        for (int lineNumber = 1; lineNumber <= lines.size(); lineNumber++) {
+            String line = lines.get(lineNumber - 1);
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                throw invalid(file, lineNumber, "erwartet 'Stunde=Faktor'");
+            }
+            int hour;
+            double factor;
+            try {
+                hour = Integer.parseInt(line.substring(0, separator).strip());
+                factor = Double.parseDouble(line.substring(separator + 1).strip().replace(',', '.'));
+            } catch (NumberFormatException e) {
+                throw invalid(file, lineNumber, "keine Zahl");
+            }
+            if (hour < 0 || hour > 23 || seen[hour]) {
+                throw invalid(file, lineNumber, "Stunde ungültig oder doppelt: " + hour);
+            }
+            seen[hour] = true;
+            hourlyFactors[hour] = factor;
+        }
+        for (int hour = 0; hour < 24; hour++) {
+            if (!seen[hour]) {
+                throw new IllegalArgumentException("Profil " + file.getFileName() + ": Faktor für " + hour + " Uhr fehlt.");
+            }
+        }
+        return hourlyFactors;
+    }
+
+    /**
+     * Schreibt ein Profil im Format von {@link #load(Path)}. Die Datei wird erst vollständig geschrieben und dann
+     * umbenannt, damit ein überwachtes Verzeichnis (siehe {@link ProfileDirectoryWatcher}) nie eine halbe Datei liest.
+     * @param comment Erste Zeile als Kommentar.
+     */
+    public static void write(Path file, double[] hourlyFactors, String comment) throws IOException {
+        if (hourlyFactors.length != 24) {
+            throw new IllegalArgumentException("Ein Profil braucht genau 24 stündliche Faktoren, gefunden: " + hourlyFactors.length);
+        }
+        StringBuilder content = new StringBuilder("# ").append(comment).append('\n');
+        for (int hour = 0; hour < hourlyFactors.length; hour++) {
+            content.append(String.format(Locale.ROOT, "%d=%.4f\n", hour, hourlyFactors[hour]));
+        }
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temporaryFile, content, StandardCharsets.UTF_8);
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static boolean isProfileFile(Path file) {
+        return file.getFileName().toString().endsWith(PROFILE_SUFFIX) && !Files.isDirectory(file);
+    }
+
+    static String userIdOf(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - PROFILE_SUFFIX.length());
+    }
+
+    private static IllegalArgumentException invalid(Path file, int lineNumber, String reason) {
+        return new IllegalArgumentException("Profil " + file.getFileName() + ", Zeile " + lineNumber + ": " + reason);
+    }
+}
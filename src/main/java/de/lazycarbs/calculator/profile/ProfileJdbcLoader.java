@@ -0,0 +1,52 @@
+package de.lazycarbs.calculator.profile;
+
+import de.lazycarbs.calculator.database.ConnectionFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lädt Profile aus der Tabelle "bolus_factor_profiles":
+ * <pre>
+ * CREATE TABLE bolus_factor_profiles (user_id VARCHAR(64), hour INT, factor DOUBLE, PRIMARY KEY (user_id, hour));
+ * </pre>
+ */
+public final class ProfileJdbcLoader {
+
+    private static final String SELECT_SQL = "SELECT user_id, hour, factor FROM bolus_factor_profiles ORDER BY user_id, hour";
+
+    private ProfileJdbcLoader() {
+    }
+
+    /**
+     * @return Die Faktoren pro Benutzer.
+     * @throws IllegalArgumentException wenn ein Benutzer nicht für alle 24 Stunden einen Faktor hat.
+     */
+    public static Map<String, double[]> loadAll(ConnectionFactory connectionFactory) throws SQLException {
+        Map<String, double[]> profiles = new HashMap<>();
+        Map<String, Integer> hoursPerUser = new HashMap<>();
+        try (Connection connection = connectionFactory.createConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                String userId = resultSet.getString(1);
+                int hour = resultSet.getInt(2);
+                if (hour < 0 || hour > 23) {
+                    throw new IllegalArgumentException("Profil '" + userId + "': ungültige Stunde " + hour);
+                }
+                profiles.computeIfAbsent(userId, id -> new double[24])[hour] = resultSet.getDouble(3);
+                hoursPerUser.merge(userId, 1, Integer::sum);
+            }
+        }
+        hoursPerUser.forEach((userId, hours) -> {
+            if (hours != 24) {
+                throw new IllegalArgumentException("Profil '" + userId + "' hat " + hours + " statt 24 stündliche Faktoren.");
+            }
+        });
+        return profiles;
+    }
+}
@@ -0,0 +1,56 @@
+package de.lazycarbs.calculator.profile;
+
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Gemeinsame Kommandozeilen-Optionen für Profile: "--profiles DIR" (Profildateien), "--profiles-db"
+ * (Tabelle bolus_factor_profiles, Passwort aus DB_PASSWORD) und "--user ID" (Profil für die Berechnung).
+ */
+public final class ProfileOptions {
+
+    private ProfileOptions() {
+    }
+
+    /**
+     * Lädt die Profile einmalig (ohne Überwachung) aus der per Option angegebenen Quelle. Ist "--user" angegeben,
+     * rechnen Berechnungen ohne eigene Benutzerkennung mit dem Profil dieses Benutzers (Batch- und interaktiver Modus).
+     * @return Die Registry; ohne Option enthält sie nur das Standard-Profil.
+     * @throws IllegalArgumentException wenn für den per "--user" angegebenen Benutzer kein Profil existiert.
+     */
+    public static ProfileRegistry loadRegistry(String[] args) throws IOException, SQLException {
+        ProfileRegistry registry = new ProfileRegistry();
+        loadInto(registry, args);
+        String userId = CommandLineOptions.valueOf(args, "--user", null);
+        if (userId == null) {
+            return registry;
+        }
+        return registry.withDefaultProfileOf(userId);
+    }
+
+    /**
+     * Lädt die Profile aus der per Option angegebenen Quelle in eine bestehende Registry.
+     */
+    public static void loadInto(ProfileRegistry registry, String[] args) throws IOException, SQLException {
+        String directory = CommandLineOptions.valueOf(args, "--profiles", null);
+        if (directory != null) {
+            registry.replaceAll(ProfileFileLoader.loadAll(Path.of(directory)));
+        } else if (CommandLineOptions.hasFlag(args, "--profiles-db")) {
+            registry.replaceAll(ProfileJdbcLoader.loadAll(() -> DriverManager.getConnection(
+                    DatabaseManager.DEFAULT_DB_URL, DatabaseManager.DEFAULT_DB_USER, requirePassword())));
+        }
+    }
+
+    private static String requirePassword() {
+        String dbPassword = System.getenv("DB_PASSWORD");
+        if (dbPassword == null || dbPassword.isEmpty()) {
+            throw new IllegalArgumentException("--profiles-db benötigt die Umgebungsvariable 'DB_PASSWORD'.");
+        }
+        return dbPassword;
+    }
+}
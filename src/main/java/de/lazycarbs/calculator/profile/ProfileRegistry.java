@@ -0,0 +1,103 @@
+package de.lazycarbs.calculator.profile;
+
+import de.lazycarbs.calculator.util.BolusFactorCalculator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bolusfaktor-Profile pro Benutzer als unveränderliche Momentaufnahme (Copy-on-Write).
+ * <p>
+ * Leser holen die aktuelle Momentaufnahme mit einem einzigen volatilen Lesezugriff und nehmen kein Lock.
+ * Jede Änderung baut die neuen {@link BolusFactorCalculator} (inklusive vorberechneter Fenster-Durchschnitte)
+ * vollständig auf und tauscht danach die ganze Map atomar aus; eine laufende Berechnung sieht daher immer
+ * entweder das alte oder das neue Profil, nie eine halb aktualisierte Tabelle.
+ */
+public class ProfileRegistry {
+
+    private final BolusFactorCalculator defaultCalculator;
+    private final AtomicReference<Map<String, BolusFactorCalculator>> profiles = new AtomicReference<>(Map.of());
+
+    /**
+     * Registry, die ohne Benutzerkennung das Standard-Profil verwendet.
+     */
+    public ProfileRegistry() {
+        this(new BolusFactorCalculator());
+    }
+
+    /**
+     * @param defaultCalculator Rechner für Berechnungen ohne Benutzerkennung.
+     */
+    public ProfileRegistry(BolusFactorCalculator defaultCalculator) {
+        this.defaultCalculator = defaultCalculator;
+    }
+
+    /**
+     * @param userId Benutzerkennung oder null für das Standard-Profil.
+     * @return Der Rechner mit dem aktuellen Profil des Benutzers.
+     * @throws IllegalArgumentException wenn für den Benutzer kein Profil geladen ist. Bewusst kein stiller
+     *         Rückfall auf das Standard-Profil: ein fremdes Profil würde einen falschen Bolus ergeben.
+     */
+    public BolusFactorCalculator calculatorFor(String userId) {
+        if (userId == null) {
+            return defaultCalculator;
+        }
+        BolusFactorCalculator calculator = profiles.get().get(userId);
+        if (calculator == null) {
+            throw new IllegalArgumentException("Für den Benutzer '" + userId + "' ist kein Bolusfaktor-Profil hinterlegt.");
+        }
+        return calculator;
+    }
+
+    /**
+     * @return Eine neue Registry mit denselben Profilen, deren Standard-Profil das Profil des Benutzers ist.
+     * @throws IllegalArgumentException wenn für den Benutzer kein Profil hinterlegt ist.
+     */
+    public ProfileRegistry withDefaultProfileOf(String userId) {
+        ProfileRegistry registry = new ProfileRegistry(calculatorFor(userId));
+        registry.profiles.set(profiles.get());
+        return registry;
+    }
+
+    /**
+     * Legt das Profil eines Benutzers an oder ersetzt es.
+     * @throws IllegalArgumentException wenn die Faktoren ungültig sind (das alte Profil bleibt dann erhalten).
+     */
+    public void put(String userId, double[] hourlyFactors) {
+        BolusFactorCalculator calculator = new BolusFactorCalculator(hourlyFactors); // außerhalb des Austauschs bauen
+        profiles.updateAndGet(current -> {
+            Map<String, BolusFactorCalculator> next = new HashMap<>(current);
+            next.put(userId, calculator);
+            return Map.copyOf(next);
+        });
+    }
+
+    public void remove(String userId) {
+        profiles.updateAndGet(current -> {
+            if (!current.containsKey(userId)) {
+                return current;
+            }
+            Map<String, BolusFactorCalculator> next = new HashMap<>(current);
+            next.remove(userId);
+            return Map.copyOf(next);
+        });
+    }
+
+    /**
+     * Ersetzt alle Profile auf einmal (z.B. nach dem Laden aus der Datenbank).
+     * @throws IllegalArgumentException wenn ein Profil ungültig ist (es bleiben dann alle alten Profile erhalten).
+     */
+    public void replaceAll(Map<String, double[]> hourlyFactorsByUser) {
+        Map<String, BolusFactorCalculator> next = new HashMap<>();
+        hourlyFactorsByUser.forEach((userId, hourlyFactors) -> next.put(userId, new BolusFactorCalculator(hourlyFactors)));
+        profiles.set(Map.copyOf(next));
+    }
+
+    /**
+     * @return Die aktuelle, unveränderliche Momentaufnahme aller Profile.
+     */
+    public Map<String, BolusFactorCalculator> snapshot() {
+        return profiles.get();
+    }
+}
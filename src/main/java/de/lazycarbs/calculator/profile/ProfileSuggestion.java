@@ -0,0 +1,54 @@
+package de.lazycarbs.calculator.profile;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Vorgeschlagenes Profil mit Konfidenzintervallen pro Stunde, zur Prüfung, bevor es übernommen wird.
+ * @param hours Die 24 Stunden (Index = Stunde).
+ * @param absorbedRecords Anzahl der berücksichtigten Datensätze.
+ * @param skippedRecords Anzahl der Datensätze ohne Aussage über den Faktor (z.B. ohne Sofort-Bolus).
+ * @param halfLifeDays Halbwertszeit der Gewichtung.
+ */
+public record ProfileSuggestion(List<HourlyFactorSuggestion> hours, long absorbedRecords, long skippedRecords,
+                                double halfLifeDays) {
+
+    /**
+     * @return Die 24 vorgeschlagenen Faktoren.
+     */
+    public double[] hourlyFactors() {
+        double[] hourlyFactors = new double[hours.size()];
+        for (HourlyFactorSuggestion hour : hours) {
+            hourlyFactors[hour.hour()] = hour.suggestedFactor();
+        }
+        return hourlyFactors;
+    }
+
+    public long changedHours() {
+        return hours.stream().filter(HourlyFactorSuggestion::changed).count();
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Vorschlag aus %d Datensätzen (%d ohne Aussage übersprungen), Halbwertszeit %.1f Tage%n%n",
+                absorbedRecords, skippedRecords, halfLifeDays);
+        out.printf("%-7s %8s %8s %9s %10s %21s %9s%n", "Stunde", "Anzahl", "effektiv", "aktuell", "Vorschlag",
+                "95-%-Intervall", "Korrektur");
+        for (HourlyFactorSuggestion hour : hours) {
+            String interval = Double.isNaN(hour.lowerCorrection()) ? "-"
+                    : String.format("%.3f .. %.3f", hour.lowerFactor(), hour.upperFactor());
+            out.printf("%02d:00   %8d %8.1f %9.3f %10.3f %21s %9s%s%n", hour.hour(), hour.records(),
+                    hour.effectiveSamples(), hour.currentFactor(), hour.suggestedFactor(), interval,
+                    Double.isNaN(hour.meanCorrection()) ? "-" : String.format("%.3f", hour.meanCorrection()),
+                    hour.changed() ? "  *" : "");
+        }
+        out.printf("%nGeänderte Stunden (*): %d. Unverändert bleiben Stunden mit weniger als %.0f effektiven "
+                        + "Beobachtungen, deren Intervall die Korrektur 1,0 enthält oder deren Korrektur unter %.0f %% "
+                        + "liegt; Änderungen höchstens ±%.0f %%.%n",
+                changedHours(), HourlyFactorEstimator.MIN_EFFECTIVE_SAMPLES, HourlyFactorEstimator.MIN_RELATIVE_CHANGE * 100,
+                HourlyFactorEstimator.MAX_RELATIVE_CHANGE * 100);
+        out.printf("Hinweis: Gelernt wird aus dem eingegebenen Bewegungs-Faktor, nicht aus gemessenen Blutzuckerwerten. "
+                + "Eine Korrektur zeigt nur, dass in dieser Stunde regelmäßig angepasst wird (z.B. regelmäßiger Sport), "
+                + "nicht, dass das Profil falsch ist. Bereits übernommene Korrekturen sind herausgerechnet; wer danach "
+                + "für diese Stunde wieder 1,0 eingibt, bekommt die Rücknahme vorgeschlagen.%n");
+    }
+}
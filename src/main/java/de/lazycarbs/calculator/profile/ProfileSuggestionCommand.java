@@ -0,0 +1,61 @@
+package de.lazycarbs.calculator.profile;
+
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Kommandozeilen-Einstieg zum Prüfen und Übernehmen gelernter Faktoren:
+ * <pre>
+ * java -jar lazycarbs.jar --suggest-profile DATEI [--profiles DIR | --profiles-db] [--user ID] [--output DATEI] [--apply]
+ * </pre>
+ * Gibt den Vorschlag aus der Lern-Datei (siehe {@link FactorLearningOptions}) mit Konfidenzintervallen neben dem
+ * aktuellen Profil aus. "--output" schreibt das vorgeschlagene Profil als Profildatei, ohne etwas zu übernehmen.
+ * "--apply" ersetzt "DIR/ID.profile" (ein laufender Server lädt es automatisch neu) und setzt den Lernstand zurück,
+ * weil sich die bisherigen Korrekturen auf das alte Profil beziehen; die übernommenen Korrekturen bleiben darin
+ * vermerkt (siehe {@link HourlyFactorEstimator#afterApplying(ProfileSuggestion)}).
+ */
+public final class ProfileSuggestionCommand {
+
+    private ProfileSuggestionCommand() {
+    }
+
+    public static void run(String[] args) throws IOException, SQLException {
+        Path stateFile = Path.of(CommandLineOptions.valueOf(args, "--suggest-profile", null));
+        String userId = CommandLineOptions.valueOf(args, "--user", null);
+        boolean apply = CommandLineOptions.hasFlag(args, "--apply");
+        String profileDirectory = CommandLineOptions.valueOf(args, "--profiles", null);
+        if (apply && (profileDirectory == null || userId == null)) {
+            throw new IllegalArgumentException("--apply benötigt --profiles DIR und --user ID.");
+        }
+
+        HourlyFactorEstimator estimator = HourlyFactorEstimator.load(stateFile);
+        double[] currentFactors = ProfileOptions.loadRegistry(args).calculatorFor(null).hourlyFactors();
+        ProfileSuggestion suggestion = estimator.suggest(currentFactors);
+        System.out.println("Profil: " + (userId != null ? userId : "Standard-Profil"));
+        suggestion.print(System.out);
+
+        String comment = "Vorschlag aus " + suggestion.absorbedRecords() + " Berechnungen, erstellt "
+                + LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        String output = CommandLineOptions.valueOf(args, "--output", null);
+        if (output != null) {
+            ProfileFileLoader.write(Path.of(output), suggestion.hourlyFactors(), comment);
+            System.out.println("Vorgeschlagenes Profil gespeichert: " + output);
+        }
+        if (apply) {
+            if (suggestion.changedHours() == 0) {
+                System.out.println("Keine Änderung vorgeschlagen, das Profil bleibt unverändert.");
+                return;
+            }
+            Path profileFile = Path.of(profileDirectory).resolve(userId + ProfileFileLoader.PROFILE_SUFFIX);
+            ProfileFileLoader.write(profileFile, suggestion.hourlyFactors(), comment);
+            estimator.afterApplying(suggestion).saveState(stateFile);
+            System.out.println("Profil übernommen: " + profileFile + "; der Lernstand wurde zurückgesetzt, die übernommenen "
+                    + "Korrekturen bleiben vermerkt.");
+        }
+    }
+}
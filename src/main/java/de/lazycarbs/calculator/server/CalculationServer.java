@@ -0,0 +1,284 @@
+package de.lazycarbs.calculator.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import de.lazycarbs.calculator.batch.MealRecordFormat;
+import de.lazycarbs.calculator.batch.MealRecordParser;
+import de.lazycarbs.calculator.cache.CacheStats;
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.metrics.MetricsSnapshot;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.StageStats;
+import de.lazycarbs.calculator.output.JsonLinesResultSink;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Eingebetteter HTTP-Dienst, der die Berechnungskette als JSON-Endpunkte anbietet.
+ * Jede Anfrage läuft auf einem eigenen virtuellen Thread.
+ * <ul>
+ *     <li>POST /calculate - ein JSON-Objekt mit den Feldern von MealInput, Antwort: ein JSON-Objekt mit dem Ergebnis</li>
+ *     <li>POST /calculate/batch - JSON-Lines (ein Objekt pro Zeile), Antwort: JSON-Lines in derselben Reihenfolge</li>
+ *     <li>GET /health - Status, Anzahl der bisher berechneten Mahlzeiten und ggf. Cache-Statistik</li>
+ *     <li>GET /metrics - Latenzen der Berechnungsstufen (p50/p99/max in Nanosekunden) und Anzahl pro Methode,
+ *     "?reset" setzt die Messwerte danach zurück</li>
+ * </ul>
+ * Mit dem Header "X-LazyCarbs-User" wird das Bolusfaktor-Profil dieses Benutzers verwendet. Andere Pfade (auch
+ * Unterpfade wie /calculate/x) werden mit 404 abgelehnt, andere HTTP-Methoden mit 405, unerwartete Fehler mit 500
+ * beantwortet.
+ */
+public class CalculationServer {
+
+    // Eine einzelne Mahlzeit ist nur wenige hundert Byte groß; größere Anfragen werden abgelehnt
+    private static final int MAX_SINGLE_REQUEST_BYTES = 64 * 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Benutzerkennung für das Bolusfaktor-Profil; ohne Header wird das Standard-Profil verwendet
+    static final String USER_HEADER = "X-LazyCarbs-User";
+
+    private final CalculationPipeline pipeline;
+    private final MealRecordParser parser = new MealRecordParser();
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final AtomicLong calculatedMeals = new AtomicLong();
+    private volatile boolean stopping;
+
+    /**
+     * Erstellt den Dienst und bindet ihn an den Port; gestartet wird er mit {@link #start()}.
+     * @param pipeline Die Berechnungskette.
+     * @param address Adresse und Port, an die der Dienst gebunden wird.
+     * @throws IOException wenn der Port nicht gebunden werden kann.
+     */
+    public CalculationServer(CalculationPipeline pipeline, InetSocketAddress address) throws IOException {
+        this.pipeline = pipeline;
+        this.httpServer = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/calculate", endpoint("POST", this::handleCalculate));
+        httpServer.createContext("/calculate/batch", endpoint("POST", this::handleBatch));
+        httpServer.createContext("/health", endpoint("GET", this::handleHealth));
+        httpServer.createContext("/metrics", endpoint("GET", this::handleMetrics));
+    }
+
+    /**
+     * Prüft die HTTP-Methode, beantwortet unerwartete Fehler des Handlers mit 500 und schließt den Austausch.
+     */
+    private static HttpHandler endpoint(String method, HttpHandler handler) {
+        return exchange -> {
+            try (exchange) {
+                // ein Kontext gilt für alle Pfade mit seinem Präfix, angenommen wird nur der Pfad selbst
+                if (!exchange.getHttpContext().getPath().equals(exchange.getRequestURI().getPath())) {
+                    sendError(exchange, 404, "Unbekannter Pfad: " + exchange.getRequestURI().getPath());
+                    return;
+                }
+                if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    sendError(exchange, 405, "Nur " + method + " ist erlaubt.");
+                    return;
+                }
+                try {
+                    handler.handle(exchange);
+                } catch (RuntimeException e) {
+                    System.err.println("FEHLER bei " + exchange.getRequestURI() + ": " + e);
+                    // bei einer bereits gestreamten Antwort lässt sich der Status nicht mehr ändern
+                    if (exchange.getResponseCode() == -1) {
+                        sendError(exchange, 500, "Interner Fehler.");
+                    }
+                }
+            }
+        };
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * @return Die tatsächlich gebundene Adresse (z.B. wenn Port 0 angegeben wurde).
+     */
+    public InetSocketAddress address() {
+        return httpServer.getAddress();
+    }
+
+    /**
+     * Beendet den Dienst geordnet: es werden keine neuen Verbindungen mehr angenommen, laufende Anfragen
+     * dürfen höchstens {@code gracePeriodSeconds} lang zu Ende laufen.
+     * @param gracePeriodSeconds Maximale Wartezeit auf laufende Anfragen.
+     */
+    public void stop(int gracePeriodSeconds) {
+        stopping = true;
+        httpServer.stop(gracePeriodSeconds);
+        executor.close(); // wartet auf noch laufende virtuelle Threads
+    }
+
+    private void handleCalculate(HttpExchange exchange) throws IOException {
+        byte[] body = readBody(exchange.getRequestBody(), MAX_SINGLE_REQUEST_BYTES);
+        if (body == null) {
+            sendError(exchange, 413, "Anfrage ist zu groß.");
+            return;
+        }
+        CalculationResult result;
+        try {
+            result = pipeline.calculate(userIdOf(exchange), parser.parse(new String(body, StandardCharsets.UTF_8), MealRecordFormat.JSON_LINES));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        calculatedMeals.incrementAndGet();
+
+        StringBuilder response = new StringBuilder(768);
+        JsonLinesResultSink.appendRecord(response, 1, result);
+        sendJson(exchange, 200, response);
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0); // Antwort wird gestreamt (chunked)
+
+        // Zeilenweise lesen und sofort antworten: der Speicherbedarf hängt nicht von der Größe der Anfrage ab
+        BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        StringBuilder line = new StringBuilder(768);
+        String userId = userIdOf(exchange);
+        long lineNumber = 0;
+        String requestLine;
+        while ((requestLine = reader.readLine()) != null) {
+            lineNumber++;
+            if (parser.isSkippable(requestLine)) {
+                continue;
+            }
+            line.setLength(0);
+            try {
+                JsonLinesResultSink.appendRecord(line, lineNumber,
+                        pipeline.calculate(userId, parser.parse(requestLine, MealRecordFormat.JSON_LINES)));
+                calculatedMeals.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                line.append("{\"line\":").append(lineNumber).append(",\"error\":");
+                appendJsonString(line, e.getMessage());
+                line.append('}');
+            }
+            line.append('\n');
+            writer.append(line);
+        }
+        writer.flush();
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        StringBuilder response = new StringBuilder(64);
+        response.append("{\"status\":\"").append(stopping ? "STOPPING" : "UP")
+                .append("\",\"calculatedMeals\":").append(calculatedMeals.get());
+        if (pipeline.cache() != null) {
+            CacheStats stats = pipeline.cache().stats();
+            response.append(",\"cache\":{\"size\":").append(stats.size())
+                    .append(",\"hits\":").append(stats.hits())
+                    .append(",\"misses\":").append(stats.misses())
+                    .append(",\"evictions\":").append(stats.evictions()).append('}');
+        }
+        response.append('}');
+        sendJson(exchange, stopping ? 503 : 200, response);
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        MetricsSnapshot snapshot = PipelineMetrics.snapshot();
+        StringBuilder response = new StringBuilder(1024);
+        response.append("{\"enabled\":").append(snapshot.enabled()).append(",\"stages\":{");
+        boolean first = true;
+        for (StageStats stats : snapshot.stages()) {
+            if (stats.count() == 0) {
+                continue;
+            }
+            response.append(first ? "" : ",").append('"').append(stats.stage().name())
+                    .append("\":{\"count\":").append(stats.count())
+                    .append(",\"meanNanos\":").append(Math.round(stats.meanNanos()))
+                    .append(",\"p50Nanos\":").append(stats.p50Nanos())
+                    .append(",\"p99Nanos\":").append(stats.p99Nanos())
+                    .append(",\"maxNanos\":").append(stats.maxNanos()).append('}');
+            first = false;
+        }
+        response.append("},\"strategies\":{");
+        first = true;
+        for (Map.Entry<String, Long> entry : snapshot.strategyCounts().entrySet()) {
+            response.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            first = false;
+        }
+        response.append("}}");
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null && query.contains("reset")) {
+            PipelineMetrics.reset();
+        }
+        sendJson(exchange, 200, response);
+    }
+
+    /**
+     * @return Die Benutzerkennung aus dem Header "X-LazyCarbs-User" oder null für das Standard-Profil.
+     */
+    private static String userIdOf(HttpExchange exchange) {
+        String userId = exchange.getRequestHeaders().getFirst(USER_HEADER);
+        return userId == null || userId.isBlank() ? null : userId.strip();
+    }
+
+    /**
+     * Liest den Body vollständig, höchstens jedoch maxBytes.
+     * @return Der Inhalt oder null, wenn der Body größer als maxBytes ist.
+     */
+    private static byte[] readBody(InputStream body, int maxBytes) throws IOException {
+        byte[] content = body.readNBytes(maxBytes + 1);
+        return content.length > maxBytes ? null : content;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder response = new StringBuilder(128).append("{\"error\":");
+        appendJsonString(response, message);
+        response.append('}');
+        sendJson(exchange, status, response);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private static void appendJsonString(StringBuilder target, String value) {
+        if (value == null) {
+            target.append("null");
+            return;
+        }
+        target.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> target.append("\\\"");
+                case '\\' -> target.append("\\\\");
+                case '\n' -> target.append("\\n");
+                case '\r' -> target.append("\\r");
+                case '\t' -> target.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        target.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        target.append(c);
+                    }
+                }
+            }
+        }
+        target.append('"');
+    }
+}
@@ -0,0 +1,88 @@
+package de.lazycarbs.calculator.server;
+
+import de.lazycarbs.calculator.cache.CalculationCache;
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.FixedPointDoseCalculator;
+import de.lazycarbs.calculator.core.MethodRuleFileLoader;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.profile.ProfileDirectoryWatcher;
+import de.lazycarbs.calculator.profile.ProfileOptions;
+import de.lazycarbs.calculator.profile.ProfileRegistry;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Kommandozeilen-Einstieg für den Server-Modus:
+ * <pre>
+ * java -jar lazycarbs.jar --server [--host 127.0.0.1] [--port 8080] [--grace-period 10] [--cache-size N]
+ *                         [--profiles DIR | --profiles-db] [--rules DATEI] [--pump-step IE [--pump-rounding floor|nearest|ceil]]
+ *                         [--metrics]
+ * </pre>
+ * Der Dienst läuft, bis der Prozess beendet wird (z.B. Strg+C oder SIGTERM); laufende Anfragen
+ * dürfen dann noch bis zu {@code --grace-period} Sekunden zu Ende laufen. Mit {@code --cache-size N} werden bis zu
+ * N berechnete Mahlzeiten für wiederholte Anfragen zwischengespeichert. Profildateien aus "--profiles DIR" werden
+ * überwacht und bei Änderungen ohne Neustart ausgetauscht. "--rules DATEI" lädt die Regeltabelle der Methodenauswahl
+ * (siehe {@link MethodRuleFileLoader}). Mit {@code --pump-step IE} wird in Festkomma gerechnet und die Dosen werden auf
+ * die Schrittweite der Pumpe gerundet (siehe {@link FixedPointDoseCalculator}). Mit {@code --metrics} liefert GET /metrics die Latenzen
+ * der Berechnungsstufen.
+ */
+public final class ServerCommand {
+
+    private ServerCommand() {
+    }
+
+    public static void run(String[] args) throws IOException, SQLException, InterruptedException {
+        String host = CommandLineOptions.valueOf(args, "--host", "127.0.0.1");
+        int port = CommandLineOptions.intValueOf(args, "--port", 8080);
+        int gracePeriodSeconds = CommandLineOptions.intValueOf(args, "--grace-period", 10);
+        int cacheSize = CommandLineOptions.intValueOf(args, "--cache-size", 0);
+
+        ProfileRegistry profiles = new ProfileRegistry();
+        String profileDirectory = CommandLineOptions.valueOf(args, "--profiles", null);
+        ProfileDirectoryWatcher profileWatcher = null;
+        if (profileDirectory != null) {
+            profileWatcher = new ProfileDirectoryWatcher(Path.of(profileDirectory), profiles);
+        } else {
+            ProfileOptions.loadInto(profiles, args);
+        }
+        System.err.println("Bolusfaktor-Profile geladen: " + profiles.snapshot().size());
+
+        MethodRuleTable rules = MethodRuleFileLoader.fromOptions(args);
+        FixedPointDoseCalculator fixedPoint = FixedPointDoseCalculator.fromOptions(args, rules);
+        if (fixedPoint != null) {
+            System.err.println("Dosen: " + fixedPoint);
+        }
+        CalculationPipeline pipeline = new CalculationPipeline(cacheSize > 0 ? new CalculationCache(cacheSize) : null, profiles,
+                rules, fixedPoint);
+        CalculationServer server = new CalculationServer(pipeline, new InetSocketAddress(host, port));
+        CountDownLatch stopped = new CountDownLatch(1);
+        ProfileDirectoryWatcher watcher = profileWatcher;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.err.println("LazyCarbs-Server wird beendet ...");
+            server.stop(gracePeriodSeconds);
+            closeQuietly(watcher);
+            stopped.countDown();
+        }, "lazycarbs-server-shutdown"));
+
+        server.start();
+        System.err.println("LazyCarbs-Server läuft auf http://" + host + ":" + server.address().getPort()
+                + " (POST /calculate, POST /calculate/batch, GET /health, GET /metrics)");
+        stopped.await();
+    }
+
+    private static void closeQuietly(ProfileDirectoryWatcher watcher) {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            System.err.println("Profil-Überwachung konnte nicht beendet werden: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package de.lazycarbs.calculator.simulation;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.TreeMap;
+
+/**
+ * Fasst die abgeschlossenen Minuten des {@link InsulinOnBoardSimulator} zu einer Zeile pro Tag zusammen und gibt
+ * jede Zeile aus, sobald der Tag abgeschlossen ist: abgegebenes Insulin, höchstes wirksames Insulin mit Uhrzeit,
+ * höchster noch ausstehender verzögerter Bolus und wie lange sich verzögerte Boli überlappt haben.
+ */
+public class DailyInsulinReport implements SimulatedMinuteListener {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final PrintStream out;
+    // Mahlzeiten pro Tag, bis der Tag ausgegeben ist (nur die Tage im Ringpuffer des Simulators)
+    private final TreeMap<Long, Integer> mealsPerDay = new TreeMap<>();
+
+    private long day = Long.MIN_VALUE;
+    private double deliveredUnits;
+    private double maxInsulinOnBoard;
+    private long maxInsulinOnBoardMinute;
+    private double maxPendingExtendedBolus;
+    private int maxActiveExtendedBoluses;
+    private int overlapMinutes;
+    private long reportedDays;
+
+    public DailyInsulinReport(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Zählt eine Mahlzeit für den Tag ihrer Startminute.
+     */
+    public void mealAdded(long startMinute) {
+        mealsPerDay.merge(Math.floorDiv(startMinute, MINUTES_PER_DAY), 1, Integer::sum);
+    }
+
+    public void printHeader() {
+        out.printf("%-10s %10s %12s %12s %8s %14s %13s %15s%n", "Datum", "Mahlzeiten", "Insulin IE", "max. IOB IE",
+                "um", "max. ausst. IE", "max. gleichz.", "Überlappung min");
+    }
+
+    @Override
+    public void minute(long minute, double insulinOnBoard, double pendingExtendedBolus, double deliveredUnits, int activeExtendedBoluses) {
+        long minuteDay = Math.floorDiv(minute, MINUTES_PER_DAY);
+        if (minuteDay != day) {
+            printDay();
+            day = minuteDay;
+        }
+        this.deliveredUnits += deliveredUnits;
+        if (insulinOnBoard > maxInsulinOnBoard) {
+            maxInsulinOnBoard = insulinOnBoard;
+            maxInsulinOnBoardMinute = minute;
+        }
+        maxPendingExtendedBolus = Math.max(maxPendingExtendedBolus, pendingExtendedBolus);
+        maxActiveExtendedBoluses = Math.max(maxActiveExtendedBoluses, activeExtendedBoluses);
+        if (activeExtendedBoluses > 1) {
+            overlapMinutes++;
+        }
+    }
+
+    /**
+     * Gibt den letzten, noch offenen Tag aus.
+     */
+    public void finish() {
+        printDay();
+        day = Long.MIN_VALUE;
+    }
+
+    /**
+     * @return Anzahl der ausgegebenen Tage mit Insulin.
+     */
+    public long reportedDays() {
+        return reportedDays;
+    }
+
+    private void printDay() {
+        if (day != Long.MIN_VALUE && (deliveredUnits > 0 || maxInsulinOnBoard > 0)) {
+            Integer meals = mealsPerDay.remove(day);
+            long minuteOfDay = maxInsulinOnBoardMinute - day * MINUTES_PER_DAY;
+            out.printf("%-10s %10d %12.2f %12.2f %5d:%02d %14.2f %13d %15d%n", LocalDate.ofEpochDay(day), meals == null ? 0 : meals,
+                    deliveredUnits, maxInsulinOnBoard, minuteOfDay / 60, minuteOfDay % 60, maxPendingExtendedBolus,
+                    maxActiveExtendedBoluses, overlapMinutes);
+            reportedDays++;
+        }
+        mealsPerDay.headMap(day, true).clear();
+        deliveredUnits = 0;
+        maxInsulinOnBoard = 0;
+        maxInsulinOnBoardMinute = 0;
+        maxPendingExtendedBolus = 0;
+        maxActiveExtendedBoluses = 0;
+        overlapMinutes = 0;
+    }
+}
@@ -0,0 +1,55 @@
+package de.lazycarbs.calculator.simulation;
+
+import de.lazycarbs.calculator.data.MethodResults;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Abgabeplan einer Mahlzeit: der Sofort-Bolus in der Startminute und der verzögerte Bolus gleichmäßig verteilt
+ * über {@code extendedMinutes} Minuten (verlängerter Bolus, beginnend in der Startminute).
+ * @param startMinute Minute der Abgabe, gezählt ab 1970-01-01 00:00 (siehe {@link #minuteOf(LocalDateTime)}).
+ * @param immediateBolus Sofort-Bolus in IE.
+ * @param extendedBolus Verzögerter Bolus in IE.
+ * @param extendedMinutes Dauer des verzögerten Bolus in Minuten.
+ */
+public record DeliverySchedule(long startMinute, double immediateBolus, double extendedBolus, int extendedMinutes) {
+
+    // Die Methoden berechnen den verzögerten Bolus für eine Abgabe über 8 Stunden
+    public static final int DEFAULT_EXTENDED_MINUTES = 8 * 60;
+
+    /**
+     * @throws IllegalArgumentException bei negativen Dosen oder einer Dauer unter einer Minute.
+     */
+    public DeliverySchedule {
+        if (immediateBolus < 0 || extendedBolus < 0 || !Double.isFinite(immediateBolus) || !Double.isFinite(extendedBolus)) {
+            throw new IllegalArgumentException("Ungültige Dosis im Abgabeplan: " + immediateBolus + " / " + extendedBolus);
+        }
+        if (extendedMinutes < 1) {
+            throw new IllegalArgumentException("Die Dauer des verzögerten Bolus muss mindestens eine Minute sein.");
+        }
+    }
+
+    /**
+     * Erzeugt den Abgabeplan aus den Ergebnissen einer Methode, der Sofort-Bolus wird wie bei der Berechnung
+     * an den Bewegungs-Faktor angepasst.
+     */
+    public static DeliverySchedule of(long startMinute, MethodResults methodResults, double movementFactor) {
+        return new DeliverySchedule(startMinute, methodResults.correctBolusSum() * movementFactor,
+                Math.max(0, methodResults.delayedCalorieBolus()), DEFAULT_EXTENDED_MINUTES);
+    }
+
+    /**
+     * @return Die Minute seit 1970-01-01 00:00 (lokale Zeit ohne Zeitzonenumrechnung).
+     */
+    public static long minuteOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    /**
+     * @return Abgegebene Menge des verzögerten Bolus pro Minute.
+     */
+    public double extendedRatePerMinute() {
+        return extendedBolus / extendedMinutes;
+    }
+}
@@ -0,0 +1,89 @@
+package de.lazycarbs.calculator.simulation;
+
+/**
+ * Wirkkurve eines Insulins in Minutenauflösung: Anteil einer Dosis, der t Minuten nach der Abgabe noch wirkt
+ * (insulin on board). Verwendet wird das exponentielle Modell aus OpenAPS/Loop mit Wirkdauer und Wirkmaximum.
+ * <p>
+ * Zusätzlich liegen die Präfixsummen der Kurve vor: damit ergibt sich der Rest eines gleichmäßig verteilten
+ * (verzögerten) Bolus zu jedem Zeitpunkt in konstanter Zeit statt durch Summation über alle Abgabeminuten.
+ */
+public final class InsulinActionCurve {
+
+    // Wirkdauer und Wirkmaximum in Minuten (Analog-Insulin bzw. Normalinsulin)
+    public static final int RAPID_ACTING_DURATION_MINUTES = 360;
+    public static final int RAPID_ACTING_PEAK_MINUTES = 75;
+    public static final int REGULAR_DURATION_MINUTES = 480;
+    public static final int REGULAR_PEAK_MINUTES = 150;
+
+    private final int durationMinutes;
+    private final int peakMinutes;
+    // remaining[t] = wirksamer Anteil t Minuten nach der Abgabe, remaining[durationMinutes] = 0
+    private final double[] remaining;
+    // remainingPrefixSums[n] = Summe von remaining[0..n-1]
+    private final double[] remainingPrefixSums;
+
+    /**
+     * @param durationMinutes Wirkdauer, danach wirkt nichts mehr.
+     * @param peakMinutes Zeitpunkt der stärksten Wirkung; muss kleiner als die halbe Wirkdauer sein.
+     * @throws IllegalArgumentException bei ungültigen Werten.
+     */
+    public InsulinActionCurve(int durationMinutes, int peakMinutes) {
+        if (durationMinutes < 2 || peakMinutes < 1 || 2 * peakMinutes >= durationMinutes) {
+            throw new IllegalArgumentException("Ungültige Wirkkurve: Wirkdauer " + durationMinutes + " min, Maximum " + peakMinutes + " min.");
+        }
+        this.durationMinutes = durationMinutes;
+        this.peakMinutes = peakMinutes;
+        this.remaining = new double[durationMinutes + 1];
+        this.remainingPrefixSums = new double[durationMinutes + 2];
+
+        double tau = peakMinutes * (1 - peakMinutes / (double) durationMinutes) / (1 - 2.0 * peakMinutes / durationMinutes);
+        double a = 2 * tau / durationMinutes;
+        double s = 1 / (1 - a + (1 + a) * Math.exp(-durationMinutes / tau));
+        for (int t = 0; t < durationMinutes; t++) {
+            double value = 1 - s * (1 - a) * ((t * (double) t / (tau * durationMinutes * (1 - a)) - t / tau - 1) * Math.exp(-t / tau) + 1);
+            remaining[t] = Math.max(0, Math.min(1, value));
+        }
+        remaining[durationMinutes] = 0;
+        for (int t = 0; t <= durationMinutes; t++) {
+            remainingPrefixSums[t + 1] = remainingPrefixSums[t] + remaining[t];
+        }
+    }
+
+    /**
+     * @param insulinTypeCalorieCovering 150 für Analog-Insulin, 200 für Normalinsulin (wie bei der Eingabe).
+     * @return Die passende Standard-Wirkkurve.
+     */
+    public static InsulinActionCurve forInsulinType(double insulinTypeCalorieCovering) {
+        return insulinTypeCalorieCovering >= 200
+                ? new InsulinActionCurve(REGULAR_DURATION_MINUTES, REGULAR_PEAK_MINUTES)
+                : new InsulinActionCurve(RAPID_ACTING_DURATION_MINUTES, RAPID_ACTING_PEAK_MINUTES);
+    }
+
+    public int durationMinutes() {
+        return durationMinutes;
+    }
+
+    public int peakMinutes() {
+        return peakMinutes;
+    }
+
+    /**
+     * @return Wirksamer Anteil einer Dosis {@code minutesSinceDelivery} Minuten nach der Abgabe (1 bei der Abgabe).
+     */
+    public double remaining(long minutesSinceDelivery) {
+        if (minutesSinceDelivery < 0) {
+            return 0;
+        }
+        return minutesSinceDelivery >= durationMinutes ? 0 : remaining[(int) minutesSinceDelivery];
+    }
+
+    /**
+     * @return Summe von {@link #remaining(long)} für 0 bis {@code count - 1} Minuten.
+     */
+    double remainingSum(long count) {
+        if (count <= 0) {
+            return 0;
+        }
+        return remainingPrefixSums[(int) Math.min(count, durationMinutes + 1)];
+    }
+}
@@ -0,0 +1,202 @@
+package de.lazycarbs.calculator.simulation;
+
+/**
+ * Simuliert die Insulinabgabe vieler Mahlzeiten in Minutenauflösung: Sofort-Bolus, laufende verzögerte Boli und
+ * das noch wirksame Insulin (insulin on board) über sich überlappende Mahlzeiten hinweg.
+ * <p>
+ * Der Zustand liegt in Ringpuffern, die nur den noch veränderlichen Zeitraum abdecken (mindestens zweimal
+ * längste Abgabedauer plus Wirkdauer). Eine neue Mahlzeit ändert nur die Minuten, auf die sie wirkt, in konstanter
+ * Zeit pro Minute (Präfixsummen der {@link InsulinActionCurve}); es wird nie der ganze Tag neu berechnet.
+ * Minuten, auf die keine neue Mahlzeit mehr wirken kann, werden abgeschlossen, an den {@link SimulatedMinuteListener}
+ * übergeben und ihr Platz wiederverwendet. Der Speicherbedarf hängt daher nicht von der Länge der Historie ab.
+ * <p>
+ * Mahlzeiten müssen nicht streng sortiert kommen, dürfen aber nicht vor dem bereits abgeschlossenen Zeitraum liegen.
+ * Die Klasse ist nicht thread-sicher.
+ */
+public class InsulinOnBoardSimulator {
+
+    private final InsulinActionCurve curve;
+    private final int maxExtendedMinutes;
+    private final SimulatedMinuteListener listener;
+    private final int mask;
+
+    // Ringpuffer, Index = Minute & mask
+    private final double[] insulinOnBoard;
+    private final double[] pendingExtendedBolus;
+    private final double[] deliveredUnits;
+    private final int[] activeExtendedBoluses;
+
+    // erste noch nicht abgeschlossene Minute; der Ring deckt [firstOpenMinute, firstOpenMinute + capacity) ab
+    private long firstOpenMinute;
+    // erste Minute, auf die keine bisherige Mahlzeit mehr wirkt
+    private long affectedUntilMinute;
+    private long meals;
+    private double totalDeliveredUnits;
+
+    /**
+     * @param curve Wirkkurve des Insulins.
+     * @param maxExtendedMinutes Längste Dauer eines verzögerten Bolus.
+     * @param startMinute Erste simulierte Minute (Minute seit 1970-01-01 00:00).
+     * @param listener Erhält jede abgeschlossene Minute oder null.
+     */
+    public InsulinOnBoardSimulator(InsulinActionCurve curve, int maxExtendedMinutes, long startMinute, SimulatedMinuteListener listener) {
+        if (maxExtendedMinutes < 1) {
+            throw new IllegalArgumentException("Die Dauer des verzögerten Bolus muss mindestens eine Minute sein.");
+        }
+        this.curve = curve;
+        this.maxExtendedMinutes = maxExtendedMinutes;
+        this.listener = listener;
+        int capacity = Integer.highestOneBit(2 * (maxExtendedMinutes + curve.durationMinutes()) - 1) << 1;
+        this.mask = capacity - 1;
+        this.insulinOnBoard = new double[capacity];
+        this.pendingExtendedBolus = new double[capacity];
+        this.deliveredUnits = new double[capacity];
+        this.activeExtendedBoluses = new int[capacity];
+        this.firstOpenMinute = startMinute;
+        this.affectedUntilMinute = startMinute;
+    }
+
+    /**
+     * @return Anzahl der Minuten, die der Ringpuffer abdeckt.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Fügt den Abgabeplan einer Mahlzeit hinzu und aktualisiert nur die Minuten, auf die er wirkt.
+     * Liegt das Ende der Wirkung hinter dem Ringpuffer, werden die ältesten Minuten vorher abgeschlossen.
+     * @throws IllegalArgumentException wenn die Mahlzeit vor dem abgeschlossenen Zeitraum liegt oder der
+     * verzögerte Bolus länger als {@code maxExtendedMinutes} dauert.
+     */
+    public void addMeal(DeliverySchedule schedule) {
+        long start = schedule.startMinute();
+        int extendedMinutes = schedule.extendedMinutes();
+        if (extendedMinutes > maxExtendedMinutes) {
+            throw new IllegalArgumentException("Verzögerter Bolus über " + extendedMinutes + " min ist länger als erlaubt ("
+                    + maxExtendedMinutes + " min).");
+        }
+        if (start < firstOpenMinute) {
+            throw new IllegalArgumentException("Die Mahlzeit (Minute " + start + ") liegt vor dem bereits abgeschlossenen Zeitraum (ab Minute "
+                    + firstOpenMinute + ").");
+        }
+        long end = start + extendedMinutes + curve.durationMinutes();
+        if (end - firstOpenMinute > capacity()) {
+            advanceTo(end - capacity());
+        }
+
+        double immediate = schedule.immediateBolus();
+        double rate = schedule.extendedRatePerMinute();
+        int extendedBolusCount = rate > 0 ? 1 : 0; // ohne verzögerten Bolus läuft auch keiner
+        for (long minute = start; minute < end; minute++) {
+            int slot = (int) (minute & mask);
+            long sinceStart = minute - start;
+            // Sofort-Bolus plus alle bisher abgegebenen Minuten des verzögerten Bolus (Präfixsummen statt Schleife)
+            double remainingExtended = curve.remainingSum(sinceStart + 1) - curve.remainingSum(sinceStart - extendedMinutes + 1);
+            insulinOnBoard[slot] += immediate * curve.remaining(sinceStart) + rate * remainingExtended;
+            if (sinceStart < extendedMinutes) {
+                deliveredUnits[slot] += rate;
+                pendingExtendedBolus[slot] += rate * (extendedMinutes - 1 - sinceStart);
+                activeExtendedBoluses[slot] += extendedBolusCount;
+            }
+        }
+        deliveredUnits[(int) (start & mask)] += immediate;
+
+        affectedUntilMinute = Math.max(affectedUntilMinute, end);
+        meals++;
+        totalDeliveredUnits += immediate + schedule.extendedBolus();
+    }
+
+    /**
+     * Schließt alle Minuten vor {@code minute} ab und übergibt sie dem Listener.
+     * Ohne Listener werden Minuten ohne Wirkung übersprungen.
+     */
+    public void advanceTo(long minute) {
+        while (firstOpenMinute < minute) {
+            if (listener == null && firstOpenMinute >= affectedUntilMinute) {
+                firstOpenMinute = minute; // alle Puffer sind leer
+                return;
+            }
+            int slot = (int) (firstOpenMinute & mask);
+            if (listener != null) {
+                listener.minute(firstOpenMinute, insulinOnBoard[slot], pendingExtendedBolus[slot], deliveredUnits[slot],
+                        activeExtendedBoluses[slot]);
+            }
+            insulinOnBoard[slot] = 0;
+            pendingExtendedBolus[slot] = 0;
+            deliveredUnits[slot] = 0;
+            activeExtendedBoluses[slot] = 0;
+            firstOpenMinute++;
+        }
+        affectedUntilMinute = Math.max(affectedUntilMinute, firstOpenMinute);
+    }
+
+    /**
+     * Schließt alle Minuten ab, auf die noch eine Mahlzeit wirkt.
+     */
+    public void finish() {
+        advanceTo(affectedUntilMinute);
+    }
+
+    /**
+     * @return Noch wirksames Insulin am Ende der Minute in IE.
+     * @throws IllegalArgumentException wenn die Minute bereits abgeschlossen ist.
+     */
+    public double insulinOnBoard(long minute) {
+        return valueAt(insulinOnBoard, minute);
+    }
+
+    /**
+     * @return Noch nicht abgegebener Anteil aller verzögerten Boli am Ende der Minute in IE.
+     * @throws IllegalArgumentException wenn die Minute bereits abgeschlossen ist.
+     */
+    public double pendingExtendedBolus(long minute) {
+        return valueAt(pendingExtendedBolus, minute);
+    }
+
+    /**
+     * @return In der Minute abgegebenes Insulin in IE.
+     * @throws IllegalArgumentException wenn die Minute bereits abgeschlossen ist.
+     */
+    public double deliveredUnits(long minute) {
+        return valueAt(deliveredUnits, minute);
+    }
+
+    /**
+     * @return Anzahl der in der Minute laufenden verzögerten Boli.
+     * @throws IllegalArgumentException wenn die Minute bereits abgeschlossen ist.
+     */
+    public int activeExtendedBoluses(long minute) {
+        checkOpen(minute);
+        return minute >= affectedUntilMinute ? 0 : activeExtendedBoluses[(int) (minute & mask)];
+    }
+
+    private double valueAt(double[] ring, long minute) {
+        checkOpen(minute);
+        return minute >= affectedUntilMinute ? 0 : ring[(int) (minute & mask)];
+    }
+
+    private void checkOpen(long minute) {
+        if (minute < firstOpenMinute) {
+            throw new IllegalArgumentException("Minute " + minute + " ist bereits abgeschlossen (ab Minute " + firstOpenMinute + ").");
+        }
+    }
+
+    /**
+     * @return Erste noch nicht abgeschlossene Minute.
+     */
+    public long firstOpenMinute() {
+        return firstOpenMinute;
+    }
+
+    public long meals() {
+        return meals;
+    }
+
+    /**
+     * @return Insgesamt geplantes Insulin aller Mahlzeiten (Sofort-Bolus und verzögerter Bolus) in IE.
+     */
+    public double totalDeliveredUnits() {
+        return totalDeliveredUnits;
+    }
+}
@@ -0,0 +1,17 @@
+package de.lazycarbs.calculator.simulation;
+
+/**
+ * Erhält die Werte jeder abgeschlossenen Minute des {@link InsulinOnBoardSimulator} in zeitlicher Reihenfolge.
+ */
+@FunctionalInterface
+public interface SimulatedMinuteListener {
+
+    /**
+     * @param minute Minute seit 1970-01-01 00:00.
+     * @param insulinOnBoard Noch wirksames Insulin am Ende der Minute in IE.
+     * @param pendingExtendedBolus Noch nicht abgegebener Anteil aller verzögerten Boli in IE.
+     * @param deliveredUnits In dieser Minute abgegebenes Insulin in IE.
+     * @param activeExtendedBoluses Anzahl der verzögerten Boli, die in dieser Minute laufen.
+     */
+    void minute(long minute, double insulinOnBoard, double pendingExtendedBolus, double deliveredUnits, int activeExtendedBoluses);
+}
@@ -0,0 +1,60 @@
+package de.lazycarbs.calculator.simulation;
+
+import de.lazycarbs.calculator.analytics.AnalyticsCommand;
+import de.lazycarbs.calculator.analytics.CalculationHistorySource;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Kommandozeilen-Einstieg für die Simulation der Insulinabgabe über alle gespeicherten Berechnungen:
+ * <pre>
+ * java -jar lazycarbs.jar --simulate [--journal DIR | --columnar DATEI] [--insulin 150|200] [--fetch-size 1000]
+ * </pre>
+ * Jede gespeicherte Berechnung wird zu ihrem Zeitpunkt als Sofort-Bolus plus verzögertem Bolus über 8 Stunden
+ * abgegeben; ausgegeben wird eine Zeile pro Tag (siehe {@link DailyInsulinReport}). "--insulin" wählt die Wirkkurve
+ * (150 = Analog-Insulin, 200 = Normalinsulin). Ohne "--journal" bzw. "--columnar" wird die MySQL-Datenbank gelesen.
+ */
+public final class SimulationCommand {
+
+    private SimulationCommand() {
+    }
+
+    public static void run(String[] args) throws IOException, SQLException {
+        int insulinType = CommandLineOptions.intValueOf(args, "--insulin", 150);
+        CalculationHistorySource source = AnalyticsCommand.openSource(args);
+        InsulinActionCurve curve = InsulinActionCurve.forInsulinType(insulinType);
+
+        DailyInsulinReport report = new DailyInsulinReport(System.out);
+        report.printHeader();
+        InsulinOnBoardSimulator[] simulator = new InsulinOnBoardSimulator[1]; // wird mit der ersten Mahlzeit angelegt
+        long[] skippedMeals = new long[1];
+        source.stream(0, row -> {
+            long startMinute = DeliverySchedule.minuteOf(row.timestamp());
+            if (simulator[0] == null) {
+                simulator[0] = new InsulinOnBoardSimulator(curve, DeliverySchedule.DEFAULT_EXTENDED_MINUTES, startMinute, report);
+            }
+            if (startMinute < simulator[0].firstOpenMinute()) {
+                skippedMeals[0]++; // deutlich älter als die bisher gelesenen Mahlzeiten
+                return;
+            }
+            simulator[0].addMeal(new DeliverySchedule(startMinute, Math.max(0, row.finalCorrectBolus()),
+                    Math.max(0, row.delayedCalorieBolus()), DeliverySchedule.DEFAULT_EXTENDED_MINUTES));
+            report.mealAdded(startMinute);
+        });
+        if (simulator[0] == null) {
+            System.out.println("Keine gespeicherten Berechnungen gefunden.");
+            return;
+        }
+        simulator[0].finish();
+        report.finish();
+
+        System.out.printf("%nSimuliert: %d Mahlzeiten, %.2f IE insgesamt, %d Tage (Wirkdauer %d min, Maximum nach %d min)%n",
+                simulator[0].meals(), simulator[0].totalDeliveredUnits(), report.reportedDays(),
+                curve.durationMinutes(), curve.peakMinutes());
+        if (skippedMeals[0] > 0) {
+            System.out.println("Übersprungen (nicht in zeitlicher Reihenfolge gespeichert): " + skippedMeals[0]);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package de.lazycarbs.calculator.stream;
+
+import de.lazycarbs.calculator.data.MealInput;
+
+/**
+ * Eine eingelesene Mahlzeit samt Herkunft, damit Fehler in späteren Stufen der Quelle zugeordnet werden können.
+ *
+ * @param source Name der Quelle, z.B. "Verbindung 3" oder der Name der Pipe.
+ * @param lineNumber Zeilennummer innerhalb der Quelle (ab 1).
+ * @param input Die Mahlzeit.
+ */
+public record MealEvent(String source, long lineNumber, MealInput input) {
+
+    @Override
+    public String toString() {
+        return source + ", Zeile " + lineNumber;
+    }
+}
@@ -0,0 +1,113 @@
+package de.lazycarbs.calculator.stream;
+
+import de.lazycarbs.calculator.input.MealRecordReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quelle der {@link MealStreamPipeline}: liest Mahlzeit-Datensätze zeilenweise (CSV wie im Batch-Modus, siehe
+ * {@link MealRecordReader}) aus einem Byte-Strom und reiht sie ein.
+ * <p>
+ * Das Einreihen blockiert, solange die Pipeline ausgelastet ist; die Quelle liest dann nicht weiter. Bei einer Socket-
+ * Verbindung füllt sich dadurch der Empfangspuffer des Betriebssystems und der Erzeuger wird ebenfalls gebremst.
+ * Fehlerhafte Zeilen werden mit Quelle und Zeilennummer gemeldet und übersprungen.
+ */
+public class MealEventSource {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final MealStreamPipeline pipeline;
+    private final PrintStream errorOutput;
+    private final AtomicLong readRecords = new AtomicLong();
+    private final AtomicLong invalidRecords = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    public MealEventSource(MealStreamPipeline pipeline, PrintStream errorOutput) {
+        this.pipeline = pipeline;
+        this.errorOutput = errorOutput;
+    }
+
+    /**
+     * Liest alle Datensätze eines Stroms bis zu seinem Ende und schließt ihn danach.
+     * @param in Der Strom, z.B. stdin, eine Datei oder eine Named Pipe.
+     * @param sourceName Name der Quelle für Fehlermeldungen.
+     * @throws IllegalStateException wenn die Pipeline keine Mahlzeiten mehr annimmt.
+     */
+    public void readAll(InputStream in, String sourceName) throws IOException {
+        try (MealRecordReader records = new MealRecordReader(in, BUFFER_SIZE)) {
+            MealRecordReader.Status status;
+            while ((status = records.next()) != MealRecordReader.Status.END) {
+                if (status == MealRecordReader.Status.ERROR) {
+                    invalidRecords.incrementAndGet();
+                    errorOutput.println(sourceName + ", Zeile " + records.lineNumber() + ": " + records.errorMessage());
+                    continue;
+                }
+                pipeline.submit(new MealEvent(sourceName, records.lineNumber(), records.toMealInput()));
+                readRecords.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Nimmt Verbindungen an (TCP oder Unix-Domain-Socket), bis der Kanal geschlossen wird. Jede Verbindung wird auf
+     * einem eigenen virtuellen Thread bis zu ihrem Ende gelesen.
+     */
+    public void serve(ServerSocketChannel serverChannel) throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return; // beim Beenden geschlossen
+            }
+            String sourceName = "Verbindung " + connections.incrementAndGet();
+            Thread.ofVirtual().name("lazycarbs-stream-" + sourceName).start(() -> readConnection(channel, sourceName));
+        }
+    }
+
+    private void readConnection(SocketChannel channel, String sourceName) {
+        try {
+            readAll(Channels.newInputStream(channel), sourceName);
+        } catch (IOException e) {
+            errorOutput.println(sourceName + " abgebrochen: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            // Pipeline nimmt nichts mehr an (Beenden); die Verbindung wird geschlossen
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * @return Anzahl der eingereihten Datensätze.
+     */
+    public long readRecords() {
+        return readRecords.get();
+    }
+
+    /**
+     * @return Anzahl der fehlerhaften, übersprungenen Zeilen.
+     */
+    public long invalidRecords() {
+        return invalidRecords.get();
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("Quelle: %d Datensätze eingereiht, %d fehlerhaft", readRecords.get(), invalidRecords.get());
+        return connections.get() == 0 ? summary : summary + ", " + connections.get() + " Verbindungen";
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // beim Beenden ohne Bedeutung
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package de.lazycarbs.calculator.stream;
+
+import de.lazycarbs.calculator.core.CalculationPipeline;
+import de.lazycarbs.calculator.core.FinalBolusCalculator;
+import de.lazycarbs.calculator.core.FixedPointDoseCalculator;
+import de.lazycarbs.calculator.core.FixedPointDoses;
+import de.lazycarbs.calculator.core.IntermediateFactorCalculator;
+import de.lazycarbs.calculator.core.MethodCalculationSelector;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.data.IntermediateBolusFactors;
+import de.lazycarbs.calculator.data.MealInput;
+import de.lazycarbs.calculator.data.MethodResults;
+import de.lazycarbs.calculator.data.MethodSelectionResult;
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.metrics.PipelineStage;
+import de.lazycarbs.calculator.profile.ProfileRegistry;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Berechnet fortlaufend eintreffende Mahlzeiten als Kette von {@link java.util.concurrent.Flow}-Stufen:
+ * <pre>
+ * Quelle -> Zwischenfaktoren -> Methode -> Endbolus -> Speichern
+ * </pre>
+ * Jede Stufe läuft auf einem eigenen Thread und hat einen begrenzten Eingangspuffer; Elemente werden nur auf
+ * Anforderung weitergereicht. Ist der Speicher langsam, laufen die Puffer von hinten nach vorne voll, bis
+ * {@link #submit(MealEvent)} blockiert und die Quelle nicht weiterliest. Der Speicherbedarf bleibt so unabhängig von
+ * der Eingangsrate begrenzt (höchstens vier Puffer plus ein Speicher-Batch).
+ * <p>
+ * {@link #submit(MealEvent)} darf von mehreren Threads gleichzeitig aufgerufen werden (z.B. einer pro Verbindung).
+ * {@link #complete()} nimmt keine Mahlzeiten mehr an; die bereits eingereihten werden noch berechnet und
+ * gespeichert, siehe {@link #awaitCompletion(long, TimeUnit)}.
+ * <p>
+ * Mit einem {@link FixedPointDoseCalculator} rechnen die Stufen in Festkomma; die {@link FixedPointDoses} einer
+ * Mahlzeit wandern dann mit ihr von Stufe zu Stufe.
+ */
+public class MealStreamPipeline implements AutoCloseable {
+
+    private final SubmissionPublisher<MealEvent> source;
+    private final AtomicLong submittedEvents = new AtomicLong();
+    private final StreamStage<MealEvent, FactoredMeal> intermediateStage;
+    private final StreamStage<FactoredMeal, SelectedMeal> strategyStage;
+    private final StreamStage<SelectedMeal, CalculationResult> finalStage;
+    private final PersistenceSink sink;
+    private final List<ExecutorService> executors;
+
+    /**
+     * @param profiles Bolusfaktor-Profile; gerechnet wird mit dem Standard-Profil der Registry.
+     * @param rules Regeltabelle der Methodenauswahl.
+     * @param store Speicher für die Ergebnisse.
+     * @param bufferCapacity Größe des Eingangspuffers jeder Stufe (wird auf eine Zweierpotenz aufgerundet).
+     * @param maxStoreBatchSize Maximale Anzahl Datensätze pro Speicher-Batch.
+     * @param errorOutput Ziel für Meldungen zu verworfenen Mahlzeiten und fehlgeschlagenem Speichern.
+     */
+    public MealStreamPipeline(ProfileRegistry profiles, MethodRuleTable rules, CalculationStore store, int bufferCapacity,
+                              int maxStoreBatchSize, PrintStream errorOutput) {
+        this(profiles, rules, null, store, bufferCapacity, maxStoreBatchSize, errorOutput);
+    }
+
+    /**
+     * @param profiles Bolusfaktor-Profile; gerechnet wird mit dem Standard-Profil der Registry.
+     * @param rules Regeltabelle der Methodenauswahl.
+     * @param fixedPoint Festkomma-Rechnung mit Pumpen-Rundung oder null für die Rechnung in double.
+     * @param store Speicher für die Ergebnisse.
+     * @param bufferCapacity Größe des Eingangspuffers jeder Stufe (wird auf eine Zweierpotenz aufgerundet).
+     * @param maxStoreBatchSize Maximale Anzahl Datensätze pro Speicher-Batch.
+     * @param errorOutput Ziel für Meldungen zu verworfenen Mahlzeiten und fehlgeschlagenem Speichern.
+     */
+    public MealStreamPipeline(ProfileRegistry profiles, MethodRuleTable rules, FixedPointDoseCalculator fixedPoint,
+                              CalculationStore store, int bufferCapacity, int maxStoreBatchSize, PrintStream errorOutput) {
+        if (bufferCapacity < 1 || maxStoreBatchSize < 1) {
+            throw new IllegalArgumentException("Puffergröße und Batch-Größe müssen positiv sein.");
+        }
+        IntermediateFactorCalculator intermediateFactorCalculator = new IntermediateFactorCalculator();
+        MethodCalculationSelector methodCalculationSelector = new MethodCalculationSelector(rules);
+        FinalBolusCalculator finalBolusCalculator = new FinalBolusCalculator();
+
+        // ein Thread pro Stufe; der Executor eines Publishers ist der Thread der Stufe, die ihn abonniert
+        ExecutorService intermediateThread = stageThread("zwischenfaktoren");
+        ExecutorService strategyThread = stageThread("methode");
+        ExecutorService finalThread = stageThread("endbolus");
+        ExecutorService sinkThread = stageThread("speichern");
+        this.executors = List.of(intermediateThread, strategyThread, finalThread, sinkThread);
+
+        this.source = new SubmissionPublisher<>(intermediateThread, bufferCapacity);
+        this.intermediateStage = new StreamStage<>("Zwischenfaktoren",
+                event -> calculateIntermediateFactors(event, profiles, intermediateFactorCalculator, fixedPoint),
+                source, submittedEvents::get, strategyThread, bufferCapacity, errorOutput);
+        this.strategyStage = new StreamStage<>("Methode",
+                meal -> calculateMethod(meal, methodCalculationSelector, intermediateFactorCalculator, fixedPoint),
+                intermediateStage, intermediateStage::submitted, finalThread, bufferCapacity, errorOutput);
+        this.finalStage = new StreamStage<>("Endbolus",
+                meal -> calculateFinalBolus(meal, finalBolusCalculator, fixedPoint),
+                strategyStage, strategyStage::submitted, sinkThread, bufferCapacity, errorOutput);
+        this.sink = new PersistenceSink(store, maxStoreBatchSize, finalStage, finalStage::submitted, errorOutput);
+
+        source.subscribe(intermediateStage);
+        intermediateStage.subscribe(strategyStage);
+        strategyStage.subscribe(finalStage);
+        finalStage.subscribe(sink);
+    }
+
+    /**
+     * Reiht eine Mahlzeit ein und blockiert, solange der Eingangspuffer der ersten Stufe voll ist.
+     * @throws IllegalStateException wenn die Pipeline keine Mahlzeiten mehr annimmt.
+     */
+    public void submit(MealEvent event) {
+        source.submit(event);
+        submittedEvents.incrementAndGet();
+    }
+
+    /**
+     * Nimmt keine weiteren Mahlzeiten an; bereits eingereihte werden noch vollständig verarbeitet.
+     */
+    public void complete() {
+        source.close();
+    }
+
+    /**
+     * Wartet, bis nach {@link #complete()} alle eingereihten Mahlzeiten gespeichert sind.
+     * @return true, wenn die Pipeline innerhalb der Wartezeit leergelaufen ist.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            sink.completion().get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pipeline abgebrochen: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * @return Füllstand und Zähler jeder Stufe, in der Reihenfolge der Pipeline.
+     */
+    public List<StreamStageStats> stats() {
+        return List.of(intermediateStage.stats(), strategyStage.stats(), finalStage.stats(), sink.stats());
+    }
+
+    /**
+     * Nimmt keine Mahlzeiten mehr an und beendet die Threads aller Stufen sofort, auch wenn noch Mahlzeiten
+     * unterwegs sind. Für ein geordnetes Ende vorher {@link #complete()} und {@link #awaitCompletion(long, TimeUnit)}
+     * aufrufen.
+     */
+    @Override
+    public void close() {
+        source.close();
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static FactoredMeal calculateIntermediateFactors(MealEvent event, ProfileRegistry profiles,
+                                                             IntermediateFactorCalculator intermediateFactorCalculator,
+                                                             FixedPointDoseCalculator fixedPoint) {
+        MealInput input = event.input();
+        long start = PipelineMetrics.start();
+        double usualBolusFactor = profiles.calculatorFor(null).calculateAverageBolusFactor(
+                input.currentHour(), input.currentMinute(), CalculationPipeline.BOLUS_FACTOR_DURATION_MINUTES);
+        PipelineMetrics.record(PipelineStage.BOLUS_FACTOR, start);
+
+        start = PipelineMetrics.start();
+        if (fixedPoint != null) {
+            FixedPointDoses doses = new FixedPointDoses();
+            fixedPoint.calculateIntermediateFactors(input.mealCarbs(), input.mealCalories(), usualBolusFactor,
+                    input.usualBeCalories(), doses);
+            PipelineMetrics.record(PipelineStage.INTERMEDIATE_FACTORS, start);
+            return new FactoredMeal(event, usualBolusFactor, doses.toIntermediateBolusFactors(), doses);
+        }
+        IntermediateBolusFactors intermediateBolusFactors = intermediateFactorCalculator.calculateIntermediateBolusFactors(
+                input.mealCarbs(), input.mealCalories(), usualBolusFactor, input.usualBeCalories());
+        PipelineMetrics.record(PipelineStage.INTERMEDIATE_FACTORS, start);
+        return new FactoredMeal(event, usualBolusFactor, intermediateBolusFactors, null);
+    }
+
+    private static SelectedMeal calculateMethod(FactoredMeal meal, MethodCalculationSelector methodCalculationSelector,
+                                                IntermediateFactorCalculator intermediateFactorCalculator,
+                                                FixedPointDoseCalculator fixedPoint) {
+        MealInput input = meal.event().input();
+        if (fixedPoint != null) {
+            // Auswahl auf den ungerundeten Faktoren wie in double
+            MethodSelectionResult methodSelection = methodCalculationSelector.selectStrategy(input.mealCarbs(),
+                    input.usualBeCalories(), intermediateFactorCalculator.calculateIntermediateBolusFactors(
+                            input.mealCarbs(), input.mealCalories(), meal.usualBolusFactor(), input.usualBeCalories()));
+            fixedPoint.calculateMethod(methodSelection.strategy(), input.insulinTypeCalorieCovering(), meal.doses());
+            return new SelectedMeal(meal, methodSelection, meal.doses().toMethodResults());
+        }
+        MethodSelectionResult methodSelection = methodCalculationSelector.selectStrategy(
+                input.mealCarbs(), input.usualBeCalories(), meal.intermediateBolusFactors());
+        MethodResults methodResults = methodSelection.strategy().calculate(input.mealCarbs(), input.mealCalories(),
+                meal.usualBolusFactor(), input.usualBeCalories(), input.insulinTypeCalorieCovering(),
+                meal.intermediateBolusFactors());
+        return new SelectedMeal(meal, methodSelection, methodResults);
+    }
+
+    private static CalculationResult calculateFinalBolus(SelectedMeal meal, FinalBolusCalculator finalBolusCalculator,
+                                                         FixedPointDoseCalculator fixedPoint) {
+        FactoredMeal factored = meal.factored();
+        MealInput input = factored.event().input();
+        double finalCorrectBolus = fixedPoint != null
+                ? fixedPoint.correctBolusSumAdjustment(meal.methodResults(), input.movementFactor())
+                : finalBolusCalculator.correctBolusSumAdjustment(meal.methodResults(), input.movementFactor());
+        return new CalculationResult(input, factored.usualBolusFactor(), factored.intermediateBolusFactors(),
+                meal.methodSelection(), meal.methodResults(), finalCorrectBolus);
+    }
+
+    private static ExecutorService stageThread(String stage) {
+        return Executors.newSingleThreadExecutor(Thread.ofPlatform().daemon().name("lazycarbs-stream-" + stage).factory());
+    }
+
+    // Zwischenstand nach der ersten Stufe; doses nur im Festkomma-Modus
+    private record FactoredMeal(MealEvent event, double usualBolusFactor, IntermediateBolusFactors intermediateBolusFactors,
+                                FixedPointDoses doses) {
+
+        @Override
+        public String toString() {
+            return event.toString();
+        }
+    }
+
+    // Zwischenstand nach der Methodenstufe
+    private record SelectedMeal(FactoredMeal factored, MethodSelectionResult methodSelection, MethodResults methodResults) {
+
+        @Override
+        public String toString() {
+            return factored.toString();
+        }
+    }
+}
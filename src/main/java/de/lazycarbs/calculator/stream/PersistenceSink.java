@@ -0,0 +1,113 @@
+package de.lazycarbs.calculator.stream;
+
+import de.lazycarbs.calculator.data.CalculationRecord;
+import de.lazycarbs.calculator.data.CalculationResult;
+import de.lazycarbs.calculator.database.CalculationStore;
+
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Letzte Stufe der {@link MealStreamPipeline}: speichert die Ergebnisse synchron im {@link CalculationStore}.
+ * <p>
+ * Die Datensätze werden gebündelt geschrieben, sobald {@code maxBatchSize} beisammen sind oder der Eingangspuffer
+ * leer ist - bei geringer Last also sofort, unter Last in großen Batches. Solange ein Batch geschrieben wird, fordert
+ * die Senke nichts an; ein langsamer Speicher bremst so über die Puffer aller Stufen das Einlesen.
+ * Fehlgeschlagene Batches werden gemeldet und gezählt, die Verarbeitung läuft weiter.
+ */
+final class PersistenceSink implements Flow.Subscriber<CalculationResult> {
+
+    private final CalculationStore store;
+    private final int maxBatchSize;
+    private final int inputCapacity;
+    private final LongSupplier upstreamSubmitted;
+    private final PrintStream errorOutput;
+    private final List<CalculationRecord> batch;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong savedRecords = new AtomicLong();
+    private final AtomicLong failedRecords = new AtomicLong();
+    private volatile int maxBuffered;
+    private Flow.Subscription subscription;
+
+    /**
+     * @param upstream Die vorherige Stufe; ihr Puffer ist der Eingangspuffer der Senke.
+     * @param upstreamSubmitted Anzahl der bisher an die vorherige Stufe übergebenen Ergebnisse.
+     */
+    PersistenceSink(CalculationStore store, int maxBatchSize, SubmissionPublisher<CalculationResult> upstream,
+                    LongSupplier upstreamSubmitted, PrintStream errorOutput) {
+        this.store = store;
+        this.maxBatchSize = maxBatchSize;
+        this.inputCapacity = upstream.getMaxBufferCapacity();
+        this.upstreamSubmitted = upstreamSubmitted;
+        this.errorOutput = errorOutput;
+        this.batch = new ArrayList<>(maxBatchSize);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(CalculationResult result) {
+        long submittedBefore = upstreamSubmitted.getAsLong();
+        int buffered = StreamStage.buffered(submittedBefore, received.incrementAndGet());
+        if (buffered > maxBuffered) {
+            maxBuffered = buffered;
+        }
+        batch.add(CalculationRecord.of(result, LocalDateTime.now()));
+        if (batch.size() >= maxBatchSize || buffered == 0) {
+            flush();
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        flush();
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        flush();
+        completion.complete(null);
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            store.saveCalculations(batch);
+            savedRecords.addAndGet(batch.size());
+        } catch (SQLException | RuntimeException e) {
+            failedRecords.addAndGet(batch.size());
+            errorOutput.println("Speichern: " + batch.size() + " Datensätze nicht gespeichert: " + e.getMessage());
+        }
+        batch.clear();
+    }
+
+    /**
+     * @return Wird abgeschlossen, wenn alle Ergebnisse der Quelle geschrieben (oder als fehlgeschlagen gezählt) sind.
+     */
+    CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    StreamStageStats stats() {
+        long submittedBefore = upstreamSubmitted.getAsLong();
+        return new StreamStageStats("Speichern", StreamStage.buffered(submittedBefore, received.get()), inputCapacity,
+                maxBuffered, savedRecords.get(), failedRecords.get());
+    }
+}
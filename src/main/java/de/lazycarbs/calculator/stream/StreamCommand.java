@@ -0,0 +1,282 @@
+package de.lazycarbs.calculator.stream;
+
+import de.lazycarbs.calculator.core.FixedPointDoseCalculator;
+import de.lazycarbs.calculator.core.MethodRuleFileLoader;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.database.CalculationStore;
+import de.lazycarbs.calculator.database.DatabaseManager;
+import de.lazycarbs.calculator.journal.CalculationJournal;
+import de.lazycarbs.calculator.metrics.PipelineMetrics;
+import de.lazycarbs.calculator.outbox.CalculationOutbox;
+import de.lazycarbs.calculator.outbox.OutboxOptions;
+import de.lazycarbs.calculator.outbox.OutboxStats;
+import de.lazycarbs.calculator.profile.FactorLearningOptions;
+import de.lazycarbs.calculator.profile.FactorLearningStore;
+import de.lazycarbs.calculator.profile.ProfileOptions;
+import de.lazycarbs.calculator.profile.ProfileRegistry;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kommandozeilen-Einstieg für den Stream-Modus: berechnet fortlaufend eintreffende Mahlzeiten und speichert sie.
+ * <pre>
+ * java -jar lazycarbs.jar --stream tcp:[HOST:]PORT|unix:PFAD|PFAD|- (--save-to-db | --journal DIR)
+ *                         [--buffer-size 256] [--store-batch-size 500] [--report-interval 10] [--grace-period 10]
+ *                         [--profiles DIR | --profiles-db] [--user ID] [--rules DATEI]
+ *                         [--pump-step IE [--pump-rounding floor|nearest|ceil]] [--learn-factors DATEI] [--metrics]
+ * </pre>
+ * Die Mahlzeiten kommen als CSV-Zeilen wie im Batch-Modus:
+ * <ul>
+ *     <li>"tcp:9000" bzw. "unix:/tmp/lazycarbs.sock" - nimmt beliebig viele Verbindungen an (TCP standardmäßig nur
+ *     auf 127.0.0.1), bis der Prozess beendet wird</li>
+ *     <li>PFAD einer Named Pipe (mkfifo) - wird nach jedem Ende eines Schreibers neu geöffnet, bis der Prozess beendet
+ *     wird</li>
+ *     <li>PFAD einer Datei oder "-" für stdin - wird einmal gelesen, danach endet der Modus</li>
+ * </ul>
+ * Jede Stufe der {@link MealStreamPipeline} hat einen Eingangspuffer von "--buffer-size" Mahlzeiten; ein langsamer
+ * Speicher bremst so das Einlesen, statt den Speicherbedarf wachsen zu lassen. Alle "--report-interval" Sekunden
+ * (0 = nie) wird die Belegung der Puffer auf stderr ausgegeben. Beim Beenden (Strg+C/SIGTERM) werden keine Mahlzeiten
+ * mehr angenommen; die bereits eingelesenen werden noch bis zu "--grace-period" Sekunden lang gespeichert.
+ * "--pump-step IE" rechnet wie im Batch-Modus in Festkomma (siehe {@link FixedPointDoseCalculator}).
+ * Mit "--save-to-db" wird über die lokale {@link CalculationOutbox} gespeichert (siehe {@link OutboxOptions}); die
+ * Pipeline wartet so auch bei einem Datenbankausfall nicht auf das Netzwerk. Mit "--learn-factors" lernt jede
+ * gespeicherte Berechnung die stündlichen Faktoren mit (siehe {@link FactorLearningOptions}).
+ */
+public final class StreamCommand {
+
+    private static final String TCP_PREFIX = "tcp:";
+    private static final String UNIX_PREFIX = "unix:";
+
+    private StreamCommand() {
+    }
+
+    /**
+     * Führt den Stream-Modus aus.
+     * @param args Die Kommandozeilen-Argumente.
+     * @return Exit-Code (0 = alle Mahlzeiten gespeichert, 1 = fehlerhafte Zeilen, verworfene oder nicht gespeicherte
+     *         Mahlzeiten).
+     */
+    public static int run(String[] args) throws IOException, SQLException, InterruptedException {
+        String endpoint = CommandLineOptions.valueOf(args, "--stream", "-");
+        int bufferSize = CommandLineOptions.intValueOf(args, "--buffer-size", 256);
+        int storeBatchSize = CommandLineOptions.intValueOf(args, "--store-batch-size", 500);
+        int reportIntervalSeconds = CommandLineOptions.intValueOf(args, "--report-interval", 10);
+        int gracePeriodSeconds = CommandLineOptions.intValueOf(args, "--grace-period", 10);
+
+        ProfileRegistry profiles = ProfileOptions.loadRegistry(args);
+        MethodRuleTable rules = MethodRuleFileLoader.fromOptions(args);
+        FixedPointDoseCalculator fixedPoint = FixedPointDoseCalculator.fromOptions(args, rules);
+        CalculationStore store = FactorLearningOptions.wrap(args, openStore(args));
+        MealStreamPipeline pipeline = new MealStreamPipeline(profiles, rules, fixedPoint, store, bufferSize, storeBatchSize,
+                System.err);
+        StreamSession session = new StreamSession(pipeline, new MealEventSource(pipeline, System.err), store, gracePeriodSeconds);
+        if (reportIntervalSeconds > 0) {
+            session.startReporting(reportIntervalSeconds);
+        }
+
+        if (endpoint.startsWith(TCP_PREFIX) || endpoint.startsWith(UNIX_PREFIX)) {
+            serve(endpoint, session);
+        } else if ("-".equals(endpoint)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(session::finish, "lazycarbs-stream-shutdown"));
+            readUntilEnd(System.in, "stdin", session);
+        } else {
+            Path path = Path.of(endpoint);
+            Runtime.getRuntime().addShutdownHook(new Thread(session::finish, "lazycarbs-stream-shutdown"));
+            if (Files.isRegularFile(path)) {
+                readUntilEnd(Files.newInputStream(path), path.getFileName().toString(), session);
+            } else {
+                readPipe(path, session);
+            }
+        }
+        return session.finish();
+    }
+
+    private static void serve(String endpoint, StreamSession session) throws IOException {
+        ServerSocketChannel serverChannel;
+        Path socketFile = null;
+        if (endpoint.startsWith(UNIX_PREFIX)) {
+            socketFile = Path.of(endpoint.substring(UNIX_PREFIX.length()));
+            if (Files.exists(socketFile)) {
+                throw new IllegalArgumentException("Socket-Datei existiert bereits: " + socketFile);
+            }
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            serverChannel.bind(UnixDomainSocketAddress.of(socketFile));
+        } else {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(parseTcpAddress(endpoint.substring(TCP_PREFIX.length())));
+        }
+        Path boundSocketFile = socketFile;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closeQuietly(serverChannel, boundSocketFile);
+            session.finish();
+        }, "lazycarbs-stream-shutdown"));
+        System.err.println("Stream-Modus nimmt Mahlzeiten an auf " + endpoint + " (Strg+C beendet)");
+        session.source().serve(serverChannel);
+    }
+
+    private static void readUntilEnd(InputStream in, String sourceName, StreamSession session) throws IOException {
+        try {
+            session.source().readAll(in, sourceName);
+        } catch (IllegalStateException e) {
+            // beim Beenden: Pipeline nimmt nichts mehr an
+        }
+    }
+
+    // Eine Named Pipe liefert am Ende jedes Schreibers EOF; danach wartet das Öffnen auf den nächsten Schreiber
+    private static void readPipe(Path path, StreamSession session) throws IOException {
+        System.err.println("Stream-Modus liest Mahlzeiten aus " + path + " (Strg+C beendet)");
+        while (!session.isFinishing()) {
+            readUntilEnd(Files.newInputStream(path), path.getFileName().toString(), session);
+        }
+    }
+
+    private static SocketAddress parseTcpAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        String host = colon < 0 ? "127.0.0.1" : address.substring(0, colon);
+        try {
+            return new InetSocketAddress(host, Integer.parseInt(address.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Ungültige TCP-Adresse '" + address + "', erwartet tcp:PORT oder tcp:HOST:PORT");
+        }
+    }
+
+    private static CalculationStore openStore(String[] args) throws IOException {
+        String journalDirectory = CommandLineOptions.valueOf(args, "--journal", null);
+        if (journalDirectory != null) {
+            return new CalculationJournal(Path.of(journalDirectory));
+        }
+        if (!CommandLineOptions.hasFlag(args, "--save-to-db")) {
+            throw new IllegalArgumentException("Der Stream-Modus benötigt --save-to-db oder --journal DIR.");
+        }
+        String dbPassword = System.getenv("DB_PASSWORD");
+        if (dbPassword == null || dbPassword.isEmpty()) {
+            throw new IllegalArgumentException("--save-to-db benötigt die Umgebungsvariable 'DB_PASSWORD'.");
+        }
+        return OutboxOptions.wrap(args, new DatabaseManager(DatabaseManager.DEFAULT_DB_URL, DatabaseManager.DEFAULT_DB_USER, dbPassword));
+    }
+
+    private static void closeQuietly(ServerSocketChannel serverChannel, Path socketFile) {
+        try {
+            serverChannel.close();
+            if (socketFile != null) {
+                Files.deleteIfExists(socketFile);
+            }
+        } catch (IOException e) {
+            System.err.println("Socket konnte nicht geschlossen werden: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hält Pipeline, Quelle und Speicher eines Laufs zusammen und beendet sie genau einmal, egal ob das Ende der
+     * Eingabe oder ein Shutdown-Hook zuerst kommt.
+     */
+    private static final class StreamSession {
+
+        private final MealStreamPipeline pipeline;
+        private final MealEventSource source;
+        private final CalculationStore store;
+        private final int gracePeriodSeconds;
+        private ScheduledExecutorService reporter;
+        private volatile boolean finishing;
+        private Integer exitCode;
+
+        StreamSession(MealStreamPipeline pipeline, MealEventSource source, CalculationStore store, int gracePeriodSeconds) {
+            this.pipeline = pipeline;
+            this.source = source;
+            this.store = store;
+            this.gracePeriodSeconds = gracePeriodSeconds;
+        }
+
+        MealEventSource source() {
+            return source;
+        }
+
+        boolean isFinishing() {
+            return finishing;
+        }
+
+        void startReporting(int intervalSeconds) {
+            reporter = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().daemon().name("lazycarbs-stream-report").factory());
+            reporter.scheduleAtFixedRate(() -> System.err.println(occupancyLine(pipeline.stats()) + outboxLine()),
+                    intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+
+        // Stoppt die Annahme, lässt die Pipeline leerlaufen und gibt Zusammenfassung und Exit-Code aus
+        synchronized int finish() {
+            if (exitCode != null) {
+                return exitCode;
+            }
+            finishing = true;
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+            pipeline.complete();
+            boolean drained;
+            try {
+                drained = pipeline.awaitCompletion(gracePeriodSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                drained = false;
+            }
+            if (!drained) {
+                System.err.println("WARNUNG: Nicht alle eingelesenen Mahlzeiten wurden innerhalb von "
+                        + gracePeriodSeconds + " s gespeichert.");
+            }
+            List<StreamStageStats> stats = pipeline.stats();
+            pipeline.close();
+            try {
+                store.close();
+            } catch (SQLException e) {
+                System.err.println("Fehler beim Schließen des Speichers: " + e.getMessage());
+            }
+
+            System.err.println("Stream beendet. " + source);
+            if (FactorLearningStore.unwrap(store) instanceof CalculationOutbox outbox) {
+                System.err.println("  Outbox " + outbox.directory() + ": " + outbox.stats());
+            }
+            long failed = 0;
+            for (StreamStageStats stageStats : stats) {
+                System.err.println("  " + stageStats);
+                failed += stageStats.failed();
+            }
+            if (PipelineMetrics.ENABLED) {
+                PipelineMetrics.dump(System.err);
+            }
+            exitCode = drained && failed == 0 && source.invalidRecords() == 0 ? 0 : 1;
+            return exitCode;
+        }
+
+        private String outboxLine() {
+            if (!(FactorLearningStore.unwrap(store) instanceof CalculationOutbox outbox)) {
+                return "";
+            }
+            OutboxStats stats = outbox.stats();
+            return " | Outbox ausstehend: " + stats.pendingRecords() + ", übertragen: " + stats.replayedRecords();
+        }
+
+        private static String occupancyLine(List<StreamStageStats> stats) {
+            StringBuilder line = new StringBuilder("Puffer:");
+            for (StreamStageStats stageStats : stats) {
+                line.append(' ').append(stageStats.stage()).append(' ')
+                        .append(stageStats.buffered()).append('/').append(stageStats.capacity());
+            }
+            StreamStageStats sink = stats.get(stats.size() - 1);
+            return line.append(" | gespeichert: ").append(sink.processed()).toString();
+        }
+    }
+}
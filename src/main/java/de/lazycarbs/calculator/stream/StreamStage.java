@@ -0,0 +1,115 @@
+package de.lazycarbs.calculator.stream;
+
+import java.io.PrintStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Eine Rechenstufe der {@link MealStreamPipeline}: nimmt Elemente der vorherigen Stufe entgegen, wandelt sie um und
+ * reicht das Ergebnis an die nächste Stufe weiter.
+ * <p>
+ * Die Stufe fordert immer genau ein Element an und das nächste erst, wenn das Ergebnis übergeben ist. Ist der
+ * (begrenzte) Eingangspuffer der nächsten Stufe voll, blockiert die Übergabe; dann läuft auch der Eingangspuffer
+ * dieser Stufe voll und der Stau setzt sich bis zur Quelle fort, statt Elemente im Speicher anzusammeln.
+ * Wirft die Umwandlung eine Exception, wird das Element gemeldet und verworfen.
+ *
+ * @param <I> Typ der eingehenden Elemente.
+ * @param <O> Typ der ausgehenden Elemente.
+ */
+final class StreamStage<I, O> extends SubmissionPublisher<O> implements Flow.Processor<I, O> {
+
+    private final String name;
+    private final Function<? super I, ? extends O> transform;
+    private final int inputCapacity;
+    private final LongSupplier upstreamSubmitted;
+    private final PrintStream errorOutput;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile int maxBuffered;
+    private Flow.Subscription subscription;
+
+    /**
+     * @param name Name der Stufe für Statistik und Fehlermeldungen.
+     * @param transform Die Umwandlung; läuft immer auf demselben Thread (dem des vorgelagerten Publishers).
+     * @param upstream Die vorherige Stufe; ihr Puffer ist der Eingangspuffer dieser Stufe.
+     * @param upstreamSubmitted Anzahl der bisher an die vorherige Stufe übergebenen Elemente.
+     * @param downstreamExecutor Executor, auf dem die nächste Stufe ihre Elemente erhält.
+     * @param bufferCapacity Größe des Eingangspuffers der nächsten Stufe.
+     */
+    StreamStage(String name, Function<? super I, ? extends O> transform, SubmissionPublisher<I> upstream,
+                LongSupplier upstreamSubmitted, Executor downstreamExecutor, int bufferCapacity, PrintStream errorOutput) {
+        super(downstreamExecutor, bufferCapacity);
+        this.name = name;
+        this.transform = transform;
+        this.inputCapacity = upstream.getMaxBufferCapacity();
+        this.upstreamSubmitted = upstreamSubmitted;
+        this.errorOutput = errorOutput;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(I item) {
+        long submittedBefore = upstreamSubmitted.getAsLong();
+        int buffered = buffered(submittedBefore, received.incrementAndGet());
+        if (buffered > maxBuffered) {
+            maxBuffered = buffered;
+        }
+        O result;
+        try {
+            result = transform.apply(item);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            errorOutput.println(name + ": " + item + " verworfen: " + e.getMessage());
+            subscription.request(1);
+            return;
+        }
+        // blockiert, solange der Puffer der nächsten Stufe voll ist
+        submit(result);
+        // erst nach der Übergabe zählen, damit der Füllstand der nächsten Stufe nie überschätzt wird
+        processed.incrementAndGet();
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    /**
+     * @return Anzahl der an die nächste Stufe übergebenen Elemente.
+     */
+    long submitted() {
+        return processed.get();
+    }
+
+    StreamStageStats stats() {
+        long submittedBefore = upstreamSubmitted.getAsLong();
+        return new StreamStageStats(name, buffered(submittedBefore, received.get()), inputCapacity, maxBuffered,
+                processed.get(), failed.get());
+    }
+
+    /**
+     * Füllstand eines Eingangspuffers aus den Zählern: übergeben minus angekommen. Die Übergaben werden erst danach
+     * gezählt und vor den Ankünften gelesen, der Wert ist daher nie größer als der tatsächliche Füllstand.
+     * SubmissionPublisher#estimateMaximumLag ist hier ungeeignet: es wartet auf die Sperre des Publishers, die ein
+     * blockiertes submit() hält.
+     */
+    static int buffered(long submitted, long received) {
+        return (int) Math.max(0, submitted - received);
+    }
+}
@@ -0,0 +1,27 @@
+package de.lazycarbs.calculator.stream;
+
+/**
+ * Momentaufnahme einer Stufe der {@link MealStreamPipeline}.
+ *
+ * @param stage Name der Stufe.
+ * @param buffered Anzahl der Elemente im Eingangspuffer der Stufe (aus Zählern geschätzt, nie zu hoch).
+ * @param capacity Größe des Eingangspuffers.
+ * @param maxBuffered Höchster bisher beobachteter Füllstand des Eingangspuffers.
+ * @param processed Anzahl der verarbeiteten Elemente (beim Speichern: gespeicherte Datensätze).
+ * @param failed Anzahl der verworfenen Elemente (beim Speichern: nicht gespeicherte Datensätze).
+ */
+public record StreamStageStats(String stage, int buffered, int capacity, int maxBuffered, long processed, long failed) {
+
+    /**
+     * @return Anteil des belegten Eingangspuffers (0 bis 1).
+     */
+    public double occupancy() {
+        return capacity == 0 ? 0.0 : buffered / (double) capacity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %d/%d (max %d), verarbeitet: %d, verworfen: %d",
+                stage, buffered, capacity, maxBuffered, processed, failed);
+    }
+}
@@ -0,0 +1,134 @@
+package de.lazycarbs.calculator.sweep;
+
+import de.lazycarbs.calculator.batch.ColumnarMealBatch;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sammelt die Grenzen zwischen den Berechnungsmethoden entlang der Kohlenhydrat-Achse: für jede Kalorien-Zeile die
+ * Kohlenhydrat-Werte, an denen die gewählte Methode wechselt.
+ * <p>
+ * Die Methodenauswahl hängt nur von Kohlenhydraten, Kalorien und den üblichen Kalorien pro BE ab, nicht von Uhrzeit
+ * (Bolusfaktor) oder Insulinart. Es genügt daher, die Zeilen der ersten Uhrzeit und ersten Insulinart auszuwerten.
+ * Teilergebnisse einzelner Rechenblöcke werden mit {@link #merge(StrategyBoundaries)} zusammengeführt;
+ * eine Instanz selbst ist nicht thread-sicher.
+ */
+public class StrategyBoundaries {
+
+    // Anzahl der Kalorien-Zeilen, die je Übergang beispielhaft ausgegeben werden
+    private static final int SAMPLE_ROWS = 10;
+
+    private final int sampleStride;
+    private final Transition[] transitions = new Transition[4 * 4];
+
+    /**
+     * @param calorieRows Anzahl der Kalorien-Zeilen im Raster (bestimmt den Abstand der Beispielzeilen).
+     */
+    public StrategyBoundaries(int calorieRows) {
+        this.sampleStride = Math.max(1, (calorieRows + SAMPLE_ROWS - 1) / SAMPLE_ROWS);
+    }
+
+    /**
+     * Wertet eine Kalorien-Zeile aus.
+     * @param calorieIndex Index der Zeile auf der Kalorien-Achse.
+     * @param calories Kalorien der Zeile.
+     * @param carbs Kohlenhydrat-Werte der Zeile (aufsteigend).
+     * @param methodCodes Gewählte Methoden, gleiche Reihenfolge wie carbs.
+     * @param offset Erster Eintrag der Zeile in carbs und methodCodes.
+     * @param length Anzahl Einträge der Zeile.
+     */
+    public void addRow(int calorieIndex, double calories, double[] carbs, byte[] methodCodes, int offset, int length) {
+        boolean sampled = calorieIndex % sampleStride == 0;
+        for (int i = offset + 1; i < offset + length; i++) {
+            byte from = methodCodes[i - 1];
+            byte to = methodCodes[i];
+            if (from == to) {
+                continue;
+            }
+            Transition transition = transitions[from * 4 + to];
+            if (transition == null) {
+                transition = new Transition(from, to);
+                transitions[from * 4 + to] = transition;
+            }
+            transition.add(calories, carbs[i - 1], carbs[i], sampled);
+        }
+    }
+
+    /**
+     * Übernimmt die Übergänge eines Teilergebnisses.
+     */
+    public void merge(StrategyBoundaries other) {
+        for (int i = 0; i < transitions.length; i++) {
+            Transition theirs = other.transitions[i];
+            if (theirs == null) {
+                continue;
+            }
+            if (transitions[i] == null) {
+                transitions[i] = new Transition(theirs.from, theirs.to);
+            }
+            transitions[i].merge(theirs);
+        }
+    }
+
+    /**
+     * Gibt je Übergang die Anzahl der Wechsel, den Bereich der Kohlenhydrate und einige Beispielzeilen aus.
+     */
+    public void print(PrintStream out) {
+        out.println("Methodengrenzen entlang der Kohlenhydrate (unabhängig von Uhrzeit und Insulinart):");
+        boolean any = false;
+        for (Transition transition : transitions) {
+            if (transition == null) {
+                continue;
+            }
+            any = true;
+            out.printf(Locale.ROOT, "  %s -> %s: %d Wechsel, zwischen %s und %s g KH%n",
+                    ColumnarMealBatch.methodName(transition.from), ColumnarMealBatch.methodName(transition.to),
+                    transition.rows, format(transition.minCarbs), format(transition.maxCarbs));
+            transition.samples.sort((a, b) -> Double.compare(a[0], b[0]));
+            for (double[] sample : transition.samples) {
+                out.printf(Locale.ROOT, "      %8s kcal: zwischen %s und %s g KH%n",
+                        format(sample[0]), format(sample[1]), format(sample[2]));
+            }
+        }
+        if (!any) {
+            out.println("  keine - im gesamten Raster wird dieselbe Methode gewählt");
+        }
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static final class Transition {
+        private final byte from;
+        private final byte to;
+        private final List<double[]> samples = new ArrayList<>();
+        private long rows;
+        private double minCarbs = Double.POSITIVE_INFINITY;
+        private double maxCarbs = Double.NEGATIVE_INFINITY;
+
+        private Transition(byte from, byte to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private void add(double calories, double carbsBefore, double carbsAfter, boolean sampled) {
+            rows++;
+            minCarbs = Math.min(minCarbs, carbsAfter);
+            maxCarbs = Math.max(maxCarbs, carbsAfter);
+            if (sampled) {
+                samples.add(new double[] {calories, carbsBefore, carbsAfter});
+            }
+        }
+
+        private void merge(Transition other) {
+            rows += other.rows;
+            minCarbs = Math.min(minCarbs, other.minCarbs);
+            maxCarbs = Math.max(maxCarbs, other.maxCarbs);
+            samples.addAll(other.samples);
+        }
+    }
+}
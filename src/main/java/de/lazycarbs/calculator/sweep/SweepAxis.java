@@ -0,0 +1,50 @@
+package de.lazycarbs.calculator.sweep;
+
+/**
+ * Eine Achse des Rasters: gleichmäßig verteilte Werte von {@code from} bis einschließlich {@code to}.
+ * @param name Name der Achse (für Fehlermeldungen).
+ * @param step Abstand zweier Werte; bei from == to wird er nicht verwendet.
+ */
+public record SweepAxis(String name, double from, double to, double step) {
+
+    // Rundungsreserve, damit z.B. 0:0.3:0.1 den Endwert noch enthält
+    private static final double END_TOLERANCE = 1e-9;
+
+    /**
+     * @throws IllegalArgumentException bei nicht endlichen Werten, to < from oder step <= 0.
+     */
+    public SweepAxis {
+        if (!Double.isFinite(from) || !Double.isFinite(to) || !Double.isFinite(step) || to < from || step <= 0) {
+            throw new IllegalArgumentException("Ungültige Achse " + name + ": " + from + ":" + to + ":" + step);
+        }
+        if ((to - from) / step + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Achse " + name + " hat zu viele Werte.");
+        }
+    }
+
+    /**
+     * Liest eine Achse im Format "von:bis:schritt", "von:bis" (Schritt 1) oder als einzelnen Wert.
+     * @throws IllegalArgumentException bei einem ungültigen Format.
+     */
+    public static SweepAxis parse(String name, String specification) {
+        String[] parts = specification.split(":");
+        try {
+            return switch (parts.length) {
+                case 1 -> new SweepAxis(name, Double.parseDouble(parts[0]), Double.parseDouble(parts[0]), 1);
+                case 2 -> new SweepAxis(name, Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), 1);
+                case 3 -> new SweepAxis(name, Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                default -> throw new IllegalArgumentException("Achse " + name + " erwartet von:bis:schritt, gefunden: " + specification);
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Achse " + name + " erwartet Zahlen im Format von:bis:schritt, gefunden: " + specification);
+        }
+    }
+
+    public int count() {
+        return (int) Math.floor((to - from) / step + END_TOLERANCE) + 1;
+    }
+
+    public double value(int index) {
+        return from + index * step;
+    }
+}
@@ -0,0 +1,91 @@
+package de.lazycarbs.calculator.sweep;
+
+import de.lazycarbs.calculator.core.MethodRuleFileLoader;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.profile.ProfileOptions;
+import de.lazycarbs.calculator.util.BolusFactorCalculator;
+import de.lazycarbs.calculator.util.CommandLineOptions;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Kommandozeilen-Einstieg für die Was-wäre-wenn-Berechnung über ein Raster von Mahlzeiten:
+ * <pre>
+ * java -jar lazycarbs.jar --sweep [--carbs 0:200:1] [--calories 0:3000:10] [--minutes 0:1439:60] [--insulin 150,200]
+ *                         [--usual-be-calories 120] [--movement-factor 1.0] [--output FILE|-] [--format csv|binary]
+ *                         [--threads N] [--rules DATEI] [--profiles DIR | --profiles-db] [--user ID]
+ * </pre>
+ * Achsen werden als "von:bis:schritt" (Endwert eingeschlossen) oder als einzelner Wert angegeben, "--minutes" in
+ * Minuten seit Mitternacht. Die Punkte werden gestreamt (CSV oder kompaktes Binärformat, siehe {@link SweepFormat});
+ * Zusammenfassung und Methodengrenzen gehen auf stderr. Ohne "--output" wird nach stdout geschrieben.
+ * "--rules" übernimmt die Schwellenwerte einer Regeldatei (siehe {@link MethodRuleFileLoader}); eigene Regeln
+ * werden im Raster nicht unterstützt. Mit "--user" wird das Raster mit dem Bolusfaktor-Profil dieses Benutzers
+ * gerechnet (siehe {@link ProfileOptions}).
+ */
+public final class SweepCommand {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SweepCommand() {
+    }
+
+    public static void run(String[] args) throws IOException, SQLException {
+        SweepGrid grid = new SweepGrid(
+                SweepAxis.parse("--carbs", CommandLineOptions.valueOf(args, "--carbs", "0:200:1")),
+                SweepAxis.parse("--calories", CommandLineOptions.valueOf(args, "--calories", "0:3000:10")),
+                SweepAxis.parse("--minutes", CommandLineOptions.valueOf(args, "--minutes", "0:1439:60")),
+                parseInsulinTypes(CommandLineOptions.valueOf(args, "--insulin", "150,200")),
+                parseDouble(args, "--usual-be-calories", 120),
+                parseDouble(args, "--movement-factor", 1.0));
+        String output = CommandLineOptions.valueOf(args, "--output", "-");
+        SweepFormat format = SweepFormat.fromName(CommandLineOptions.valueOf(args, "--format",
+                output.endsWith(".bin") ? "binary" : "csv"));
+        int threads = CommandLineOptions.intValueOf(args, "--threads", Runtime.getRuntime().availableProcessors());
+        MethodRuleTable rules = MethodRuleFileLoader.fromOptions(args);
+        BolusFactorCalculator profile = ProfileOptions.loadRegistry(args).calculatorFor(null);
+
+        System.err.printf("Raster: %d x %d x %d x %d = %d Punkte, %d Threads%n", grid.carbs().count(),
+                grid.calories().count(), grid.minuteOfDay().count(), grid.insulinTypeCount(), grid.pointCount(), threads);
+        StrategyBoundaries boundaries = new StrategyBoundaries(grid.calories().count());
+        SweepSummary summary;
+        try (OutputStream out = "-".equals(output)
+                ? new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE)
+                : new BufferedOutputStream(Files.newOutputStream(Path.of(output)), BUFFER_SIZE)) {
+            summary = new SweepEngine(grid, threads, rules, profile).run(out, format, boundaries);
+        }
+        System.err.print(summary);
+        boundaries.print(System.err);
+    }
+
+    private static double[] parseInsulinTypes(String value) {
+        String[] parts = value.split(",");
+        double[] insulinTypes = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                insulinTypes[i] = Double.parseDouble(parts[i].strip());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Option --insulin erwartet Zahlen (z.B. 150,200), gefunden: " + value);
+            }
+        }
+        return insulinTypes;
+    }
+
+    private static double parseDouble(String[] args, String name, double defaultValue) {
+        String value = CommandLineOptions.valueOf(args, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " erwartet eine Zahl, gefunden: " + value);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package de.lazycarbs.calculator.sweep;
+
+import de.lazycarbs.calculator.batch.ColumnarBatchCalculator;
+import de.lazycarbs.calculator.batch.ColumnarMealBatch;
+import de.lazycarbs.calculator.core.MethodRuleTable;
+import de.lazycarbs.calculator.util.BolusFactorCalculator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Berechnet ein {@link SweepGrid} parallel auf einem {@link ForkJoinPool} und schreibt die Punkte in Rasterreihenfolge.
+ * <p>
+ * Das Raster wird nie vollständig im Speicher gehalten: es wird in Abschnitte aus ganzen Zeilen zerlegt, von denen
+ * höchstens {@value #CHUNKS_IN_FLIGHT} gleichzeitig berechnet bzw. geschrieben werden. Jeder Abschnitt wird per
+ * Fork/Join in Blätter von etwa {@value #LEAF_POINTS} Punkten geteilt; ein Blatt befüllt einen
+ * {@link ColumnarMealBatch} des Threads, rechnet ihn mit dem {@link ColumnarBatchCalculator} und kodiert das
+ * Ergebnis sofort. Der aufrufende Thread schreibt die fertigen Abschnitte der Reihe nach.
+ * <p>
+ * Eine Instanz kann mehrfach, aber nicht gleichzeitig von mehreren Threads verwendet werden.
+ */
+public class SweepEngine {
+
+    // Punkte pro Blatt: groß genug für die Spaltenberechnung, klein genug für die Lastverteilung
+    private static final int LEAF_POINTS = 4096;
+    // Punkte pro Abschnitt und Rechen-Thread
+    private static final int CHUNK_POINTS_PER_THREAD = 16 * 1024;
+    // Abschnitte, die gleichzeitig in Arbeit sind (begrenzt den Speicherbedarf unabhängig von der Rastergröße)
+    private static final int CHUNKS_IN_FLIGHT = 3;
+
+    static final String CSV_HEADER = "carbs,calories,hour,minute,insulin_type,usual_bolus_factor,method,"
+            + "correct_bolus_sum,delayed_calorie_bolus,final_correct_bolus";
+
+    private final SweepGrid grid;
+    private final int parallelism;
+    private final ColumnarBatchCalculator calculator;
+    private final int carbsCount;
+    private final int leafRows;
+    private final long chunkRows;
+    private final ThreadLocal<ColumnarMealBatch> batches;
+
+    /**
+     * @param grid Das Raster.
+     * @param parallelism Anzahl der Rechen-Threads.
+     * @throws IllegalArgumentException wenn parallelism kleiner als 1 ist.
+     */
+    public SweepEngine(SweepGrid grid, int parallelism) {
+        this(grid, parallelism, MethodRuleTable.defaults());
+    }
+
+    /**
+     * @param rules Regeltabelle der Methodenauswahl (nur Standardregeln, Schwellenwerte frei).
+     * @throws IllegalArgumentException wenn parallelism kleiner als 1 ist oder die Tabelle eigene Regeln enthält.
+     */
+    public SweepEngine(SweepGrid grid, int parallelism, MethodRuleTable rules) {
+        this(grid, parallelism, rules, new BolusFactorCalculator());
+    }
+
+    /**
+     * @param rules Regeltabelle der Methodenauswahl (nur Standardregeln, Schwellenwerte frei).
+     * @param bolusFactorCalculator Bolusfaktor-Profil für alle Punkte des Rasters.
+     * @throws IllegalArgumentException wenn parallelism kleiner als 1 ist oder die Tabelle eigene Regeln enthält.
+     */
+    public SweepEngine(SweepGrid grid, int parallelism, MethodRuleTable rules, BolusFactorCalculator bolusFactorCalculator) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Anzahl Threads muss positiv sein.");
+        }
+        this.grid = grid;
+        this.parallelism = parallelism;
+        this.calculator = new ColumnarBatchCalculator(true, rules, bolusFactorCalculator);
+        this.carbsCount = grid.carbs().count();
+        this.leafRows = Math.max(1, LEAF_POINTS / carbsCount);
+        long rowsPerChunk = Math.max(leafRows, (long) CHUNK_POINTS_PER_THREAD * parallelism / carbsCount);
+        this.chunkRows = rowsPerChunk / leafRows * leafRows;
+        int batchCapacity = leafRows * carbsCount;
+        this.batches = ThreadLocal.withInitial(() -> new ColumnarMealBatch(batchCapacity));
+    }
+
+    /**
+     * Berechnet das Raster und schreibt es im gewünschten Format.
+     * @param out Ziel der Ausgabe; wird nicht geschlossen, aber am Ende geleert.
+     * @param format Ausgabeformat.
+     * @param boundaries Sammelt die Methodengrenzen oder null, wenn sie nicht benötigt werden.
+     * @throws IOException wenn das Schreiben fehlschlägt.
+     */
+    public SweepSummary run(OutputStream out, SweepFormat format, StrategyBoundaries boundaries) throws IOException {
+        long startNanos = System.nanoTime();
+        byte[] header = format == SweepFormat.CSV ? (CSV_HEADER + "\n").getBytes(StandardCharsets.US_ASCII) : binaryHeader();
+        out.write(header);
+        long bytesWritten = header.length;
+
+        long[] methodCounts = new long[4];
+        double minBolus = Double.POSITIVE_INFINITY;
+        double maxBolus = Double.NEGATIVE_INFINITY;
+        long rowCount = grid.rowCount();
+        ArrayDeque<ChunkTask> inFlight = new ArrayDeque<>(CHUNKS_IN_FLIGHT);
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            long nextRow = 0;
+            while (nextRow < rowCount || !inFlight.isEmpty()) {
+                while (nextRow < rowCount && inFlight.size() < CHUNKS_IN_FLIGHT) {
+                    long toRow = Math.min(rowCount, nextRow + chunkRows);
+                    ChunkTask chunk = new ChunkTask(nextRow, toRow, format, boundaries != null);
+                    pool.execute(chunk);
+                    inFlight.addLast(chunk);
+                    nextRow = toRow;
+                }
+                ChunkTask chunk = inFlight.removeFirst();
+                chunk.join();
+                for (Leaf leaf : chunk.leaves) {
+                    out.write(leaf.encoded, 0, leaf.encodedLength);
+                    bytesWritten += leaf.encodedLength;
+                    for (int code = 0; code < methodCounts.length; code++) {
+                        methodCounts[code] += leaf.methodCounts[code];
+                    }
+                    minBolus = Math.min(minBolus, leaf.minFinalCorrectBolus);
+                    maxBolus = Math.max(maxBolus, leaf.maxFinalCorrectBolus);
+                    if (boundaries != null && leaf.boundaries != null) {
+                        boundaries.merge(leaf.boundaries);
+                    }
+                }
+            }
+        }
+        out.flush();
+        return new SweepSummary(grid.pointCount(), methodCounts, minBolus, maxBolus, bytesWritten, parallelism,
+                System.nanoTime() - startNanos);
+    }
+
+    private byte[] binaryHeader() {
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 + 9 * 8 + 4 + grid.insulinTypeCount() * 8 + 2 * 8 + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(SweepFormat.BINARY_MAGIC).putInt(SweepFormat.BINARY_VERSION);
+        for (SweepAxis axis : new SweepAxis[] {grid.carbs(), grid.calories(), grid.minuteOfDay()}) {
+            header.putDouble(axis.from()).putDouble(axis.to()).putDouble(axis.step());
+        }
+        header.putInt(grid.insulinTypeCount());
+        for (int i = 0; i < grid.insulinTypeCount(); i++) {
+            header.putDouble(grid.insulinType(i));
+        }
+        header.putDouble(grid.usualBeCalories()).putDouble(grid.movementFactor()).putLong(grid.pointCount());
+        return header.array();
+    }
+
+    /**
+     * Ein Abschnitt aus ganzen Zeilen; teilt sich rekursiv, bis je Aufgabe ein Blatt übrig bleibt.
+     */
+    @SuppressWarnings("serial") // Serializable über RecursiveAction; die Aufgaben verlassen den Pool nie
+    private final class ChunkTask extends RecursiveAction {
+        private final Leaf[] leaves;
+
+        private ChunkTask(long fromRow, long toRow, SweepFormat format, boolean collectBoundaries) {
+            int leafCount = (int) ((toRow - fromRow + leafRows - 1) / leafRows);
+            leaves = new Leaf[leafCount];
+            for (int i = 0; i < leafCount; i++) {
+                long leafFrom = fromRow + (long) i * leafRows;
+                leaves[i] = new Leaf(leafFrom, Math.min(toRow, leafFrom + leafRows), format, collectBoundaries);
+            }
+        }
+
+        @Override
+        protected void compute() {
+            new LeafRange(leaves, 0, leaves.length).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class LeafRange extends RecursiveAction {
+        private final Leaf[] leaves;
+        private final int from;
+        private final int to;
+
+        private LeafRange(Leaf[] leaves, int from, int to) {
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                leaves[from].compute();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LeafRange(leaves, from, middle), new LeafRange(leaves, middle, to));
+        }
+    }
+
+    /**
+     * Zeilen [fromRow, toRow) eines Abschnitts mit ihrer kodierten Ausgabe und Teilstatistik.
+     */
+    private final class Leaf {
+        private final long fromRow;
+        private final long toRow;
+        private final SweepFormat format;
+        private final boolean collectBoundaries;
+        private final long[] methodCounts = new long[4];
+        private double minFinalCorrectBolus = Double.POSITIVE_INFINITY;
+        private double maxFinalCorrectBolus = Double.NEGATIVE_INFINITY;
+        private StrategyBoundaries boundaries;
+        private byte[] encoded;
+        private int encodedLength;
+
+        private Leaf(long fromRow, long toRow, SweepFormat format, boolean collectBoundaries) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.format = format;
+            this.collectBoundaries = collectBoundaries;
+        }
+
+        private void compute() {
+            ColumnarMealBatch batch = batches.get();
+            batch.setSize(0);
+            int calorieCount = grid.calories().count();
+            int minuteCount = grid.minuteOfDay().count();
+            for (long row = fromRow; row < toRow; row++) {
+                int calorieIndex = (int) (row % calorieCount);
+                long slice = row / calorieCount;
+                int minuteOfDay = (int) Math.round(grid.minuteOfDay().value((int) (slice % minuteCount)));
+                double insulinType = grid.insulinType((int) (slice / minuteCount));
+                double calories = grid.calories().value(calorieIndex);
+                for (int carbIndex = 0; carbIndex < carbsCount; carbIndex++) {
+                    batch.add(grid.carbs().value(carbIndex), calories, grid.usualBeCalories(), insulinType,
+                            minuteOfDay / 60, minuteOfDay % 60, grid.movementFactor());
+                }
+            }
+            calculator.calculate(batch);
+
+            int size = batch.size();
+            for (int i = 0; i < size; i++) {
+                methodCounts[batch.methodCodes[i]]++;
+                minFinalCorrectBolus = Math.min(minFinalCorrectBolus, batch.finalCorrectBolus[i]);
+                maxFinalCorrectBolus = Math.max(maxFinalCorrectBolus, batch.finalCorrectBolus[i]);
+            }
+            // Die Methodenauswahl hängt nicht von Uhrzeit und Insulinart ab: die erste Scheibe genügt
+            if (collectBoundaries && fromRow < calorieCount) {
+                boundaries = new StrategyBoundaries(calorieCount);
+                for (long row = fromRow; row < Math.min(toRow, calorieCount); row++) {
+                    int offset = (int) (row - fromRow) * carbsCount;
+                    boundaries.addRow((int) row, batch.mealCalories[offset], batch.mealCarbs, batch.methodCodes, offset, carbsCount);
+                }
+            }
+            if (format == SweepFormat.CSV) {
+                encodeCsv(batch);
+            } else {
+                encodeBinary(batch);
+            }
+        }
+
+        private void encodeCsv(ColumnarMealBatch batch) {
+            int size = batch.size();
+            StringBuilder text = new StringBuilder(size * 112);
+            for (int i = 0; i < size; i++) {
+                text.append(batch.mealCarbs[i]).append(',')
+                        .append(batch.mealCalories[i]).append(',')
+                        .append(batch.currentHour[i]).append(',')
+                        .append(batch.currentMinute[i]).append(',')
+                        .append(batch.insulinTypeCalorieCovering[i]).append(',')
+                        .append(batch.usualBolusFactor[i]).append(',')
+                        .append(ColumnarMealBatch.methodName(batch.methodCodes[i])).append(',')
+                        .append(batch.correctBolusSum[i]).append(',')
+                        .append(batch.delayedCalorieBolus[i]).append(',')
+                        .append(batch.finalCorrectBolus[i]).append('\n');
+            }
+            encoded = text.toString().getBytes(StandardCharsets.US_ASCII);
+            encodedLength = encoded.length;
+        }
+
+        private void encodeBinary(ColumnarMealBatch batch) {
+            int size = batch.size();
+            ByteBuffer buffer = ByteBuffer.allocate(size * SweepFormat.BINARY_POINT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < size; i++) {
+                buffer.put(batch.methodCodes[i])
+                        .putFloat((float) batch.finalCorrectBolus[i])
+                        .putFloat((float) batch.delayedCalorieBolus[i]);
+            }
+            encoded = buffer.array();
+            encodedLength = encoded.length;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package de.lazycarbs.calculator.sweep;
+
+/**
+ * Ausgabeformate der Rasterberechnung.
+ * <ul>
+ *     <li>CSV: eine Zeile pro Punkt mit Eingaben und Ergebnissen.</li>
+ *     <li>BINARY: kompaktes Raster (Little Endian). Kopf: "LCSG", Version (int), je Achse von/bis/Schritt für
+ *     Kohlenhydrate, Kalorien und Uhrzeit (double), Anzahl Insulinarten (int) und ihre Werte (double), übliche
+ *     Kalorien pro BE und Bewegungs-Faktor (double), Anzahl Punkte (long). Danach pro Punkt in Rasterreihenfolge
+ *     {@value SweepFormat#BINARY_POINT_BYTES} Byte: Methodencode (byte), angepasster Sofort-Bolus und verzögerter
+ *     Bolus (je float). Die Koordinaten ergeben sich aus der Position.</li>
+ * </ul>
+ */
+public enum SweepFormat {
+    CSV,
+    BINARY;
+
+    public static final int BINARY_MAGIC = 0x4753434C; // "LCSG" in Little Endian
+    public static final int BINARY_VERSION = 1;
+    public static final int BINARY_POINT_BYTES = 1 + 4 + 4;
+
+    /**
+     * @throws IllegalArgumentException wenn der Name unbekannt ist.
+     */
+    public static SweepFormat fromName(String name) {
+        return switch (name.toLowerCase()) {
+            case "csv" -> CSV;
+            case "binary", "bin" -> BINARY;
+            default -> throw new IllegalArgumentException("Unbekanntes Format: " + name + " (erlaubt: csv, binary)");
+        };
+    }
+}
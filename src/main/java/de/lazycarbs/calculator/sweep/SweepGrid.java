@@ -0,0 +1,57 @@
+package de.lazycarbs.calculator.sweep;
+
+/**
+ * Das Raster einer Was-wäre-wenn-Berechnung: Kohlenhydrate × Kalorien × Uhrzeit (Minute des Tages) × Insulinart,
+ * bei festen üblichen Kalorien pro BE und festem Bewegungs-Faktor.
+ * <p>
+ * Die Punkte sind zeilenweise nummeriert, die Kohlenhydrate laufen am schnellsten:
+ * {@code index = ((insulin * minutes + minute) * calories + calorie) * carbs + carb}.
+ * Eine Zeile umfasst alle Kohlenhydrat-Werte bei fester Kalorienzahl, Uhrzeit und Insulinart.
+ */
+public record SweepGrid(SweepAxis carbs, SweepAxis calories, SweepAxis minuteOfDay, double[] insulinTypes,
+                        double usualBeCalories, double movementFactor) {
+
+    /**
+     * @throws IllegalArgumentException bei negativen Werten, Minuten außerhalb 0-1439 oder ohne Insulinart.
+     */
+    public SweepGrid {
+        if (carbs.from() < 0 || calories.from() < 0) {
+            throw new IllegalArgumentException("Kohlenhydrate und Kalorien dürfen nicht negativ sein.");
+        }
+        if (minuteOfDay.from() < 0 || minuteOfDay.to() > 24 * 60 - 1 || minuteOfDay.from() != Math.rint(minuteOfDay.from())
+                || (minuteOfDay.count() > 1 && minuteOfDay.step() != Math.rint(minuteOfDay.step()))) {
+            throw new IllegalArgumentException("Die Uhrzeit-Achse erwartet ganze Minuten von 0 bis 1439.");
+        }
+        if (insulinTypes.length == 0) {
+            throw new IllegalArgumentException("Mindestens eine Insulinart (150 oder 200) wird benötigt.");
+        }
+        if (!(usualBeCalories > 0) || !Double.isFinite(movementFactor)) {
+            throw new IllegalArgumentException("Ungültige übliche Kalorien pro BE oder Bewegungs-Faktor.");
+        }
+        insulinTypes = insulinTypes.clone();
+    }
+
+    @Override
+    public double[] insulinTypes() {
+        return insulinTypes.clone();
+    }
+
+    public int insulinTypeCount() {
+        return insulinTypes.length;
+    }
+
+    public double insulinType(int index) {
+        return insulinTypes[index];
+    }
+
+    /**
+     * @return Anzahl der Zeilen (Kalorien × Uhrzeiten × Insulinarten).
+     */
+    public long rowCount() {
+        return (long) calories.count() * minuteOfDay.count() * insulinTypes.length;
+    }
+
+    public long pointCount() {
+        return rowCount() * carbs.count();
+    }
+}
@@ -0,0 +1,48 @@
+package de.lazycarbs.calculator.sweep;
+
+import de.lazycarbs.calculator.batch.ColumnarMealBatch;
+
+import java.util.Locale;
+
+/**
+ * Ergebnis einer Rasterberechnung.
+ * @param points Anzahl berechneter Punkte.
+ * @param methodCounts Anzahl Punkte je Methodencode (Index = Code aus {@link ColumnarMealBatch}).
+ * @param minFinalCorrectBolus Kleinster angepasster Sofort-Bolus.
+ * @param maxFinalCorrectBolus Größter angepasster Sofort-Bolus.
+ * @param bytesWritten Größe der Ausgabe in Byte.
+ * @param threads Anzahl der Rechen-Threads.
+ * @param elapsedNanos Gesamtdauer inklusive Schreiben.
+ */
+public record SweepSummary(long points, long[] methodCounts, double minFinalCorrectBolus, double maxFinalCorrectBolus,
+                           long bytesWritten, int threads, long elapsedNanos) {
+
+    public SweepSummary {
+        methodCounts = methodCounts.clone();
+    }
+
+    @Override
+    public long[] methodCounts() {
+        return methodCounts.clone();
+    }
+
+    public double pointsPerSecond() {
+        return elapsedNanos == 0 ? 0 : points * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(256);
+        text.append(String.format(Locale.ROOT, "Berechnet: %d Punkte in %.2f s (%.0f Punkte/s, %d Threads), %d Byte geschrieben%n",
+                points, elapsedNanos / 1e9, pointsPerSecond(), threads, bytesWritten));
+        for (byte code = 0; code < methodCounts.length; code++) {
+            text.append(String.format(Locale.ROOT, "  %-22s %12d (%5.1f %%)%n", ColumnarMealBatch.methodName(code),
+                    methodCounts[code], points == 0 ? 0.0 : methodCounts[code] * 100.0 / points));
+        }
+        if (points > 0) {
+            text.append(String.format(Locale.ROOT, "  Angepasster Sofort-Bolus: %.2f bis %.2f IE%n",
+                    minFinalCorrectBolus, maxFinalCorrectBolus));
+        }
+        return text.toString();
+    }
+}
@@ -1,10 +1,31 @@
 package de.lazycarbs.calculator.util;
 
+/**
+ * Berechnet den tageszeitabhängigen Bolusfaktor aus einem stündlichen Faktor-Profil.
+ * <p>
+ * Eine Instanz ist unveränderlich: Profil, kumulierte Minutenfaktoren und die vorberechneten Durchschnitte für
+ * das übliche {@value #PRECOMPUTED_WINDOW_MINUTES}-Minuten-Fenster werden im Konstruktor erzeugt. Eine Instanz
+ * kann daher ohne Synchronisation von beliebig vielen Threads genutzt und als Ganzes ausgetauscht werden
+ * (siehe {@code ProfileRegistry}).
+ */
 public class BolusFactorCalculator {
 
-    // Definiert die stündlichen Bolusfaktoren von 0 bis 23 Uhr.
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+
+    // Fensterlänge, für die alle 1440 Startminuten vorberechnet werden (wie in der Berechnungskette)
+    public static final int PRECOMPUTED_WINDOW_MINUTES = 120;
+
+    /**
+     * Maximale absolute Abweichung von {@link #calculateAverageBolusFactor} gegenüber der minutenweisen
+     * Schleife {@link #calculateAverageBolusFactorIterative}. Beide summieren dieselben Minutenfaktoren,
+     * nur in anderer Reihenfolge; die Rundungsfehler liegen daher weit unter dieser Schranke.
+     */
+    public static final double AVERAGE_FACTOR_EPSILON = 1e-9;
+
+    // Definiert die stündlichen Standard-Bolusfaktoren von 0 bis 23 Uhr (ohne eigenes Profil).
     // Index entspricht der Stunde.
-    private static final double[] HOURLY_FACTORS = {
+    private static final double[] DEFAULT_HOURLY_FACTORS = {
             0.83, // 0:00 Uhr
             0.77, // 1:00 Uhr
             0.72, // 2:00 Uhr
@@ -31,6 +52,58 @@ public class BolusFactorCalculator {
             1.01  // 23:00 Uhr
     };
 
+    private final double[] hourlyFactors;
+
+    // Kumulierte Minutenfaktoren über einen Tag: cumulativeFactors[m] = Summe der Faktoren der Minuten 0 .. m-1.
+    // cumulativeFactors[MINUTES_PER_DAY] ist damit die Summe eines ganzen Tages.
+    private final double[] cumulativeFactors;
+
+    // Durchschnitt über PRECOMPUTED_WINDOW_MINUTES Minuten für jede Startminute des Tages
+    private final double[] precomputedWindowAverages;
+
+    /**
+     * Verwendet das Standard-Profil.
+     */
+    public BolusFactorCalculator() {
+        this(DEFAULT_HOURLY_FACTORS);
+    }
+
+    /**
+     * @param hourlyFactors Die 24 stündlichen Bolusfaktoren (Index = Stunde); das Array wird kopiert.
+     * @throws IllegalArgumentException wenn nicht genau 24 positive, endliche Faktoren angegeben sind.
+     */
+    public BolusFactorCalculator(double[] hourlyFactors) {
+        if (hourlyFactors.length != 24) {
+            throw new IllegalArgumentException("Ein Profil braucht genau 24 stündliche Faktoren, gefunden: " + hourlyFactors.length);
+        }
+        for (int hour = 0; hour < hourlyFactors.length; hour++) {
+            if (!(hourlyFactors[hour] > 0) || Double.isInfinite(hourlyFactors[hour])) {
+                throw new IllegalArgumentException("Ungültiger Bolusfaktor für " + hour + " Uhr: " + hourlyFactors[hour]);
+            }
+        }
+        this.hourlyFactors = hourlyFactors.clone();
+        this.cumulativeFactors = buildCumulativeFactors(this.hourlyFactors);
+        this.precomputedWindowAverages = new double[MINUTES_PER_DAY];
+        for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+            precomputedWindowAverages[minuteOfDay] = averageFromCumulativeFactors(minuteOfDay, PRECOMPUTED_WINDOW_MINUTES);
+        }
+    }
+
+    /**
+     * @return Eine Kopie der 24 stündlichen Faktoren dieses Profils.
+     */
+    public double[] hourlyFactors() {
+        return hourlyFactors.clone();
+    }
+
+    private static double[] buildCumulativeFactors(double[] hourlyFactors) {
+        double[] cumulativeFactors = new double[MINUTES_PER_DAY + 1];
+        for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+            cumulativeFactors[minuteOfDay + 1] = cumulativeFactors[minuteOfDay] + hourlyFactors[minuteOfDay / MINUTES_PER_HOUR];
+        }
+        return cumulativeFactors;
+    }
+
     /**
      * Gibt den Bolusfaktor für eine bestimmte Stunde zurück.
      * @param hour Die Stunde (0-23).
@@ -42,12 +115,15 @@ public class BolusFactorCalculator {
             throw new IllegalArgumentException("Stunde muss zwischen 0 und 23 liegen.");
         }
         // Liest den Faktor direkt aus dem Array, da es nun alle 24 Stunden abdeckt.
-        return HOURLY_FACTORS[hour];
+        return hourlyFactors[hour];
     }
 
     /**
      * Berechnet den durchschnittlichen Bolusfaktor über einen bestimmten Zeitraum.
-     * Die Berechnung erfolgt minutenbasiert.
+     * Die Berechnung erfolgt minutenbasiert, aber in konstanter Zeit über die kumulierten Minutenfaktoren
+     * (inklusive Wrap-around über Mitternacht); für {@value #PRECOMPUTED_WINDOW_MINUTES} Minuten wird der
+     * vorberechnete Wert gelesen. Das Ergebnis weicht höchstens um {@link #AVERAGE_FACTOR_EPSILON} von der
+     * minutenweisen Schleife ab.
      * @param startHour Die Startstunde (0-23).
      * @param startMinute Die Startminute (0-59).
      * @param durationMinutes Die Dauer des Zeitraums in Minuten.
@@ -55,13 +131,44 @@ public class BolusFactorCalculator {
      * @throws IllegalArgumentException wenn die Startzeit oder Dauer ungültig ist.
      */
     public double calculateAverageBolusFactor(int startHour, int startMinute, int durationMinutes) {
-        if (startHour < 0 || startHour > 23 || startMinute < 0 || startMinute > 59) {
-            throw new IllegalArgumentException("Ungültige Startzeit. Stunde (0-23), Minute (0-59).");
+        validateTimeWindow(startHour, startMinute, durationMinutes);
+
+        int startMinuteOfDay = startHour * MINUTES_PER_HOUR + startMinute;
+        if (durationMinutes == PRECOMPUTED_WINDOW_MINUTES) {
+            return precomputedWindowAverages[startMinuteOfDay];
         }
-        if (durationMinutes <= 0) {
-            throw new IllegalArgumentException("Dauer muss positiv sein.");
+        return averageFromCumulativeFactors(startMinuteOfDay, durationMinutes);
+    }
+
+    private double averageFromCumulativeFactors(int startMinuteOfDay, int durationMinutes) {
+        int fullDays = durationMinutes / MINUTES_PER_DAY;
+        int remainingMinutes = durationMinutes % MINUTES_PER_DAY;
+
+        double totalFactorSum = fullDays * cumulativeFactors[MINUTES_PER_DAY];
+        int endMinuteOfDay = startMinuteOfDay + remainingMinutes;
+        if (endMinuteOfDay <= MINUTES_PER_DAY) {
+            totalFactorSum += cumulativeFactors[endMinuteOfDay] - cumulativeFactors[startMinuteOfDay];
+        } else {
+            // Zeitraum geht über Mitternacht: Rest des Tages + Anfang des nächsten Tages
+            totalFactorSum += (cumulativeFactors[MINUTES_PER_DAY] - cumulativeFactors[startMinuteOfDay])
+                    + cumulativeFactors[endMinuteOfDay - MINUTES_PER_DAY];
         }
 
+        return totalFactorSum / durationMinutes;
+    }
+
+    /**
+     * Berechnet den durchschnittlichen Bolusfaktor mit einer Schleife über jede einzelne Minute.
+     * Referenz-Implementierung für {@link #calculateAverageBolusFactor} (Vergleich und Benchmark).
+     * @param startHour Die Startstunde (0-23).
+     * @param startMinute Die Startminute (0-59).
+     * @param durationMinutes Die Dauer des Zeitraums in Minuten.
+     * @return Der durchschnittliche Bolusfaktor für den angegebenen Zeitraum.
+     * @throws IllegalArgumentException wenn die Startzeit oder Dauer ungültig ist.
+     */
+    public double calculateAverageBolusFactorIterative(int startHour, int startMinute, int durationMinutes) {
+        validateTimeWindow(startHour, startMinute, durationMinutes);
+
         double totalFactorSum = 0.0;
         int currentHour = startHour;
         int currentMinute = startMinute;
@@ -80,4 +187,13 @@ public class BolusFactorCalculator {
 
         return totalFactorSum / durationMinutes;
     }
+
+    private static void validateTimeWindow(int startHour, int startMinute, int durationMinutes) {
+        if (startHour < 0 || startHour > 23 || startMinute < 0 || startMinute > 59) {
+            throw new IllegalArgumentException("Ungültige Startzeit. Stunde (0-23), Minute (0-59).");
+        }
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Dauer muss positiv sein.");
+        }
+    }
 }
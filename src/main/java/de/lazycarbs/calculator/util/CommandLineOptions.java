@@ -0,0 +1,61 @@
+package de.lazycarbs.calculator.util;
+
+/**
+ * Einfache Auswertung der Kommandozeilen-Argumente (z.B. "--no-db", "--threads 4").
+ */
+public final class CommandLineOptions {
+
+    private CommandLineOptions() {
+    }
+
+    /**
+     * Prüft, ob ein Schalter (ohne Wert) gesetzt ist.
+     * @param args Die Kommandozeilen-Argumente.
+     * @param name Name des Schalters, z.B. "--no-db".
+     * @return true, wenn der Schalter vorhanden ist.
+     */
+    public static boolean hasFlag(String[] args, String name) {
+        for (String arg : args) {
+            if (name.equalsIgnoreCase(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Liest den Wert einer Option, der direkt auf ihren Namen folgt.
+     * @param args Die Kommandozeilen-Argumente.
+     * @param name Name der Option, z.B. "--threads".
+     * @param defaultValue Rückgabewert, wenn die Option fehlt.
+     * @return Der Wert der Option oder defaultValue.
+     * @throws IllegalArgumentException wenn die Option ohne Wert angegeben wurde.
+     */
+    public static String valueOf(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length; i++) {
+            if (name.equalsIgnoreCase(args[i])) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Option " + name + " benötigt einen Wert.");
+                }
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Liest den ganzzahligen Wert einer Option.
+     * @throws IllegalArgumentException wenn der Wert keine ganze Zahl ist.
+     */
+    public static int intValueOf(String[] args, String name, int defaultValue) {
+        String value = valueOf(args, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " erwartet eine ganze Zahl, gefunden: " + value);
+        }
+    }
+}